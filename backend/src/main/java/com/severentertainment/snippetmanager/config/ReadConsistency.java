@@ -0,0 +1,52 @@
+package com.severentertainment.snippetmanager.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Lets code that must see its own (or the latest) writes read from the primary database even in read-only
+ * transactions, which {@link ReadWriteRoutingDataSource} otherwise sends to a replica. Has no effect without replicas.
+ * <p>
+ * The choice is made when a transaction first uses a connection, so it can be made inside a transactional method.
+ */
+public final class ReadConsistency {
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = ThreadLocal.withInitial(() -> false);
+
+    private ReadConsistency() {
+    }
+
+    /**
+     * Returns whether reads on the current thread must go to the primary.
+     *
+     * @return {@code true} if reads must go to the primary.
+     */
+    public static boolean isPrimaryRequired() {
+        return PRIMARY_REQUIRED.get();
+    }
+
+    /**
+     * Runs an action with all of its reads going to the primary.
+     *
+     * @param action The action to run.
+     * @param <T> The type of the result.
+     * @return The result of the action.
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        boolean previous = PRIMARY_REQUIRED.get();
+        PRIMARY_REQUIRED.set(true);
+        try {
+            return action.get();
+        } finally {
+            PRIMARY_REQUIRED.set(previous);
+        }
+    }
+
+    static void setPrimaryRequired(boolean primaryRequired) {
+        if (primaryRequired) {
+            PRIMARY_REQUIRED.set(true);
+        } else {
+            PRIMARY_REQUIRED.remove();
+        }
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.severentertainment.snippetmanager.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Sends all reads of a request to the primary database when the client asks for it with
+ * {@code X-Read-Your-Writes: true}, e.g. right after one of its own writes, instead of reading from a replica
+ * that may not have caught up yet.
+ */
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String HEADER = "X-Read-Your-Writes";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ReadConsistency.setPrimaryRequired(Boolean.parseBoolean(request.getHeader(HEADER)));
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ReadConsistency.setPrimaryRequired(false); // The request thread is handed back to the server
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ReadConsistency.setPrimaryRequired(false);
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.severentertainment.snippetmanager.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.List;
+
+/**
+ * The connection pools of the read replicas, in the order of {@code snippetmanager.replica.urls}.
+ *
+ * @param dataSources The replica pools.
+ */
+public record ReplicaDataSources(List<HikariDataSource> dataSources) implements DisposableBean {
+
+    @Override
+    public void destroy() {
+        dataSources.forEach(HikariDataSource::close);
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.severentertainment.snippetmanager.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits database traffic between the primary and read replicas: read-only transactions, which most reads in
+ * the services are, go to a replica, everything else to the primary (see {@link ReadWriteRoutingDataSource}).
+ * Enabled with {@code snippetmanager.replica.enabled=true}; replaces the auto-configured data source.
+ * <p>
+ * Replicas are expected to lag behind the primary. Code that must see the latest writes reads through
+ * {@link ReadConsistency}, and clients can ask for it per request (see {@link ReadYourWritesInterceptor}).
+ */
+@Configuration
+@ConditionalOnProperty(name = "snippetmanager.replica.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    /**
+     * Creates the pool of the primary database from the {@code spring.datasource.*} properties.
+     *
+     * @param properties The data source properties.
+     * @return The primary pool.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Creates one pool per replica URL, with the credentials of the primary.
+     *
+     * @param properties The data source properties.
+     * @param urls The JDBC URLs of the replicas.
+     * @param maximumPoolSize The maximum number of connections per replica.
+     * @return The replica pools.
+     */
+    @Bean
+    public ReplicaDataSources replicaDataSources(DataSourceProperties properties,
+                                                 @Value("${snippetmanager.replica.urls}") List<String> urls,
+                                                 @Value("${snippetmanager.replica.maximum-pool-size:16}") int maximumPoolSize) {
+        List<HikariDataSource> dataSources = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("replica-" + (i + 1));
+            dataSource.setJdbcUrl(urls.get(i));
+            dataSource.setUsername(properties.determineUsername());
+            dataSource.setPassword(properties.determinePassword());
+            dataSource.setMaximumPoolSize(maximumPoolSize);
+            dataSources.add(dataSource);
+        }
+        return new ReplicaDataSources(dataSources);
+    }
+
+    /**
+     * Creates the data source used by JPA, JDBC templates and Flyway.
+     *
+     * @param primary The primary pool.
+     * @param replicas The replica pools.
+     * @return The routing data source.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary, ReplicaDataSources replicas) {
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replicas.dataSources()));
+    }
+
+}
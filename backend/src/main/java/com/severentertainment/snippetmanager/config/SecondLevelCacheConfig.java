@@ -0,0 +1,129 @@
+package com.severentertainment.snippetmanager.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Configures the Hibernate second-level cache on Caffeine through JCache.
+ * <p>
+ * Tags, the tag sets of snippets, and tag lookups by name are cached (see the {@code @Cache} mappings on
+ * {@code Tag} and {@code Snippet.tags} and the query hints on {@code TagRepository}). Each region has its own
+ * size bound; the update timestamps region, which tells Hibernate when cached query results are stale, is
+ * never evicted. JCache providers are JVM-wide, so cache names carry a per-context prefix and contexts
+ * sharing a JVM (such as test contexts on different databases) never see each other's entries.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.jpa.properties.hibernate.cache.use_second_level_cache", havingValue = "true")
+public class SecondLevelCacheConfig implements DisposableBean {
+
+    public static final String TAG_REGION = "tags";
+    public static final String SNIPPET_TAGS_REGION = "snippet-tags";
+    public static final String TAG_BY_NAME_REGION = "tag-by-name";
+
+    private static final List<String> REGIONS = List.of(TAG_REGION, SNIPPET_TAGS_REGION, TAG_BY_NAME_REGION,
+            RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+            RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME);
+
+    private final CacheManager cacheManager =
+            Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+    private final String regionPrefix = "snippetmanager-" + UUID.randomUUID();
+    private final List<String> cacheNames = new ArrayList<>();
+
+    /**
+     * Creates the cache regions and hands them to Hibernate.
+     *
+     * @param tagEntries The maximum number of cached {@code Tag} entities.
+     * @param snippetTagEntries The maximum number of cached {@code Snippet.tags} collections.
+     * @param queryEntries The maximum number of cached query results per query region.
+     * @return The customizer that points Hibernate at the cache manager.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(
+            @Value("${snippetmanager.cache.l2.tags.max-entries:10000}") long tagEntries,
+            @Value("${snippetmanager.cache.l2.snippet-tags.max-entries:100000}") long snippetTagEntries,
+            @Value("${snippetmanager.cache.l2.queries.max-entries:10000}") long queryEntries) {
+        createCache(TAG_REGION, OptionalLong.of(tagEntries));
+        createCache(SNIPPET_TAGS_REGION, OptionalLong.of(snippetTagEntries));
+        createCache(TAG_BY_NAME_REGION, OptionalLong.of(queryEntries));
+        createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, OptionalLong.of(queryEntries));
+        createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, OptionalLong.empty());
+
+        return properties -> {
+            properties.put(AvailableSettings.CACHE_REGION_PREFIX, regionPrefix);
+            properties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+        };
+    }
+
+    /**
+     * Publishes the hit ratio of each cache region as {@code hibernate.second.level.cache.hit.ratio},
+     * next to the hit and miss counters of Hibernate's own Micrometer binding.
+     *
+     * @param entityManagerFactory The entity manager factory whose statistics are published.
+     * @return The binder registering one gauge per region.
+     */
+    @Bean
+    public MeterBinder secondLevelCacheHitRatio(EntityManagerFactory entityManagerFactory) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return registry -> {
+            for (String region : REGIONS) {
+                Gauge.builder("hibernate.second.level.cache.hit.ratio", statistics,
+                                s -> hitRatio(s.getCacheRegionStatistics(region)))
+                        .description("Share of second-level cache lookups answered from the cache")
+                        .tag("region", region)
+                        .register(registry);
+            }
+        };
+    }
+
+    @Override
+    public void destroy() {
+        for (String cacheName : cacheNames) {
+            cacheManager.destroyCache(cacheName);
+        }
+    }
+
+    private void createCache(String region, OptionalLong maximumSize) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(maximumSize);
+        configuration.setStoreByValue(false); // Hibernate stores immutable cache entries
+        configuration.setStatisticsEnabled(true);
+
+        // Hibernate qualifies region names as <prefix>.<region> when it looks the caches up
+        String cacheName = regionPrefix + "." + region;
+        cacheManager.createCache(cacheName, configuration);
+        cacheNames.add(cacheName);
+    }
+
+    // Regions are created on first use, so statistics may not exist yet
+    private static double hitRatio(CacheRegionStatistics regionStatistics) {
+        if (regionStatistics == null) {
+            return Double.NaN;
+        }
+
+        long requests = regionStatistics.getHitCount() + regionStatistics.getMissCount();
+        return requests == 0 ? Double.NaN : (double) regionStatistics.getHitCount() / requests;
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.severentertainment.snippetmanager.controller;
+
+import com.severentertainment.snippetmanager.service.ChangeFeed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/v1/changes")
+@ConditionalOnProperty(name = "snippetmanager.storage.engine", havingValue = "jpa", matchIfMissing = true) // Paired with the delta sync of SnippetController
+public class ChangeFeedController {
+
+    private final ChangeFeed changeFeed;
+
+    @Autowired
+    public ChangeFeedController(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    /**
+     * Handles HTTP GET requests for the server-sent event stream of committed changes to snippets, tags and their links.
+     * Each event is named after the change (e.g. {@code snippets.created}) and carries the IDs of the affected snippets
+     * and tags; a {@code reset} event means the client missed changes and should reload everything.
+     *
+     * @param lastEventId The ID of the last event the client received, sent by browsers when they reconnect.
+     * @return An {@link SseEmitter} that streams the changes until the client disconnects or the stream times out.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        return changeFeed.subscribe(lastEventId);
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.severentertainment.snippetmanager.controller;
+
+import com.severentertainment.snippetmanager.dto.IngestionRequestDto;
+import com.severentertainment.snippetmanager.ingest.IngestionService;
+import com.severentertainment.snippetmanager.ingest.IngestionSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/v1/ingestions")
+@ConditionalOnProperty(name = "snippetmanager.storage.engine", havingValue = "jpa", matchIfMissing = true) // Reads and writes the main database only
+public class IngestionController {
+
+    private final IngestionService ingestionService;
+
+    @Autowired
+    public IngestionController(IngestionService ingestionService) {
+        this.ingestionService = ingestionService;
+    }
+
+    /**
+     * Handles HTTP POST requests for ingesting a directory or zip archive of markdown files.
+     * The path is resolved against the server's ingestion root and must stay inside it.
+     *
+     * @param request The {@link IngestionRequestDto} containing the relative path of the directory or archive.
+     * @return A {@link ResponseEntity} containing the {@link IngestionSummary} and an HTTP status code of 200 (OK),
+     * or 400 (Bad Request) if the path is missing, outside the ingestion root, or not a directory or zip archive.
+     * @throws IOException If the source cannot be listed.
+     * @throws InterruptedException If the request thread is interrupted while ingesting.
+     */
+    @PostMapping
+    public ResponseEntity<IngestionSummary> ingest(@RequestBody IngestionRequestDto request) throws IOException, InterruptedException {
+        if (request.getPath() == null || request.getPath().isBlank()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        try {
+            IngestionSummary summary = ingestionService.ingestFromRoot(request.getPath());
+            return new ResponseEntity<>(summary, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.severentertainment.snippetmanager.controller;
+
+import com.severentertainment.snippetmanager.service.SnapshotService;
+import com.severentertainment.snippetmanager.service.SnapshotSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Actuator endpoint for creating and restoring binary snapshots.
+ * <ul>
+ *     <li>{@code GET /actuator/snapshot} lists the snapshot files.</li>
+ *     <li>{@code POST /actuator/snapshot/create} with an optional {@code {"file": "..."}} body writes a snapshot.</li>
+ *     <li>{@code POST /actuator/snapshot/restore} with a {@code {"file": "..."}} body restores one.</li>
+ * </ul>
+ */
+@Component
+@Endpoint(id = "snapshot")
+@ConditionalOnProperty(name = "snippetmanager.storage.engine", havingValue = "jpa", matchIfMissing = true) // Reads and writes the main database only
+public class SnapshotEndpoint {
+
+    private final SnapshotService snapshotService;
+
+    @Autowired
+    public SnapshotEndpoint(SnapshotService snapshotService) {
+        this.snapshotService = snapshotService;
+    }
+
+    /**
+     * Lists the snapshot files in the snapshot directory.
+     *
+     * @return The snapshot file names.
+     * @throws IOException If the directory cannot be listed.
+     */
+    @ReadOperation
+    public List<String> listSnapshots() throws IOException {
+        return snapshotService.listSnapshots();
+    }
+
+    /**
+     * Creates or restores a snapshot.
+     *
+     * @param action Either {@code create} or {@code restore}.
+     * @param file The snapshot file name; optional for {@code create}, required for {@code restore}.
+     * @return A {@link SnapshotSummary} of the operation.
+     * @throws IOException If the snapshot cannot be written, read, or verified.
+     */
+    @WriteOperation
+    public SnapshotSummary snapshot(@Selector String action, @Nullable String file) throws IOException {
+        return switch (action) {
+            case "create" -> snapshotService.createSnapshot(file);
+            case "restore" -> snapshotService.restoreSnapshot(file);
+            default -> throw new IllegalArgumentException("Unknown snapshot action: " + action);
+        };
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.severentertainment.snippetmanager.controller;
+
+import com.severentertainment.snippetmanager.ingest.ArchiveImportSummary;
+import com.severentertainment.snippetmanager.ingest.SnippetArchiveService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.zip.ZipException;
+
+@RestController
+@RequestMapping("/api/v1/snippets/archive")
+@ConditionalOnProperty(name = "snippetmanager.storage.engine", havingValue = "jpa", matchIfMissing = true) // Reads and writes the main database only
+public class SnippetArchiveController {
+
+    static final String APPLICATION_ZIP = "application/zip";
+
+    private final SnippetArchiveService snippetArchiveService;
+
+    @Autowired
+    public SnippetArchiveController(SnippetArchiveService snippetArchiveService) {
+        this.snippetArchiveService = snippetArchiveService;
+    }
+
+    /**
+     * Handles HTTP GET requests for exporting all snippets as a zip archive.
+     * The archive is written incrementally to the response as snippets are read,
+     * with an HTTP status code of 200 (OK).
+     *
+     * @param response The {@link HttpServletResponse} the archive is streamed to.
+     * @throws IOException If writing to the response fails.
+     */
+    @GetMapping
+    public void exportArchive(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK); // 200 OK
+        response.setContentType(APPLICATION_ZIP);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename("snippets.zip").build().toString());
+
+        snippetArchiveService.exportArchive(response.getOutputStream());
+    }
+
+    /**
+     * Handles HTTP POST requests for importing a zip archive of snippets.
+     * The archive is expected as the raw request body and is read as it arrives.
+     *
+     * @param request The {@link HttpServletRequest} whose body is the archive.
+     * @return A {@link ResponseEntity} containing the {@link ArchiveImportSummary} and an HTTP status code of 200 (OK),
+     * or 400 (Bad Request) if the body is not a valid zip archive.
+     * @throws IOException If reading the request body fails.
+     */
+    @PostMapping(consumes = APPLICATION_ZIP)
+    public ResponseEntity<ArchiveImportSummary> importArchive(HttpServletRequest request) throws IOException {
+        try {
+            ArchiveImportSummary summary = snippetArchiveService.importArchive(request.getInputStream());
+            return new ResponseEntity<>(summary, HttpStatus.OK);
+        } catch (ZipException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+}
@@ -0,0 +1,202 @@
+package com.severentertainment.snippetmanager.controller;
+
+import com.severentertainment.snippetmanager.service.ContentTooLargeException;
+import com.severentertainment.snippetmanager.service.SnippetContentService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.time.Instant;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/snippets")
+@ConditionalOnProperty(name = "snippetmanager.storage.engine", havingValue = "jpa", matchIfMissing = true) // Reads and writes the main database only
+public class SnippetContentController {
+
+    static final String TEXT_MARKDOWN = "text/markdown";
+    static final String TEXT_MARKDOWN_UTF8 = "text/markdown;charset=UTF-8";
+
+    private static final int MAX_TITLE_LENGTH = 255;
+
+    private final SnippetContentService snippetContentService;
+
+    @Autowired
+    public SnippetContentController(SnippetContentService snippetContentService) {
+        this.snippetContentService = snippetContentService;
+    }
+
+    /**
+     * Handles HTTP GET requests for the raw markdown content of a snippet.
+     * The content is streamed from the database. A single byte range in the {@code Range} header is served
+     * with an HTTP status code of 206 (Partial Content); ranges are in bytes of the UTF-8 encoded content.
+     * A range is ignored if an {@code If-Range} header does not match the current {@code ETag},
+     * and requests for several ranges are answered with the whole content.
+     *
+     * @param id The unique ID of the snippet.
+     * @param rangeHeader The value of the {@code Range} request header, if any.
+     * @param ifRange The value of the {@code If-Range} request header, if any.
+     * @param response The {@link HttpServletResponse} the content is streamed to, with an HTTP status code of
+     *                 200 (OK), 206 (Partial Content), 404 (Not Found) or 416 (Range Not Satisfiable).
+     * @throws IOException If writing to the response fails.
+     */
+    @GetMapping("/{id}/content")
+    public void getSnippetContent(@PathVariable Long id,
+                                  @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
+                                  @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+                                  HttpServletResponse response) throws IOException {
+        boolean found = snippetContentService.writeContent(id, (contentLength, lastModified) -> {
+            String eTag = eTag(id, lastModified);
+
+            // A strong ETag also keeps the servlet container from compressing the body, which would break ranges
+            response.setHeader(HttpHeaders.ETAG, eTag);
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            if (lastModified != null) {
+                response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified.toEpochMilli());
+            }
+            response.setContentType(TEXT_MARKDOWN_UTF8);
+
+            HttpRange range = singleRange(rangeHeader, ifRange, eTag);
+            if (range == null) {
+                response.setStatus(HttpServletResponse.SC_OK); // 200 OK
+                response.setContentLengthLong(contentLength);
+                return new SnippetContentService.ByteRange(0, contentLength - 1);
+            }
+
+            long start;
+            long end;
+            try {
+                start = range.getRangeStart(contentLength);
+                end = range.getRangeEnd(contentLength);
+            } catch (IllegalArgumentException e) {
+                return rangeNotSatisfiable(response, contentLength);
+            }
+            if (start >= contentLength || start > end) { // getRangeStart does not reject a start past the end
+                return rangeNotSatisfiable(response, contentLength);
+            }
+
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT); // 206 Partial Content
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + contentLength);
+            response.setContentLengthLong(end - start + 1);
+            return new SnippetContentService.ByteRange(start, end);
+        }, response.getOutputStream());
+
+        if (!found) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND); // 404 Not Found
+        }
+    }
+
+    /**
+     * Handles HTTP POST requests for creating a snippet from a raw markdown body.
+     * The body is streamed into the database instead of being bound to a {@link com.severentertainment.snippetmanager.domain.Snippet},
+     * so large documents are never held on the heap as a whole.
+     *
+     * @param title The title of the new snippet.
+     * @param request The {@link HttpServletRequest} whose body is the snippet content; decoded as UTF-8 unless
+     *                the {@code Content-Type} names another charset.
+     * @return A {@link ResponseEntity} with an HTTP status code of 201 (Created) and the location of the new snippet,
+     * 400 (Bad Request) if the title is blank or too long, 413 (Payload Too Large) if the body exceeds the upload limit,
+     * or 415 (Unsupported Media Type) if the charset is unknown.
+     * @throws IOException If reading the request body fails.
+     */
+    @PostMapping(consumes = {TEXT_MARKDOWN, MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<Void> createSnippetFromContent(@RequestParam String title, HttpServletRequest request) throws IOException {
+        if (title.isBlank() || title.length() > MAX_TITLE_LENGTH) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST); // 400 Bad Request
+        }
+        if (request.getContentLengthLong() > snippetContentService.maxUploadBytes()) {
+            return new ResponseEntity<>(HttpStatus.PAYLOAD_TOO_LARGE); // 413 Payload Too Large
+        }
+        Charset charset = charset(request);
+        if (charset == null) {
+            return new ResponseEntity<>(HttpStatus.UNSUPPORTED_MEDIA_TYPE); // 415 Unsupported Media Type
+        }
+
+        try {
+            Long id = snippetContentService.createSnippet(title, request.getInputStream(), charset);
+            return ResponseEntity.created(URI.create("/api/v1/snippets/" + id)).build(); // 201 Created
+        } catch (ContentTooLargeException e) {
+            return new ResponseEntity<>(HttpStatus.PAYLOAD_TOO_LARGE); // 413 Payload Too Large
+        }
+    }
+
+    /**
+     * Handles HTTP PUT requests for replacing the content of a snippet with a raw markdown body.
+     * The body is streamed into the database, as for {@link #createSnippetFromContent(String, HttpServletRequest)}.
+     *
+     * @param id The unique ID of the snippet to update.
+     * @param request The {@link HttpServletRequest} whose body is the new snippet content.
+     * @return A {@link ResponseEntity} with an HTTP status code of 204 (No Content) if the snippet was updated,
+     * 404 (Not Found), 413 (Payload Too Large) if the body exceeds the upload limit, or 415 (Unsupported Media Type)
+     * if the charset is unknown.
+     * @throws IOException If reading the request body fails.
+     */
+    @PutMapping(value = "/{id}/content", consumes = {TEXT_MARKDOWN, MediaType.TEXT_PLAIN_VALUE})
+    public ResponseEntity<Void> replaceSnippetContent(@PathVariable Long id, HttpServletRequest request) throws IOException {
+        if (request.getContentLengthLong() > snippetContentService.maxUploadBytes()) {
+            return new ResponseEntity<>(HttpStatus.PAYLOAD_TOO_LARGE); // 413 Payload Too Large
+        }
+        Charset charset = charset(request);
+        if (charset == null) {
+            return new ResponseEntity<>(HttpStatus.UNSUPPORTED_MEDIA_TYPE); // 415 Unsupported Media Type
+        }
+
+        try {
+            boolean updated = snippetContentService.replaceContent(id, request.getInputStream(), charset);
+            return new ResponseEntity<>(updated ? HttpStatus.NO_CONTENT : HttpStatus.NOT_FOUND); // 204 No Content or 404 Not Found
+        } catch (ContentTooLargeException e) {
+            return new ResponseEntity<>(HttpStatus.PAYLOAD_TOO_LARGE); // 413 Payload Too Large
+        }
+    }
+
+    // Returns the charset of the body, or null if the Content-Type names one that is malformed or not supported
+    private static Charset charset(HttpServletRequest request) {
+        if (request.getCharacterEncoding() == null) {
+            return StandardCharsets.UTF_8;
+        }
+
+        try {
+            return Charset.forName(request.getCharacterEncoding());
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            return null;
+        }
+    }
+
+    // Returns the single requested range, or null if the whole content should be sent
+    private static HttpRange singleRange(String rangeHeader, String ifRange, String eTag) {
+        if (rangeHeader == null || (ifRange != null && !ifRange.trim().equals(eTag))) {
+            return null;
+        }
+
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null; // A malformed Range header is ignored
+        }
+    }
+
+    private static SnippetContentService.ByteRange rangeNotSatisfiable(HttpServletResponse response, long contentLength) {
+        response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE); // 416 Range Not Satisfiable
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + contentLength);
+        return null;
+    }
+
+    private static String eTag(Long id, Instant lastModified) {
+        return "\"" + id + "-" + (lastModified != null ? lastModified.getEpochSecond() + "." + lastModified.getNano() : "0") + "\"";
+    }
+
+}
@@ -1,86 +1,178 @@
 package com.severentertainment.snippetmanager.controller;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.severentertainment.snippetmanager.domain.Snippet;
 import com.severentertainment.snippetmanager.domain.Tag;
+import com.severentertainment.snippetmanager.dto.SnippetDeltaDto;
+import com.severentertainment.snippetmanager.dto.SnippetRequestDto;
 import com.severentertainment.snippetmanager.dto.SnippetResponseDto;
+import com.severentertainment.snippetmanager.dto.SnippetSummaryDto;
 import com.severentertainment.snippetmanager.dto.TagResponseDto;
+import com.severentertainment.snippetmanager.readmodel.SnippetReadModel;
+import com.severentertainment.snippetmanager.service.CachedSnippetJson;
+import com.severentertainment.snippetmanager.service.SnippetJsonCache;
 import com.severentertainment.snippetmanager.service.SnippetService;
+import com.severentertainment.snippetmanager.service.SnippetSyncService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.Set;
 
 @RestController
 @RequestMapping("/api/v1/snippets")
+@ConditionalOnProperty(name = "snippetmanager.storage.engine", havingValue = "jpa", matchIfMissing = true) // Other engines are not served over HTTP, see StorageEngine
 public class SnippetController {
 
     private final SnippetService snippetService;
+    private final SnippetJsonCache snippetJsonCache;
+    private final ObjectMapper objectMapper;
+    private final SnippetSyncService snippetSyncService;
+    private final SnippetReadModel readModel; // null unless snippetmanager.read-model.enabled
 
     @Autowired
-    public SnippetController(SnippetService snippetService) {
+    public SnippetController(SnippetService snippetService, SnippetJsonCache snippetJsonCache, ObjectMapper objectMapper,
+                             SnippetSyncService snippetSyncService, ObjectProvider<SnippetReadModel> readModel) {
         this.snippetService = snippetService;
+        this.snippetJsonCache = snippetJsonCache;
+        this.objectMapper = objectMapper;
+        this.snippetSyncService = snippetSyncService;
+        this.readModel = readModel.getIfAvailable();
     }
 
     /**
      * Handles HTTP POST requests for creating a new snippet.
-     * The snippet data is expected in the request body as JSON.
+     * The snippet data is expected in the request body as JSON, optionally with the names of its tags,
+     * which are resolved (and created if missing) in the same transaction as the snippet.
      *
-     * @param snippet The {@link Snippet} object derived from the JSON request body.
-     *                The ID, creationDate, and lastModifiedDate fields should be null or will be ignored.
-     * @return A {@link ResponseEntity} containing the created {@link Snippet} and an HTTP status code of 201 (Created).
+     * @param request The {@link SnippetRequestDto} derived from the JSON request body.
+     * @return A {@link ResponseEntity} containing the created {@link Snippet}, including its tags,
+     * and an HTTP status code of 201 (Created).
      */
     @PostMapping
-    public ResponseEntity<SnippetResponseDto> createSnippet(@RequestBody Snippet snippet) {
-        SnippetResponseDto createdSnippetDto = snippetService.createSnippet(snippet);
+    public ResponseEntity<SnippetResponseDto> createSnippet(@RequestBody SnippetRequestDto request) {
+        SnippetResponseDto createdSnippetDto = snippetService.createSnippet(snippet(request), request.getTags());
         return new ResponseEntity<>(createdSnippetDto, HttpStatus.CREATED); // 201 Created
     }
 
     /**
      * Handles HTTP GET requests for retrieving all snippets.
+     * The JSON array is written incrementally to the response as snippets are read,
+     * with an HTTP status code of 200 (OK). The array may be empty if no snippets exist.
      *
-     * @return A {@link ResponseEntity} containing a list of all {@link Snippet} objects
-     * and an HTTP status code of 200 (OK). The list may be empty if no snippets exist.
+     * @param response The {@link HttpServletResponse} the snippet array is streamed to.
+     * @throws IOException If writing to the response fails.
      */
     @GetMapping
-    public ResponseEntity<List<SnippetResponseDto>> getAllSnippets() {
-        List<SnippetResponseDto> snippets = snippetService.getAllSnippets();
-        return new ResponseEntity<>(snippets, HttpStatus.OK); // 200 OK
+    public void getAllSnippets(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK); // 200 OK
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream(), JsonEncoding.UTF8)) {
+            snippetService.writeAllSnippets(generator);
+        }
+    }
+
+    /**
+     * Handles HTTP GET requests for retrieving the title, timestamps and tags of all snippets, without their content.
+     * Served from the in-memory read model if it is enabled.
+     *
+     * @return A {@link ResponseEntity} containing a list of {@link SnippetSummaryDto} objects ordered by ID
+     * and an HTTP status code of 200 (OK). The list may be empty if no snippets exist.
+     */
+    @GetMapping("/summaries")
+    public ResponseEntity<List<SnippetSummaryDto>> getSnippetSummaries() {
+        List<SnippetSummaryDto> summaries = readModel != null
+                ? readModel.snapshot().snippetList()
+                : snippetService.getSnippetSummaries();
+        return new ResponseEntity<>(summaries, HttpStatus.OK); // 200 OK
+    }
+
+    /**
+     * Handles HTTP GET requests for the changes to snippets since a sync token, for clients that sync periodically
+     * instead of following the change feed. Without a token, or with one that is too old, the response only sets
+     * {@code reset} and carries a new token; the client then loads all snippets and syncs from that token.
+     *
+     * @param since The sync token returned by the previous sync, if any.
+     * @return A {@link ResponseEntity} containing the {@link SnippetDeltaDto} and an HTTP status code of 200 (OK),
+     * or 400 (Bad Request) if the sync token is malformed.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<SnippetDeltaDto> getSnippetChanges(@RequestParam(required = false) String since) {
+        try {
+            return new ResponseEntity<>(snippetSyncService.getChangesSince(since), HttpStatus.OK); // 200 OK
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST); // 400 Bad Request
+        }
     }
 
     /**
      * Handles HTTP GET requests for retrieving a snippet by its ID.
      * The ID of the snippet is extracted from the URL path.
+     * Pre-serialized JSON from the {@link SnippetJsonCache} is written as-is from off-heap memory; on a miss the
+     * snippet is loaded, serialized once, and cached for subsequent requests.
+     * If the client accepts gzip and a precompressed variant exists, it is sent with {@code Content-Encoding: gzip}.
+     * Responds with 200 (OK) and the snippet JSON if found, or 404 (Not Found).
      *
      * @param id The unique ID of the snippet to retrieve.
-     * @return A {@link ResponseEntity} containing the {@link Snippet} object if found,
-     * and an HTTP status code of 200 (OK) or 404 (Not Found).
+     * @param acceptEncoding The value of the {@code Accept-Encoding} request header, if any.
+     * @param response The {@link HttpServletResponse} the snippet JSON is written to.
+     * @throws IOException If writing to the response fails.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<SnippetResponseDto> getSnippetById(@PathVariable Long id) {
-        Optional<SnippetResponseDto> snippetOptional = snippetService.getSnippetById(id);
-        return snippetOptional
-                .map(snippet -> new ResponseEntity<>(snippet, HttpStatus.OK)) // 200 OK
-                .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND)); // 404 Not Found
+    public void getSnippetById(@PathVariable Long id,
+                               @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                               HttpServletResponse response) throws IOException {
+        Optional<CachedSnippetJson> jsonOptional = snippetJsonCache.get(id)
+                .or(() -> snippetService.getSnippetJsonById(id));
+        if (jsonOptional.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND); // 404 Not Found
+            return;
+        }
+
+        CachedSnippetJson json = jsonOptional.get();
+        try {
+            boolean gzipped = json.hasGzip() && acceptsGzip(acceptEncoding);
+            response.setStatus(HttpServletResponse.SC_OK); // 200 OK
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (gzipped) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            response.setContentLengthLong((gzipped ? json.gzip() : json.json()).remaining());
+            json.writeTo(gzipped, response.getOutputStream());
+        } finally {
+            json.release(); // Off-heap memory of an entry evicted meanwhile can be reused from here on
+        }
     }
 
     /**
      * Handles HTTP PUT requests for updating an existing snippet.
      * The ID of the snippet to update is extracted from the URL path.
-     * The snippet data is expected in the request body as JSON.
+     * The snippet data is expected in the request body as JSON. If it names tags, they replace the tags of
+     * the snippet in the same transaction; otherwise the tags are left unchanged.
      *
      * @param id The unique ID of the snippet to update.
-     * @param snippetDetails A {@link Snippet} object derived from the JSON request body,
-     *                       containing the new details for the snippet.
+     * @param request The {@link SnippetRequestDto} derived from the JSON request body,
+     *                containing the new details for the snippet.
      * @return A {@link ResponseEntity} containing the updated {@link Snippet} object if successful,
      * and an HTTP status code of 200 (OK) or 404 (Not Found).
      */
     @PutMapping("/{id}")
-    public ResponseEntity<SnippetResponseDto> updateSnippet(@PathVariable Long id, @RequestBody Snippet snippetDetails) {
-        Optional<SnippetResponseDto> updatedSnippetDtoOptional = snippetService.updateSnippet(id, snippetDetails);
+    public ResponseEntity<SnippetResponseDto> updateSnippet(@PathVariable Long id, @RequestBody SnippetRequestDto request) {
+        Optional<SnippetResponseDto> updatedSnippetDtoOptional = snippetService.updateSnippet(id, snippet(request), request.getTags());
         return updatedSnippetDtoOptional
                 .map(snippet -> new ResponseEntity<>(snippet, HttpStatus.OK)) // 200 OK
                 .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND)); // 404 Not Found
@@ -106,6 +198,7 @@ public class SnippetController {
 
     /**
      * Handles HTTP GET requests for retrieving all tags associated with a snippet.
+     * Served from the in-memory read model if it is enabled.
      *
      * @param snippetId The ID of the snippet.
      * @return A {@link ResponseEntity} containing the {@link Set} of {@link Tag} objects
@@ -114,7 +207,9 @@ public class SnippetController {
      */
     @GetMapping("/{snippetId}/tags")
     public ResponseEntity<Set<TagResponseDto>> getTagsForSnippet(@PathVariable Long snippetId) {
-        Optional<Set<TagResponseDto>> tagsOptional = snippetService.getTagsForSnippet(snippetId);
+        Optional<Set<TagResponseDto>> tagsOptional = readModel != null
+                ? readModel.snapshot().tagsForSnippet(snippetId)
+                : snippetService.getTagsForSnippet(snippetId);
         return tagsOptional
                 .map(tags -> new ResponseEntity<>(tags, HttpStatus.OK))
                 .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
@@ -153,4 +248,55 @@ public class SnippetController {
                 .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
+    /**
+     * Checks whether an {@code Accept-Encoding} header allows a gzip-encoded response.
+     * An explicit {@code gzip} entry takes precedence over {@code *}, so {@code gzip;q=0, *} rejects gzip.
+     *
+     * @param acceptEncoding The header value; may be null.
+     * @return {@code true} if {@code gzip}, or failing that {@code *}, is listed with a q-value above 0.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (name.equals("gzip")) {
+                gzipQuality = Math.max(gzipQuality != null ? gzipQuality : 0, quality(parts));
+            } else if (name.equals("*")) {
+                wildcardQuality = Math.max(wildcardQuality != null ? wildcardQuality : 0, quality(parts));
+            }
+        }
+
+        Double quality = gzipQuality != null ? gzipQuality : wildcardQuality;
+        return quality != null && quality > 0; // q=0 means "not acceptable"
+    }
+
+    // The q-value of a coding and its parameters; 1 if absent, 0 if malformed
+    private static double quality(String[] parts) {
+        double quality = 1;
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim().toLowerCase(Locale.ROOT);
+            if (parameter.startsWith("q=")) {
+                try {
+                    quality = Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    quality = 0;
+                }
+            }
+        }
+        return quality;
+    }
+
+    private static Snippet snippet(SnippetRequestDto request) {
+        Snippet snippet = new Snippet();
+        snippet.setTitle(request.getTitle());
+        snippet.setContent(request.getContent());
+        return snippet;
+    }
+
 }
@@ -2,24 +2,35 @@ package com.severentertainment.snippetmanager.controller;
 
 import com.severentertainment.snippetmanager.domain.Tag;
 import com.severentertainment.snippetmanager.dto.TagResponseDto;
+import com.severentertainment.snippetmanager.dto.TagSuggestionDto;
+import com.severentertainment.snippetmanager.readmodel.SnippetReadModel;
 import com.severentertainment.snippetmanager.service.TagService;
+import com.severentertainment.snippetmanager.suggest.TagSuggestions;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/v1/tags")
+@ConditionalOnProperty(name = "snippetmanager.storage.engine", havingValue = "jpa", matchIfMissing = true) // Other engines are not served over HTTP, see StorageEngine
 public class TagController {
 
     private final TagService tagService;
+    private final SnippetReadModel readModel; // null unless snippetmanager.read-model.enabled
+    private final TagSuggestions tagSuggestions;
 
     @Autowired
-    public TagController(TagService tagService) {
+    public TagController(TagService tagService, ObjectProvider<SnippetReadModel> readModel, TagSuggestions tagSuggestions) {
         this.tagService = tagService;
+        this.readModel = readModel.getIfAvailable();
+        this.tagSuggestions = tagSuggestions;
     }
 
     /**
@@ -38,20 +49,56 @@ public class TagController {
         return new ResponseEntity<>(resultTag, HttpStatus.CREATED);
     }
 
+    /**
+     * Handles HTTP POST requests for resolving many tag names at once, creating the tags that do not exist yet.
+     * The names are expected in the request body as a JSON array; they are normalized and blank names are ignored.
+     * Existing tags are found with one query and missing tags are inserted together.
+     *
+     * @param names The tag names derived from the JSON request body.
+     * @return A {@link ResponseEntity} containing a JSON object from normalized name to tag ID, in order of first
+     * appearance, and an HTTP status code of 200 (OK).
+     */
+    @PostMapping("/resolve")
+    public ResponseEntity<Map<String, Long>> resolveTags(@RequestBody List<String> names) {
+        return new ResponseEntity<>(tagService.resolveTagIds(names), HttpStatus.OK);
+    }
+
     /**
      * Handles HTTP GET requests for retrieving all tags.
+     * Served from the in-memory read model if it is enabled.
      *
      * @return A {@link ResponseEntity} containing a list of all {@link Tag} objects
      * and an HTTP status code of 200 (OK). The list may be empty if no tags exist.
      */
     @GetMapping
     public ResponseEntity<List<TagResponseDto>> getAllTags() {
-        List<TagResponseDto> tags = tagService.getAllTags();
+        List<TagResponseDto> tags = readModel != null ? readModel.snapshot().tagList() : tagService.getAllTags();
         return new ResponseEntity<>(tags, HttpStatus.OK);
     }
 
+    /**
+     * Handles HTTP GET requests for tag suggestions as a user types a tag name.
+     * Served from the in-memory {@link TagSuggestions} index, which follows committed changes shortly after them.
+     *
+     * @param prefix The start of the tag name as typed; normalized like tag names. Without it, the most used
+     *               tags are suggested.
+     * @param limit The most suggestions to return, from 1 to {@link TagSuggestions#MAX_LIMIT}; 10 by default.
+     * @return A {@link ResponseEntity} containing the matching tags, most used first, with their usage counts
+     * and an HTTP status code of 200 (OK), or 400 (Bad Request) if the limit is out of range.
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<TagSuggestionDto>> suggestTags(@RequestParam(defaultValue = "") String prefix,
+                                                              @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return new ResponseEntity<>(tagSuggestions.suggest(prefix, limit), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
     /**
      * Handles HTTP GET requests to retrieve a tag by its ID.
+     * Served from the in-memory read model if it is enabled.
      *
      * @param id The unique ID of the tag to retrieve.
      * @return A {@link ResponseEntity} containing the {@link Tag} object if found,
@@ -59,7 +106,7 @@ public class TagController {
      */
     @GetMapping("/{id}")
     public ResponseEntity<TagResponseDto> getTagById(@PathVariable Long id) {
-        Optional<TagResponseDto> tagOptional = tagService.getTagById(id);
+        Optional<TagResponseDto> tagOptional = readModel != null ? readModel.snapshot().tag(id) : tagService.getTagById(id);
         return tagOptional
                 .map(tag -> new ResponseEntity<>(tag, HttpStatus.OK))
                 .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
@@ -0,0 +1,37 @@
+package com.severentertainment.snippetmanager.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Records a markdown file that was ingested, the hash of its contents at the time,
+ * and the snippets it produced, so that unchanged files can be skipped and changed files replaced.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestedFile {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 1024)
+    private String sourcePath;
+
+    @Column(nullable = false, length = 64)
+    private String contentHash;
+
+    private Instant ingestedAt;
+
+    @ElementCollection
+    @CollectionTable(name = "ingested_file_snippet", joinColumns = @JoinColumn(name = "ingested_file_id"))
+    @Column(name = "snippet_id")
+    private Set<Long> snippetIds = new HashSet<>();
+
+}
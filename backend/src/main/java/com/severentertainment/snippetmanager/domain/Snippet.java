@@ -4,7 +4,11 @@ import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.Instant;
@@ -12,28 +16,40 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@Table(indexes = @Index(name = "idx_snippet_last_modified_date", columnList = "last_modified_date"))
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
 public class Snippet {
 
+    // Allocated in blocks (see hibernate.id.optimizer.pooled.preferred), so inserts need no round trip and can be batched;
+    // the default serves SQL inserts that leave the ID out
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "snippet_seq")
+    @SequenceGenerator(name = "snippet_seq", allocationSize = 50)
+    @ColumnDefault("next value for snippet_seq")
     private Long id;
 
     private String title;
 
+    // Lazy through bytecode enhancement (see hibernate-enhance-maven-plugin); excluded from equals/hashCode/toString so they never load it
     @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private String content;
 
     @CreationTimestamp
     private Instant creationDate;
 
+    // Also set by tag changes, which do not make the snippet dirty themselves
     @UpdateTimestamp
     private Instant lastModifiedDate;
 
     @ManyToMany(fetch = FetchType.LAZY, cascade = {CascadeType.PERSIST, CascadeType.MERGE})
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "snippet-tags")
     @JoinTable(
             name = "snippet_tag",
             joinColumns = @JoinColumn(name = "snippet_id"),
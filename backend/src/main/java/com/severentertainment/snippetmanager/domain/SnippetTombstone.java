@@ -0,0 +1,28 @@
+package com.severentertainment.snippetmanager.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Records that a snippet was deleted, so that delta sync clients can drop it (see SnippetSyncService).
+ * A tombstone without a snippet ID records a snapshot restore, which replaced every snippet at once.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_snippet_tombstone_deleted_at", columnList = "deleted_at"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SnippetTombstone {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long snippetId;
+
+    @Column(nullable = false)
+    private Instant deletedAt;
+
+}
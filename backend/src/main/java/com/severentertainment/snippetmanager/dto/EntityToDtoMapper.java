@@ -61,4 +61,47 @@ public class EntityToDtoMapper {
         );
     }
 
+    /**
+     * Converts a {@link Snippet} entity to a {@link SnippetResponseDto}, using content that was read alongside it
+     * instead of loading it lazily.
+     *
+     * @param snippet The snippet entity to convert.
+     * @param content The content of the snippet.
+     * @return The corresponding {@link SnippetResponseDto}, or null if the input snippet is null.
+     */
+    public static SnippetResponseDto snippetToSnippetResponseDto(Snippet snippet, String content) {
+        if (snippet == null) {
+            return null;
+        }
+
+        return new SnippetResponseDto(
+                snippet.getId(),
+                snippet.getTitle(),
+                content,
+                snippet.getCreationDate(),
+                snippet.getLastModifiedDate(),
+                tagsToTagResponseDtos(snippet.getTags())
+        );
+    }
+
+    /**
+     * Converts a {@link Snippet} entity to a {@link SnippetSummaryDto}, which leaves out the content.
+     *
+     * @param snippet The snippet entity to convert.
+     * @return The corresponding {@link SnippetSummaryDto}, or null if the input snippet is null.
+     */
+    public static SnippetSummaryDto snippetToSnippetSummaryDto(Snippet snippet) {
+        if (snippet == null) {
+            return null;
+        }
+
+        return new SnippetSummaryDto(
+                snippet.getId(),
+                snippet.getTitle(),
+                snippet.getCreationDate(),
+                snippet.getLastModifiedDate(),
+                tagsToTagResponseDtos(snippet.getTags())
+        );
+    }
+
 }
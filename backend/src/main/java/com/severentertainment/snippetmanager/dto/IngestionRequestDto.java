@@ -0,0 +1,14 @@
+package com.severentertainment.snippetmanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionRequestDto {
+
+    private String path;
+
+}
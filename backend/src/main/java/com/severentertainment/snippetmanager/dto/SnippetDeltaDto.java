@@ -0,0 +1,24 @@
+package com.severentertainment.snippetmanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The changes to snippets since a sync token. If {@code reset} is set, the changes are not known and the client
+ * should load all snippets again and continue from the new sync token.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SnippetDeltaDto {
+
+    private List<SnippetResponseDto> snippets = new ArrayList<>();
+    private List<Long> deletedIds = new ArrayList<>();
+    private String syncToken;
+    private boolean reset;
+
+}
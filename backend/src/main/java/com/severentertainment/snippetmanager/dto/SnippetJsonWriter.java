@@ -0,0 +1,165 @@
+package com.severentertainment.snippetmanager.dto;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.severentertainment.snippetmanager.domain.Snippet;
+import com.severentertainment.snippetmanager.domain.Tag;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Writes {@link Snippet} and {@link Tag} entities straight to a Jackson {@link JsonGenerator}.
+ * The output has the same shape as {@link SnippetResponseDto} and {@link TagResponseDto},
+ * but skips the intermediate DTO copy and Jackson's reflective bean serialization.
+ */
+public class SnippetJsonWriter {
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString TITLE = new SerializedString("title");
+    private static final SerializableString CONTENT = new SerializedString("content");
+    private static final SerializableString CREATION_DATE = new SerializedString("creationDate");
+    private static final SerializableString LAST_MODIFIED_DATE = new SerializedString("lastModifiedDate");
+    private static final SerializableString TAGS = new SerializedString("tags");
+    private static final SerializableString NAME = new SerializedString("name");
+
+    private SnippetJsonWriter() {
+    }
+
+    /**
+     * Serializes a {@link Snippet} entity, including its tags, to UTF-8 JSON bytes.
+     *
+     * @param factory The {@link JsonFactory} to create the generator from.
+     * @param snippet The snippet entity to serialize.
+     * @return The UTF-8 encoded JSON object.
+     */
+    public static byte[] toJsonBytes(JsonFactory factory, Snippet snippet) {
+        return toJsonBytes(factory, snippet, snippet.getContent());
+    }
+
+    /**
+     * Serializes a {@link Snippet} entity, including its tags, to UTF-8 JSON bytes, using content that was
+     * read separately from the entity.
+     *
+     * @param factory The {@link JsonFactory} to create the generator from.
+     * @param snippet The snippet entity to serialize.
+     * @param content The content of the snippet.
+     * @return The UTF-8 encoded JSON object.
+     */
+    public static byte[] toJsonBytes(JsonFactory factory, Snippet snippet, String content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = factory.createGenerator(out, JsonEncoding.UTF8)) {
+            writeSnippet(generator, snippet, content);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to serialize snippet " + snippet.getId(), e);
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes a {@link Snippet} entity as a JSON object, including its tags.
+     *
+     * @param generator The generator to write to.
+     * @param snippet The snippet entity to write.
+     * @throws IOException If the underlying output fails.
+     */
+    public static void writeSnippet(JsonGenerator generator, Snippet snippet) throws IOException {
+        writeSnippet(generator, snippet, snippet.getContent());
+    }
+
+    /**
+     * Writes a {@link Snippet} entity as a JSON object, including its tags, using content that was read
+     * separately from the entity. This avoids the lazy load of {@link Snippet#getContent()}.
+     *
+     * @param generator The generator to write to.
+     * @param snippet The snippet entity to write.
+     * @param content The content of the snippet.
+     * @throws IOException If the underlying output fails.
+     */
+    public static void writeSnippet(JsonGenerator generator, Snippet snippet, String content) throws IOException {
+        generator.writeStartObject();
+
+        generator.writeFieldName(ID);
+        writeId(generator, snippet.getId());
+
+        generator.writeFieldName(TITLE);
+        generator.writeString(snippet.getTitle());
+
+        generator.writeFieldName(CONTENT);
+        generator.writeString(content);
+
+        generator.writeFieldName(CREATION_DATE);
+        writeInstant(generator, snippet.getCreationDate());
+
+        generator.writeFieldName(LAST_MODIFIED_DATE);
+        writeInstant(generator, snippet.getLastModifiedDate());
+
+        generator.writeFieldName(TAGS);
+        writeTags(generator, snippet.getTags());
+
+        generator.writeEndObject();
+    }
+
+    /**
+     * Writes a Set of {@link Tag} entities as a JSON array; a null set is written as an empty array.
+     *
+     * @param generator The generator to write to.
+     * @param tags The Set of tag entities to write.
+     * @throws IOException If the underlying output fails.
+     */
+    public static void writeTags(JsonGenerator generator, Set<Tag> tags) throws IOException {
+        generator.writeStartArray();
+
+        if (tags != null) {
+            for (Tag tag : tags) {
+                writeTag(generator, tag);
+            }
+        }
+
+        generator.writeEndArray();
+    }
+
+    /**
+     * Writes a {@link Tag} entity as a JSON object.
+     *
+     * @param generator The generator to write to.
+     * @param tag The tag entity to write.
+     * @throws IOException If the underlying output fails.
+     */
+    public static void writeTag(JsonGenerator generator, Tag tag) throws IOException {
+        generator.writeStartObject();
+
+        generator.writeFieldName(ID);
+        writeId(generator, tag.getId());
+
+        generator.writeFieldName(NAME);
+        generator.writeString(tag.getName());
+
+        generator.writeEndObject();
+    }
+
+    private static void writeId(JsonGenerator generator, Long id) throws IOException {
+        if (id == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(id);
+        }
+    }
+
+    // Instant.toString() is ISO-8601, matching Jackson's InstantSerializer with WRITE_DATES_AS_TIMESTAMPS disabled
+    private static void writeInstant(JsonGenerator generator, Instant instant) throws IOException {
+        if (instant == null) {
+            generator.writeNull();
+        } else {
+            generator.writeString(instant.toString());
+        }
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.severentertainment.snippetmanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The body of requests that create or update a snippet. Tags are given by name and created if they do not exist;
+ * other fields of a snippet, such as its ID and timestamps, are ignored.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SnippetRequestDto {
+
+    private String title;
+    private String content;
+    private List<String> tags; // Null leaves the tags of an updated snippet unchanged
+
+}
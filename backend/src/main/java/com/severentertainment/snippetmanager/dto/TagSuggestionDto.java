@@ -0,0 +1,16 @@
+package com.severentertainment.snippetmanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TagSuggestionDto {
+
+    private Long id;
+    private String name;
+    private long usageCount; // The number of snippets carrying the tag
+
+}
@@ -0,0 +1,13 @@
+package com.severentertainment.snippetmanager.ingest;
+
+/**
+ * Outcome of importing a snippet archive.
+ *
+ * @param entries The number of markdown entries found in the archive.
+ * @param snippets The number of snippets created.
+ * @param skipped The number of entries skipped because they exceeded the maximum entry size.
+ * @param tags The number of distinct tags listed in the archive manifest.
+ * @param elapsedMillis The duration of the import, in milliseconds.
+ */
+public record ArchiveImportSummary(int entries, int snippets, int skipped, int tags, long elapsedMillis) {
+}
@@ -0,0 +1,104 @@
+package com.severentertainment.snippetmanager.ingest;
+
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The optional YAML front matter block of a markdown document, delimited by {@code ---} lines,
+ * and the markdown body that follows it.
+ *
+ * @param fields The parsed front matter; empty if the document has none or it is malformed.
+ * @param body The document text after the closing delimiter, unchanged; the whole document if it has no front matter.
+ */
+public record FrontMatter(Map<?, ?> fields, String body) {
+
+    /**
+     * Separates the front matter of a markdown document from its body. A leading byte order mark is dropped.
+     * Malformed YAML is treated as an empty front matter rather than failing the document.
+     *
+     * @param markdown The markdown text.
+     * @return The {@link FrontMatter} of the document.
+     */
+    public static FrontMatter parse(String markdown) {
+        String text = markdown.startsWith("\uFEFF") ? markdown.substring(1) : markdown;
+
+        int firstLineEnd = lineEnd(text, 0);
+        if (!text.substring(0, firstLineEnd).strip().equals("---")) {
+            return new FrontMatter(Map.of(), text);
+        }
+
+        int yamlStart = nextLine(text, firstLineEnd);
+        for (int lineStart = yamlStart; lineStart < text.length(); ) {
+            int end = lineEnd(text, lineStart);
+            String line = text.substring(lineStart, end).strip();
+            if (line.equals("---") || line.equals("...")) {
+                return new FrontMatter(load(text.substring(yamlStart, lineStart)), text.substring(nextLine(text, end)));
+            }
+            lineStart = nextLine(text, end);
+        }
+
+        return new FrontMatter(Map.of(), text); // No closing delimiter, so the dashes are a thematic break
+    }
+
+    /**
+     * Returns a front matter value as a string.
+     *
+     * @param key The front matter key.
+     * @return The value's string form, or null if the key is absent or null.
+     */
+    public String value(String key) {
+        Object value = fields.get(key);
+        return value != null ? value.toString() : null;
+    }
+
+    /**
+     * Returns the {@code tags} field, accepting a YAML list or a comma-separated string.
+     *
+     * @return The raw, non-blank tag names; empty if there are none.
+     */
+    public List<String> tags() {
+        Object value = fields.get("tags");
+
+        List<String> names = new ArrayList<>();
+        if (value instanceof Collection<?> collection) {
+            for (Object item : collection) {
+                if (item != null) {
+                    names.add(item.toString());
+                }
+            }
+        } else if (value != null) {
+            for (String item : value.toString().split(",")) {
+                names.add(item);
+            }
+        }
+
+        names.removeIf(String::isBlank);
+        return names;
+    }
+
+    private static Map<?, ?> load(String yaml) {
+        try {
+            Object loaded = new Yaml(new SafeConstructor(new LoaderOptions())).load(yaml);
+            return loaded instanceof Map<?, ?> map ? map : Map.of();
+        } catch (YAMLException e) {
+            return Map.of();
+        }
+    }
+
+    private static int lineEnd(String text, int from) {
+        int end = text.indexOf('\n', from);
+        return end < 0 ? text.length() : end;
+    }
+
+    private static int nextLine(String text, int lineEnd) {
+        return Math.min(lineEnd + 1, text.length());
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.severentertainment.snippetmanager.ingest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Command-line trigger for {@link IngestionService}: {@code --ingest=<directory or zip>} ingests each given
+ * source on startup. Unlike the HTTP endpoint, the path is not restricted to the ingestion root.
+ */
+@Component
+public class IngestionCommandRunner implements ApplicationRunner {
+
+    private final IngestionService ingestionService;
+
+    @Autowired
+    public IngestionCommandRunner(IngestionService ingestionService) {
+        this.ingestionService = ingestionService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        List<String> sources = args.getOptionValues("ingest");
+        if (sources == null) {
+            return;
+        }
+
+        for (String source : sources) {
+            ingestionService.ingest(Path.of(source));
+        }
+    }
+
+}
@@ -0,0 +1,314 @@
+package com.severentertainment.snippetmanager.ingest;
+
+import com.severentertainment.snippetmanager.domain.IngestedFile;
+import com.severentertainment.snippetmanager.domain.Snippet;
+import com.severentertainment.snippetmanager.domain.Tag;
+import com.severentertainment.snippetmanager.repository.IngestedFileRepository;
+import com.severentertainment.snippetmanager.repository.SnippetRepository;
+import com.severentertainment.snippetmanager.service.SnippetDataChangedEvent;
+import com.severentertainment.snippetmanager.service.SnippetJsonCache;
+import com.severentertainment.snippetmanager.service.TagService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Imports a directory tree or zip archive of markdown files as snippets.
+ * <p>
+ * The pipeline has two stages connected by a bounded queue. Parse workers (one per core by default)
+ * read and hash each file, skip files whose hash matches the previous import, and split the rest into
+ * sections with {@link MarkdownSplitter}. A single writer drains the queue and persists whole files in
+ * batch transactions, resolving front-matter tags in bulk. When the writer falls behind, the queue fills
+ * and parse workers block, so memory stays bounded by the queue capacity.
+ * <p>
+ * A changed file replaces the snippets from its previous import; files are identified by their path
+ * below the ingested directory or archive.
+ */
+@Service
+public class IngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestionService.class);
+
+    private static final ParsedFile END_OF_INPUT = new ParsedFile(null, null, null);
+
+    private final SnippetRepository snippetRepository;
+    private final IngestedFileRepository ingestedFileRepository;
+    private final TagService tagService;
+    private final SnippetJsonCache snippetJsonCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Path ingestRoot;
+    private final int parallelism;
+    private final int batchSize;
+    private final int queueCapacity;
+    private final int maxHeadingLevel;
+
+    @Autowired
+    public IngestionService(SnippetRepository snippetRepository, IngestedFileRepository ingestedFileRepository,
+                            TagService tagService, SnippetJsonCache snippetJsonCache,
+                            ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager,
+                            @Value("${snippetmanager.ingest.root:./ingest}") Path ingestRoot,
+                            @Value("${snippetmanager.ingest.parallelism:0}") int parallelism,
+                            @Value("${snippetmanager.ingest.batch-size:200}") int batchSize,
+                            @Value("${snippetmanager.ingest.queue-capacity:64}") int queueCapacity,
+                            @Value("${snippetmanager.ingest.max-heading-level:2}") int maxHeadingLevel) {
+        this.snippetRepository = snippetRepository;
+        this.ingestedFileRepository = ingestedFileRepository;
+        this.tagService = tagService;
+        this.snippetJsonCache = snippetJsonCache;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ingestRoot = ingestRoot.toAbsolutePath().normalize();
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+        this.maxHeadingLevel = maxHeadingLevel;
+    }
+
+    /**
+     * Ingests a directory or zip archive below the configured ingestion root.
+     * Used by the HTTP endpoint, which must not read arbitrary server paths.
+     *
+     * @param relativePath The path of the directory or archive, relative to the ingestion root.
+     * @return An {@link IngestionSummary} of the run.
+     * @throws IOException If the source cannot be listed.
+     * @throws InterruptedException If the calling thread is interrupted while waiting on the pipeline.
+     */
+    public IngestionSummary ingestFromRoot(String relativePath) throws IOException, InterruptedException {
+        Path source = ingestRoot.resolve(relativePath).normalize();
+        if (!source.startsWith(ingestRoot)) {
+            throw new IllegalArgumentException("Ingestion path must be inside the ingestion root: " + relativePath);
+        }
+
+        return ingest(source);
+    }
+
+    /**
+     * Ingests all markdown files in a directory tree or zip archive.
+     *
+     * @param source The directory or {@code .zip} file to ingest.
+     * @return An {@link IngestionSummary} of the run.
+     * @throws IOException If the source cannot be listed.
+     * @throws InterruptedException If the calling thread is interrupted while waiting on the pipeline.
+     */
+    public IngestionSummary ingest(Path source) throws IOException, InterruptedException {
+        Path absoluteSource = source.toAbsolutePath().normalize();
+
+        if (Files.isDirectory(absoluteSource)) {
+            return run(absoluteSource, absoluteSource + "/");
+        }
+
+        if (Files.isRegularFile(absoluteSource) && absoluteSource.toString().toLowerCase(Locale.ROOT).endsWith(".zip")) {
+            try (FileSystem archive = FileSystems.newFileSystem(absoluteSource)) {
+                return run(archive.getPath("/"), absoluteSource + "!/");
+            }
+        }
+
+        throw new IllegalArgumentException("Not a directory or zip archive: " + source);
+    }
+
+    private IngestionSummary run(Path root, String keyPrefix) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(Files::isRegularFile).filter(IngestionService::isMarkdown).sorted().toList();
+        }
+
+        Map<String, String> knownHashes = ingestedFileRepository.findHashesBySourcePathPrefix(keyPrefix).stream()
+                .collect(Collectors.toMap(IngestedFileRepository.SourceHash::getSourcePath,
+                        IngestedFileRepository.SourceHash::getContentHash));
+
+        AtomicInteger ingested = new AtomicInteger();
+        AtomicInteger skipped = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicInteger snippets = new AtomicInteger();
+
+        BlockingQueue<ParsedFile> queue = new ArrayBlockingQueue<>(queueCapacity);
+        ExecutorService parsers = Executors.newFixedThreadPool(parallelism);
+
+        // Feeds the parse stage and signals the writer once every file has been parsed
+        Thread coordinator = Thread.ofVirtual().name("ingest-coordinator").start(() -> {
+            try {
+                for (Path file : files) {
+                    String key = keyPrefix + root.relativize(file).toString().replace('\\', '/');
+                    parsers.execute(() -> parse(file, key, knownHashes, queue, skipped, failed));
+                }
+                parsers.shutdown();
+                parsers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                queue.put(END_OF_INPUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // The writer failed and is shutting the pipeline down
+            }
+        });
+
+        try {
+            List<ParsedFile> batch = new ArrayList<>();
+            int batchSnippets = 0;
+            for (ParsedFile file = queue.take(); file != END_OF_INPUT; file = queue.take()) {
+                batch.add(file);
+                batchSnippets += file.document().sections().size();
+                if (batchSnippets >= batchSize) {
+                    snippets.addAndGet(write(batch));
+                    ingested.addAndGet(batch.size());
+                    batch.clear();
+                    batchSnippets = 0;
+                }
+            }
+            snippets.addAndGet(write(batch));
+            ingested.addAndGet(batch.size());
+        } catch (RuntimeException | InterruptedException e) {
+            parsers.shutdownNow();
+            coordinator.interrupt();
+            queue.clear(); // Unblocks parse workers waiting to hand over a file
+            throw e;
+        }
+
+        IngestionSummary summary = new IngestionSummary(files.size(), ingested.get(), skipped.get(), failed.get(),
+                snippets.get(), (System.nanoTime() - start) / 1_000_000);
+        log.info("Ingested {}: {}", keyPrefix, summary);
+        return summary;
+    }
+
+    private void parse(Path file, String key, Map<String, String> knownHashes, BlockingQueue<ParsedFile> queue,
+                       AtomicInteger skipped, AtomicInteger failed) {
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            String hash = sha256(bytes);
+            if (hash.equals(knownHashes.get(key))) {
+                skipped.incrementAndGet();
+                return;
+            }
+
+            String fileName = file.getFileName().toString();
+            String defaultTitle = fileName.substring(0, fileName.lastIndexOf('.'));
+            MarkdownDocument document = MarkdownSplitter.split(defaultTitle, new String(bytes, StandardCharsets.UTF_8), maxHeadingLevel);
+
+            queue.put(new ParsedFile(key, hash, document)); // Blocks while the writer is behind
+        } catch (IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            log.warn("Failed to parse {}", key, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Persists a batch of files in one transaction and returns the number of snippets created
+    private int write(List<ParsedFile> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        return transactionTemplate.execute(status -> {
+            Set<String> tagNames = new LinkedHashSet<>();
+            for (ParsedFile file : batch) {
+                tagNames.addAll(file.document().tags());
+            }
+            Map<String, Tag> tagsByName = tagService.resolveTags(tagNames);
+
+            int created = 0;
+            Set<Long> deletedIds = new HashSet<>();
+            Set<Long> createdIds = new HashSet<>();
+            Set<Long> deletedTagIds = new HashSet<>();
+            Set<Long> createdTagIds = new HashSet<>();
+            for (ParsedFile file : batch) {
+                IngestedFile ingestedFile = ingestedFileRepository.findBySourcePath(file.sourcePath())
+                        .orElseGet(IngestedFile::new);
+
+                // A changed file replaces everything its previous version produced
+                if (!ingestedFile.getSnippetIds().isEmpty()) {
+                    deletedTagIds.addAll(snippetRepository.findTagIdsByIdIn(ingestedFile.getSnippetIds()));
+                    snippetRepository.deleteAllById(ingestedFile.getSnippetIds());
+                    snippetJsonCache.evictAll(ingestedFile.getSnippetIds());
+                    deletedIds.addAll(ingestedFile.getSnippetIds());
+                }
+
+                Set<Tag> fileTags = new HashSet<>();
+                for (String tagName : file.document().tags()) {
+                    Tag tag = tagsByName.get(TagService.normalizeName(tagName));
+                    fileTags.add(tag);
+                    createdTagIds.add(tag.getId());
+                }
+
+                List<Snippet> snippets = new ArrayList<>();
+                for (MarkdownDocument.Section section : file.document().sections()) {
+                    Snippet snippet = new Snippet();
+                    snippet.setTitle(section.title());
+                    snippet.setContent(section.content());
+                    snippet.setTags(new HashSet<>(fileTags));
+                    snippets.add(snippet);
+                }
+                snippetRepository.saveAll(snippets);
+
+                Set<Long> snippetIds = new HashSet<>();
+                for (Snippet snippet : snippets) {
+                    snippetIds.add(snippet.getId());
+                }
+
+                ingestedFile.setSourcePath(file.sourcePath());
+                ingestedFile.setContentHash(file.contentHash());
+                ingestedFile.setIngestedAt(Instant.now());
+                ingestedFile.setSnippetIds(snippetIds);
+                ingestedFileRepository.save(ingestedFile);
+
+                createdIds.addAll(snippetIds);
+                created += snippets.size();
+            }
+
+            if (!deletedIds.isEmpty()) {
+                eventPublisher.publishEvent(SnippetDataChangedEvent.of(SnippetDataChangedEvent.Type.SNIPPETS_DELETED, deletedIds, deletedTagIds));
+            }
+            eventPublisher.publishEvent(SnippetDataChangedEvent.of(SnippetDataChangedEvent.Type.SNIPPETS_CREATED, createdIds, createdTagIds));
+
+            return created;
+        });
+    }
+
+    private static boolean isMarkdown(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".md") || name.endsWith(".markdown");
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record ParsedFile(String sourcePath, String contentHash, MarkdownDocument document) {
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.severentertainment.snippetmanager.ingest;
+
+/**
+ * Outcome of an ingestion run.
+ *
+ * @param files The number of markdown files found.
+ * @param ingested The number of new or changed files that were imported.
+ * @param skipped The number of files skipped because their content hash was unchanged.
+ * @param failed The number of files that could not be read or imported.
+ * @param snippets The number of snippets created.
+ * @param elapsedMillis The duration of the run, in milliseconds.
+ */
+public record IngestionSummary(int files, int ingested, int skipped, int failed, int snippets, long elapsedMillis) {
+}
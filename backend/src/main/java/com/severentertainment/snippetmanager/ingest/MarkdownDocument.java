@@ -0,0 +1,22 @@
+package com.severentertainment.snippetmanager.ingest;
+
+import java.util.List;
+
+/**
+ * A markdown file split into snippet-sized sections, with the tags from its front matter.
+ *
+ * @param tags The raw tag names from the front matter; applied to every section.
+ * @param sections The sections of the document, in document order.
+ */
+public record MarkdownDocument(List<String> tags, List<Section> sections) {
+
+    /**
+     * One section of a markdown document, starting at a heading.
+     *
+     * @param title The heading text, or the document title for text before the first heading.
+     * @param content The markdown body of the section, without its heading line.
+     */
+    public record Section(String title, String content) {
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.severentertainment.snippetmanager.ingest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits a markdown document into sections at ATX headings ({@code #} to the configured level)
+ * and reads {@code title} and {@code tags} from an optional {@link FrontMatter} block.
+ * Headings inside fenced code blocks are not treated as section boundaries.
+ */
+public class MarkdownSplitter {
+
+    private static final int MAX_TITLE_LENGTH = 255;
+
+    private static final Pattern HEADING = Pattern.compile("^ {0,3}(#{1,6})(?:[ \\t]+(.*?))?(?:[ \\t]+#+)?[ \\t]*$");
+    private static final Pattern FENCE = Pattern.compile("^ {0,3}(`{3,}|~{3,})");
+    private static final Pattern LINE_BREAK = Pattern.compile("\\r?\\n");
+
+    private MarkdownSplitter() {
+    }
+
+    /**
+     * Splits a markdown document into sections.
+     *
+     * @param defaultTitle The title for text before the first heading if the front matter has none, e.g. the file name.
+     * @param markdown The markdown text, optionally starting with a {@code ---} delimited front matter block.
+     * @param maxHeadingLevel The deepest heading level that starts a new section; deeper headings stay in their section.
+     * @return The {@link MarkdownDocument}; sections without any body text are dropped.
+     */
+    public static MarkdownDocument split(String defaultTitle, String markdown, int maxHeadingLevel) {
+        FrontMatter frontMatter = FrontMatter.parse(markdown);
+        String title = frontMatter.value("title") != null ? frontMatter.value("title") : defaultTitle;
+        String[] lines = LINE_BREAK.split(frontMatter.body(), -1);
+
+        List<MarkdownDocument.Section> sections = new ArrayList<>();
+        String sectionTitle = title;
+        StringBuilder body = new StringBuilder();
+        String openFence = null;
+
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+
+            Matcher fence = FENCE.matcher(line);
+            if (fence.find()) {
+                String marker = fence.group(1);
+                if (openFence == null) {
+                    openFence = marker;
+                } else if (marker.charAt(0) == openFence.charAt(0) && marker.length() >= openFence.length()) {
+                    openFence = null;
+                }
+            } else if (openFence == null) {
+                Matcher heading = HEADING.matcher(line);
+                if (heading.matches() && heading.group(1).length() <= maxHeadingLevel) {
+                    addSection(sections, sectionTitle, body);
+                    sectionTitle = heading.group(2) != null && !heading.group(2).isBlank() ? heading.group(2) : title;
+                    body.setLength(0);
+                    continue;
+                }
+            }
+
+            body.append(line).append('\n');
+        }
+        addSection(sections, sectionTitle, body);
+
+        return new MarkdownDocument(frontMatter.tags(), sections);
+    }
+
+    private static void addSection(List<MarkdownDocument.Section> sections, String title, StringBuilder body) {
+        String content = body.toString().strip();
+        if (content.isEmpty()) {
+            return;
+        }
+
+        String trimmedTitle = title.strip();
+        if (trimmedTitle.length() > MAX_TITLE_LENGTH) {
+            trimmedTitle = trimmedTitle.substring(0, MAX_TITLE_LENGTH);
+        }
+        sections.add(new MarkdownDocument.Section(trimmedTitle, content));
+    }
+
+}
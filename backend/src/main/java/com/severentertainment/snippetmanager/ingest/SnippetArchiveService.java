@@ -0,0 +1,319 @@
+package com.severentertainment.snippetmanager.ingest;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.severentertainment.snippetmanager.domain.Snippet;
+import com.severentertainment.snippetmanager.domain.Tag;
+import com.severentertainment.snippetmanager.repository.SnippetRepository;
+import com.severentertainment.snippetmanager.repository.SnippetWithContent;
+import com.severentertainment.snippetmanager.repository.TagRepository;
+import com.severentertainment.snippetmanager.service.SnippetDataChangedEvent;
+import com.severentertainment.snippetmanager.service.TagService;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exports all snippets as a zip archive and imports such archives, streaming in both directions.
+ * <p>
+ * The archive holds a {@code manifest.json} with every tag name, followed by one markdown file per snippet
+ * under {@code snippets/}. Each file carries the snippet's title, tags and timestamps in its front matter
+ * and the snippet content, unchanged, as its body. Export reads snippets from a database cursor and writes
+ * each entry as soon as it is read; import reads one entry at a time and persists snippets in batch
+ * transactions. Heap use is bounded by the batch size, not by the size of the archive.
+ */
+@Service
+public class SnippetArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(SnippetArchiveService.class);
+
+    static final String MANIFEST = "manifest.json";
+    static final String SNIPPET_DIR = "snippets/";
+    static final int FORMAT_VERSION = 1;
+
+    private static final int MAX_TITLE_LENGTH = 255;
+    private static final int MAX_SLUG_LENGTH = 60;
+    private static final Pattern NON_SLUG = Pattern.compile("[^a-z0-9]+");
+
+    private final SnippetRepository snippetRepository;
+    private final TagRepository tagRepository;
+    private final TagService tagService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxEntryBytes;
+
+    @Autowired
+    public SnippetArchiveService(SnippetRepository snippetRepository, TagRepository tagRepository,
+                                 TagService tagService, EntityManager entityManager, ObjectMapper objectMapper,
+                                 ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager,
+                                 @Value("${snippetmanager.archive.batch-size:200}") int batchSize,
+                                 @Value("${snippetmanager.archive.max-entry-bytes:16777216}") int maxEntryBytes) {
+        this.snippetRepository = snippetRepository;
+        this.tagRepository = tagRepository;
+        this.tagService = tagService;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    /**
+     * Writes all tags and snippets to a zip archive.
+     * Snippets are read from a cursor and detached once written, so only one is held at a time.
+     *
+     * @param out The stream to write the archive to; it is finished but not closed.
+     * @throws IOException If writing to the stream fails.
+     */
+    @Transactional(readOnly = true)
+    public void exportArchive(OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+
+        zip.putNextEntry(new ZipEntry(MANIFEST));
+        writeManifest(zip);
+        zip.closeEntry();
+
+        Yaml yaml = frontMatterYaml();
+        try (Stream<SnippetWithContent> snippets = snippetRepository.streamAllWithContent()) {
+            Iterator<SnippetWithContent> iterator = snippets.iterator();
+            while (iterator.hasNext()) {
+                SnippetWithContent row = iterator.next();
+                zip.putNextEntry(new ZipEntry(entryName(row.snippet())));
+                zip.write(toMarkdown(yaml, row.snippet(), row.content()).getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+                entityManager.detach(row.snippet()); // Release the written snippet from the persistence context
+            }
+        }
+
+        zip.finish();
+    }
+
+    /**
+     * Imports a zip archive produced by {@link #exportArchive(OutputStream)}. Every markdown entry becomes a
+     * new snippet; tags are matched by name and created if missing. Entries are read in archive order and
+     * written in batch transactions, so a failed batch leaves the earlier batches imported.
+     *
+     * @param in The stream to read the archive from; it is not closed.
+     * @return An {@link ArchiveImportSummary} of the import.
+     * @throws IOException If reading the stream fails.
+     * @throws ZipException If the stream is not a zip archive or has no entries.
+     */
+    public ArchiveImportSummary importArchive(InputStream in) throws IOException {
+        long start = System.nanoTime();
+
+        ZipInputStream zip = new ZipInputStream(in, StandardCharsets.UTF_8);
+        List<ArchivedSnippet> batch = new ArrayList<>();
+        int entries = 0;
+        int skipped = 0;
+        int tags = 0;
+        int snippets = 0;
+
+        ZipEntry entry = zip.getNextEntry();
+        if (entry == null) {
+            // Exported archives always have a manifest; ZipInputStream reports any other input as empty
+            throw new ZipException("Not a snippet archive");
+        }
+
+        for (; entry != null; entry = zip.getNextEntry()) {
+            String name = entry.getName();
+            if (entry.isDirectory()) {
+                continue;
+            }
+
+            if (name.equals(MANIFEST)) {
+                tags += importManifest(readEntry(zip));
+                continue;
+            }
+
+            if (!name.toLowerCase(Locale.ROOT).endsWith(".md")) {
+                continue;
+            }
+
+            entries++;
+            byte[] bytes = readEntry(zip);
+            if (bytes.length > maxEntryBytes) {
+                skipped++;
+                log.warn("Skipped archive entry {}: larger than {} bytes", name, maxEntryBytes);
+                continue;
+            }
+
+            batch.add(toArchivedSnippet(name, new String(bytes, StandardCharsets.UTF_8)));
+            if (batch.size() >= batchSize) {
+                snippets += write(batch);
+                batch.clear();
+            }
+        }
+        snippets += write(batch);
+
+        ArchiveImportSummary summary = new ArchiveImportSummary(entries, snippets, skipped, tags,
+                (System.nanoTime() - start) / 1_000_000);
+        log.info("Imported snippet archive: {}", summary);
+        return summary;
+    }
+
+    private void writeManifest(OutputStream out) throws IOException {
+        // The generator must not close the zip stream when it is done
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            generator.writeStartObject();
+            generator.writeNumberField("format", FORMAT_VERSION);
+            generator.writeArrayFieldStart("tags");
+            for (Tag tag : tagRepository.findAll(Sort.by("name"))) {
+                generator.writeString(tag.getName());
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    private int importManifest(byte[] manifest) throws IOException {
+        JsonNode tagNames = objectMapper.readTree(manifest).path("tags");
+
+        List<String> names = new ArrayList<>();
+        for (JsonNode tagName : tagNames) {
+            names.add(tagName.asText());
+        }
+
+        return transactionTemplate.execute(status -> tagService.resolveTags(names).size());
+    }
+
+    // Reads at most one byte past the limit, so an oversized entry never has to fit in memory
+    private byte[] readEntry(ZipInputStream zip) throws IOException {
+        byte[] bytes = zip.readNBytes(maxEntryBytes + 1);
+        if (bytes.length > maxEntryBytes) {
+            zip.closeEntry(); // Skips the rest of the entry
+        }
+        return bytes;
+    }
+
+    private ArchivedSnippet toArchivedSnippet(String entryName, String markdown) {
+        FrontMatter frontMatter = FrontMatter.parse(markdown);
+
+        String title = frontMatter.value("title");
+        if (title == null) {
+            String fileName = entryName.substring(entryName.lastIndexOf('/') + 1);
+            title = fileName.substring(0, fileName.length() - ".md".length());
+        }
+        if (title.length() > MAX_TITLE_LENGTH) {
+            title = title.substring(0, MAX_TITLE_LENGTH);
+        }
+
+        return new ArchivedSnippet(title, frontMatter.body(), frontMatter.tags());
+    }
+
+    // Persists a batch of snippets in one transaction and returns the number created
+    private int write(List<ArchivedSnippet> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        return transactionTemplate.execute(status -> {
+            Set<String> tagNames = new LinkedHashSet<>();
+            for (ArchivedSnippet archived : batch) {
+                tagNames.addAll(archived.tags());
+            }
+            Map<String, Tag> tagsByName = tagService.resolveTags(tagNames);
+
+            List<Snippet> snippets = new ArrayList<>();
+            for (ArchivedSnippet archived : batch) {
+                Snippet snippet = new Snippet();
+                snippet.setTitle(archived.title());
+                snippet.setContent(archived.content());
+
+                Set<Tag> tags = new HashSet<>();
+                for (String tagName : archived.tags()) {
+                    tags.add(tagsByName.get(TagService.normalizeName(tagName)));
+                }
+                snippet.setTags(tags);
+                snippets.add(snippet);
+            }
+            // Flushed here, as the links are otherwise only written at commit, which a caller's transaction may defer
+            snippetRepository.saveAllAndFlush(snippets);
+            eventPublisher.publishEvent(SnippetDataChangedEvent.of(SnippetDataChangedEvent.Type.SNIPPETS_CREATED,
+                    snippets.stream().map(Snippet::getId).toList(), tagsByName.values().stream().map(Tag::getId).toList()));
+
+            return snippets.size();
+        });
+    }
+
+    private static String toMarkdown(Yaml yaml, Snippet snippet, String content) {
+        Map<String, Object> frontMatter = new LinkedHashMap<>();
+        frontMatter.put("title", snippet.getTitle());
+
+        List<String> tagNames = new ArrayList<>();
+        for (Tag tag : snippet.getTags()) {
+            tagNames.add(tag.getName());
+        }
+        tagNames.sort(null);
+        frontMatter.put("tags", tagNames);
+
+        // Informational only: imported snippets get new timestamps
+        if (snippet.getCreationDate() != null) {
+            frontMatter.put("created", snippet.getCreationDate().toString());
+        }
+        if (snippet.getLastModifiedDate() != null) {
+            frontMatter.put("modified", snippet.getLastModifiedDate().toString());
+        }
+
+        return "---\n" + yaml.dump(frontMatter) + "---\n" + (content != null ? content : "");
+    }
+
+    static String entryName(Snippet snippet) {
+        String slug = snippet.getTitle() != null
+                ? NON_SLUG.matcher(snippet.getTitle().toLowerCase(Locale.ROOT)).replaceAll("-")
+                : "";
+        if (slug.length() > MAX_SLUG_LENGTH) {
+            slug = slug.substring(0, MAX_SLUG_LENGTH);
+        }
+        slug = slug.replaceAll("^-+|-+$", "");
+
+        return SNIPPET_DIR + snippet.getId() + (slug.isEmpty() ? "" : "-" + slug) + ".md";
+    }
+
+    private static Yaml frontMatterYaml() {
+        DumperOptions options = new DumperOptions();
+        options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+        options.setWidth(Integer.MAX_VALUE); // Keep long titles on one line
+        return new Yaml(options);
+    }
+
+    private record ArchivedSnippet(String title, String content, List<String> tags) {
+    }
+
+}
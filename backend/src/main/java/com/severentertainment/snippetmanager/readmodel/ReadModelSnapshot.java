@@ -0,0 +1,54 @@
+package com.severentertainment.snippetmanager.readmodel;
+
+import com.severentertainment.snippetmanager.dto.SnippetSummaryDto;
+import com.severentertainment.snippetmanager.dto.TagResponseDto;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * One immutable version of the read model: the summaries of all snippets and all tags, keyed and ordered by ID.
+ * A snapshot is never changed after it is published; the DTOs it hands out are shared between requests
+ * and must not be modified.
+ *
+ * @param version The version of the read model; increases with every committed change that was applied.
+ * @param snippets The snippet summaries by ID.
+ * @param tags The tags by ID.
+ * @param snippetList The snippet summaries in ID order.
+ * @param tagList The tags in ID order.
+ */
+public record ReadModelSnapshot(long version,
+                                NavigableMap<Long, SnippetSummaryDto> snippets,
+                                NavigableMap<Long, TagResponseDto> tags,
+                                List<SnippetSummaryDto> snippetList,
+                                List<TagResponseDto> tagList) {
+
+    /**
+     * Creates a snapshot that takes ownership of the given maps; callers must not modify them afterwards.
+     *
+     * @param version The version of the snapshot.
+     * @param snippets The snippet summaries by ID.
+     * @param tags The tags by ID.
+     * @return The snapshot.
+     */
+    static ReadModelSnapshot of(long version, NavigableMap<Long, SnippetSummaryDto> snippets,
+                                NavigableMap<Long, TagResponseDto> tags) {
+        return new ReadModelSnapshot(version,
+                Collections.unmodifiableNavigableMap(snippets),
+                Collections.unmodifiableNavigableMap(tags),
+                List.copyOf(snippets.values()),
+                List.copyOf(tags.values()));
+    }
+
+    public Optional<TagResponseDto> tag(Long id) {
+        return Optional.ofNullable(tags.get(id));
+    }
+
+    public Optional<Set<TagResponseDto>> tagsForSnippet(Long snippetId) {
+        return Optional.ofNullable(snippets.get(snippetId)).map(SnippetSummaryDto::getTags);
+    }
+
+}
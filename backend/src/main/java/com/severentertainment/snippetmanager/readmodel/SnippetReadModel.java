@@ -0,0 +1,199 @@
+package com.severentertainment.snippetmanager.readmodel;
+
+import com.severentertainment.snippetmanager.config.ReadConsistency;
+import com.severentertainment.snippetmanager.dto.SnippetSummaryDto;
+import com.severentertainment.snippetmanager.dto.TagResponseDto;
+import com.severentertainment.snippetmanager.service.SnippetDataChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Keeps an in-memory copy of all snippet summaries, tags and snippet-tag links, so that reads of them never touch
+ * the database. Enabled with {@code snippetmanager.read-model.enabled=true}.
+ * <p>
+ * The model is an immutable {@link ReadModelSnapshot} that readers obtain with a single volatile read. Writers
+ * publish a {@link SnippetDataChangedEvent}; once their transaction has committed, the changed rows are read back
+ * and a new snapshot is built from a copy of the current one and swapped in. Changes are applied one at a time,
+ * each reading the committed state after the previous one, so the model never goes back to an older state.
+ * Snippet content is not kept in memory; full snippets are still served through the JSON cache.
+ */
+@Component
+@ConditionalOnProperty(name = "snippetmanager.read-model.enabled", havingValue = "true")
+public class SnippetReadModel implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(SnippetReadModel.class);
+
+    // Larger changes (e.g. a big import batch) are cheaper to apply by reading everything again
+    private static final int MAX_INCREMENTAL_IDS = 1_000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTransaction;
+    private final Object updateLock = new Object();
+
+    private volatile ReadModelSnapshot snapshot;
+    private boolean stale; // Set when applying a change failed; guarded by updateLock
+
+    @Autowired
+    public SnippetReadModel(DataSource dataSource, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+
+        // Changes are read after the writing transaction has committed, while its resources are still bound.
+        // They are read from the primary, as replicas may not have them yet.
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Loads the initial snapshot once all beans, including schema migrations, are initialized and before the
+     * application accepts requests or runs startup tasks, so no write can be missed.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        long start = System.nanoTime();
+        synchronized (updateLock) {
+            snapshot = ReadConsistency.onPrimary(() -> readTransaction.execute(status -> loadAll(1)));
+        }
+
+        log.info("Loaded read model with {} snippets and {} tags in {} ms",
+                snapshot.snippets().size(), snapshot.tags().size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Returns the current snapshot of the read model.
+     *
+     * @return The current {@link ReadModelSnapshot}.
+     */
+    public ReadModelSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Applies a committed change to the read model. Runs in the writing thread, so a client that made a
+     * change sees it in its next read. Failures are logged and never fail the (already committed) write;
+     * the model is then read again in full with the next change.
+     *
+     * @param event The change to apply.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDataChanged(SnippetDataChangedEvent event) {
+        synchronized (updateLock) {
+            ReadModelSnapshot current = snapshot;
+            if (current == null) {
+                return; // The initial load reads everything committed so far
+            }
+
+            try {
+                boolean full = stale || event.isReset()
+                        || event.snippetIds().size() + event.tagIds().size() > MAX_INCREMENTAL_IDS;
+                snapshot = ReadConsistency.onPrimary(() -> readTransaction.execute(status ->
+                        full ? loadAll(current.version() + 1) : applyChanges(current, event)));
+                stale = false;
+            } catch (RuntimeException e) {
+                stale = true;
+                log.error("Could not apply change to read model; it will be reloaded with the next change", e);
+            }
+        }
+    }
+
+    private ReadModelSnapshot loadAll(long version) {
+        NavigableMap<Long, TagResponseDto> tags = new TreeMap<>();
+        jdbcTemplate.query("select id, name from tag", (RowCallbackHandler) rs -> {
+            long id = rs.getLong(1);
+            tags.put(id, new TagResponseDto(id, rs.getString(2)));
+        });
+
+        Map<Long, Set<TagResponseDto>> links = new HashMap<>();
+        jdbcTemplate.query("select snippet_id, tag_id from snippet_tag", (RowCallbackHandler) rs -> {
+            long snippetId = rs.getLong(1);
+            TagResponseDto tag = tags.get(rs.getLong(2));
+            if (tag != null) { // Linked after the tags were read; the change that linked it is applied next
+                links.computeIfAbsent(snippetId, id -> new HashSet<>()).add(tag);
+            }
+        });
+
+        NavigableMap<Long, SnippetSummaryDto> snippets = new TreeMap<>();
+        jdbcTemplate.query("select id, title, creation_date, last_modified_date from snippet",
+                (RowCallbackHandler) rs -> putSummary(snippets, links, rs.getLong(1), rs.getString(2),
+                        rs.getObject(3, Instant.class), rs.getObject(4, Instant.class)));
+
+        return ReadModelSnapshot.of(version, snippets, tags);
+    }
+
+    private ReadModelSnapshot applyChanges(ReadModelSnapshot current, SnippetDataChangedEvent event) {
+        NavigableMap<Long, TagResponseDto> tags = new TreeMap<>(current.tags());
+        if (!event.tagIds().isEmpty()) {
+            event.tagIds().forEach(tags::remove); // Deleted tags are not read back
+            loadTags(event.tagIds(), tags);
+        }
+
+        NavigableMap<Long, SnippetSummaryDto> snippets = new TreeMap<>(current.snippets());
+        if (!event.snippetIds().isEmpty()) {
+            Map<String, Object> ids = Map.of("ids", event.snippetIds());
+
+            Map<Long, Set<Long>> linkedTagIds = new HashMap<>();
+            jdbcTemplate.query("select snippet_id, tag_id from snippet_tag where snippet_id in (:ids)", ids,
+                    (RowCallbackHandler) rs -> linkedTagIds.computeIfAbsent(rs.getLong(1), id -> new HashSet<>()).add(rs.getLong(2)));
+
+            // A tag created in the same transaction may not have been applied yet
+            Set<Long> unknownTagIds = new HashSet<>();
+            linkedTagIds.values().forEach(tagIds -> tagIds.stream().filter(id -> !tags.containsKey(id)).forEach(unknownTagIds::add));
+            if (!unknownTagIds.isEmpty()) {
+                loadTags(unknownTagIds, tags);
+            }
+
+            Map<Long, Set<TagResponseDto>> links = new HashMap<>();
+            linkedTagIds.forEach((snippetId, tagIds) -> {
+                Set<TagResponseDto> snippetTags = new HashSet<>();
+                for (Long tagId : tagIds) {
+                    TagResponseDto tag = tags.get(tagId);
+                    if (tag != null) { // Deleted since the links were read
+                        snippetTags.add(tag);
+                    }
+                }
+                links.put(snippetId, snippetTags);
+            });
+
+            event.snippetIds().forEach(snippets::remove); // Deleted snippets are not read back
+            jdbcTemplate.query("select id, title, creation_date, last_modified_date from snippet where id in (:ids)", ids,
+                    (RowCallbackHandler) rs -> putSummary(snippets, links, rs.getLong(1), rs.getString(2),
+                            rs.getObject(3, Instant.class), rs.getObject(4, Instant.class)));
+        }
+
+        return ReadModelSnapshot.of(current.version() + 1, snippets, tags);
+    }
+
+    private void loadTags(Collection<Long> ids, Map<Long, TagResponseDto> tags) {
+        jdbcTemplate.query("select id, name from tag where id in (:ids)", Map.of("ids", ids), (RowCallbackHandler) rs -> {
+            long id = rs.getLong(1);
+            tags.put(id, new TagResponseDto(id, rs.getString(2)));
+        });
+    }
+
+    private static void putSummary(Map<Long, SnippetSummaryDto> snippets, Map<Long, Set<TagResponseDto>> links,
+                                   long id, String title, Instant creationDate, Instant lastModifiedDate) {
+        Set<TagResponseDto> tags = links.getOrDefault(id, Set.of());
+        snippets.put(id, new SnippetSummaryDto(id, title, creationDate, lastModifiedDate, Set.copyOf(tags)));
+    }
+
+}
@@ -0,0 +1,273 @@
+package com.severentertainment.snippetmanager.replica;
+
+import com.severentertainment.snippetmanager.config.ReplicaDataSources;
+import com.severentertainment.snippetmanager.config.SecondLevelCacheConfig;
+import com.severentertainment.snippetmanager.domain.Snippet;
+import com.severentertainment.snippetmanager.domain.Tag;
+import com.severentertainment.snippetmanager.service.SnippetDataChangedEvent;
+import com.severentertainment.snippetmanager.service.SnippetJsonCache;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps H2 databases that stand in for read replicas in sync with the primary, for local testing of read/write
+ * routing. A real replica would be fed by the database's own replication; here the change log is the stream of
+ * committed {@link SnippetDataChangedEvent}s.
+ * <p>
+ * On startup (and after a snapshot restore) each replica is replaced with a full copy of the primary. After that,
+ * every committed change is applied on a thread of its own per replica, in commit order, by copying the current
+ * rows of the changed snippets, tags and links from the primary. The time from commit until a change is applied is
+ * published as {@code snippetmanager.replica.lag}, and the number of changes not yet applied as
+ * {@code snippetmanager.replica.pending}. Once applied, cached data that may have been read from the replica
+ * before it caught up is evicted.
+ */
+@Component
+@ConditionalOnProperty(name = "snippetmanager.replica.enabled", havingValue = "true")
+public class ReplicaSynchronizer implements SmartInitializingSingleton, MeterBinder, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaSynchronizer.class);
+
+    // Larger changes (e.g. a big import batch) are cheaper to apply by copying everything again
+    private static final int MAX_INCREMENTAL_IDS = 1_000;
+
+    private static final String SNIPPET_TAGS_ROLE = Snippet.class.getName() + ".tags";
+    private static final Set<SnippetDataChangedEvent.Type> SNIPPET_CHANGES = EnumSet.of(SnippetDataChangedEvent.Type.SNIPPETS_CREATED,
+            SnippetDataChangedEvent.Type.SNIPPETS_UPDATED, SnippetDataChangedEvent.Type.SNIPPETS_DELETED);
+
+    private final JdbcTemplate primaryJdbcTemplate;
+    private final NamedParameterJdbcTemplate primaryNamedJdbcTemplate;
+    private final TransactionTemplate primaryReadTransaction;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final SnippetJsonCache snippetJsonCache;
+    private final Cache secondLevelCache;
+
+    @Autowired
+    public ReplicaSynchronizer(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                               ReplicaDataSources replicaDataSources,
+                               SnippetJsonCache snippetJsonCache,
+                               EntityManagerFactory entityManagerFactory) {
+        this.primaryJdbcTemplate = new JdbcTemplate(primaryDataSource);
+        this.primaryNamedJdbcTemplate = new NamedParameterJdbcTemplate(primaryJdbcTemplate);
+
+        // Changed rows are read in one snapshot, so that links never refer to rows the copy does not have
+        this.primaryReadTransaction = new TransactionTemplate(new DataSourceTransactionManager(primaryDataSource));
+        this.primaryReadTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.primaryReadTransaction.setReadOnly(true);
+
+        for (HikariDataSource dataSource : replicaDataSources.dataSources()) {
+            replicas.add(new Replica(dataSource));
+        }
+        this.snippetJsonCache = snippetJsonCache;
+        this.secondLevelCache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+
+    /**
+     * Copies the primary to every replica once the schema exists and before the application serves reads.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (Replica replica : replicas) {
+            long start = System.nanoTime();
+            copyAll(replica);
+            log.info("Copied primary to replica {} in {} ms", replica.name, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * Queues a committed change for every replica.
+     *
+     * @param event The change that was committed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDataChanged(SnippetDataChangedEvent event) {
+        long committedAt = System.nanoTime();
+        for (Replica replica : replicas) {
+            replica.pending.incrementAndGet();
+            replica.executor.execute(() -> {
+                try {
+                    apply(replica, event);
+                } catch (RuntimeException e) {
+                    log.error("Could not apply change to replica {}; copying the primary again", replica.name, e);
+                    copyAll(replica);
+                } finally {
+                    replica.pending.decrementAndGet();
+                }
+
+                Timer lag = replica.lag;
+                if (lag != null) {
+                    lag.record(System.nanoTime() - committedAt, TimeUnit.NANOSECONDS);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the number of committed changes that are not yet applied to all replicas.
+     *
+     * @return The number of pending changes, summed over the replicas.
+     */
+    public int pendingChanges() {
+        return replicas.stream().mapToInt(replica -> replica.pending.get()).sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Replica replica : replicas) {
+            replica.lag = Timer.builder("snippetmanager.replica.lag")
+                    .description("Time from a commit on the primary until it is applied to the replica")
+                    .tag("replica", replica.name)
+                    .register(registry);
+            Gauge.builder("snippetmanager.replica.pending", replica.pending, AtomicInteger::get)
+                    .description("Committed changes not yet applied to the replica")
+                    .tag("replica", replica.name)
+                    .register(registry);
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        for (Replica replica : replicas) {
+            replica.executor.shutdown();
+        }
+        for (Replica replica : replicas) {
+            replica.executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private void apply(Replica replica, SnippetDataChangedEvent event) {
+        Set<Long> snippetIds = event.snippetIds();
+        // The tags of a snippet change are unchanged rows, and the links that changed are copied with the snippet
+        Set<Long> tagIds = SNIPPET_CHANGES.contains(event.type()) ? Set.of() : event.tagIds();
+        if (event.isReset() || snippetIds.size() + tagIds.size() > MAX_INCREMENTAL_IDS) {
+            copyAll(replica);
+            evictAll();
+            return;
+        }
+
+        Map<String, Object> ids = Map.of("snippetIds", snippetIds.isEmpty() ? Set.of(-1L) : snippetIds,
+                "tagIds", tagIds.isEmpty() ? Set.of(-1L) : tagIds);
+        ChangedRows rows = primaryReadTransaction.execute(status -> new ChangedRows(
+                primaryNamedJdbcTemplate.query("select id, name from tag where id in (:tagIds)", ids,
+                        (rs, rowNum) -> new Object[] {rs.getLong(1), rs.getString(2)}),
+                primaryNamedJdbcTemplate.query(
+                        "select id, title, content, creation_date, last_modified_date from snippet where id in (:snippetIds)", ids,
+                        (rs, rowNum) -> new Object[] {rs.getLong(1), rs.getString(2), rs.getString(3),
+                                rs.getObject(4, Instant.class), rs.getObject(5, Instant.class)}),
+                primaryNamedJdbcTemplate.query(
+                        "select snippet_id, tag_id from snippet_tag where snippet_id in (:snippetIds) or tag_id in (:tagIds)", ids,
+                        (rs, rowNum) -> new Object[] {rs.getLong(1), rs.getLong(2)}),
+                primaryNamedJdbcTemplate.query(
+                        "select id, snippet_id, deleted_at from snippet_tombstone where snippet_id in (:snippetIds)", ids,
+                        (rs, rowNum) -> new Object[] {rs.getLong(1), rs.getLong(2), rs.getObject(3, Instant.class)})));
+
+        replica.writeTransaction.executeWithoutResult(status -> {
+            NamedParameterJdbcTemplate jdbc = replica.namedJdbcTemplate;
+            jdbc.update("delete from snippet_tag where snippet_id in (:snippetIds) or tag_id in (:tagIds)", ids);
+            jdbc.update("delete from snippet where id in (:snippetIds)", ids);
+            jdbc.update("delete from tag where id in (:tagIds)", ids);
+            jdbc.update("delete from snippet_tombstone where snippet_id in (:snippetIds)", ids);
+
+            JdbcTemplate batch = jdbc.getJdbcTemplate();
+            batch.batchUpdate("insert into tag (id, name) values (?, ?)", rows.tags());
+            batch.batchUpdate("insert into snippet (id, title, content, creation_date, last_modified_date) values (?, ?, ?, ?, ?)",
+                    rows.snippets());
+            batch.batchUpdate("insert into snippet_tag (snippet_id, tag_id) values (?, ?)", rows.links());
+            batch.batchUpdate("insert into snippet_tombstone (id, snippet_id, deleted_at) values (?, ?, ?)", rows.tombstones());
+        });
+
+        // Reads may have cached the replica's old rows while it was behind
+        snippetJsonCache.evictAll(snippetIds);
+        snippetIds.forEach(id -> secondLevelCache.evictCollectionData(SNIPPET_TAGS_ROLE, id));
+        if (!tagIds.isEmpty()) {
+            tagIds.forEach(id -> secondLevelCache.evictEntityData(Tag.class, id));
+            secondLevelCache.evictCollectionData(SNIPPET_TAGS_ROLE);
+            secondLevelCache.evictQueryRegion(SecondLevelCacheConfig.TAG_BY_NAME_REGION);
+        }
+    }
+
+    // H2 copies a whole database by writing it out as a script and running that script on the replica
+    private void copyAll(Replica replica) {
+        Path script = null;
+        try {
+            script = Files.createTempFile("replica-", ".sql");
+            String path = script.toAbsolutePath().toString().replace("'", "''");
+            primaryJdbcTemplate.execute("script to '" + path + "'");
+            replica.jdbcTemplate.execute("drop all objects");
+            replica.jdbcTemplate.execute("runscript from '" + path + "'");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (script != null) {
+                try {
+                    Files.deleteIfExists(script);
+                } catch (IOException e) {
+                    log.warn("Could not delete {}", script, e);
+                }
+            }
+        }
+    }
+
+    private void evictAll() {
+        snippetJsonCache.clear();
+        secondLevelCache.evictAllRegions();
+    }
+
+    private record ChangedRows(List<Object[]> tags, List<Object[]> snippets, List<Object[]> links, List<Object[]> tombstones) {
+    }
+
+    private static final class Replica {
+
+        private final String name;
+        private final JdbcTemplate jdbcTemplate;
+        private final NamedParameterJdbcTemplate namedJdbcTemplate;
+        private final TransactionTemplate writeTransaction;
+        private final ExecutorService executor;
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile Timer lag; // Null until metrics are bound
+
+        private Replica(HikariDataSource dataSource) {
+            this.name = dataSource.getPoolName();
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+            this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+            this.writeTransaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+            this.executor = Executors.newSingleThreadExecutor(Thread.ofPlatform().name(name + "-sync").daemon().factory());
+        }
+    }
+
+}
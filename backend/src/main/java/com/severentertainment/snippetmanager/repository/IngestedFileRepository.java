@@ -0,0 +1,40 @@
+package com.severentertainment.snippetmanager.repository;
+
+import com.severentertainment.snippetmanager.domain.IngestedFile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface IngestedFileRepository extends JpaRepository<IngestedFile, Long> {
+
+    /**
+     * Projection of an ingested file's source path and content hash.
+     */
+    interface SourceHash {
+        String getSourcePath();
+        String getContentHash();
+    }
+
+    /**
+     * Finds an ingested file by its source path.
+     *
+     * @param sourcePath The source path of the file.
+     * @return An Optional containing the IngestedFile if found, or an empty Optional if not.
+     */
+    Optional<IngestedFile> findBySourcePath(String sourcePath);
+
+    /**
+     * Finds the content hashes of all ingested files below a source path, without loading their snippet IDs.
+     *
+     * @param prefix The source path prefix, e.g. the root of an ingestion.
+     * @return A list of source paths and their content hashes.
+     */
+    @Query("select f.sourcePath as sourcePath, f.contentHash as contentHash from IngestedFile f where f.sourcePath like concat(:prefix, '%')")
+    List<SourceHash> findHashesBySourcePathPrefix(@Param("prefix") String prefix);
+
+}
@@ -1,9 +1,88 @@
 package com.severentertainment.snippetmanager.repository;
 
 import com.severentertainment.snippetmanager.domain.Snippet;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
 @Repository
 public interface SnippetRepository extends JpaRepository<Snippet, Long> {
+
+    /**
+     * Streams all snippets with their content ordered by ID, backed by a database cursor rather than a materialized list.
+     * Must be consumed inside a transaction and closed afterwards.
+     *
+     * @return A {@link Stream} of all {@link Snippet} entities, each with its content.
+     */
+    @Query("select new com.severentertainment.snippetmanager.repository.SnippetWithContent(s, s.content) from Snippet s order by s.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "256"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<SnippetWithContent> streamAllWithContent();
+
+    /**
+     * Finds the IDs of the most recently modified snippets.
+     *
+     * @param pageable The page of IDs to return.
+     * @return A list of snippet IDs, most recently modified first.
+     */
+    @Query("select s.id from Snippet s order by s.lastModifiedDate desc, s.id desc")
+    List<Long> findRecentlyModifiedIds(Pageable pageable);
+
+    /**
+     * Finds all snippets ordered by ID with their tags fetched in the same query. The content is not selected.
+     *
+     * @return A list of all snippets.
+     */
+    @Query("select distinct s from Snippet s left join fetch s.tags order by s.id")
+    List<Snippet> findAllWithTags();
+
+    /**
+     * Finds snippets by their IDs with their tags fetched in the same query.
+     *
+     * @param ids The IDs of the snippets to find.
+     * @return A list of the snippets found, in no particular order.
+     */
+    @Query("select distinct s from Snippet s left join fetch s.tags where s.id in :ids")
+    List<Snippet> findAllWithTagsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Finds the IDs of the tags linked to snippets.
+     *
+     * @param ids The IDs of the snippets.
+     * @return A list of the IDs of their tags, without duplicates and in no particular order.
+     */
+    @Query("select distinct t.id from Snippet s join s.tags t where s.id in :ids")
+    List<Long> findTagIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Finds snippets by their IDs with their content selected in the same query.
+     *
+     * @param ids The IDs of the snippets to find.
+     * @return A list of the snippets found with their content, in no particular order.
+     */
+    @Query("select new com.severentertainment.snippetmanager.repository.SnippetWithContent(s, s.content) from Snippet s where s.id in :ids")
+    List<SnippetWithContent> findAllWithContentByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Finds the snippets modified at or after a point in time, with their content selected in the same query.
+     * Served by the index on the last modified date.
+     *
+     * @param since The earliest last modified date to include.
+     * @return A list of the snippets found with their content, ordered by ID.
+     */
+    @Query("select new com.severentertainment.snippetmanager.repository.SnippetWithContent(s, s.content) from Snippet s where s.lastModifiedDate >= :since order by s.id")
+    List<SnippetWithContent> findAllWithContentModifiedSince(@Param("since") Instant since);
+
 }
@@ -0,0 +1,14 @@
+package com.severentertainment.snippetmanager.repository;
+
+import com.severentertainment.snippetmanager.domain.Snippet;
+
+/**
+ * A snippet together with its content, read in the same row.
+ * {@link Snippet#getContent()} is loaded lazily by a query of its own; code that reads many snippets
+ * and needs their content selects it alongside the entity instead.
+ *
+ * @param snippet The snippet entity; its content may not be loaded.
+ * @param content The content of the snippet.
+ */
+public record SnippetWithContent(Snippet snippet, String content) {
+}
@@ -1,9 +1,18 @@
 package com.severentertainment.snippetmanager.repository;
 
 import com.severentertainment.snippetmanager.domain.Tag;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,10 +20,72 @@ public interface TagRepository extends JpaRepository<Tag, Long> {
 
     /**
     * Custom query method to find a Tag by its name, ignoring case.
+    * Results are kept in the query cache and invalidated by any write to the tag table.
     *
     * @param name The name of the tag to find.
     * @return An Optional containing the Tag if found, or an empty Optional if not.
     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "tag-by-name")
+    })
     Optional<Tag> findByNameIgnoreCase(String name);
 
+    /**
+     * Inserts a tag with the given (already normalized) name unless one exists, in a single statement. The ID comes
+     * from the column default, which takes a whole block of the tag sequence so that it cannot collide with the IDs
+     * Hibernate hands out. The declared query space invalidates cached lookups by name and evicts cached tags, but
+     * leaves the rest of the second-level cache alone.
+     *
+     * @param name The normalized tag name.
+     * @return 1 if the tag was inserted, 0 if a tag with that name already existed.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "tag"))
+    @Query(value = "merge into tag t using (select cast(:name as varchar(255)) as name) s on t.name = s.name "
+            + "when not matched then insert (name) values (s.name)", nativeQuery = true)
+    int insertIfAbsent(@Param("name") String name);
+
+    /**
+     * Finds all tags whose name is one of the given (already normalized) names.
+     *
+     * @param names The normalized tag names to look up.
+     * @return A list of the tags found, in no particular order.
+     */
+    List<Tag> findByNameIn(Collection<String> names);
+
+    /**
+     * Finds the IDs of all snippets associated with a tag, without loading the snippets.
+     *
+     * @param tagId The ID of the tag.
+     * @return A list of snippet IDs; empty if the tag has no snippets or does not exist.
+     */
+    @Query("select s.id from Tag t join t.snippets s where t.id = :tagId")
+    List<Long> findSnippetIdsByTagId(@Param("tagId") Long tagId);
+
+    /**
+     * Sets the last modified date of all snippets associated with a tag, whose responses embed the tag,
+     * so that delta sync clients see them as changed.
+     *
+     * @param tagId The ID of the tag.
+     * @param now The new last modified date.
+     * @return The number of snippets updated.
+     */
+    @Modifying
+    @Query("update Snippet s set s.lastModifiedDate = :now where s.id in (select s2.id from Tag t join t.snippets s2 where t.id = :tagId)")
+    int touchSnippetsByTagId(@Param("tagId") Long tagId, @Param("now") Instant now);
+
+    /**
+     * Removes a tag from all snippets, so that the tag itself can be deleted. The declared query space keeps Hibernate
+     * from clearing the whole second-level cache after this native statement; it reaches no cached snippet tag sets,
+     * so the caller evicts those of the affected snippets.
+     *
+     * @param tagId The ID of the tag.
+     * @return The number of links removed.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "snippet_tag"))
+    @Query(value = "delete from snippet_tag where tag_id = :tagId", nativeQuery = true)
+    int deleteLinksByTagId(@Param("tagId") Long tagId);
+
 }
@@ -0,0 +1,93 @@
+package com.severentertainment.snippetmanager.service;
+
+import com.severentertainment.snippetmanager.repository.SnippetRepository;
+import com.severentertainment.snippetmanager.repository.SnippetWithContent;
+import com.severentertainment.snippetmanager.repository.TagRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Warms the {@link SnippetJsonCache} and the database page cache on startup.
+ * The most recently modified snippets are loaded in parallel batches, each in its own read-only
+ * transaction, so that the first requests after a restart are served from memory.
+ */
+@Component
+@ConditionalOnProperty(name = "snippetmanager.warmup.enabled", havingValue = "true")
+public class CacheWarmer implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheWarmer.class);
+
+    private final SnippetRepository snippetRepository;
+    private final TagRepository tagRepository;
+    private final SnippetJsonCache snippetJsonCache;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int snippetCount;
+    private final int batchSize;
+
+    @Autowired
+    public CacheWarmer(SnippetRepository snippetRepository, TagRepository tagRepository,
+                       SnippetJsonCache snippetJsonCache, PlatformTransactionManager transactionManager,
+                       @Value("${snippetmanager.warmup.snippets:5000}") int snippetCount,
+                       @Value("${snippetmanager.warmup.batch-size:250}") int batchSize) {
+        this.snippetRepository = snippetRepository;
+        this.tagRepository = tagRepository;
+        this.snippetJsonCache = snippetJsonCache;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.snippetCount = snippetCount;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.nanoTime();
+
+        List<Long> ids = readOnlyTransaction.execute(status ->
+                snippetRepository.findRecentlyModifiedIds(PageRequest.of(0, snippetCount)));
+
+        List<CompletableFuture<Integer>> tasks = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())) {
+            // Tags are small; reading them all pulls the table and its name index into the page cache
+            tasks.add(CompletableFuture.supplyAsync(() ->
+                    readOnlyTransaction.execute(status -> tagRepository.findAll().size()), executor));
+
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                List<Long> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+                tasks.add(CompletableFuture.supplyAsync(() -> warmSnippets(batch), executor));
+            }
+
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+        }
+
+        log.info("Warmed {} snippets into the JSON cache ({} bytes) in {} ms",
+                ids.size(), snippetJsonCache.totalBytes(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private int warmSnippets(List<Long> ids) {
+        return readOnlyTransaction.execute(status -> {
+            long generation = snippetJsonCache.generation(); // Writes racing the warmup win over it
+            snippetRepository.findAllWithTagsByIdIn(ids); // Loads the tags into the persistence context
+            List<SnippetWithContent> snippets = snippetRepository.findAllWithContentByIdIn(ids);
+            for (SnippetWithContent row : snippets) {
+                snippetJsonCache.put(row.snippet(), row.content(), generation).release();
+            }
+            return snippets.size();
+        });
+    }
+
+}
@@ -0,0 +1,134 @@
+package com.severentertainment.snippetmanager.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pre-serialized JSON of a single snippet, as held by the {@link SnippetJsonCache}.
+ * <p>
+ * Cached entries keep their bytes off-heap in chunks of a {@link SlabAllocator}, which are reused as soon as the
+ * entry is evicted and no longer read. Whoever receives an entry from the cache therefore holds a reference to it
+ * and must {@link #release()} it when done, typically after writing it to a response.
+ */
+public final class CachedSnippetJson {
+
+    private final ByteBuffer json;
+    private final ByteBuffer gzip;
+    private final SlabAllocator allocator; // Null for entries on the heap
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private CachedSnippetJson(ByteBuffer json, ByteBuffer gzip, SlabAllocator allocator) {
+        this.json = json;
+        this.gzip = gzip;
+        this.allocator = allocator;
+    }
+
+    /**
+     * Copies the bytes into chunks of an allocator.
+     *
+     * @param json The UTF-8 encoded JSON object.
+     * @param gzip The gzip-compressed JSON, or null.
+     * @param allocator The allocator the chunks are taken from and returned to.
+     * @return An entry with one reference.
+     */
+    static CachedSnippetJson offHeap(byte[] json, byte[] gzip, SlabAllocator allocator) {
+        return new CachedSnippetJson(allocator.copyOf(json), gzip != null ? allocator.copyOf(gzip) : null, allocator);
+    }
+
+    /**
+     * Wraps the bytes, for entries that are not cached.
+     *
+     * @param json The UTF-8 encoded JSON object.
+     * @param gzip The gzip-compressed JSON, or null.
+     * @return An entry whose release does nothing.
+     */
+    static CachedSnippetJson onHeap(byte[] json, byte[] gzip) {
+        return new CachedSnippetJson(ByteBuffer.wrap(json), gzip != null ? ByteBuffer.wrap(gzip) : null, null);
+    }
+
+    /**
+     * Returns the JSON.
+     *
+     * @return A read-only view of the UTF-8 encoded JSON object.
+     */
+    public ByteBuffer json() {
+        return json.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the compressed JSON.
+     *
+     * @return A read-only view of the gzip-compressed JSON, or null if the JSON is below the compression threshold
+     * or did not shrink when compressed.
+     */
+    public ByteBuffer gzip() {
+        return gzip != null ? gzip.asReadOnlyBuffer() : null;
+    }
+
+    /**
+     * Returns whether a gzip-compressed variant is available.
+     *
+     * @return {@code true} if {@link #gzip()} is not null.
+     */
+    public boolean hasGzip() {
+        return gzip != null;
+    }
+
+    /**
+     * Returns the number of bytes held by this entry, counting both variants.
+     *
+     * @return The size of the entry in bytes.
+     */
+    public long size() {
+        return json.remaining() + (gzip != null ? gzip.remaining() : 0);
+    }
+
+    /**
+     * Returns the number of bytes of memory held by this entry, which for chunks of an allocator is their capacity.
+     *
+     * @return The size of the memory held by the entry in bytes.
+     */
+    public long allocatedSize() {
+        return json.capacity() + (gzip != null ? gzip.capacity() : 0);
+    }
+
+    /**
+     * Writes one of the variants to a stream, without copying it to the heap as a whole.
+     *
+     * @param gzipped Whether to write the compressed variant, which must exist.
+     * @param out The stream to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writeTo(boolean gzipped, OutputStream out) throws IOException {
+        ByteBuffer bytes = gzipped ? gzip() : json();
+        WritableByteChannel channel = Channels.newChannel(out); // Not closed, which would close the stream
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    /**
+     * Gives up a reference. The last one returns the off-heap memory for reuse.
+     */
+    public void release() {
+        int remaining = references.decrementAndGet();
+        if (remaining == 0 && allocator != null) {
+            allocator.free(json);
+            if (gzip != null) {
+                allocator.free(gzip);
+            }
+        } else if (remaining < 0) {
+            throw new IllegalStateException("Cached snippet JSON released more often than retained");
+        }
+    }
+
+    // Called by the cache, while the entry is cached
+    void retain() {
+        references.incrementAndGet();
+    }
+
+}
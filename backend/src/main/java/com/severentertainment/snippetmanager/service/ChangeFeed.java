@@ -0,0 +1,227 @@
+package com.severentertainment.snippetmanager.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes committed {@link SnippetDataChangedEvent}s to server-sent event subscribers.
+ * <p>
+ * Every change gets an ID of the form {@code <epoch>-<sequence>}, where the epoch identifies this run of the
+ * application, and is kept in a bounded ring buffer. A client that reconnects with a {@code Last-Event-ID}
+ * is sent the changes it missed; if they are no longer buffered, or the ID is from another run, it is sent a
+ * single {@code reset} event instead and should reload everything it shows.
+ * <p>
+ * Each subscriber has its own bounded queue, drained by a virtual thread that is parked while there is nothing
+ * to send, so idle subscribers cost a little memory and no platform thread. The JSON of a change is built once
+ * and shared by all subscribers. A subscriber that falls a full buffer behind is disconnected; it reconnects
+ * with its last ID and catches up from the buffer.
+ */
+@Component
+public class ChangeFeed implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeFeed.class);
+
+    static final String RESET_EVENT = "reset";
+
+    private final ObjectMapper objectMapper;
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final Duration keepAlive;
+    private final long epoch = System.currentTimeMillis();
+
+    // Guarded by this, so that a subscriber's replay and the changes published after it are queued in order
+    private final ArrayDeque<Change> buffer;
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private long sequence;
+
+    @Autowired
+    public ChangeFeed(ObjectMapper objectMapper,
+                      @Value("${snippetmanager.changes.buffer-size:1024}") int bufferSize,
+                      @Value("${snippetmanager.changes.timeout:30m}") Duration timeout,
+                      @Value("${snippetmanager.changes.keep-alive:15s}") Duration keepAlive) {
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeout.toMillis();
+        this.keepAlive = keepAlive;
+        this.buffer = new ArrayDeque<>(bufferSize);
+    }
+
+    /**
+     * Subscribes to the changes committed from now on, preceded by the buffered changes after {@code lastEventId}.
+     *
+     * @param lastEventId The ID of the last change the client received, or null for a new client.
+     * @return The {@link SseEmitter} that the changes are sent to.
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter);
+
+        synchronized (this) {
+            if (lastEventId != null) {
+                replay(lastEventId, subscriber.queue);
+            }
+            subscribers.add(subscriber);
+        }
+
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        subscriber.thread = Thread.ofVirtual().name("change-feed-" + subscriber.hashCode()).start(subscriber::drain);
+        return emitter;
+    }
+
+    /**
+     * Buffers a committed change and queues it for every subscriber.
+     *
+     * @param event The change that was committed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDataChanged(SnippetDataChangedEvent event) {
+        String data = toJson(event);
+
+        List<Subscriber> tooSlow = new ArrayList<>();
+        synchronized (this) {
+            sequence++;
+            Change change = new Change(sequence, epoch + "-" + sequence,
+                    event.isReset() ? RESET_EVENT : event.type().eventName(), data);
+
+            if (buffer.size() == bufferSize) {
+                buffer.removeFirst();
+            }
+            buffer.addLast(change);
+
+            for (Subscriber subscriber : subscribers) {
+                if (!subscriber.queue.offer(change)) {
+                    tooSlow.add(subscriber);
+                }
+            }
+            subscribers.removeAll(tooSlow);
+        }
+
+        for (Subscriber subscriber : tooSlow) {
+            subscriber.emitter.complete(); // The client reconnects with its last ID and replays from the buffer
+        }
+    }
+
+    /**
+     * Returns the number of connected subscribers.
+     *
+     * @return The number of subscribers.
+     */
+    public synchronized int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void destroy() {
+        List<Subscriber> remaining;
+        synchronized (this) {
+            remaining = new ArrayList<>(subscribers);
+            subscribers.clear();
+        }
+        remaining.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    // Called with the lock held
+    private void replay(String lastEventId, BlockingQueue<Change> queue) {
+        long lastSequence = parseSequence(lastEventId);
+        long oldestBuffered = buffer.isEmpty() ? sequence + 1 : buffer.getFirst().sequence();
+
+        if (lastSequence < 0 || lastSequence > sequence || lastSequence < oldestBuffered - 1) {
+            // The missed changes are gone; resuming after the reset only sends what is committed from now on
+            queue.offer(new Change(sequence, epoch + "-" + sequence, RESET_EVENT, "{}"));
+            return;
+        }
+
+        for (Change change : buffer) {
+            if (change.sequence() > lastSequence) {
+                queue.offer(change);
+            }
+        }
+    }
+
+    // Returns -1 for an ID that is malformed or from another run of the application
+    private long parseSequence(String eventId) {
+        int separator = eventId.indexOf('-');
+        if (separator < 0 || !eventId.substring(0, separator).equals(Long.toString(epoch))) {
+            return -1;
+        }
+
+        try {
+            return Long.parseLong(eventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private synchronized void remove(Subscriber subscriber) {
+        subscribers.remove(subscriber);
+        if (subscriber.thread != null) {
+            subscriber.thread.interrupt();
+        }
+    }
+
+    private String toJson(SnippetDataChangedEvent event) {
+        try {
+            return objectMapper.writeValueAsString(new ChangeData(new TreeSet<>(event.snippetIds()), new TreeSet<>(event.tagIds())));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize change", e);
+        }
+    }
+
+    private record Change(long sequence, String id, String name, String data) {
+    }
+
+    // Sorted, so that clients see the IDs in a stable order
+    private record ChangeData(SortedSet<Long> snippetIds, SortedSet<Long> tagIds) {
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<Change> queue = new LinkedBlockingQueue<>(bufferSize);
+        private volatile Thread thread;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private void drain() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Change change = queue.poll(keepAlive.toMillis(), TimeUnit.MILLISECONDS);
+                    if (change == null) {
+                        emitter.send(SseEmitter.event().comment("keep-alive")); // Lets proxies and clients notice dead connections
+                    } else {
+                        emitter.send(SseEmitter.event().id(change.id()).name(change.name()).data(change.data()));
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Removed: the emitter completed, timed out or failed
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Change feed subscriber disconnected", e);
+                remove(this);
+            }
+        }
+    }
+
+}
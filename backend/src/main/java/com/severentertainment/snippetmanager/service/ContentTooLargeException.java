@@ -0,0 +1,12 @@
+package com.severentertainment.snippetmanager.service;
+
+/**
+ * Thrown when an uploaded snippet body exceeds the configured maximum size.
+ */
+public class ContentTooLargeException extends RuntimeException {
+
+    public ContentTooLargeException(long maxBytes) {
+        super("Content exceeds the maximum size of " + maxBytes + " bytes");
+    }
+
+}
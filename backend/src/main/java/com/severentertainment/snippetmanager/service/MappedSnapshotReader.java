@@ -0,0 +1,126 @@
+package com.severentertainment.snippetmanager.service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.zip.CRC32;
+
+/**
+ * Reads a snapshot in {@link SnapshotFormat} through memory-mapped windows of the file.
+ * The file is mapped in windows of up to {@link #WINDOW_BYTES} (a single mapping cannot exceed 2 GB),
+ * and a window is re-mapped only when the next value would cross its end, so reading is a sequential scan
+ * with no read syscalls or intermediate buffers.
+ */
+class MappedSnapshotReader implements AutoCloseable {
+
+    private static final long WINDOW_BYTES = 256L << 20;
+
+    private final FileChannel channel;
+    private final long dataEnd; // Start of the trailing checksum
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    MappedSnapshotReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.dataEnd = channel.size() - SnapshotFormat.CHECKSUM_BYTES;
+
+        if (dataEnd < SnapshotFormat.HEADER_BYTES) {
+            throw new IOException("Snapshot " + file + " is too short");
+        }
+    }
+
+    /**
+     * Verifies the trailing CRC32 against the rest of the file, then checks the header.
+     * Leaves the reader positioned at the first record.
+     *
+     * @throws IOException If the checksum does not match or the header is not a supported snapshot.
+     */
+    void verify() throws IOException {
+        CRC32 checksum = new CRC32();
+        for (long position = 0; position < dataEnd; position += WINDOW_BYTES) {
+            long length = Math.min(WINDOW_BYTES, dataEnd - position);
+            checksum.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+        }
+
+        long expected = channel.map(FileChannel.MapMode.READ_ONLY, dataEnd, SnapshotFormat.CHECKSUM_BYTES).getLong();
+        if (checksum.getValue() != expected) {
+            throw new IOException("Snapshot checksum mismatch: expected " + Long.toHexString(expected)
+                    + " but was " + Long.toHexString(checksum.getValue()));
+        }
+
+        window = null;
+        if (readInt() != SnapshotFormat.MAGIC) {
+            throw new IOException("Not a snippet snapshot");
+        }
+        short version = readShort();
+        if (version != SnapshotFormat.VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+    }
+
+    byte readByte() throws IOException {
+        ensure(Byte.BYTES);
+        return window.get();
+    }
+
+    short readShort() throws IOException {
+        ensure(Short.BYTES);
+        return window.getShort();
+    }
+
+    int readInt() throws IOException {
+        ensure(Integer.BYTES);
+        return window.getInt();
+    }
+
+    long readLong() throws IOException {
+        ensure(Long.BYTES);
+        return window.getLong();
+    }
+
+    String readString() throws IOException {
+        int length = readInt();
+        if (length < 0) {
+            return null;
+        }
+
+        ensure(length);
+        byte[] bytes = new byte[length];
+        window.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    Instant readInstant() throws IOException {
+        if (readByte() == 0) {
+            return null;
+        }
+
+        long seconds = readLong();
+        return Instant.ofEpochSecond(seconds, readInt());
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (window != null && window.remaining() >= bytes) {
+            return;
+        }
+
+        long position = window == null ? 0 : windowStart + window.position();
+        if (position + bytes > dataEnd) {
+            throw new IOException("Snapshot is truncated at byte " + position);
+        }
+
+        long length = Math.min(Math.max(WINDOW_BYTES, bytes), dataEnd - position);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        windowStart = position;
+    }
+
+}
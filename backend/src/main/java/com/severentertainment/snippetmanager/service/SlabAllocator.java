@@ -0,0 +1,141 @@
+package com.severentertainment.snippetmanager.service;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Hands out chunks of off-heap memory for the {@link SnippetJsonCache}, so that cached JSON neither sits on the heap
+ * nor costs the garbage collector anything however much of it is cached.
+ * <p>
+ * Chunk sizes are powers of two from {@link #MIN_CHUNK_BYTES} up to {@link #SLAB_BYTES}. Each size is cut from its
+ * own direct buffers of {@link #SLAB_BYTES} (slabs), and freed chunks are kept for reuse by the same size. A slab
+ * whose chunks are all free is dropped, leaving its memory to be returned to the operating system once the garbage
+ * collector has collected it, unless it is the last slab of its size with free chunks, which is kept so that a
+ * size that is freed and taken in turn does not allocate a slab each time. Larger requests get a direct buffer of
+ * their own.
+ */
+final class SlabAllocator {
+
+    static final int MIN_CHUNK_BYTES = 256;
+    static final int SLAB_BYTES = 1 << 20;
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_CHUNK_BYTES);
+    private static final int CLASSES = Integer.numberOfTrailingZeros(SLAB_BYTES) - MIN_SHIFT + 1;
+
+    // Per size class, the slabs that have free chunks; chunks are taken from the first so that the others can empty
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<Slab>[] slabsWithFreeChunks = new ArrayDeque[CLASSES];
+    private final Map<ByteBuffer, Slab> slabsOfUsedChunks = new IdentityHashMap<>(); // ByteBuffer equality is by content
+    private long reservedBytes;
+
+    SlabAllocator() {
+        for (int i = 0; i < CLASSES; i++) {
+            slabsWithFreeChunks[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Returns the capacity of the chunk that holds a number of bytes, which is what they take from the allocator.
+     *
+     * @param length The number of bytes.
+     * @return The chunk size in bytes.
+     */
+    static int chunkBytes(int length) {
+        return length > SLAB_BYTES ? length : MIN_CHUNK_BYTES << sizeClass(length);
+    }
+
+    /**
+     * Copies bytes into a chunk.
+     *
+     * @param bytes The bytes to copy.
+     * @return A buffer over exactly the copied bytes, positioned at 0; its capacity is that of the chunk.
+     */
+    ByteBuffer copyOf(byte[] bytes) {
+        ByteBuffer chunk = allocate(bytes.length);
+        chunk.put(bytes).flip();
+        return chunk;
+    }
+
+    /**
+     * Returns a chunk from {@link #copyOf(byte[])} for reuse. Nothing may read the chunk afterwards.
+     *
+     * @param chunk The chunk.
+     */
+    synchronized void free(ByteBuffer chunk) {
+        if (chunk.capacity() > SLAB_BYTES) {
+            reservedBytes -= chunk.capacity(); // Released by the garbage collector
+            return;
+        }
+
+        Slab slab = slabsOfUsedChunks.remove(chunk);
+        if (slab == null) {
+            throw new IllegalStateException("Chunk freed more than once");
+        }
+        chunk.clear();
+        slab.freeChunks.push(chunk);
+        slab.usedChunks--;
+
+        ArrayDeque<Slab> slabs = slabsWithFreeChunks[sizeClass(chunk.capacity())];
+        if (slab.freeChunks.size() == 1) {
+            slabs.addLast(slab); // Was full
+        }
+        if (slab.usedChunks == 0 && slabs.size() > 1) {
+            slabs.remove(slab); // The chunks go with the slab, so nothing references its memory any more
+            reservedBytes -= SLAB_BYTES;
+        }
+    }
+
+    /**
+     * Returns the off-heap memory taken, including free chunks.
+     *
+     * @return The number of bytes reserved.
+     */
+    synchronized long reservedBytes() {
+        return reservedBytes;
+    }
+
+    private synchronized ByteBuffer allocate(int length) {
+        if (length > SLAB_BYTES) {
+            reservedBytes += length;
+            return ByteBuffer.allocateDirect(length);
+        }
+
+        int sizeClass = sizeClass(length);
+        ArrayDeque<Slab> slabs = slabsWithFreeChunks[sizeClass];
+        if (slabs.isEmpty()) {
+            slabs.push(new Slab(MIN_CHUNK_BYTES << sizeClass));
+            reservedBytes += SLAB_BYTES;
+        }
+
+        Slab slab = slabs.peekFirst();
+        ByteBuffer chunk = slab.freeChunks.pop();
+        slab.usedChunks++;
+        if (slab.freeChunks.isEmpty()) {
+            slabs.pollFirst();
+        }
+        slabsOfUsedChunks.put(chunk, slab);
+        return chunk;
+    }
+
+    private static int sizeClass(int length) {
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(length, MIN_CHUNK_BYTES) - 1); // Rounds up
+        return shift - MIN_SHIFT;
+    }
+
+    private static final class Slab {
+
+        final ArrayDeque<ByteBuffer> freeChunks = new ArrayDeque<>();
+        int usedChunks;
+
+        Slab(int chunkBytes) {
+            ByteBuffer memory = ByteBuffer.allocateDirect(SLAB_BYTES);
+            for (int offset = 0; offset < SLAB_BYTES; offset += chunkBytes) {
+                freeChunks.push(memory.slice(offset, chunkBytes));
+            }
+        }
+
+    }
+
+}
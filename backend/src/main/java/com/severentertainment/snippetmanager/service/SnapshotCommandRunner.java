@@ -0,0 +1,47 @@
+package com.severentertainment.snippetmanager.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Command-line triggers for {@link SnapshotService}, run once on startup:
+ * <ul>
+ *     <li>{@code --snapshot.restore=<file>} replaces all data with the snapshot before anything else runs.</li>
+ *     <li>{@code --snapshot.create[=<file>]} writes a snapshot of the current data.</li>
+ * </ul>
+ * Restore runs first, so both can be combined to compact a snapshot into a fresh one.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE) // Restore before any cache warmup reads the database
+public class SnapshotCommandRunner implements ApplicationRunner {
+
+    private final SnapshotService snapshotService;
+
+    @Autowired
+    public SnapshotCommandRunner(SnapshotService snapshotService) {
+        this.snapshotService = snapshotService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (args.containsOption("snapshot.restore")) {
+            snapshotService.restoreSnapshot(singleValue(args, "snapshot.restore"));
+        }
+
+        if (args.containsOption("snapshot.create")) {
+            snapshotService.createSnapshot(singleValue(args, "snapshot.create"));
+        }
+    }
+
+    private static String singleValue(ApplicationArguments args, String option) {
+        List<String> values = args.getOptionValues(option);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.severentertainment.snippetmanager.service;
+
+/**
+ * Layout of the binary snapshot files written and read by {@link SnapshotService}.
+ * <p>
+ * A snapshot is a header ({@link #MAGIC}, {@link #VERSION}), a sequence of records each starting with a
+ * one-byte type, an {@link #END} marker, and a trailing CRC32 of everything before it.
+ * Records are written in dependency order (tags, snippets, links) so a restore can insert them in a single pass.
+ * Numbers are big-endian; strings are an int byte length (-1 for null) followed by UTF-8 bytes;
+ * instants are a presence byte followed by epoch seconds (long) and nanoseconds (int).
+ */
+final class SnapshotFormat {
+
+    static final int MAGIC = 0x534E5053; // "SNPS"
+    static final short VERSION = 1;
+
+    static final byte END = 0;
+    static final byte TAG = 1;      // long id, string name
+    static final byte SNIPPET = 2;  // long id, string title, string content, instant creationDate, instant lastModifiedDate
+    static final byte LINK = 3;     // long snippetId, long tagId
+
+    static final int HEADER_BYTES = Integer.BYTES + Short.BYTES;
+    static final int CHECKSUM_BYTES = Long.BYTES;
+
+    private SnapshotFormat() {
+    }
+
+}
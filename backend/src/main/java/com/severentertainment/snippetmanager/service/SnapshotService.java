@@ -0,0 +1,271 @@
+package com.severentertainment.snippetmanager.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Creates and restores binary snapshots of all tags, snippets and snippet-tag links.
+ * Snapshots bypass the ORM on both sides: rows are streamed from JDBC cursors into a sequential file
+ * (see {@link SnapshotFormat}), and restored by a memory-mapped scan feeding JDBC batch inserts.
+ * Snapshot files are only ever read from and written to the configured snapshot directory.
+ */
+@Service
+public class SnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotService.class);
+
+    private static final int BATCH_SIZE = 500;
+    private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]*");
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshotTransaction;
+    private final TransactionTemplate restoreTransaction;
+    private final SnippetJsonCache snippetJsonCache;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Path snapshotDir;
+
+    @Autowired
+    public SnapshotService(DataSource dataSource, PlatformTransactionManager transactionManager,
+                           SnippetJsonCache snippetJsonCache, EntityManagerFactory entityManagerFactory,
+                           ApplicationEventPublisher eventPublisher,
+                           @Value("${snippetmanager.snapshot.dir:./snapshots}") Path snapshotDir) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(256);
+
+        // Repeatable read gives the three table scans one consistent view
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+
+        this.restoreTransaction = new TransactionTemplate(transactionManager);
+        this.snippetJsonCache = snippetJsonCache;
+        this.entityManagerFactory = entityManagerFactory;
+        this.eventPublisher = eventPublisher;
+        this.snapshotDir = snapshotDir;
+    }
+
+    /**
+     * Writes a snapshot of all data to the snapshot directory.
+     * The snapshot is written to a temporary file, forced to disk, and atomically moved into place,
+     * so a crash never leaves a partial file under the target name.
+     *
+     * @param fileName The name of the snapshot file, or null for a timestamped name.
+     * @return A {@link SnapshotSummary} of what was written.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public SnapshotSummary createSnapshot(String fileName) throws IOException {
+        long start = System.nanoTime();
+        String name = fileName != null ? fileName : "snapshot-" + TIMESTAMP.format(Instant.now()) + ".bin";
+        Path target = resolve(name);
+        Files.createDirectories(snapshotDir);
+        Path temp = Files.createTempFile(snapshotDir, name, ".tmp");
+        Files.delete(temp); // SnapshotWriter creates the file itself
+
+        long[] counts = new long[3];
+        long bytes;
+        try (SnapshotWriter writer = new SnapshotWriter(temp)) {
+            snapshotTransaction.executeWithoutResult(status -> {
+                jdbcTemplate.query("select id, name from tag order by id", (RowCallbackHandler) rs -> {
+                    long id = rs.getLong(1);
+                    String tagName = rs.getString(2);
+                    unchecked(() -> writer.writeTag(id, tagName));
+                    counts[0]++;
+                });
+                jdbcTemplate.query("select id, title, content, creation_date, last_modified_date from snippet order by id", (RowCallbackHandler) rs -> {
+                    long id = rs.getLong(1);
+                    String title = rs.getString(2);
+                    String content = rs.getString(3);
+                    Instant creationDate = rs.getObject(4, Instant.class);
+                    Instant lastModifiedDate = rs.getObject(5, Instant.class);
+                    unchecked(() -> writer.writeSnippet(id, title, content, creationDate, lastModifiedDate));
+                    counts[1]++;
+                });
+                jdbcTemplate.query("select snippet_id, tag_id from snippet_tag", (RowCallbackHandler) rs -> {
+                    long snippetId = rs.getLong(1);
+                    long tagId = rs.getLong(2);
+                    unchecked(() -> writer.writeLink(snippetId, tagId));
+                    counts[2]++;
+                });
+            });
+            bytes = writer.finish();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        SnapshotSummary summary = new SnapshotSummary(name, counts[0], counts[1], counts[2], bytes, elapsedMillis(start));
+        log.info("Created snapshot {}", summary);
+        return summary;
+    }
+
+    /**
+     * Replaces all data with the contents of a snapshot from the snapshot directory.
+     * The checksum is verified before anything is changed, and the replacement happens in one transaction.
+     *
+     * @param fileName The name of the snapshot file to restore.
+     * @return A {@link SnapshotSummary} of what was restored.
+     * @throws IOException If the snapshot cannot be read or fails verification.
+     */
+    public SnapshotSummary restoreSnapshot(String fileName) throws IOException {
+        long start = System.nanoTime();
+        Path source = resolve(fileName);
+        if (!Files.isRegularFile(source)) {
+            throw new IllegalArgumentException("Snapshot " + fileName + " does not exist");
+        }
+
+        long[] counts = new long[3];
+        try (MappedSnapshotReader reader = new MappedSnapshotReader(source)) {
+            reader.verify();
+            restoreTransaction.executeWithoutResult(status -> {
+                jdbcTemplate.update("delete from snippet_tag");
+                jdbcTemplate.update("delete from snippet");
+                jdbcTemplate.update("delete from tag");
+                unchecked(() -> restoreRecords(reader, counts));
+            });
+        }
+
+        // H2 commits DDL implicitly, so the ID sequences are moved past the restored IDs after the data commits
+        restartSequence("tag");
+        restartSequence("snippet");
+        snippetJsonCache.clear();
+
+        // The rows were replaced behind Hibernate's back, so cached tags, tag sets and queries are all stale
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        eventPublisher.publishEvent(SnippetDataChangedEvent.reset());
+
+        SnapshotSummary summary = new SnapshotSummary(fileName, counts[0], counts[1], counts[2],
+                Files.size(source), elapsedMillis(start));
+        log.info("Restored snapshot {}", summary);
+        return summary;
+    }
+
+    /**
+     * Lists the snapshot files in the snapshot directory.
+     *
+     * @return The snapshot file names, sorted by name.
+     * @throws IOException If the directory cannot be listed.
+     */
+    public List<String> listSnapshots() throws IOException {
+        if (!Files.isDirectory(snapshotDir)) {
+            return List.of();
+        }
+
+        try (Stream<Path> files = Files.list(snapshotDir)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> !name.endsWith(".tmp"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private void restoreRecords(MappedSnapshotReader reader, long[] counts) throws IOException {
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        byte batchType = SnapshotFormat.END;
+
+        for (byte type = reader.readByte(); type != SnapshotFormat.END; type = reader.readByte()) {
+            if (type != batchType || batch.size() == BATCH_SIZE) {
+                flush(batchType, batch);
+                batchType = type;
+            }
+
+            switch (type) {
+                case SnapshotFormat.TAG -> {
+                    batch.add(new Object[] {reader.readLong(), reader.readString()});
+                    counts[0]++;
+                }
+                case SnapshotFormat.SNIPPET -> {
+                    batch.add(new Object[] {reader.readLong(), reader.readString(), reader.readString(),
+                            reader.readInstant(), reader.readInstant()});
+                    counts[1]++;
+                }
+                case SnapshotFormat.LINK -> {
+                    batch.add(new Object[] {reader.readLong(), reader.readLong()});
+                    counts[2]++;
+                }
+                default -> throw new IOException("Unknown snapshot record type " + type);
+            }
+        }
+
+        flush(batchType, batch);
+    }
+
+    private void flush(byte type, List<Object[]> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        String sql = switch (type) {
+            case SnapshotFormat.TAG -> "insert into tag (id, name) values (?, ?)";
+            case SnapshotFormat.SNIPPET ->
+                    "insert into snippet (id, title, content, creation_date, last_modified_date) values (?, ?, ?, ?, ?)";
+            case SnapshotFormat.LINK -> "insert into snippet_tag (snippet_id, tag_id) values (?, ?)";
+            default -> throw new IllegalStateException("Unknown snapshot record type " + type);
+        };
+
+        jdbcTemplate.batchUpdate(sql, batch);
+        batch.clear();
+    }
+
+    // Never moves a sequence back: the blocks of IDs that Hibernate already took from it are still being handed out
+    private void restartSequence(String table) {
+        Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from " + table, Long.class);
+        Long next = jdbcTemplate.queryForObject("select next value for " + table + "_seq", Long.class);
+        jdbcTemplate.execute("alter sequence " + table + "_seq restart with " + Math.max(maxId + 1, next));
+    }
+
+    private Path resolve(String fileName) {
+        if (fileName == null || !FILE_NAME.matcher(fileName).matches()) {
+            throw new IllegalArgumentException("Invalid snapshot file name: " + fileName);
+        }
+
+        return snapshotDir.resolve(fileName);
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    // Rethrows I/O failures from inside JDBC and transaction callbacks, which cannot throw checked exceptions
+    private static void unchecked(IoAction action) {
+        try {
+            action.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface IoAction {
+        void run() throws IOException;
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.severentertainment.snippetmanager.service;
+
+/**
+ * Outcome of creating or restoring a snapshot.
+ *
+ * @param file The name of the snapshot file within the snapshot directory.
+ * @param tags The number of tags written or restored.
+ * @param snippets The number of snippets written or restored.
+ * @param links The number of snippet-tag links written or restored.
+ * @param bytes The size of the snapshot file in bytes.
+ * @param elapsedMillis The time the operation took, in milliseconds.
+ */
+public record SnapshotSummary(String file, long tags, long snippets, long links, long bytes, long elapsedMillis) {
+}
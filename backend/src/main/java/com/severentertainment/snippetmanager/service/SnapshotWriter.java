@@ -0,0 +1,98 @@
+package com.severentertainment.snippetmanager.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Sequentially writes a snapshot in {@link SnapshotFormat}, checksumming every byte on the way out.
+ * {@link #finish()} writes the trailer and forces the file to disk; the caller is responsible for
+ * moving the finished file into place.
+ */
+class SnapshotWriter implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final BufferedOutputStream fileOut;
+    private final CRC32 checksum = new CRC32();
+    private final DataOutputStream out;
+
+    SnapshotWriter(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        this.fileOut = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+        this.out = new DataOutputStream(new CheckedOutputStream(fileOut, checksum));
+
+        out.writeInt(SnapshotFormat.MAGIC);
+        out.writeShort(SnapshotFormat.VERSION);
+    }
+
+    void writeTag(long id, String name) throws IOException {
+        out.writeByte(SnapshotFormat.TAG);
+        out.writeLong(id);
+        writeString(name);
+    }
+
+    void writeSnippet(long id, String title, String content, Instant creationDate, Instant lastModifiedDate) throws IOException {
+        out.writeByte(SnapshotFormat.SNIPPET);
+        out.writeLong(id);
+        writeString(title);
+        writeString(content);
+        writeInstant(creationDate);
+        writeInstant(lastModifiedDate);
+    }
+
+    void writeLink(long snippetId, long tagId) throws IOException {
+        out.writeByte(SnapshotFormat.LINK);
+        out.writeLong(snippetId);
+        out.writeLong(tagId);
+    }
+
+    /**
+     * Writes the end marker and checksum and forces the file contents to disk.
+     *
+     * @return The total size of the snapshot in bytes.
+     * @throws IOException If writing or syncing fails.
+     */
+    long finish() throws IOException {
+        out.writeByte(SnapshotFormat.END);
+        out.flush();
+
+        // The checksum covers everything before it, so it bypasses the checked stream
+        new DataOutputStream(fileOut).writeLong(checksum.getValue());
+        fileOut.flush();
+        channel.force(true);
+        return channel.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeInstant(Instant instant) throws IOException {
+        out.writeBoolean(instant != null);
+        if (instant != null) {
+            out.writeLong(instant.getEpochSecond());
+            out.writeInt(instant.getNano());
+        }
+    }
+
+}
@@ -0,0 +1,317 @@
+package com.severentertainment.snippetmanager.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.sql.Clob;
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.util.Set;
+import java.util.function.IntSupplier;
+
+/**
+ * Streams the raw content of a snippet between HTTP and the JDBC {@link Clob}, in both directions.
+ * Reads can select a byte range, with offsets and lengths in bytes of the UTF-8 encoded content; the
+ * content is encoded through fixed-size buffers. Uploads bind the request body to the content column as a
+ * character stream and are limited to a configurable size. Memory use does not depend on the size of the snippet.
+ */
+@Service
+public class SnippetContentService {
+
+    private static final int BUFFER_CHARS = 4096;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SnippetJsonCache snippetJsonCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long maxUploadBytes;
+
+    @Autowired
+    public SnippetContentService(DataSource dataSource, SnippetJsonCache snippetJsonCache,
+                                 ApplicationEventPublisher eventPublisher,
+                                 @Value("${snippetmanager.upload.max-bytes:33554432}") long maxUploadBytes) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.snippetJsonCache = snippetJsonCache;
+        this.eventPublisher = eventPublisher;
+        this.maxUploadBytes = maxUploadBytes;
+    }
+
+    /**
+     * Returns the maximum size of an uploaded snippet body.
+     *
+     * @return The limit, in bytes of the encoded request body.
+     */
+    public long maxUploadBytes() {
+        return maxUploadBytes;
+    }
+
+    /**
+     * Chooses which bytes of a snippet's content to write, once its size and version are known.
+     * Typically sets the response status and headers as a side effect.
+     */
+    @FunctionalInterface
+    public interface RangeSelector {
+
+        /**
+         * @param contentLength The length of the UTF-8 encoded content, in bytes.
+         * @param lastModified The last modification time of the snippet; may be null.
+         * @return The inclusive byte range to write, or null to write nothing.
+         * @throws IOException If preparing the response fails.
+         */
+        ByteRange select(long contentLength, Instant lastModified) throws IOException;
+
+    }
+
+    /**
+     * An inclusive range of byte offsets; a range whose end is before its start is empty.
+     *
+     * @param start The offset of the first byte.
+     * @param end The offset of the last byte.
+     */
+    public record ByteRange(long start, long end) {
+    }
+
+    /**
+     * Writes a snippet's content, or the range chosen by the selector, to a stream.
+     * Size, version and content are read with one query, so the selected range always matches the
+     * content that is written.
+     *
+     * @param id The ID of the snippet.
+     * @param selector Chooses the range to write from the content length and last modification time.
+     * @param out The stream to write the UTF-8 encoded content to.
+     * @return {@code true} if the snippet exists, {@code false} otherwise.
+     * @throws IOException If writing to the stream fails.
+     */
+    @Transactional(readOnly = true)
+    public boolean writeContent(Long id, RangeSelector selector, OutputStream out) throws IOException {
+        ResultSetExtractor<Boolean> extractor = rs -> {
+            if (!rs.next()) {
+                return false;
+            }
+
+            long contentLength = rs.getLong(1);
+            Instant lastModified = rs.getObject(2, Instant.class);
+            try {
+                ByteRange range = selector.select(contentLength, lastModified);
+                Clob content = rs.getClob(3);
+                if (range != null && content != null) {
+                    try (Reader reader = content.getCharacterStream()) {
+                        copyRange(reader, range.start(), range.end(), out);
+                    } finally {
+                        content.free();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        };
+
+        try {
+            // octet_length counts the bytes of the UTF-8 encoded content
+            Boolean found = jdbcTemplate.query("select coalesce(octet_length(content), 0), last_modified_date, content from snippet where id = ?",
+                    extractor, id);
+            return Boolean.TRUE.equals(found);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Creates a snippet whose content is streamed from the given input into the content column.
+     *
+     * @param title The title of the new snippet.
+     * @param content The encoded content; read to its end but not closed.
+     * @param charset The charset of the content.
+     * @return The ID of the created snippet.
+     * @throws ContentTooLargeException If the content is larger than {@link #maxUploadBytes()}.
+     */
+    @Transactional
+    public Long createSnippet(String title, InputStream content, Charset charset) {
+        SizeLimitedInputStream limited = new SizeLimitedInputStream(content, maxUploadBytes);
+        Instant now = Instant.now();
+        // A whole block of the sequence, so that the ID cannot be in a block Hibernate is handing out
+        Long id = jdbcTemplate.queryForObject("select next value for snippet_seq", Long.class);
+
+        upload(limited, () -> jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "insert into snippet (id, title, content, creation_date, last_modified_date) values (?, ?, ?, ?, ?)");
+            ps.setLong(1, id);
+            ps.setString(2, title);
+            ps.setCharacterStream(3, new InputStreamReader(limited, charset));
+            ps.setObject(4, now);
+            ps.setObject(5, now);
+            return ps;
+        }));
+
+        snippetJsonCache.evict(id);
+        eventPublisher.publishEvent(SnippetDataChangedEvent.snippets(SnippetDataChangedEvent.Type.SNIPPETS_CREATED, Set.of(id)));
+        return id;
+    }
+
+    /**
+     * Replaces the content of a snippet with content streamed from the given input.
+     *
+     * @param id The ID of the snippet.
+     * @param content The encoded content; read to its end but not closed.
+     * @param charset The charset of the content.
+     * @return {@code true} if the snippet exists and was updated, {@code false} otherwise.
+     * @throws ContentTooLargeException If the content is larger than {@link #maxUploadBytes()}.
+     */
+    @Transactional
+    public boolean replaceContent(Long id, InputStream content, Charset charset) {
+        SizeLimitedInputStream limited = new SizeLimitedInputStream(content, maxUploadBytes);
+
+        int updated = upload(limited, () -> jdbcTemplate.update(
+                "update snippet set content = ?, last_modified_date = ? where id = ?",
+                ps -> {
+                    ps.setCharacterStream(1, new InputStreamReader(limited, charset));
+                    ps.setObject(2, Instant.now());
+                    ps.setLong(3, id);
+                }));
+
+        snippetJsonCache.evict(id);
+        if (updated > 0) {
+            eventPublisher.publishEvent(SnippetDataChangedEvent.snippets(SnippetDataChangedEvent.Type.SNIPPETS_UPDATED, Set.of(id)));
+        }
+        return updated > 0;
+    }
+
+    // The driver reads the stream during execution and wraps the limit's IOException in its own exception
+    private static int upload(SizeLimitedInputStream content, IntSupplier statement) {
+        try {
+            return statement.getAsInt();
+        } catch (DataAccessException e) {
+            if (content.exceeded()) {
+                throw new ContentTooLargeException(content.limit());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Encodes characters as UTF-8 and writes the bytes at offsets {@code start} to {@code end}, inclusive.
+     * Reading stops once the range has been written.
+     *
+     * @param reader The characters to encode.
+     * @param start The offset of the first byte to write.
+     * @param end The offset of the last byte to write.
+     * @param out The stream to write to.
+     * @return The number of bytes written.
+     * @throws IOException If reading or writing fails.
+     */
+    static long copyRange(Reader reader, long start, long end, OutputStream out) throws IOException {
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chars = CharBuffer.allocate(BUFFER_CHARS);
+        ByteBuffer bytes = ByteBuffer.allocate((int) (BUFFER_CHARS * encoder.maxBytesPerChar()));
+
+        long position = 0;
+        long written = 0;
+        boolean endOfInput = false;
+        while (!endOfInput && position <= end) {
+            endOfInput = reader.read(chars) < 0;
+
+            // A high surrogate at the end of the buffer stays in it until its pair is read
+            chars.flip();
+            encoder.encode(chars, bytes, endOfInput);
+            if (endOfInput) {
+                encoder.flush(bytes);
+            }
+            chars.compact();
+
+            bytes.flip();
+            long from = Math.max(start, position);
+            long to = Math.min(end + 1, position + bytes.remaining());
+            if (from < to) {
+                out.write(bytes.array(), (int) (from - position), (int) (to - from));
+                written += to - from;
+            }
+            position += bytes.remaining();
+            bytes.clear();
+        }
+
+        return written;
+    }
+
+    // Fails the read once more than the limit has been consumed, and remembers that it did
+    private static final class SizeLimitedInputStream extends FilterInputStream {
+
+        private final long limit;
+        private long count;
+        private boolean exceeded;
+
+        private SizeLimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        long limit() {
+            return limit;
+        }
+
+        boolean exceeded() {
+            return exceeded;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        @Override
+        public void close() {
+            // The request body belongs to the servlet container
+        }
+
+        private void count(long n) throws IOException {
+            count += n;
+            if (count > limit) {
+                exceeded = true;
+                throw new IOException("Content exceeds " + limit + " bytes");
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.severentertainment.snippetmanager.service;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Published by every write to snippets, tags or their links. Listeners that keep derived state,
+ * such as the in-memory read model and the change feed, receive it once the writing transaction has committed.
+ *
+ * @param type What kind of change was made.
+ * @param snippetIds The IDs of the affected snippets; for tag changes, the snippets whose tags changed with them.
+ * @param tagIds The IDs of the affected tags; for snippet changes, the tags linked to or unlinked from them.
+ */
+public record SnippetDataChangedEvent(Type type, Set<Long> snippetIds, Set<Long> tagIds) {
+
+    public enum Type {
+        SNIPPETS_CREATED,
+        SNIPPETS_UPDATED,
+        SNIPPETS_DELETED,
+        TAGS_CREATED,
+        TAGS_UPDATED,
+        TAGS_DELETED,
+        TAGS_LINKED,
+        TAGS_UNLINKED,
+        /** The data was replaced wholesale and the IDs are not meaningful. */
+        RESET;
+
+        /**
+         * Returns the name of the type as used on the wire, e.g. {@code snippets.created}.
+         *
+         * @return The lowercase, dot-separated name.
+         */
+        public String eventName() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '.');
+        }
+    }
+
+    public static SnippetDataChangedEvent of(Type type, Collection<Long> snippetIds, Collection<Long> tagIds) {
+        return new SnippetDataChangedEvent(type, Set.copyOf(snippetIds), Set.copyOf(tagIds));
+    }
+
+    public static SnippetDataChangedEvent snippets(Type type, Collection<Long> snippetIds) {
+        return of(type, snippetIds, Set.of());
+    }
+
+    public static SnippetDataChangedEvent tags(Type type, Collection<Long> tagIds) {
+        return of(type, Set.of(), tagIds);
+    }
+
+    public static SnippetDataChangedEvent reset() {
+        return new SnippetDataChangedEvent(Type.RESET, Set.of(), Set.of());
+    }
+
+    public boolean isReset() {
+        return type == Type.RESET;
+    }
+
+}
@@ -0,0 +1,257 @@
+package com.severentertainment.snippetmanager.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.severentertainment.snippetmanager.domain.Snippet;
+import com.severentertainment.snippetmanager.dto.SnippetJsonWriter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Least-recently-used cache of pre-serialized snippet JSON, keyed by snippet ID and bounded by total bytes.
+ * Entries are dropped by every mutation of the snippet (or of its tags) so that a hit can be
+ * written to the response without touching the database or Jackson's object mapping.
+ * JSON at or above the compression threshold is also gzip-compressed once, when the entry is built,
+ * so that compressed responses cost no CPU per request.
+ * <p>
+ * The bytes are held off-heap (see {@link SlabAllocator}), so the cache can be sized in gigabytes without growing the
+ * heap or the garbage collection pauses; {@code -XX:MaxDirectMemorySize} must leave room for it. Entries are charged
+ * the chunks they take rather than their length, so the budget bounds the memory of cached entries; on top of it
+ * come the entries still being read after their eviction and the free chunks of partly used slabs. Entries returned by
+ * {@link #get(Long)} and {@link #put(Snippet, long)} must be {@link CachedSnippetJson#release() released}, after which
+ * the memory of evicted entries is reused.
+ */
+@Component
+public class SnippetJsonCache implements MeterBinder {
+
+    private final JsonFactory jsonFactory;
+    private final long maxBytes;
+    private final int compressionMinSize;
+    private final SlabAllocator allocator = new SlabAllocator();
+
+    private final LinkedHashMap<Long, CachedSnippetJson> entries = new LinkedHashMap<>(16, 0.75f, true); // Access order for LRU
+    private long totalBytes;
+    private long generation; // Bumped on every eviction so that loads racing a write are not cached
+
+    @Autowired
+    public SnippetJsonCache(ObjectMapper objectMapper,
+                            @Value("${snippetmanager.cache.json.max-bytes:67108864}") long maxBytes,
+                            @Value("${snippetmanager.compression.min-size:2048}") int compressionMinSize) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.maxBytes = maxBytes;
+        this.compressionMinSize = compressionMinSize;
+    }
+
+    /**
+     * Retrieves the cached JSON for a snippet.
+     *
+     * @param id The ID of the snippet.
+     * @return An {@link Optional} containing the {@link CachedSnippetJson} if cached, to be released by the caller,
+     * or an empty {@link Optional} if not.
+     */
+    public synchronized Optional<CachedSnippetJson> get(Long id) {
+        CachedSnippetJson entry = entries.get(id);
+        if (entry != null) {
+            entry.retain();
+        }
+        return Optional.ofNullable(entry);
+    }
+
+    /**
+     * Returns the current eviction generation.
+     * Callers read it before loading a snippet and pass it to {@link #put(Snippet, long)},
+     * which discards the entry if the snippet may have been changed in the meantime.
+     *
+     * @return The current generation.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Serializes (and, above the threshold, compresses) a snippet and caches the result,
+     * unless an eviction happened since {@code loadGeneration}.
+     * If the surrounding transaction does not commit, the entry is dropped again.
+     *
+     * @param snippet The snippet entity to serialize and cache.
+     * @param loadGeneration The generation read before the snippet was loaded.
+     * @return The {@link CachedSnippetJson} of the snippet, to be released by the caller.
+     */
+    public CachedSnippetJson put(Snippet snippet, long loadGeneration) {
+        return put(snippet, snippet.getContent(), loadGeneration);
+    }
+
+    /**
+     * Serializes and caches a snippet like {@link #put(Snippet, long)}, using content that was read
+     * separately from the entity.
+     *
+     * @param snippet The snippet entity to serialize and cache.
+     * @param content The content of the snippet.
+     * @param loadGeneration The generation read before the snippet was loaded.
+     * @return The {@link CachedSnippetJson} of the snippet, to be released by the caller.
+     */
+    public CachedSnippetJson put(Snippet snippet, String content, long loadGeneration) {
+        Long id = snippet.getId();
+        byte[] json = SnippetJsonWriter.toJsonBytes(jsonFactory, snippet, content);
+        byte[] gzip = json.length >= compressionMinSize ? gzip(json) : null;
+
+        long allocatedSize = SlabAllocator.chunkBytes(json.length) + (gzip != null ? SlabAllocator.chunkBytes(gzip.length) : 0);
+        if (allocatedSize > maxBytes) {
+            return CachedSnippetJson.onHeap(json, gzip); // Would evict everything else without ever fitting
+        }
+
+        CachedSnippetJson entry = CachedSnippetJson.offHeap(json, gzip, allocator);
+        synchronized (this) {
+            if (loadGeneration != generation) {
+                return entry; // A write raced this load; the caller's reference is the only one
+            }
+
+            entry.retain(); // The cache's reference
+            CachedSnippetJson previous = entries.put(id, entry);
+            if (previous != null) {
+                totalBytes -= previous.allocatedSize();
+                previous.release();
+            }
+            totalBytes += entry.allocatedSize();
+            trimToBudget();
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        remove(id); // Never keep bytes read from a rolled back transaction
+                    }
+                }
+            });
+        }
+
+        return entry;
+    }
+
+    /**
+     * Evicts the cached JSON for a snippet.
+     * The entry is removed immediately and again after the surrounding transaction commits,
+     * so that concurrent readers cannot re-cache the pre-commit state.
+     *
+     * @param id The ID of the snippet to evict.
+     */
+    public void evict(Long id) {
+        remove(id);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove(id);
+                }
+            });
+        }
+    }
+
+    /**
+     * Evicts the cached JSON for several snippets.
+     *
+     * @param ids The IDs of the snippets to evict.
+     */
+    public void evictAll(Iterable<Long> ids) {
+        for (Long id : ids) {
+            evict(id);
+        }
+    }
+
+    /**
+     * Evicts every cached entry, e.g. after the underlying data was replaced wholesale.
+     */
+    public synchronized void clear() {
+        generation++;
+        entries.values().forEach(CachedSnippetJson::release);
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    /**
+     * Returns the total size of the chunks held by cached entries, which is what the budget limits.
+     *
+     * @return The number of cached bytes.
+     */
+    public synchronized long totalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Returns the off-heap memory taken by the cache, including memory kept for reuse after evictions.
+     *
+     * @return The number of bytes reserved.
+     */
+    public long reservedBytes() {
+        return allocator.reservedBytes();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("snippetmanager.cache.json.bytes", this, SnippetJsonCache::totalBytes)
+                .description("Bytes of snippet JSON in the cache")
+                .tag("state", "cached")
+                .register(registry);
+        Gauge.builder("snippetmanager.cache.json.bytes", this, SnippetJsonCache::reservedBytes)
+                .description("Bytes of snippet JSON in the cache")
+                .tag("state", "reserved")
+                .register(registry);
+    }
+
+    private synchronized void remove(Long id) {
+        generation++;
+
+        CachedSnippetJson removed = entries.remove(id);
+        if (removed != null) {
+            totalBytes -= removed.allocatedSize();
+            removed.release();
+        }
+    }
+
+    private void trimToBudget() {
+        Iterator<Map.Entry<Long, CachedSnippetJson>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            CachedSnippetJson evicted = iterator.next().getValue(); // Least recently used first
+            totalBytes -= evicted.allocatedSize();
+            evicted.release();
+            iterator.remove();
+        }
+    }
+
+    // Compressed once per cached version, so the best (slowest) level pays off over many responses
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compress snippet JSON", e);
+        }
+
+        byte[] compressed = out.toByteArray();
+        return compressed.length < json.length ? compressed : null;
+    }
+
+}
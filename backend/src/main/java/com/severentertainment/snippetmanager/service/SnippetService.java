@@ -2,30 +2,60 @@ package com.severentertainment.snippetmanager.service;
 
 import com.severentertainment.snippetmanager.domain.Snippet;
 import com.severentertainment.snippetmanager.domain.Tag;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.severentertainment.snippetmanager.dto.SnippetJsonWriter;
 import com.severentertainment.snippetmanager.dto.SnippetResponseDto;
+import com.severentertainment.snippetmanager.dto.SnippetSummaryDto;
 import com.severentertainment.snippetmanager.dto.TagResponseDto;
 import com.severentertainment.snippetmanager.dto.EntityToDtoMapper;
 import com.severentertainment.snippetmanager.repository.SnippetRepository;
+import com.severentertainment.snippetmanager.repository.SnippetWithContent;
 import com.severentertainment.snippetmanager.repository.TagRepository;
+import jakarta.persistence.EntityManager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class SnippetService {
 
     private final SnippetRepository snippetRepository;
     private final TagRepository tagRepository;
+    private final EntityManager entityManager;
+    private final SnippetJsonCache snippetJsonCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TagService tagService;
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
-    public SnippetService(SnippetRepository snippetRepository, TagRepository tagRepository) {
+    public SnippetService(SnippetRepository snippetRepository, TagRepository tagRepository,
+                          EntityManager entityManager, SnippetJsonCache snippetJsonCache,
+                          ApplicationEventPublisher eventPublisher, TagService tagService,
+                          PlatformTransactionManager transactionManager) {
         this.snippetRepository = snippetRepository;
         this.tagRepository = tagRepository;
+        this.entityManager = entityManager;
+        this.snippetJsonCache = snippetJsonCache;
+        this.eventPublisher = eventPublisher;
+        this.tagService = tagService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     /**
@@ -34,10 +64,38 @@ public class SnippetService {
      * @param snippet The {@link Snippet} object to be created and saved.
      * @return The saved {@link Snippet} object, including its generated ID and timestamps.
      */
-    @Transactional
     public SnippetResponseDto createSnippet(Snippet snippet) {
-        Snippet savedSnippet = snippetRepository.save(snippet);
-        return EntityToDtoMapper.snippetToSnippetResponseDto(savedSnippet);
+        return createSnippet(snippet, null);
+    }
+
+    /**
+     * Creates and saves a new snippet with tags given by name.
+     * The tags are resolved with {@link TagService#resolveTags(Collection)} in the same transaction as the snippet,
+     * so that missing tags are only created if the snippet is. If a concurrent request inserts one of the missing
+     * names first, the transaction fails on the unique constraint and is run once more, which then finds the tag.
+     *
+     * @param snippet The {@link Snippet} object to be created and saved.
+     * @param tagNames The names of the tags of the new snippet, or null for none.
+     * @return The saved {@link Snippet} object, including its generated ID, timestamps and tags.
+     */
+    public SnippetResponseDto createSnippet(Snippet snippet, Collection<String> tagNames) {
+        return executeRetryingTagConflict(() -> {
+            // Reset, as a failed first attempt assigned them to the snippet
+            snippet.setId(null);
+            snippet.setCreationDate(null);
+            snippet.setLastModifiedDate(null);
+        }, status -> {
+            if (tagNames != null) {
+                snippet.setTags(new HashSet<>(tagService.resolveTags(tagNames).values()));
+            }
+
+            // Flushed, so that the returned timestamps are set and the row is visible to the JDBC content path
+            Snippet savedSnippet = snippetRepository.saveAndFlush(snippet);
+            snippetJsonCache.evict(savedSnippet.getId());
+            eventPublisher.publishEvent(SnippetDataChangedEvent.of(SnippetDataChangedEvent.Type.SNIPPETS_CREATED,
+                    Set.of(savedSnippet.getId()), tagIds(savedSnippet.getTags())));
+            return EntityToDtoMapper.snippetToSnippetResponseDto(savedSnippet);
+        });
     }
 
     /**
@@ -53,6 +111,42 @@ public class SnippetService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Retrieves the title, timestamps and tags of all snippets, without their content.
+     *
+     * @return A list of {@link SnippetSummaryDto} objects ordered by ID.
+     */
+    @Transactional(readOnly = true)
+    public List<SnippetSummaryDto> getSnippetSummaries() {
+        return snippetRepository.findAllWithTags().stream()
+                .map(EntityToDtoMapper::snippetToSnippetSummaryDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Writes all snippets as a JSON array directly to the given generator.
+     * Snippets are read through a database cursor and detached once written,
+     * so neither the result list nor the persistence context grows with the corpus.
+     *
+     * @param generator The {@link JsonGenerator} to write the array to.
+     * @throws IOException If writing to the generator fails.
+     */
+    @Transactional(readOnly = true)
+    public void writeAllSnippets(JsonGenerator generator) throws IOException {
+        generator.writeStartArray();
+
+        try (Stream<SnippetWithContent> snippets = snippetRepository.streamAllWithContent()) {
+            Iterator<SnippetWithContent> iterator = snippets.iterator();
+            while (iterator.hasNext()) {
+                SnippetWithContent row = iterator.next();
+                SnippetJsonWriter.writeSnippet(generator, row.snippet(), row.content());
+                entityManager.detach(row.snippet()); // Release the written snippet from the persistence context
+            }
+        }
+
+        generator.writeEndArray();
+    }
+
     /**
      * Retrieves a snippet by its ID.
      *
@@ -65,6 +159,21 @@ public class SnippetService {
                 .map(EntityToDtoMapper::snippetToSnippetResponseDto);
     }
 
+    /**
+     * Retrieves a snippet by its ID as pre-serialized JSON and caches it in the {@link SnippetJsonCache}.
+     * Callers should check the cache first; this method always loads the snippet from the database.
+     *
+     * @param id The ID of the snippet to retrieve.
+     * @return An {@link Optional} containing the {@link CachedSnippetJson} if found, to be released by the caller,
+     * or an empty {@link Optional} if not.
+     */
+    @Transactional(readOnly = true)
+    public Optional<CachedSnippetJson> getSnippetJsonById(Long id) {
+        long generation = snippetJsonCache.generation(); // Read before loading so a racing write discards this entry
+        return snippetRepository.findById(id)
+                .map(snippet -> snippetJsonCache.put(snippet, generation));
+    }
+
     /**
      * Updates an existing snippet.
      * If a snippet with the given ID is found, its title and content are updated.
@@ -74,16 +183,53 @@ public class SnippetService {
      * @param snippetDetails A {@link Snippet} object containing the new title and content for the snippet.
      * @return An {@link Optional} containing the updated {@link Snippet} if successful, or an empty {@link Optional} if not.
      */
-    @Transactional
     public Optional<SnippetResponseDto> updateSnippet(Long id, Snippet snippetDetails) {
-        return snippetRepository.findById(id) // Find an existing snippet...
+        return updateSnippet(id, snippetDetails, null);
+    }
+
+    /**
+     * Updates an existing snippet and, if tag names are given, replaces its tags.
+     * Missing tags are created in the same transaction, and a conflict with a concurrent create is retried, as for
+     * {@link #createSnippet(Snippet, Collection)}; only the links that changed are deleted or inserted.
+     *
+     * @param id The ID of the snippet to update.
+     * @param snippetDetails A {@link Snippet} object containing the new title and content for the snippet.
+     * @param tagNames The names of the tags the snippet should have, or null to leave its tags unchanged.
+     * @return An {@link Optional} containing the updated {@link Snippet} if successful, or an empty {@link Optional} if not.
+     */
+    public Optional<SnippetResponseDto> updateSnippet(Long id, Snippet snippetDetails, Collection<String> tagNames) {
+        return executeRetryingTagConflict(() -> {}, status -> snippetRepository.findById(id) // Find an existing snippet...
                 .map(existingSnippet -> { // If it exists...
                     existingSnippet.setTitle(snippetDetails.getTitle());
                     existingSnippet.setContent(snippetDetails.getContent());
 
-                    Snippet savedSnippet = snippetRepository.save(existingSnippet);
+                    Set<Long> changedTagIds = new HashSet<>(); // The tags linked or unlinked, whose usage changes
+                    if (tagNames != null) {
+                        Set<Tag> tags = new HashSet<>(tagService.resolveTags(tagNames).values());
+                        if (!existingSnippet.getTags().equals(tags)) {
+                            for (Tag tag : existingSnippet.getTags()) {
+                                if (!tags.contains(tag)) {
+                                    changedTagIds.add(tag.getId());
+                                }
+                            }
+                            for (Tag tag : tags) {
+                                if (!existingSnippet.getTags().contains(tag)) {
+                                    changedTagIds.add(tag.getId());
+                                }
+                            }
+
+                            // Changed in place, so that Hibernate writes only the links that differ
+                            existingSnippet.getTags().retainAll(tags);
+                            existingSnippet.getTags().addAll(tags);
+                            existingSnippet.setLastModifiedDate(Instant.now()); // A changed collection alone does not bump the @UpdateTimestamp
+                        }
+                    }
+
+                    Snippet savedSnippet = snippetRepository.saveAndFlush(existingSnippet); // Flushed, so that the returned lastModifiedDate is set
+                    snippetJsonCache.evict(id);
+                    eventPublisher.publishEvent(SnippetDataChangedEvent.of(SnippetDataChangedEvent.Type.SNIPPETS_UPDATED, Set.of(id), changedTagIds));
                     return EntityToDtoMapper.snippetToSnippetResponseDto(savedSnippet); // Save and return the updated snippet
-                });
+                }));
     }
 
     /**
@@ -95,7 +241,10 @@ public class SnippetService {
     @Transactional
     public boolean deleteSnippet(Long id) {
         if (snippetRepository.existsById(id)) {
+            List<Long> tagIds = snippetRepository.findTagIdsByIdIn(Set.of(id)); // Read before the links are deleted
             snippetRepository.deleteById(id);
+            snippetJsonCache.evict(id);
+            eventPublisher.publishEvent(SnippetDataChangedEvent.of(SnippetDataChangedEvent.Type.SNIPPETS_DELETED, Set.of(id), tagIds));
             return true; // Deletion successful
         }
 
@@ -119,10 +268,17 @@ public class SnippetService {
             Snippet snippet = snippetOptional.get();
             Tag tag = tagOptional.get();
 
-            snippet.getTags().add(tag); // Add tag to the snippet's set of tags
+            boolean added = snippet.getTags().add(tag); // Add tag to the snippet's set of tags
+
+            Snippet updatedSnippet = snippet;
+            if (added) {
+                snippet.setLastModifiedDate(Instant.now()); // A changed collection alone does not bump the @UpdateTimestamp
+                updatedSnippet = snippetRepository.save(snippet);
+                snippetJsonCache.evict(snippetId);
+                eventPublisher.publishEvent(SnippetDataChangedEvent.of(SnippetDataChangedEvent.Type.TAGS_LINKED, Set.of(snippetId), Set.of(tagId)));
+            }
 
-            Snippet savedSnippet = snippetRepository.save(snippet);
-            return Optional.of(EntityToDtoMapper.snippetToSnippetResponseDto(savedSnippet));
+            return Optional.of(EntityToDtoMapper.snippetToSnippetResponseDto(updatedSnippet));
         }
 
         return Optional.empty(); // Snippet or Tag not found
@@ -147,7 +303,14 @@ public class SnippetService {
 
             boolean removed = snippet.getTags().remove(tag); // Remove tag from the snippet's set of tags
 
-            Snippet updatedSnippet = removed ? snippetRepository.save(snippet) : snippet;
+            Snippet updatedSnippet = snippet;
+            if (removed) {
+                snippet.setLastModifiedDate(Instant.now());
+                updatedSnippet = snippetRepository.save(snippet);
+                snippetJsonCache.evict(snippetId);
+                eventPublisher.publishEvent(SnippetDataChangedEvent.of(SnippetDataChangedEvent.Type.TAGS_UNLINKED, Set.of(snippetId), Set.of(tagId)));
+            }
+
             return Optional.of(EntityToDtoMapper.snippetToSnippetResponseDto(updatedSnippet));
         }
 
@@ -167,4 +330,22 @@ public class SnippetService {
                 .map(snippet -> EntityToDtoMapper.tagsToTagResponseDtos(snippet.getTags()));
     }
 
+    // Runs a write that may insert tags. Retried once in a new transaction, unless the caller's transaction was joined,
+    // which the failure has already marked for rollback
+    private <T> T executeRetryingTagConflict(Runnable beforeRetry, TransactionCallback<T> action) {
+        try {
+            return transactionTemplate.execute(action);
+        } catch (DataIntegrityViolationException e) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                throw e;
+            }
+            beforeRetry.run();
+            return transactionTemplate.execute(action);
+        }
+    }
+
+    private static Set<Long> tagIds(Collection<Tag> tags) {
+        return tags.stream().map(Tag::getId).collect(Collectors.toSet());
+    }
+
 }
@@ -0,0 +1,128 @@
+package com.severentertainment.snippetmanager.service;
+
+import com.severentertainment.snippetmanager.config.ReadConsistency;
+import com.severentertainment.snippetmanager.domain.SnippetTombstone;
+import com.severentertainment.snippetmanager.dto.EntityToDtoMapper;
+import com.severentertainment.snippetmanager.dto.SnippetDeltaDto;
+import com.severentertainment.snippetmanager.dto.SnippetResponseDto;
+import com.severentertainment.snippetmanager.repository.SnippetRepository;
+import com.severentertainment.snippetmanager.repository.SnippetWithContent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Delta sync for clients that cannot keep the change feed open: a client passes the sync token of its last sync and
+ * receives the snippets modified since, the IDs of the snippets deleted since, and a new token.
+ * <p>
+ * Modified snippets are found by their last modified date, which tag changes bump too. Deletions are found in a log
+ * of {@link SnippetTombstone}s, written in the deleting transaction and kept for the configured retention.
+ * A sync token is a point in time set back by a small overlap, so that snippets written by transactions that
+ * were still in flight during a sync are sent again with the next one; clients apply changes by ID and
+ * receive some of them twice. Tokens older than the retention, or from before a snapshot restore, get a reset.
+ */
+@Service
+public class SnippetSyncService {
+
+    private final SnippetRepository snippetRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration overlap;
+    private final Duration tombstoneRetention;
+
+    @Autowired
+    public SnippetSyncService(SnippetRepository snippetRepository, JdbcTemplate jdbcTemplate,
+                              @Value("${snippetmanager.sync.overlap:5s}") Duration overlap,
+                              @Value("${snippetmanager.sync.tombstone-retention:30d}") Duration tombstoneRetention) {
+        this.snippetRepository = snippetRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.overlap = overlap;
+        this.tombstoneRetention = tombstoneRetention;
+    }
+
+    /**
+     * Retrieves the changes to snippets since a sync token.
+     *
+     * @param syncToken The sync token returned by the previous sync, or null for the first sync.
+     * @return A {@link SnippetDeltaDto} with the changed snippets, the deleted snippet IDs and the next sync token,
+     * or with only the reset flag and the next sync token if the changes since the token are not known.
+     * @throws IllegalArgumentException If the sync token is malformed.
+     */
+    @Transactional(readOnly = true)
+    public SnippetDeltaDto getChangesSince(String syncToken) {
+        // A lagging replica could miss writes older than the token, which the next sync would then skip
+        return ReadConsistency.onPrimary(() -> changesSince(syncToken));
+    }
+
+    private SnippetDeltaDto changesSince(String syncToken) {
+        Instant now = Instant.now();
+        String nextToken = Long.toString(now.minus(overlap).toEpochMilli()); // Taken before reading, so nothing falls between syncs
+        Instant since = syncToken != null ? parseToken(syncToken) : null;
+
+        if (since == null || since.isBefore(now.minus(tombstoneRetention)) || restoredSince(since)) {
+            return new SnippetDeltaDto(new ArrayList<>(), new ArrayList<>(), nextToken, true);
+        }
+
+        List<SnippetWithContent> modified = snippetRepository.findAllWithContentModifiedSince(since);
+        if (!modified.isEmpty()) {
+            // Loads the tags of all modified snippets into the persistence context with one query
+            snippetRepository.findAllWithTagsByIdIn(modified.stream().map(row -> row.snippet().getId()).toList());
+        }
+
+        List<SnippetResponseDto> snippets = new ArrayList<>(modified.size());
+        for (SnippetWithContent row : modified) {
+            snippets.add(EntityToDtoMapper.snippetToSnippetResponseDto(row.snippet(), row.content()));
+        }
+
+        List<Long> deletedIds = jdbcTemplate.queryForList(
+                "select distinct snippet_id from snippet_tombstone where snippet_id is not null and deleted_at >= ? order by snippet_id",
+                Long.class, since);
+
+        return new SnippetDeltaDto(snippets, deletedIds, nextToken, false);
+    }
+
+    /**
+     * Records tombstones for deleted snippets, and a reset tombstone for a snapshot restore.
+     * Runs in the deleting transaction, so the tombstones commit or roll back with the deletes.
+     *
+     * @param event The change that is about to be committed.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onDataChanged(SnippetDataChangedEvent event) {
+        Instant now = Instant.now();
+
+        if (event.isReset()) {
+            jdbcTemplate.update("insert into snippet_tombstone (snippet_id, deleted_at) values (null, ?)", now);
+        } else if (event.type() == SnippetDataChangedEvent.Type.SNIPPETS_DELETED && !event.snippetIds().isEmpty()) {
+            List<Object[]> rows = new ArrayList<>(event.snippetIds().size());
+            for (Long id : event.snippetIds()) {
+                rows.add(new Object[] {id, now});
+            }
+            jdbcTemplate.batchUpdate("insert into snippet_tombstone (snippet_id, deleted_at) values (?, ?)", rows);
+            jdbcTemplate.update("delete from snippet_tombstone where deleted_at < ?", now.minus(tombstoneRetention));
+        }
+    }
+
+    private boolean restoredSince(Instant since) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "select exists (select 1 from snippet_tombstone where snippet_id is null and deleted_at >= ?)",
+                Boolean.class, since));
+    }
+
+    private static Instant parseToken(String syncToken) {
+        try {
+            return Instant.ofEpochMilli(Long.parseLong(syncToken));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed sync token: " + syncToken, e);
+        }
+    }
+
+}
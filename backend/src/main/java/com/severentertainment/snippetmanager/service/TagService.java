@@ -6,55 +6,117 @@ import com.severentertainment.snippetmanager.dto.EntityToDtoMapper;
 import com.severentertainment.snippetmanager.dto.TagResponseDto;
 import com.severentertainment.snippetmanager.repository.SnippetRepository;
 import com.severentertainment.snippetmanager.repository.TagRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
 public class TagService {
 
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int CREATE_LOCKS = 64;
+    private static final String SNIPPET_TAGS_ROLE = Snippet.class.getName() + ".tags";
+
     private final TagRepository tagRepository;
+    private final SnippetJsonCache snippetJsonCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final ReentrantLock[] createLocks = new ReentrantLock[CREATE_LOCKS]; // Striped by normalized name; per instance only
 
     @Autowired
-    public TagService(TagRepository tagRepository) {
+    public TagService(TagRepository tagRepository, SnippetJsonCache snippetJsonCache,
+                      ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager,
+                      EntityManagerFactory entityManagerFactory) {
         this.tagRepository = tagRepository;
+        this.snippetJsonCache = snippetJsonCache;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManagerFactory = entityManagerFactory;
+        for (int i = 0; i < CREATE_LOCKS; i++) {
+            createLocks[i] = new ReentrantLock();
+        }
     }
 
     /**
      * Creates a new tag or returns an existing one with the same name (case-insensitive).
      * Tag names are stored in lowercase.
+     * <p>
+     * Existing names are answered from the query cache. A missing tag is inserted with a single upsert statement
+     * that does nothing if the name exists; should a concurrent insert still trip the unique constraint, the tag is
+     * read again once that insert has committed. This is what keeps concurrent creates of the same name, on this
+     * instance or another, from failing.
+     * <p>
+     * The upsert also runs under a lock striped by name and held until it commits. The lock is only a contention
+     * optimization for this instance: requests for the same new name queue behind the first instead of racing it
+     * into the constraint and the re-read.
      *
      * @param tag The tag object containing the name for the Tag to be created.
      * @return The created or existing Tag.
      */
-    @Transactional
     public TagResponseDto createOrGetTag(Tag tag) {
         if (tag.getName() == null || tag.getName().trim().isEmpty()) {
             throw new IllegalArgumentException("Tag name for create cannot be null or empty");
         }
 
         // Normalize the tag name: trim whitespace and convert to lowercase
-        String normalizedTagName = tag.getName().trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+        String normalizedTagName = normalizeName(tag.getName());
 
         // Check if a tag with this name already exists
         Optional<Tag> existingTag = tagRepository.findByNameIgnoreCase(normalizedTagName);
-
         if (existingTag.isPresent()) {
             return EntityToDtoMapper.tagToTagResponseDto(existingTag.get());
-        } else { // If a tag doesn't exist, create a new one
-            Tag newTag = new Tag();
-            newTag.setName(normalizedTagName);
+        }
 
-            Tag savedTag = tagRepository.save(newTag);
-            return EntityToDtoMapper.tagToTagResponseDto(savedTag);
+        // If a tag doesn't exist, create it; the lock (held until the commit) only keeps this instance's requests from racing
+        ReentrantLock lock = createLocks[Math.floorMod(normalizedTagName.hashCode(), createLocks.length)];
+        lock.lock();
+        try {
+            return transactionTemplate.execute(status -> upsert(normalizedTagName));
+        } catch (DataIntegrityViolationException e) {
+            // Inserted meanwhile by another instance or a batch of resolveTags, which has committed by now
+            return tagRepository.findByNameIgnoreCase(normalizedTagName)
+                    .map(EntityToDtoMapper::tagToTagResponseDto)
+                    .orElseThrow(() -> e);
+        } finally {
+            lock.unlock();
         }
     }
 
+    private TagResponseDto upsert(String normalizedTagName) {
+        boolean inserted = tagRepository.insertIfAbsent(normalizedTagName) > 0;
+        Tag savedTag = tagRepository.findByNameIgnoreCase(normalizedTagName)
+                .orElseThrow(() -> new IllegalStateException("Tag '" + normalizedTagName + "' not found after upsert"));
+
+        if (inserted) {
+            eventPublisher.publishEvent(SnippetDataChangedEvent.tags(SnippetDataChangedEvent.Type.TAGS_CREATED, Set.of(savedTag.getId())));
+        }
+        return EntityToDtoMapper.tagToTagResponseDto(savedTag);
+    }
+
     /**
      * Retrieves all tags.
      *
@@ -100,7 +162,7 @@ public class TagService {
             return Optional.empty(); // Tag to update not found
         }
 
-        String newNormalizedName = tagDetails.getName().trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+        String newNormalizedName = normalizeName(tagDetails.getName());
 
         // Check if a tag with this name already exists, excluding the one to update
         Optional<Tag> conflictingTag = tagRepository.findByNameIgnoreCase(newNormalizedName);
@@ -112,11 +174,15 @@ public class TagService {
         tagToUpdate.setName(newNormalizedName);
 
         Tag savedTag = tagRepository.save(tagToUpdate);
+        tagRepository.touchSnippetsByTagId(id, Instant.now()); // Delta sync clients refetch the snippets carrying the tag
+        List<Long> snippetIds = tagRepository.findSnippetIdsByTagId(id);
+        snippetJsonCache.evictAll(snippetIds); // Cached snippets embed the old tag name
+        eventPublisher.publishEvent(SnippetDataChangedEvent.of(SnippetDataChangedEvent.Type.TAGS_UPDATED, snippetIds, Set.of(id)));
         return Optional.of(EntityToDtoMapper.tagToTagResponseDto(savedTag));
     }
 
     /**
-     * Deletes a tag by its ID.
+     * Deletes a tag by its ID, removing it from the snippets that carry it.
      *
      * @param id The ID of the tag to delete.
      * @return True if the tag was deleted, false if not.
@@ -124,11 +190,122 @@ public class TagService {
     @Transactional
     public boolean deleteTag(Long id) {
         if (tagRepository.existsById(id)) {
+            List<Long> snippetIds = tagRepository.findSnippetIdsByTagId(id);
+            snippetJsonCache.evictAll(snippetIds);
+            tagRepository.touchSnippetsByTagId(id, Instant.now());
+            tagRepository.deleteLinksByTagId(id);
+            evictTagSets(snippetIds);
             tagRepository.deleteById(id);
+            eventPublisher.publishEvent(SnippetDataChangedEvent.of(SnippetDataChangedEvent.Type.TAGS_DELETED, snippetIds, Set.of(id)));
             return true;
         }
 
         return false;
     }
 
+    // The links were deleted behind Hibernate's back, so the cached tag sets of their snippets are evicted now and
+    // again after the commit, so that concurrent readers cannot re-cache the pre-commit state
+    private void evictTagSets(Collection<Long> snippetIds) {
+        if (snippetIds.isEmpty()) {
+            return;
+        }
+
+        Cache secondLevelCache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        snippetIds.forEach(snippetId -> secondLevelCache.evictCollectionData(SNIPPET_TAGS_ROLE, snippetId));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    snippetIds.forEach(snippetId -> secondLevelCache.evictCollectionData(SNIPPET_TAGS_ROLE, snippetId));
+                }
+            });
+        }
+    }
+
+    /**
+     * Resolves many tag names at once, creating the ones that do not exist yet.
+     * Names are normalized; existing tags are found with a single {@code IN} query and
+     * missing tags are inserted together. Blank names are ignored.
+     *
+     * @param rawNames The tag names to resolve, as entered by users.
+     * @return A map from normalized name to the managed {@link Tag}, in order of first appearance.
+     */
+    @Transactional
+    public Map<String, Tag> resolveTags(Collection<String> rawNames) {
+        Set<String> normalizedNames = normalizeNames(rawNames);
+
+        Map<String, Tag> tagsByName = new LinkedHashMap<>();
+        if (normalizedNames.isEmpty()) {
+            return tagsByName;
+        }
+
+        Map<String, Tag> existingTags = tagRepository.findByNameIn(normalizedNames).stream()
+                .collect(Collectors.toMap(Tag::getName, tag -> tag));
+
+        List<Tag> newTags = new ArrayList<>();
+        for (String name : normalizedNames) {
+            Tag tag = existingTags.get(name);
+            if (tag == null) {
+                tag = new Tag();
+                tag.setName(name);
+                newTags.add(tag);
+            }
+            tagsByName.put(name, tag);
+        }
+
+        tagRepository.saveAll(newTags); // Assigns IDs to the new tags in place
+        if (!newTags.isEmpty()) {
+            eventPublisher.publishEvent(SnippetDataChangedEvent.tags(SnippetDataChangedEvent.Type.TAGS_CREATED, newTags.stream().map(Tag::getId).toList()));
+        }
+
+        return tagsByName;
+    }
+
+    /**
+     * Resolves many tag names at once for the API, as {@link #resolveTags(Collection)} does, in a transaction of
+     * its own. If a concurrent request inserts one of the missing names first, the batch fails on the unique
+     * constraint and the names are resolved one by one with {@link #createOrGetTag(Tag)} instead.
+     *
+     * @param rawNames The tag names to resolve, as entered by users.
+     * @return A map from normalized name to tag ID, in order of first appearance.
+     */
+    public Map<String, Long> resolveTagIds(Collection<String> rawNames) {
+        try {
+            return transactionTemplate.execute(status -> {
+                Map<String, Long> tagIds = new LinkedHashMap<>();
+                resolveTags(rawNames).forEach((name, tag) -> tagIds.put(name, tag.getId()));
+                return tagIds;
+            });
+        } catch (DataIntegrityViolationException e) {
+            Map<String, Long> tagIds = new LinkedHashMap<>();
+            for (String name : normalizeNames(rawNames)) {
+                Tag tag = new Tag();
+                tag.setName(name);
+                tagIds.put(name, createOrGetTag(tag).getId());
+            }
+            return tagIds;
+        }
+    }
+
+    /**
+     * Normalizes a tag name: trims it, converts it to lowercase, and collapses inner whitespace.
+     *
+     * @param name The raw tag name; must not be null.
+     * @return The normalized tag name.
+     */
+    public static String normalizeName(String name) {
+        return WHITESPACE.matcher(name.trim().toLowerCase(Locale.ROOT)).replaceAll(" ");
+    }
+
+    // Normalized names in order of first appearance, without blank ones
+    private static Set<String> normalizeNames(Collection<String> rawNames) {
+        Set<String> normalizedNames = new LinkedHashSet<>();
+        for (String rawName : rawNames) {
+            if (rawName != null && !rawName.trim().isEmpty()) {
+                normalizedNames.add(normalizeName(rawName));
+            }
+        }
+        return normalizedNames;
+    }
+
 }
@@ -0,0 +1,12 @@
+package com.severentertainment.snippetmanager.shard;
+
+/**
+ * Outcome of rebalancing the shards.
+ *
+ * @param bucketsMoved The number of buckets moved to another shard.
+ * @param snippetsMoved The number of snippets copied along with those buckets.
+ * @param orphansRemoved The number of snippets removed from shards that no longer own their bucket.
+ * @param elapsedMillis The time the rebalance took, in milliseconds.
+ */
+public record RebalanceSummary(int bucketsMoved, long snippetsMoved, long orphansRemoved, long elapsedMillis) {
+}
@@ -0,0 +1,51 @@
+package com.severentertainment.snippetmanager.shard;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Actuator endpoint for inspecting and rebalancing the shards in sharded mode.
+ * <ul>
+ *     <li>{@code GET /actuator/shards} lists the buckets and snippets held by each shard.</li>
+ *     <li>{@code POST /actuator/shards} moves buckets until all shards hold the same share.</li>
+ * </ul>
+ */
+@Component
+@Endpoint(id = "shards")
+@ConditionalOnProperty(name = "snippetmanager.storage.engine", havingValue = "sharded")
+public class ShardEndpoint {
+
+    private final ShardRebalancer shardRebalancer;
+
+    @Autowired
+    public ShardEndpoint(ShardRebalancer shardRebalancer) {
+        this.shardRebalancer = shardRebalancer;
+    }
+
+    /**
+     * Lists the buckets and snippets held by each shard.
+     *
+     * @return One {@link ShardStatus} per shard.
+     */
+    @ReadOperation
+    public List<ShardStatus> shards() {
+        return shardRebalancer.status();
+    }
+
+    /**
+     * Rebalances the shards.
+     *
+     * @return A {@link RebalanceSummary} of the rebalance.
+     */
+    @WriteOperation
+    public RebalanceSummary rebalance() {
+        return shardRebalancer.rebalance();
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.severentertainment.snippetmanager.shard;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Moves buckets between shards until every shard owns the same number of buckets, give or take one. Run after
+ * appending a shard to {@code snippetmanager.sharding.urls}; the application keeps serving while buckets move.
+ * <p>
+ * A bucket is moved by copying its snippets and links to the new shard, assigning the bucket to it in the catalog,
+ * and then deleting the rows from the old shard. Writes to the bucket wait while it moves. If the application stops
+ * half-way through a move, the rows left on the shard that does not own the bucket are removed by the next rebalance.
+ */
+@Component
+@ConditionalOnProperty(name = "snippetmanager.storage.engine", havingValue = "sharded")
+public class ShardRebalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private final ShardSet shardSet;
+
+    @Autowired
+    public ShardRebalancer(ShardSet shardSet) {
+        this.shardSet = shardSet;
+    }
+
+    /**
+     * Lists the buckets and snippets held by each shard.
+     *
+     * @return One status per shard, in shard order.
+     */
+    public List<ShardStatus> status() {
+        int[] buckets = shardSet.bucketCounts();
+        List<Long> snippets = shardSet.scatter(shard -> shard.jdbcTemplate().queryForObject("select count(*) from snippet", Long.class));
+
+        List<ShardStatus> status = new ArrayList<>();
+        for (ShardSet.Shard shard : shardSet.shards()) {
+            status.add(new ShardStatus(shard.name(), buckets[shard.index()], snippets.get(shard.index())));
+        }
+        return status;
+    }
+
+    /**
+     * Removes rows left over by an interrupted move, then moves buckets from the shards owning more than their share
+     * to those owning less. Only one rebalance runs at a time.
+     *
+     * @return A {@link RebalanceSummary} of the rebalance.
+     */
+    public synchronized RebalanceSummary rebalance() {
+        long start = System.currentTimeMillis();
+        long orphansRemoved = removeOrphans();
+
+        List<ShardSet.Shard> shards = shardSet.shards();
+        int[] counts = shardSet.bucketCounts();
+        int[] targets = new int[shards.size()];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = ShardSet.BUCKETS / targets.length + (i < ShardSet.BUCKETS % targets.length ? 1 : 0);
+        }
+
+        // The buckets each shard gives away, starting with the highest
+        Deque<int[]> excess = new ArrayDeque<>(); // {bucket, shard}
+        for (int bucket = ShardSet.BUCKETS - 1; bucket >= 0; bucket--) {
+            int owner = shardSet.ownerOf(bucket).index();
+            if (counts[owner] > targets[owner]) {
+                excess.add(new int[] {bucket, owner});
+                counts[owner]--;
+            }
+        }
+
+        int bucketsMoved = 0;
+        long snippetsMoved = 0;
+        for (int shard = 0; shard < shards.size(); shard++) {
+            while (counts[shard] < targets[shard] && !excess.isEmpty()) {
+                int[] move = excess.poll();
+                snippetsMoved += moveBucket(move[0], shards.get(move[1]), shards.get(shard));
+                bucketsMoved++;
+                counts[shard]++;
+            }
+        }
+
+        RebalanceSummary summary = new RebalanceSummary(bucketsMoved, snippetsMoved, orphansRemoved, System.currentTimeMillis() - start);
+        log.info("Rebalanced shards: {}", summary);
+        return summary;
+    }
+
+    private long moveBucket(int bucket, ShardSet.Shard source, ShardSet.Shard target) {
+        Lock bucketLock = shardSet.bucketWriteLock(bucket);
+        bucketLock.lock();
+        try {
+            JdbcTemplate from = source.jdbcTemplate();
+            List<Object[]> snippets = from.query(
+                    "select id, bucket, title, content, creation_date, last_modified_date from snippet where bucket = ?",
+                    (rs, rowNum) -> new Object[] {rs.getLong(1), rs.getInt(2), rs.getString(3), rs.getString(4),
+                            rs.getObject(5), rs.getObject(6)},
+                    bucket);
+            List<Object[]> links = from.query(
+                    "select st.snippet_id, st.tag_id from snippet_tag st join snippet s on s.id = st.snippet_id where s.bucket = ?",
+                    (rs, rowNum) -> new Object[] {rs.getLong(1), rs.getLong(2)},
+                    bucket);
+
+            target.transactionTemplate().executeWithoutResult(status -> {
+                deleteBucket(target.jdbcTemplate(), bucket);
+                target.jdbcTemplate().batchUpdate(
+                        "insert into snippet (id, bucket, title, content, creation_date, last_modified_date) values (?, ?, ?, ?, ?, ?)", snippets);
+                target.jdbcTemplate().batchUpdate("insert into snippet_tag (snippet_id, tag_id) values (?, ?)", links);
+            });
+            shardSet.assign(bucket, target.index());
+
+            // Queries across all shards must see the rows on the target before they disappear from the source
+            Lock scatterLock = shardSet.scatterWriteLock();
+            scatterLock.lock();
+            try {
+                source.transactionTemplate().executeWithoutResult(status -> deleteBucket(from, bucket));
+            } finally {
+                scatterLock.unlock();
+            }
+            return snippets.size();
+        } finally {
+            bucketLock.unlock();
+        }
+    }
+
+    private long removeOrphans() {
+        long removed = 0;
+        for (ShardSet.Shard shard : shardSet.shards()) {
+            List<Integer> foreign = new ArrayList<>();
+            for (int bucket = 0; bucket < ShardSet.BUCKETS; bucket++) {
+                if (shardSet.ownerOf(bucket).index() != shard.index()) {
+                    foreign.add(bucket);
+                }
+            }
+            if (foreign.isEmpty()) {
+                continue;
+            }
+
+            Map<String, Object> params = Map.of("buckets", foreign);
+            removed += shard.transactionTemplate().execute(status -> {
+                shard.namedJdbcTemplate().update(
+                        "delete from snippet_tag where snippet_id in (select id from snippet where bucket in (:buckets))", params);
+                return shard.namedJdbcTemplate().update("delete from snippet where bucket in (:buckets)", params);
+            });
+        }
+        return removed;
+    }
+
+    private static void deleteBucket(JdbcTemplate jdbcTemplate, int bucket) {
+        jdbcTemplate.update("delete from snippet_tag where snippet_id in (select id from snippet where bucket = ?)", bucket);
+        jdbcTemplate.update("delete from snippet where bucket = ?", bucket);
+    }
+
+}
@@ -0,0 +1,250 @@
+package com.severentertainment.snippetmanager.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * The embedded databases that snippets are partitioned across in sharded mode.
+ * <p>
+ * A snippet ID hashes to one of {@link #BUCKETS} buckets, and each bucket is owned by one shard. The bucket map and
+ * the snippet ID sequence live in a catalog on the first shard. Adding a shard leaves the map as it is; the
+ * {@link ShardRebalancer} then moves buckets to the new shard one at a time, while the application keeps serving.
+ * <p>
+ * Writes to a snippet hold the read lock of its bucket, which a bucket move holds exclusively. Queries across all
+ * shards hold the scatter lock, which a move only holds exclusively while it deletes the moved rows from their old
+ * shard, so such queries may see a moving snippet twice, but never miss it.
+ */
+public class ShardSet implements DisposableBean {
+
+    public static final int BUCKETS = 1024;
+
+    private final List<Shard> shards = new ArrayList<>();
+    private final List<HikariDataSource> dataSources;
+    private final ReentrantReadWriteLock[] bucketLocks = new ReentrantReadWriteLock[BUCKETS];
+    private final ReentrantReadWriteLock scatterLock = new ReentrantReadWriteLock();
+    private final ExecutorService scatterExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private volatile int[] bucketOwners; // Replaced, never modified, when a bucket moves
+
+    /**
+     * Creates the schema on every shard that does not have it yet, and loads or creates the bucket map.
+     *
+     * @param dataSources The shard pools; the first one holds the catalog.
+     * @throws IllegalStateException If the bucket map refers to more shards than are configured.
+     */
+    public ShardSet(List<HikariDataSource> dataSources) {
+        if (dataSources.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+
+        this.dataSources = List.copyOf(dataSources);
+        ResourceDatabasePopulator schema = new ResourceDatabasePopulator(new ClassPathResource("db/shard/schema.sql"));
+        for (int i = 0; i < dataSources.size(); i++) {
+            schema.execute(dataSources.get(i));
+            shards.add(new Shard(i, dataSources.get(i)));
+        }
+        for (int i = 0; i < BUCKETS; i++) {
+            bucketLocks[i] = new ReentrantReadWriteLock();
+        }
+
+        this.bucketOwners = loadBucketOwners();
+    }
+
+    /**
+     * Returns the bucket of a snippet ID. Consecutive IDs are spread over all buckets.
+     *
+     * @param id The snippet ID.
+     * @return The bucket, between 0 and {@link #BUCKETS} - 1.
+     */
+    public static int bucketOf(long id) {
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 54); // Fibonacci hashing; the top 10 bits select one of 1024 buckets
+    }
+
+    public List<Shard> shards() {
+        return shards;
+    }
+
+    /**
+     * Returns the shard holding the catalog.
+     *
+     * @return The first shard.
+     */
+    public Shard catalog() {
+        return shards.get(0);
+    }
+
+    /**
+     * Returns the shard that currently owns a bucket.
+     *
+     * @param bucket The bucket.
+     * @return The owning shard.
+     */
+    public Shard ownerOf(int bucket) {
+        return shards.get(bucketOwners[bucket]);
+    }
+
+    /**
+     * Returns the number of buckets owned by each shard.
+     *
+     * @return The bucket counts, indexed by shard.
+     */
+    public int[] bucketCounts() {
+        int[] counts = new int[shards.size()];
+        for (int owner : bucketOwners) {
+            counts[owner]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Allocates a snippet ID that is unique across all shards.
+     *
+     * @return The new ID.
+     */
+    public long nextId() {
+        return catalog().jdbcTemplate().queryForObject("select next value for snippet_id_seq", Long.class);
+    }
+
+    /**
+     * Runs an action against the shard owning a snippet, holding the read lock of its bucket.
+     *
+     * @param id The snippet ID.
+     * @param action The action to run.
+     * @param <T> The type of the result.
+     * @return The result of the action.
+     */
+    public <T> T onShardOf(long id, Function<Shard, T> action) {
+        int bucket = bucketOf(id);
+        Lock lock = bucketLocks[bucket].readLock();
+        lock.lock();
+        try {
+            return action.apply(ownerOf(bucket));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs a query on all shards in parallel, each on a virtual thread of its own.
+     *
+     * @param query The query to run on each shard.
+     * @param <T> The type of the result of each shard.
+     * @return The results, in shard order.
+     */
+    public <T> List<T> scatter(Function<Shard, T> query) {
+        Lock lock = scatterLock.readLock();
+        lock.lock();
+        try {
+            List<Future<T>> futures = new ArrayList<>(shards.size());
+            for (Shard shard : shards) {
+                Callable<T> task = () -> query.apply(shard);
+                futures.add(scatterExecutor.submit(task));
+            }
+
+            List<T> results = new ArrayList<>(shards.size());
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Shard query failed", e.getCause());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scatterExecutor.shutdown();
+        dataSources.forEach(HikariDataSource::close);
+    }
+
+    Lock bucketWriteLock(int bucket) {
+        return bucketLocks[bucket].writeLock();
+    }
+
+    Lock scatterWriteLock() {
+        return scatterLock.writeLock();
+    }
+
+    // Called with the bucket's write lock held
+    void assign(int bucket, int shard) {
+        catalog().jdbcTemplate().update("update shard_bucket set shard = ? where bucket = ?", shard, bucket);
+
+        int[] owners = Arrays.copyOf(bucketOwners, BUCKETS);
+        owners[bucket] = shard;
+        bucketOwners = owners;
+    }
+
+    private int[] loadBucketOwners() {
+        JdbcTemplate catalog = catalog().jdbcTemplate();
+        int[] owners = new int[BUCKETS];
+        int[] loaded = {0};
+        catalog.query("select bucket, shard from shard_bucket", (RowCallbackHandler) rs -> {
+            owners[rs.getInt(1)] = rs.getInt(2);
+            loaded[0]++;
+        });
+
+        if (loaded[0] == 0) {
+            // A new shard set: spread the buckets evenly
+            List<Object[]> rows = new ArrayList<>(BUCKETS);
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                owners[bucket] = bucket % shards.size();
+                rows.add(new Object[] {bucket, owners[bucket]});
+            }
+            catalog.batchUpdate("insert into shard_bucket (bucket, shard) values (?, ?)", rows);
+        }
+
+        for (int owner : owners) {
+            if (owner >= shards.size()) {
+                throw new IllegalStateException("Buckets are assigned to shard " + owner + ", but only "
+                        + shards.size() + " shards are configured; shards can be added, not removed");
+            }
+        }
+        return owners;
+    }
+
+    /**
+     * One shard database.
+     *
+     * @param index The position of the shard in the configuration.
+     * @param name The pool name of the shard.
+     * @param jdbcTemplate A template on the shard.
+     * @param namedJdbcTemplate A named-parameter template on the shard.
+     * @param transactionTemplate A template for transactions on the shard.
+     */
+    public record Shard(int index, String name, JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                        TransactionTemplate transactionTemplate) {
+
+        Shard(int index, HikariDataSource dataSource) {
+            this(index, dataSource.getPoolName(), new JdbcTemplate(dataSource), new NamedParameterJdbcTemplate(dataSource),
+                    new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        }
+    }
+
+}
@@ -0,0 +1,11 @@
+package com.severentertainment.snippetmanager.shard;
+
+/**
+ * The share of the data held by one shard.
+ *
+ * @param name The pool name of the shard.
+ * @param buckets The number of buckets the shard owns.
+ * @param snippets The number of snippets stored on the shard.
+ */
+public record ShardStatus(String name, int buckets, long snippets) {
+}
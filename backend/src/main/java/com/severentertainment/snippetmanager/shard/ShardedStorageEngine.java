@@ -0,0 +1,392 @@
+package com.severentertainment.snippetmanager.shard;
+
+import com.severentertainment.snippetmanager.dto.SnippetResponseDto;
+import com.severentertainment.snippetmanager.dto.SnippetSummaryDto;
+import com.severentertainment.snippetmanager.dto.TagResponseDto;
+import com.severentertainment.snippetmanager.domain.Tag;
+import com.severentertainment.snippetmanager.service.SnippetDataChangedEvent;
+import com.severentertainment.snippetmanager.service.TagService;
+import com.severentertainment.snippetmanager.store.StorageEngine;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Stores snippets and their tag links across the shards of a {@link ShardSet}. Each snippet, with its links, lives
+ * on the shard owning its bucket; reads of many snippets query all shards in parallel and merge the results by ID.
+ * <p>
+ * Tags stay in the main database and are managed by the {@link TagService} as before; every shard keeps a copy of all
+ * tags, so that links and tag filters are local to a shard. The copies are updated after every committed tag change.
+ * <p>
+ * Writes publish the same {@link SnippetDataChangedEvent}s as the single-database services; each write commits on its
+ * shard before its event is published. Like every engine other than JPA, this one is experimental (see
+ * {@link StorageEngine}).
+ */
+@Component
+@ConditionalOnProperty(name = "snippetmanager.storage.engine", havingValue = "sharded")
+public class ShardedStorageEngine implements StorageEngine, SmartInitializingSingleton {
+
+    private static final String SUMMARY_COLUMNS = "s.id, s.bucket, s.title, s.creation_date, s.last_modified_date";
+
+    private final ShardSet shardSet;
+    private final NamedParameterJdbcTemplate mainJdbcTemplate;
+    private final TagService tagService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public ShardedStorageEngine(ShardSet shardSet, JdbcTemplate mainJdbcTemplate, TagService tagService,
+                                ApplicationEventPublisher eventPublisher) {
+        this.shardSet = shardSet;
+        this.mainJdbcTemplate = new NamedParameterJdbcTemplate(mainJdbcTemplate);
+        this.tagService = tagService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Copies all tags of the main database to every shard before the application serves requests.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        copyAllTags();
+    }
+
+    /**
+     * Creates a snippet on the shard owning its bucket.
+     *
+     * @param title The title of the snippet.
+     * @param content The content of the snippet.
+     * @return The created snippet.
+     */
+    @Override
+    public SnippetResponseDto createSnippet(String title, String content) {
+        long id = shardSet.nextId();
+        Instant now = Instant.now();
+        shardSet.onShardOf(id, shard -> shard.jdbcTemplate().update(
+                "insert into snippet (id, bucket, title, content, creation_date, last_modified_date) values (?, ?, ?, ?, ?, ?)",
+                id, ShardSet.bucketOf(id), title, content, now, now));
+        eventPublisher.publishEvent(SnippetDataChangedEvent.snippets(SnippetDataChangedEvent.Type.SNIPPETS_CREATED, Set.of(id)));
+        return new SnippetResponseDto(id, title, content, now, now, new HashSet<>());
+    }
+
+    /**
+     * Finds a snippet with its content and tags.
+     *
+     * @param id The ID of the snippet.
+     * @return An {@link Optional} containing the snippet if found, or an empty {@link Optional} if not.
+     */
+    @Override
+    public Optional<SnippetResponseDto> getSnippetById(long id) {
+        return shardSet.onShardOf(id, shard -> findOnShard(shard, id));
+    }
+
+    /**
+     * Replaces the title and content of a snippet.
+     *
+     * @param id The ID of the snippet.
+     * @param title The new title.
+     * @param content The new content.
+     * @return An {@link Optional} containing the updated snippet if found, or an empty {@link Optional} if not.
+     */
+    @Override
+    public Optional<SnippetResponseDto> updateSnippet(long id, String title, String content) {
+        Optional<SnippetResponseDto> updated = shardSet.onShardOf(id, shard -> {
+            int rows = shard.jdbcTemplate().update(
+                    "update snippet set title = ?, content = ?, last_modified_date = ? where id = ?", title, content, Instant.now(), id);
+            return rows == 0 ? Optional.empty() : findOnShard(shard, id);
+        });
+        updated.ifPresent(snippet -> eventPublisher.publishEvent(
+                SnippetDataChangedEvent.snippets(SnippetDataChangedEvent.Type.SNIPPETS_UPDATED, Set.of(id))));
+        return updated;
+    }
+
+    /**
+     * Deletes a snippet and its tag links.
+     *
+     * @param id The ID of the snippet.
+     * @return {@code true} if the snippet was deleted, {@code false} if it does not exist.
+     */
+    @Override
+    public boolean deleteSnippet(long id) {
+        boolean deleted = shardSet.onShardOf(id, shard -> shard.transactionTemplate().execute(status -> {
+            shard.jdbcTemplate().update("delete from snippet_tag where snippet_id = ?", id);
+            return shard.jdbcTemplate().update("delete from snippet where id = ?", id) > 0;
+        }));
+        if (deleted) {
+            eventPublisher.publishEvent(SnippetDataChangedEvent.snippets(SnippetDataChangedEvent.Type.SNIPPETS_DELETED, Set.of(id)));
+        }
+        return deleted;
+    }
+
+    /**
+     * Links a tag to a snippet.
+     *
+     * @param snippetId The ID of the snippet.
+     * @param tagId The ID of the tag.
+     * @return An {@link Optional} containing the updated snippet, or an empty {@link Optional} if the snippet or tag does not exist.
+     */
+    @Override
+    public Optional<SnippetResponseDto> addTagToSnippet(long snippetId, long tagId) {
+        return changeLink(snippetId, tagId, SnippetDataChangedEvent.Type.TAGS_LINKED,
+                "insert into snippet_tag (snippet_id, tag_id) select ?1, ?2 where not exists "
+                        + "(select 1 from snippet_tag where snippet_id = ?1 and tag_id = ?2)");
+    }
+
+    /**
+     * Removes a tag link from a snippet.
+     *
+     * @param snippetId The ID of the snippet.
+     * @param tagId The ID of the tag.
+     * @return An {@link Optional} containing the updated snippet, or an empty {@link Optional} if the snippet or tag does not exist.
+     */
+    @Override
+    public Optional<SnippetResponseDto> removeTagFromSnippet(long snippetId, long tagId) {
+        return changeLink(snippetId, tagId, SnippetDataChangedEvent.Type.TAGS_UNLINKED,
+                "delete from snippet_tag where snippet_id = ? and tag_id = ?");
+    }
+
+    /**
+     * Retrieves the tags of a snippet.
+     *
+     * @param snippetId The ID of the snippet.
+     * @return An {@link Optional} containing the tags if the snippet exists, or an empty {@link Optional} if not.
+     */
+    @Override
+    public Optional<Set<TagResponseDto>> getTagsForSnippet(long snippetId) {
+        return shardSet.onShardOf(snippetId, shard -> findOnShard(shard, snippetId).map(SnippetResponseDto::getTags));
+    }
+
+    /**
+     * Retrieves all snippets, with their content, from all shards.
+     *
+     * @return The snippets ordered by ID.
+     */
+    @Override
+    public List<SnippetResponseDto> getAllSnippets() {
+        List<List<ShardRow<SnippetResponseDto>>> results = shardSet.scatter(shard -> {
+            Map<Long, Set<TagResponseDto>> tags = loadTags(shard, "", Map.of());
+            return shard.jdbcTemplate().query(
+                    "select s.id, s.bucket, s.title, s.content, s.creation_date, s.last_modified_date from snippet s",
+                    (rs, rowNum) -> new ShardRow<>(shard.index(), rs.getInt(2), new SnippetResponseDto(rs.getLong(1),
+                            rs.getString(3), rs.getString(4), rs.getObject(5, Instant.class), rs.getObject(6, Instant.class),
+                            tags.getOrDefault(rs.getLong(1), new HashSet<>()))));
+        });
+        return merge(results, SnippetResponseDto::getId);
+    }
+
+    /**
+     * Retrieves the title, timestamps and tags of snippets from all shards, without their content.
+     *
+     * @param tagId If not null, only the snippets linked to this tag are returned.
+     * @param query If not blank, only the snippets whose title contains this text, ignoring case, are returned.
+     * @return The summaries ordered by ID.
+     */
+    @Override
+    public List<SnippetSummaryDto> getSnippetSummaries(Long tagId, String query) {
+        List<String> conditions = new ArrayList<>();
+        Map<String, Object> params = new HashMap<>();
+        if (tagId != null) {
+            conditions.add("s.id in (select snippet_id from snippet_tag where tag_id = :tagId)");
+            params.put("tagId", tagId);
+        }
+        if (query != null && !query.isBlank()) {
+            conditions.add("lower(s.title) like :query escape '\\'");
+            params.put("query", "%" + escapeLike(query.strip().toLowerCase(Locale.ROOT)) + "%");
+        }
+        String filter = conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions);
+
+        List<List<ShardRow<SnippetSummaryDto>>> results = shardSet.scatter(shard -> {
+            Map<Long, Set<TagResponseDto>> tags = loadTags(shard, filter, params);
+            return shard.namedJdbcTemplate().query("select " + SUMMARY_COLUMNS + " from snippet s" + filter, params,
+                    (rs, rowNum) -> new ShardRow<>(shard.index(), rs.getInt(2), new SnippetSummaryDto(rs.getLong(1),
+                            rs.getString(3), rs.getObject(4, Instant.class), rs.getObject(5, Instant.class),
+                            tags.getOrDefault(rs.getLong(1), new HashSet<>()))));
+        });
+        return merge(results, SnippetSummaryDto::getId);
+    }
+
+    @Override
+    public TagResponseDto createOrGetTag(String name) {
+        Tag tag = new Tag();
+        tag.setName(name);
+        return tagService.createOrGetTag(tag);
+    }
+
+    @Override
+    public Map<String, Long> resolveTagIds(Collection<String> names) {
+        return tagService.resolveTagIds(names);
+    }
+
+    @Override
+    public List<TagResponseDto> getAllTags() {
+        return tagService.getAllTags();
+    }
+
+    @Override
+    public Optional<TagResponseDto> getTagById(long id) {
+        return tagService.getTagById(id);
+    }
+
+    @Override
+    public Optional<TagResponseDto> updateTag(long id, String name) {
+        Tag tag = new Tag();
+        tag.setName(name);
+        return tagService.updateTag(id, tag);
+    }
+
+    @Override
+    public boolean deleteTag(long id) {
+        return tagService.deleteTag(id);
+    }
+
+    /**
+     * Copies committed tag changes to every shard.
+     *
+     * @param event The change that was committed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDataChanged(SnippetDataChangedEvent event) {
+        switch (event.type()) {
+            case TAGS_CREATED, TAGS_UPDATED -> copyTags(event.tagIds());
+            case TAGS_DELETED -> {
+                Map<String, Object> ids = Map.of("ids", event.tagIds());
+                for (ShardSet.Shard shard : shardSet.shards()) {
+                    shard.transactionTemplate().executeWithoutResult(status -> {
+                        shard.namedJdbcTemplate().update("delete from snippet_tag where tag_id in (:ids)", ids);
+                        shard.namedJdbcTemplate().update("delete from tag where id in (:ids)", ids);
+                    });
+                }
+            }
+            case RESET -> copyAllTags();
+            default -> {
+                // Snippet changes in the main database are not used in sharded mode
+            }
+        }
+    }
+
+    private void copyTags(Collection<Long> tagIds) {
+        if (tagIds.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> tags = mainJdbcTemplate.query("select id, name from tag where id in (:ids)", Map.of("ids", tagIds),
+                (rs, rowNum) -> new Object[] {rs.getLong(1), rs.getString(2)});
+        for (ShardSet.Shard shard : shardSet.shards()) {
+            shard.jdbcTemplate().batchUpdate("merge into tag (id, name) key (id) values (?, ?)", tags);
+        }
+    }
+
+    private void copyAllTags() {
+        List<Object[]> tags = mainJdbcTemplate.getJdbcTemplate().query("select id, name from tag",
+                (rs, rowNum) -> new Object[] {rs.getLong(1), rs.getString(2)});
+        for (ShardSet.Shard shard : shardSet.shards()) {
+            shard.transactionTemplate().executeWithoutResult(status -> {
+                JdbcTemplate jdbc = shard.jdbcTemplate();
+                jdbc.batchUpdate("merge into tag (id, name) key (id) values (?, ?)", tags);
+
+                // Tags deleted while the shards were not being updated
+                List<Long> stale = jdbc.queryForList("select id from tag", Long.class);
+                stale.removeAll(tags.stream().map(tag -> (Long) tag[0]).toList());
+                if (!stale.isEmpty()) {
+                    shard.namedJdbcTemplate().update("delete from snippet_tag where tag_id in (:ids)", Map.of("ids", stale));
+                    shard.namedJdbcTemplate().update("delete from tag where id in (:ids)", Map.of("ids", stale));
+                }
+            });
+        }
+    }
+
+    private Optional<SnippetResponseDto> changeLink(long snippetId, long tagId, SnippetDataChangedEvent.Type type, String sql) {
+        boolean[] changed = {false};
+        Optional<SnippetResponseDto> snippet = shardSet.onShardOf(snippetId, shard -> shard.transactionTemplate().execute(status -> {
+            JdbcTemplate jdbc = shard.jdbcTemplate();
+            boolean exists = Boolean.TRUE.equals(jdbc.queryForObject(
+                    "select exists (select 1 from snippet where id = ?) and exists (select 1 from tag where id = ?)",
+                    Boolean.class, snippetId, tagId));
+            if (!exists) {
+                return Optional.empty();
+            }
+
+            if (jdbc.update(sql, snippetId, tagId) > 0) {
+                jdbc.update("update snippet set last_modified_date = ? where id = ?", Instant.now(), snippetId);
+                changed[0] = true;
+            }
+            return findOnShard(shard, snippetId);
+        }));
+
+        if (changed[0]) {
+            eventPublisher.publishEvent(SnippetDataChangedEvent.of(type, Set.of(snippetId), Set.of(tagId)));
+        }
+        return snippet;
+    }
+
+    private static Optional<SnippetResponseDto> findOnShard(ShardSet.Shard shard, long id) {
+        List<SnippetResponseDto> snippets = shard.jdbcTemplate().query(
+                "select id, title, content, creation_date, last_modified_date from snippet where id = ?",
+                (rs, rowNum) -> new SnippetResponseDto(rs.getLong(1), rs.getString(2), rs.getString(3),
+                        rs.getObject(4, Instant.class), rs.getObject(5, Instant.class), new HashSet<>()),
+                id);
+        if (snippets.isEmpty()) {
+            return Optional.empty();
+        }
+
+        SnippetResponseDto snippet = snippets.get(0);
+        shard.jdbcTemplate().query(
+                "select t.id, t.name from snippet_tag st join tag t on t.id = st.tag_id where st.snippet_id = ?",
+                (RowCallbackHandler) rs -> snippet.getTags().add(new TagResponseDto(rs.getLong(1), rs.getString(2))),
+                id);
+        return Optional.of(snippet);
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    // The tags of the snippets matching the filter on one shard, by snippet ID
+    private static Map<Long, Set<TagResponseDto>> loadTags(ShardSet.Shard shard, String filter, Map<String, Object> params) {
+        Map<Long, Set<TagResponseDto>> tags = new HashMap<>();
+        shard.namedJdbcTemplate().query(
+                "select st.snippet_id, t.id, t.name from snippet_tag st join tag t on t.id = st.tag_id"
+                        + (filter.isEmpty() ? "" : " where st.snippet_id in (select s.id from snippet s" + filter + ")"),
+                params,
+                (RowCallbackHandler) rs -> tags.computeIfAbsent(rs.getLong(1), id -> new HashSet<>())
+                        .add(new TagResponseDto(rs.getLong(2), rs.getString(3))));
+        return tags;
+    }
+
+    // A snippet being moved by the rebalancer can be read from both shards; the copy on its bucket's owner wins
+    private <T> List<T> merge(List<List<ShardRow<T>>> results, Function<T, Long> idOf) {
+        TreeMap<Long, ShardRow<T>> merged = new TreeMap<>();
+        for (List<ShardRow<T>> rows : results) {
+            for (ShardRow<T> row : rows) {
+                merged.merge(idOf.apply(row.value()), row, (existing, duplicate) ->
+                        shardSet.ownerOf(duplicate.bucket()).index() == duplicate.shard() ? duplicate : existing);
+            }
+        }
+
+        List<T> values = new ArrayList<>(merged.size());
+        merged.values().forEach(row -> values.add(row.value()));
+        return values;
+    }
+
+    private record ShardRow<T>(int shard, int bucket, T value) {
+    }
+
+}
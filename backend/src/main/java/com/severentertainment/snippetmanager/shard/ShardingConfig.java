@@ -0,0 +1,47 @@
+package com.severentertainment.snippetmanager.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores snippets and their tag links in several embedded databases instead of the main database (see
+ * {@link ShardSet}). Enabled with {@code snippetmanager.storage.engine=sharded}; tags and everything else stay in
+ * the main database.
+ */
+@Configuration
+@ConditionalOnProperty(name = "snippetmanager.storage.engine", havingValue = "sharded")
+public class ShardingConfig {
+
+    /**
+     * Creates one pool per shard URL, with the credentials of the main database.
+     *
+     * @param properties The data source properties.
+     * @param urls The JDBC URLs of the shards, in a fixed order; new shards are appended.
+     * @param maximumPoolSize The maximum number of connections per shard.
+     * @return The shard set.
+     */
+    @Bean
+    public ShardSet shardSet(DataSourceProperties properties,
+                             @Value("${snippetmanager.sharding.urls}") List<String> urls,
+                             @Value("${snippetmanager.sharding.maximum-pool-size:16}") int maximumPoolSize) {
+        List<HikariDataSource> dataSources = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("shard-" + (i + 1));
+            dataSource.setJdbcUrl(urls.get(i));
+            dataSource.setUsername(properties.determineUsername());
+            dataSource.setPassword(properties.determinePassword());
+            dataSource.setMaximumPoolSize(maximumPoolSize);
+            dataSources.add(dataSource);
+        }
+        return new ShardSet(dataSources);
+    }
+
+}
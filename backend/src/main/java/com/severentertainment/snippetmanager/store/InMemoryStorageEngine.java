@@ -0,0 +1,291 @@
+package com.severentertainment.snippetmanager.store;
+
+import com.severentertainment.snippetmanager.dto.SnippetResponseDto;
+import com.severentertainment.snippetmanager.dto.SnippetSummaryDto;
+import com.severentertainment.snippetmanager.dto.TagResponseDto;
+import com.severentertainment.snippetmanager.service.SnippetDataChangedEvent;
+import com.severentertainment.snippetmanager.service.TagService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * A storage engine that keeps everything in memory, for deployments that do not need SQL or durability, such as
+ * tests and demos. Data is lost on restart.
+ * <p>
+ * Snippets are immutable records in a map sorted by ID, so lists come out in ID order without sorting, and the
+ * snippets of a tag are indexed for the tag filter. Reads never block; writes are serialized so that the indexes
+ * change together.
+ */
+@Component
+@ConditionalOnProperty(name = "snippetmanager.storage.engine", havingValue = "memory")
+public class InMemoryStorageEngine implements StorageEngine {
+
+    private final ConcurrentSkipListMap<Long, StoredSnippet> snippets = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Long, String> tagNames = new ConcurrentSkipListMap<>();
+    private final Map<String, Long> tagIdsByName = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> snippetIdsByTag = new ConcurrentHashMap<>(); // Sorted sets of snippet IDs
+    private final AtomicLong snippetSequence = new AtomicLong();
+    private final AtomicLong tagSequence = new AtomicLong();
+    private final Object writeLock = new Object();
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public InMemoryStorageEngine(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public SnippetResponseDto createSnippet(String title, String content) {
+        StoredSnippet snippet;
+        synchronized (writeLock) {
+            Instant now = Instant.now();
+            snippet = new StoredSnippet(snippetSequence.incrementAndGet(), title, content, now, now, Set.of());
+            snippets.put(snippet.id(), snippet);
+        }
+
+        eventPublisher.publishEvent(SnippetDataChangedEvent.snippets(SnippetDataChangedEvent.Type.SNIPPETS_CREATED, Set.of(snippet.id())));
+        return toResponseDto(snippet);
+    }
+
+    @Override
+    public List<SnippetResponseDto> getAllSnippets() {
+        return snippets.values().stream().map(this::toResponseDto).toList();
+    }
+
+    @Override
+    public List<SnippetSummaryDto> getSnippetSummaries(Long tagId, String query) {
+        Stream<StoredSnippet> matches = tagId == null
+                ? snippets.values().stream()
+                : snippetIdsByTag.getOrDefault(tagId, Set.of()).stream().map(snippets::get).filter(snippet -> snippet != null);
+
+        if (query != null && !query.isBlank()) {
+            String text = query.strip().toLowerCase(Locale.ROOT);
+            matches = matches.filter(snippet -> snippet.title() != null && snippet.title().toLowerCase(Locale.ROOT).contains(text));
+        }
+
+        return matches.map(snippet -> new SnippetSummaryDto(snippet.id(), snippet.title(), snippet.creationDate(),
+                snippet.lastModifiedDate(), tagDtos(snippet.tagIds()))).toList();
+    }
+
+    @Override
+    public Optional<SnippetResponseDto> getSnippetById(long id) {
+        return Optional.ofNullable(snippets.get(id)).map(this::toResponseDto);
+    }
+
+    @Override
+    public Optional<SnippetResponseDto> updateSnippet(long id, String title, String content) {
+        StoredSnippet updated;
+        synchronized (writeLock) {
+            StoredSnippet existing = snippets.get(id);
+            if (existing == null) {
+                return Optional.empty();
+            }
+
+            updated = new StoredSnippet(id, title, content, existing.creationDate(), Instant.now(), existing.tagIds());
+            snippets.put(id, updated);
+        }
+
+        eventPublisher.publishEvent(SnippetDataChangedEvent.snippets(SnippetDataChangedEvent.Type.SNIPPETS_UPDATED, Set.of(id)));
+        return Optional.of(toResponseDto(updated));
+    }
+
+    @Override
+    public boolean deleteSnippet(long id) {
+        synchronized (writeLock) {
+            StoredSnippet removed = snippets.remove(id);
+            if (removed == null) {
+                return false;
+            }
+
+            removed.tagIds().forEach(tagId -> snippetIdsByTag.get(tagId).remove(id));
+        }
+
+        eventPublisher.publishEvent(SnippetDataChangedEvent.snippets(SnippetDataChangedEvent.Type.SNIPPETS_DELETED, Set.of(id)));
+        return true;
+    }
+
+    @Override
+    public Optional<SnippetResponseDto> addTagToSnippet(long snippetId, long tagId) {
+        return changeLink(snippetId, tagId, true);
+    }
+
+    @Override
+    public Optional<SnippetResponseDto> removeTagFromSnippet(long snippetId, long tagId) {
+        return changeLink(snippetId, tagId, false);
+    }
+
+    @Override
+    public Optional<Set<TagResponseDto>> getTagsForSnippet(long snippetId) {
+        return Optional.ofNullable(snippets.get(snippetId)).map(snippet -> tagDtos(snippet.tagIds()));
+    }
+
+    @Override
+    public TagResponseDto createOrGetTag(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Tag name for create cannot be null or empty");
+        }
+
+        String normalizedName = TagService.normalizeName(name);
+        long id;
+        synchronized (writeLock) {
+            Long existingId = tagIdsByName.get(normalizedName);
+            if (existingId != null) {
+                return new TagResponseDto(existingId, normalizedName);
+            }
+
+            id = tagSequence.incrementAndGet();
+            snippetIdsByTag.put(id, new ConcurrentSkipListSet<>());
+            tagNames.put(id, normalizedName);
+            tagIdsByName.put(normalizedName, id);
+        }
+
+        eventPublisher.publishEvent(SnippetDataChangedEvent.tags(SnippetDataChangedEvent.Type.TAGS_CREATED, Set.of(id)));
+        return new TagResponseDto(id, normalizedName);
+    }
+
+    @Override
+    public List<TagResponseDto> getAllTags() {
+        return tagNames.entrySet().stream().map(tag -> new TagResponseDto(tag.getKey(), tag.getValue())).toList();
+    }
+
+    @Override
+    public Optional<TagResponseDto> getTagById(long id) {
+        return Optional.ofNullable(tagNames.get(id)).map(name -> new TagResponseDto(id, name));
+    }
+
+    @Override
+    public Optional<TagResponseDto> updateTag(long id, String name) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Tag name for update cannot be null or empty");
+        }
+
+        String normalizedName = TagService.normalizeName(name);
+        Set<Long> snippetIds;
+        synchronized (writeLock) {
+            String oldName = tagNames.get(id);
+            Long conflictingId = tagIdsByName.get(normalizedName);
+            if (oldName == null || (conflictingId != null && conflictingId != id)) {
+                return Optional.empty();
+            }
+
+            tagIdsByName.remove(oldName);
+            tagIdsByName.put(normalizedName, id);
+            tagNames.put(id, normalizedName);
+            snippetIds = Set.copyOf(snippetIdsByTag.get(id));
+            touch(snippetIds); // The snippets embed the tag name
+        }
+
+        eventPublisher.publishEvent(SnippetDataChangedEvent.of(SnippetDataChangedEvent.Type.TAGS_UPDATED, snippetIds, Set.of(id)));
+        return Optional.of(new TagResponseDto(id, normalizedName));
+    }
+
+    @Override
+    public boolean deleteTag(long id) {
+        synchronized (writeLock) {
+            String name = tagNames.remove(id);
+            if (name == null) {
+                return false;
+            }
+
+            tagIdsByName.remove(name);
+            for (Long snippetId : snippetIdsByTag.remove(id)) {
+                StoredSnippet snippet = snippets.get(snippetId);
+                snippets.put(snippetId, snippet.withTagIds(without(snippet.tagIds(), id), Instant.now()));
+            }
+        }
+
+        eventPublisher.publishEvent(SnippetDataChangedEvent.tags(SnippetDataChangedEvent.Type.TAGS_DELETED, Set.of(id)));
+        return true;
+    }
+
+    private Optional<SnippetResponseDto> changeLink(long snippetId, long tagId, boolean link) {
+        StoredSnippet snippet;
+        boolean changed;
+        synchronized (writeLock) {
+            snippet = snippets.get(snippetId);
+            if (snippet == null || !tagNames.containsKey(tagId)) {
+                return Optional.empty();
+            }
+
+            changed = snippet.tagIds().contains(tagId) != link;
+            if (changed) {
+                Set<Long> tagIds = link ? with(snippet.tagIds(), tagId) : without(snippet.tagIds(), tagId);
+                snippet = snippet.withTagIds(tagIds, Instant.now());
+                snippets.put(snippetId, snippet);
+                if (link) {
+                    snippetIdsByTag.get(tagId).add(snippetId);
+                } else {
+                    snippetIdsByTag.get(tagId).remove(snippetId);
+                }
+            }
+        }
+
+        if (changed) {
+            SnippetDataChangedEvent.Type type = link ? SnippetDataChangedEvent.Type.TAGS_LINKED : SnippetDataChangedEvent.Type.TAGS_UNLINKED;
+            eventPublisher.publishEvent(SnippetDataChangedEvent.of(type, Set.of(snippetId), Set.of(tagId)));
+        }
+        return Optional.of(toResponseDto(snippet));
+    }
+
+    // Called with the write lock held
+    private void touch(Set<Long> snippetIds) {
+        Instant now = Instant.now();
+        for (Long snippetId : snippetIds) {
+            StoredSnippet snippet = snippets.get(snippetId);
+            snippets.put(snippetId, snippet.withTagIds(snippet.tagIds(), now));
+        }
+    }
+
+    private SnippetResponseDto toResponseDto(StoredSnippet snippet) {
+        return new SnippetResponseDto(snippet.id(), snippet.title(), snippet.content(), snippet.creationDate(),
+                snippet.lastModifiedDate(), tagDtos(snippet.tagIds()));
+    }
+
+    // A tag deleted after the snippet was read is left out
+    private Set<TagResponseDto> tagDtos(Set<Long> tagIds) {
+        Set<TagResponseDto> tags = new HashSet<>();
+        for (Long tagId : tagIds) {
+            String name = tagNames.get(tagId);
+            if (name != null) {
+                tags.add(new TagResponseDto(tagId, name));
+            }
+        }
+        return tags;
+    }
+
+    private static Set<Long> with(Set<Long> tagIds, long tagId) {
+        Set<Long> copy = new HashSet<>(tagIds);
+        copy.add(tagId);
+        return Set.copyOf(copy);
+    }
+
+    private static Set<Long> without(Set<Long> tagIds, long tagId) {
+        Set<Long> copy = new HashSet<>(tagIds);
+        copy.remove(tagId);
+        return Set.copyOf(copy);
+    }
+
+    private record StoredSnippet(long id, String title, String content, Instant creationDate, Instant lastModifiedDate,
+                                 Set<Long> tagIds) {
+
+        StoredSnippet withTagIds(Set<Long> tagIds, Instant lastModifiedDate) {
+            return new StoredSnippet(id, title, content, creationDate, lastModifiedDate, tagIds);
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.severentertainment.snippetmanager.store;
+
+import com.severentertainment.snippetmanager.domain.Snippet;
+import com.severentertainment.snippetmanager.domain.Tag;
+import com.severentertainment.snippetmanager.dto.SnippetResponseDto;
+import com.severentertainment.snippetmanager.dto.SnippetSummaryDto;
+import com.severentertainment.snippetmanager.dto.TagResponseDto;
+import com.severentertainment.snippetmanager.service.SnippetService;
+import com.severentertainment.snippetmanager.service.TagService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The default storage engine: the main database, through {@link SnippetService} and {@link TagService}.
+ * The snippet and tag controllers use the services directly in this mode, for the JSON cache, streaming and
+ * read model that only this engine has; this adapter serves code written against {@link StorageEngine}.
+ */
+@Component
+@ConditionalOnProperty(name = "snippetmanager.storage.engine", havingValue = "jpa", matchIfMissing = true)
+public class JpaStorageEngine implements StorageEngine {
+
+    private final SnippetService snippetService;
+    private final TagService tagService;
+
+    @Autowired
+    public JpaStorageEngine(SnippetService snippetService, TagService tagService) {
+        this.snippetService = snippetService;
+        this.tagService = tagService;
+    }
+
+    @Override
+    public SnippetResponseDto createSnippet(String title, String content) {
+        return snippetService.createSnippet(snippet(title, content));
+    }
+
+    @Override
+    public SnippetResponseDto createSnippet(String title, String content, Collection<String> tagNames) {
+        return snippetService.createSnippet(snippet(title, content), tagNames);
+    }
+
+    @Override
+    public List<SnippetResponseDto> getAllSnippets() {
+        return snippetService.getAllSnippets().stream()
+                .sorted(Comparator.comparing(SnippetResponseDto::getId))
+                .toList();
+    }
+
+    @Override
+    public List<SnippetSummaryDto> getSnippetSummaries(Long tagId, String query) {
+        List<SnippetSummaryDto> summaries = snippetService.getSnippetSummaries();
+        if (tagId == null && (query == null || query.isBlank())) {
+            return summaries;
+        }
+
+        // The summaries carry their tags, so filtering them here saves a query per filter combination
+        String text = query != null ? query.strip().toLowerCase(Locale.ROOT) : "";
+        return summaries.stream()
+                .filter(summary -> tagId == null || summary.getTags().stream().anyMatch(tag -> tag.getId().equals(tagId)))
+                .filter(summary -> text.isEmpty() || (summary.getTitle() != null && summary.getTitle().toLowerCase(Locale.ROOT).contains(text)))
+                .toList();
+    }
+
+    @Override
+    public Optional<SnippetResponseDto> getSnippetById(long id) {
+        return snippetService.getSnippetById(id);
+    }
+
+    @Override
+    public Optional<SnippetResponseDto> updateSnippet(long id, String title, String content) {
+        return snippetService.updateSnippet(id, snippet(title, content));
+    }
+
+    @Override
+    public Optional<SnippetResponseDto> updateSnippet(long id, String title, String content, Collection<String> tagNames) {
+        return snippetService.updateSnippet(id, snippet(title, content), tagNames);
+    }
+
+    @Override
+    public boolean deleteSnippet(long id) {
+        return snippetService.deleteSnippet(id);
+    }
+
+    @Override
+    public Optional<SnippetResponseDto> addTagToSnippet(long snippetId, long tagId) {
+        return snippetService.addTagToSnippet(snippetId, tagId);
+    }
+
+    @Override
+    public Optional<SnippetResponseDto> removeTagFromSnippet(long snippetId, long tagId) {
+        return snippetService.removeTagFromSnippet(snippetId, tagId);
+    }
+
+    @Override
+    public Optional<Set<TagResponseDto>> getTagsForSnippet(long snippetId) {
+        return snippetService.getTagsForSnippet(snippetId);
+    }
+
+    @Override
+    public TagResponseDto createOrGetTag(String name) {
+        return tagService.createOrGetTag(tag(name));
+    }
+
+    @Override
+    public Map<String, Long> resolveTagIds(Collection<String> names) {
+        return tagService.resolveTagIds(names);
+    }
+
+    @Override
+    public List<TagResponseDto> getAllTags() {
+        return tagService.getAllTags();
+    }
+
+    @Override
+    public Optional<TagResponseDto> getTagById(long id) {
+        return tagService.getTagById(id);
+    }
+
+    @Override
+    public Optional<TagResponseDto> updateTag(long id, String name) {
+        return tagService.updateTag(id, tag(name));
+    }
+
+    @Override
+    public boolean deleteTag(long id) {
+        return tagService.deleteTag(id);
+    }
+
+    private static Snippet snippet(String title, String content) {
+        Snippet snippet = new Snippet();
+        snippet.setTitle(title);
+        snippet.setContent(content);
+        return snippet;
+    }
+
+    private static Tag tag(String name) {
+        Tag tag = new Tag();
+        tag.setName(name);
+        return tag;
+    }
+
+}
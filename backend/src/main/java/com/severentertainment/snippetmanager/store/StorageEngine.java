@@ -0,0 +1,219 @@
+package com.severentertainment.snippetmanager.store;
+
+import com.severentertainment.snippetmanager.dto.SnippetResponseDto;
+import com.severentertainment.snippetmanager.dto.SnippetSummaryDto;
+import com.severentertainment.snippetmanager.dto.TagResponseDto;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Where snippets, tags and their links are stored. One engine is active, selected with
+ * {@code snippetmanager.storage.engine}:
+ * <ul>
+ *     <li>{@code jpa} (default): the main database through Spring Data JPA, see {@link JpaStorageEngine}.</li>
+ *     <li>{@code memory}: plain Java collections, see {@link InMemoryStorageEngine}.</li>
+ *     <li>{@code sharded}: snippets spread over several databases, see
+ *     {@link com.severentertainment.snippetmanager.shard.ShardedStorageEngine}.</li>
+ *     <li>{@code log}: append-only segment files, see
+ *     {@link com.severentertainment.snippetmanager.store.log.LogStructuredStorageEngine}.</li>
+ * </ul>
+ * Every engine normalizes tag names like {@link com.severentertainment.snippetmanager.service.TagService} and
+ * publishes a {@link com.severentertainment.snippetmanager.service.SnippetDataChangedEvent} for every change.
+ * <p>
+ * The engines other than {@code jpa} are experimental. The services and the HTTP API are built on the main database,
+ * so they are only registered with the {@code jpa} engine; with another engine, this interface is the only way to
+ * the data, and the JSON cache, read model, uploads, archives, ingestion, snapshots, delta sync, change feed and tag
+ * suggestions are not available.
+ */
+public interface StorageEngine {
+
+    /**
+     * Creates a snippet.
+     *
+     * @param title The title of the snippet.
+     * @param content The content of the snippet.
+     * @return The created snippet, with its ID and timestamps.
+     */
+    SnippetResponseDto createSnippet(String title, String content);
+
+    /**
+     * Creates a snippet linked to tags given by name, creating the tags that do not exist yet. Engines without a
+     * transactional path resolve the tags, create the snippet and link the tags one after another.
+     *
+     * @param title The title of the snippet.
+     * @param content The content of the snippet.
+     * @param tagNames The names of the tags; null or empty for none, and blank names are ignored.
+     * @return The created snippet, with its ID, timestamps and tags.
+     */
+    default SnippetResponseDto createSnippet(String title, String content, Collection<String> tagNames) {
+        Collection<Long> tagIds = tagNames != null ? resolveTagIds(tagNames).values() : List.of();
+        SnippetResponseDto created = createSnippet(title, content);
+        for (Long tagId : tagIds) {
+            created = addTagToSnippet(created.getId(), tagId).orElseThrow();
+        }
+        return created;
+    }
+
+    /**
+     * Retrieves all snippets with their content and tags.
+     *
+     * @return The snippets ordered by ID.
+     */
+    List<SnippetResponseDto> getAllSnippets();
+
+    /**
+     * Retrieves the title, timestamps and tags of snippets, without their content.
+     *
+     * @param tagId If not null, only the snippets linked to this tag are returned.
+     * @param query If not blank, only the snippets whose title contains this text, ignoring case, are returned.
+     * @return The summaries ordered by ID.
+     */
+    List<SnippetSummaryDto> getSnippetSummaries(Long tagId, String query);
+
+    /**
+     * Retrieves a snippet by its ID.
+     *
+     * @param id The ID of the snippet.
+     * @return An {@link Optional} containing the snippet if found, or an empty {@link Optional} if not.
+     */
+    Optional<SnippetResponseDto> getSnippetById(long id);
+
+    /**
+     * Replaces the title and content of a snippet.
+     *
+     * @param id The ID of the snippet.
+     * @param title The new title.
+     * @param content The new content.
+     * @return An {@link Optional} containing the updated snippet if found, or an empty {@link Optional} if not.
+     */
+    Optional<SnippetResponseDto> updateSnippet(long id, String title, String content);
+
+    /**
+     * Replaces the title, content and tags of a snippet, creating the tags that do not exist yet. Engines without a
+     * transactional path update the snippet, then link and unlink tags one after another.
+     *
+     * @param id The ID of the snippet.
+     * @param title The new title.
+     * @param content The new content.
+     * @param tagNames The names of the new tags; null leaves the tags unchanged, and blank names are ignored.
+     * @return An {@link Optional} containing the updated snippet if found, or an empty {@link Optional} if not.
+     */
+    default Optional<SnippetResponseDto> updateSnippet(long id, String title, String content, Collection<String> tagNames) {
+        Optional<SnippetResponseDto> updated = updateSnippet(id, title, content);
+        if (updated.isEmpty() || tagNames == null) {
+            return updated;
+        }
+        Set<Long> tagIds = new LinkedHashSet<>(resolveTagIds(tagNames).values());
+        for (TagResponseDto tag : updated.get().getTags()) {
+            if (!tagIds.remove(tag.getId())) {
+                updated = removeTagFromSnippet(id, tag.getId());
+            }
+        }
+        for (Long tagId : tagIds) {
+            updated = addTagToSnippet(id, tagId);
+        }
+        return updated;
+    }
+
+    /**
+     * Deletes a snippet and its tag links.
+     *
+     * @param id The ID of the snippet.
+     * @return {@code true} if the snippet was deleted, {@code false} if it does not exist.
+     */
+    boolean deleteSnippet(long id);
+
+    /**
+     * Links a tag to a snippet; linking it again changes nothing.
+     *
+     * @param snippetId The ID of the snippet.
+     * @param tagId The ID of the tag.
+     * @return An {@link Optional} containing the snippet, or an empty {@link Optional} if the snippet or tag does not exist.
+     */
+    Optional<SnippetResponseDto> addTagToSnippet(long snippetId, long tagId);
+
+    /**
+     * Removes a tag link from a snippet; removing a link that does not exist changes nothing.
+     *
+     * @param snippetId The ID of the snippet.
+     * @param tagId The ID of the tag.
+     * @return An {@link Optional} containing the snippet, or an empty {@link Optional} if the snippet or tag does not exist.
+     */
+    Optional<SnippetResponseDto> removeTagFromSnippet(long snippetId, long tagId);
+
+    /**
+     * Retrieves the tags of a snippet.
+     *
+     * @param snippetId The ID of the snippet.
+     * @return An {@link Optional} containing the tags if the snippet exists, or an empty {@link Optional} if not.
+     */
+    Optional<Set<TagResponseDto>> getTagsForSnippet(long snippetId);
+
+    /**
+     * Creates a tag, or returns the existing one with the same normalized name.
+     *
+     * @param name The name of the tag.
+     * @return The created or existing tag.
+     * @throws IllegalArgumentException If the name is null or blank.
+     */
+    TagResponseDto createOrGetTag(String name);
+
+    /**
+     * Resolves many tag names at once, creating the tags that do not exist yet. Engines without a batch path
+     * resolve the names one by one.
+     *
+     * @param names The names of the tags; blank names are ignored.
+     * @return A map from normalized name to tag ID, in order of first appearance.
+     */
+    default Map<String, Long> resolveTagIds(Collection<String> names) {
+        Map<String, Long> tagIds = new LinkedHashMap<>();
+        for (String name : names) {
+            if (name != null && !name.isBlank()) {
+                TagResponseDto tag = createOrGetTag(name);
+                tagIds.putIfAbsent(tag.getName(), tag.getId());
+            }
+        }
+        return tagIds;
+    }
+
+    /**
+     * Retrieves all tags.
+     *
+     * @return The tags.
+     */
+    List<TagResponseDto> getAllTags();
+
+    /**
+     * Retrieves a tag by its ID.
+     *
+     * @param id The ID of the tag.
+     * @return An {@link Optional} containing the tag if found, or an empty {@link Optional} if not.
+     */
+    Optional<TagResponseDto> getTagById(long id);
+
+    /**
+     * Renames a tag.
+     *
+     * @param id The ID of the tag.
+     * @param name The new name.
+     * @return An {@link Optional} containing the renamed tag, or an empty {@link Optional} if the tag does not
+     * exist or another tag already has the name.
+     * @throws IllegalArgumentException If the name is null or blank.
+     */
+    Optional<TagResponseDto> updateTag(long id, String name);
+
+    /**
+     * Deletes a tag and its links to snippets.
+     *
+     * @param id The ID of the tag.
+     * @return {@code true} if the tag was deleted, {@code false} if it does not exist.
+     */
+    boolean deleteTag(long id);
+
+}
@@ -0,0 +1,161 @@
+package com.severentertainment.snippetmanager.store.log;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+
+/**
+ * Makes concurrent writes to the log durable together. Every write is numbered; a writer appends its record, then
+ * waits for its number in {@link #await(long)}. A single thread collects the writes that arrive within the window
+ * after the first one and forces the log once for all of them, instead of once per write.
+ * <p>
+ * If forcing fails, the log may have lost writes that were appended before, so every write waiting then or later
+ * fails too, until the application is restarted and the log replayed.
+ */
+final class GroupCommit implements AutoCloseable {
+
+    /**
+     * Forces the log to disk.
+     */
+    @FunctionalInterface
+    interface Flush {
+
+        /**
+         * @return The number of the last write that is durable now.
+         * @throws IOException If the log cannot be forced.
+         */
+        long force() throws IOException;
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition requested = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final Duration window;
+    private final Flush flush;
+    private final LongConsumer batchSizes;
+    private final Thread flusher;
+
+    private long highestRequested; // Guarded by lock
+    private long durable; // Guarded by lock
+    private IOException failure; // Guarded by lock
+    private boolean closed; // Guarded by lock
+    private boolean stopped; // Guarded by lock
+
+    /**
+     * Starts the flush thread.
+     *
+     * @param window How long to wait for more writes after the first one of a batch.
+     * @param flush Forces the log.
+     * @param batchSizes Receives the number of writes made durable by each flush.
+     */
+    GroupCommit(Duration window, Flush flush, LongConsumer batchSizes) {
+        this.window = window;
+        this.flush = flush;
+        this.batchSizes = batchSizes;
+        this.flusher = Thread.ofPlatform().name("log-group-commit").daemon().start(this::run);
+    }
+
+    /**
+     * Waits until a write is durable.
+     *
+     * @param write The number of the write.
+     * @throws UncheckedIOException If the log could not be forced.
+     * @throws IllegalStateException If the log was closed before the write became durable.
+     */
+    void await(long write) {
+        lock.lock();
+        try {
+            if (write > highestRequested) {
+                highestRequested = write;
+                requested.signal();
+            }
+            while (durable < write) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Could not force the log", failure);
+                }
+                if (stopped) {
+                    throw new IllegalStateException("The log was closed");
+                }
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flushes the writes still waiting and stops the flush thread.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        lock.lock();
+        try {
+            closed = true;
+            requested.signal();
+        } finally {
+            lock.unlock();
+        }
+        flusher.join();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                boolean closing;
+                lock.lock();
+                try {
+                    while (highestRequested <= durable && !closed) {
+                        requested.awaitUninterruptibly();
+                    }
+                    if (highestRequested <= durable) {
+                        return; // Closed, and nothing left to flush
+                    }
+                    closing = closed;
+                } finally {
+                    lock.unlock();
+                }
+
+                if (!closing) {
+                    LockSupport.parkNanos(window.toNanos()); // Lets the batch fill up
+                }
+
+                long covered;
+                try {
+                    covered = flush.force();
+                } catch (IOException e) {
+                    lock.lock();
+                    try {
+                        failure = e;
+                    } finally {
+                        lock.unlock();
+                    }
+                    return;
+                }
+
+                lock.lock();
+                try {
+                    if (covered > durable) {
+                        batchSizes.accept(covered - durable);
+                        durable = covered;
+                    }
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            lock.lock();
+            try {
+                stopped = true;
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+}
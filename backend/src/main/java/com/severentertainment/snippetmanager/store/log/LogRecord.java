@@ -0,0 +1,215 @@
+package com.severentertainment.snippetmanager.store.log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+/**
+ * A mutation in the log of the {@link LogStructuredStorageEngine}.
+ * <p>
+ * Each record is framed as {@code [int payload length][int CRC32C of payload][payload]}, and the payload starts with
+ * a type byte. Strings and the content are length-prefixed, with -1 for null. The content of a {@link SnippetPut} is
+ * its last field, so it ends where the frame ends and can be read in place without decoding the rest.
+ */
+sealed interface LogRecord {
+
+    int HEADER_BYTES = 8;
+
+    byte SNIPPET_PUT = 1;
+    byte SNIPPET_TAGS = 2;
+    byte SNIPPET_DELETE = 3;
+    byte TAG_PUT = 4;
+    byte TAG_DELETE = 5;
+    byte SEQUENCE = 6;
+
+    /**
+     * The full state of a snippet. When decoded, only the length of the content is known; the content stays in the log.
+     */
+    record SnippetPut(long id, Instant creationDate, Instant lastModifiedDate, Set<Long> tagIds, String title,
+                      int contentLength) implements LogRecord {
+    }
+
+    /**
+     * New tags, and last modified date, of an existing snippet.
+     */
+    record SnippetTags(long id, Instant lastModifiedDate, Set<Long> tagIds) implements LogRecord {
+    }
+
+    record SnippetDelete(long id) implements LogRecord {
+    }
+
+    record TagPut(long id, String name) implements LogRecord {
+    }
+
+    record TagDelete(long id) implements LogRecord {
+    }
+
+    /**
+     * The highest IDs handed out before a segment was started, written first in every segment, so that IDs are not
+     * reused after compaction drops the records of deleted snippets and tags.
+     */
+    record Sequence(long snippetId, long tagId) implements LogRecord {
+    }
+
+    static ByteBuffer snippetPut(long id, Instant creationDate, Instant lastModifiedDate, Set<Long> tagIds, String title, byte[] content) {
+        return frame(SNIPPET_PUT, out -> {
+            out.writeLong(id);
+            writeInstant(out, creationDate);
+            writeInstant(out, lastModifiedDate);
+            writeIds(out, tagIds);
+            writeString(out, title);
+            writeBytes(out, content);
+        });
+    }
+
+    static ByteBuffer snippetTags(long id, Instant lastModifiedDate, Set<Long> tagIds) {
+        return frame(SNIPPET_TAGS, out -> {
+            out.writeLong(id);
+            writeInstant(out, lastModifiedDate);
+            writeIds(out, tagIds);
+        });
+    }
+
+    static ByteBuffer snippetDelete(long id) {
+        return frame(SNIPPET_DELETE, out -> out.writeLong(id));
+    }
+
+    static ByteBuffer tagPut(long id, String name) {
+        return frame(TAG_PUT, out -> {
+            out.writeLong(id);
+            writeString(out, name);
+        });
+    }
+
+    static ByteBuffer tagDelete(long id) {
+        return frame(TAG_DELETE, out -> out.writeLong(id));
+    }
+
+    static ByteBuffer sequence(long snippetId, long tagId) {
+        return frame(SEQUENCE, out -> {
+            out.writeLong(snippetId);
+            out.writeLong(tagId);
+        });
+    }
+
+    /**
+     * Reads the frame at the position of a buffer and advances past it.
+     *
+     * @param buffer The segment contents, positioned at a frame.
+     * @return The record, or null if the rest of the buffer does not hold a complete frame with a matching checksum,
+     * as after a write that was cut short.
+     */
+    static LogRecord read(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_BYTES) {
+            return null;
+        }
+
+        int start = buffer.position();
+        int length = buffer.getInt(start);
+        int checksum = buffer.getInt(start + 4);
+        if (length <= 0 || length > buffer.remaining() - HEADER_BYTES) {
+            return null;
+        }
+
+        ByteBuffer payload = buffer.slice(start + HEADER_BYTES, length);
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+
+        buffer.position(start + HEADER_BYTES + length);
+        return switch (payload.get()) {
+            case SNIPPET_PUT -> new SnippetPut(payload.getLong(), readInstant(payload), readInstant(payload), readIds(payload),
+                    readString(payload), payload.getInt());
+            case SNIPPET_TAGS -> new SnippetTags(payload.getLong(), readInstant(payload), readIds(payload));
+            case SNIPPET_DELETE -> new SnippetDelete(payload.getLong());
+            case TAG_PUT -> new TagPut(payload.getLong(), readString(payload));
+            case TAG_DELETE -> new TagDelete(payload.getLong());
+            case SEQUENCE -> new Sequence(payload.getLong(), payload.getLong());
+            default -> throw new IllegalStateException("Unknown record type at offset " + start);
+        };
+    }
+
+    private static ByteBuffer frame(byte type, PayloadWriter writer) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(0); // Header, filled in below
+            out.writeByte(type);
+            writer.write(out);
+            out.flush();
+
+            ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+            CRC32C crc = new CRC32C();
+            crc.update(frame.array(), HEADER_BYTES, frame.capacity() - HEADER_BYTES);
+            frame.putInt(0, frame.capacity() - HEADER_BYTES);
+            frame.putInt(4, (int) crc.getValue());
+            return frame;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Not thrown by in-memory streams
+        }
+    }
+
+    private static void writeInstant(DataOutputStream out, Instant instant) throws IOException {
+        out.writeLong(instant.getEpochSecond());
+        out.writeInt(instant.getNano());
+    }
+
+    private static void writeIds(DataOutputStream out, Set<Long> ids) throws IOException {
+        out.writeInt(ids.size());
+        for (long id : ids) {
+            out.writeLong(id);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value != null ? value.getBytes(StandardCharsets.UTF_8) : null);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(value.length);
+            out.write(value);
+        }
+    }
+
+    private static Instant readInstant(ByteBuffer buffer) {
+        return Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+    }
+
+    private static Set<Long> readIds(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        Set<Long> ids = new HashSet<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(buffer.getLong());
+        }
+        return Set.copyOf(ids);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+
+        String value = StandardCharsets.UTF_8.decode(buffer.slice(buffer.position(), length)).toString();
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    @FunctionalInterface
+    interface PayloadWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+}
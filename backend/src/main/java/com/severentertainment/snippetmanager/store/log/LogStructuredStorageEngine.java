@@ -0,0 +1,745 @@
+package com.severentertainment.snippetmanager.store.log;
+
+import com.severentertainment.snippetmanager.dto.SnippetResponseDto;
+import com.severentertainment.snippetmanager.dto.SnippetSummaryDto;
+import com.severentertainment.snippetmanager.dto.TagResponseDto;
+import com.severentertainment.snippetmanager.service.SnippetDataChangedEvent;
+import com.severentertainment.snippetmanager.service.TagService;
+import com.severentertainment.snippetmanager.store.StorageEngine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.AbstractMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A storage engine that appends every mutation to a log instead of updating rows in place, so that saving a snippet
+ * costs one sequential write however large its content is.
+ * <p>
+ * The log is a directory of segment files (see {@link Segment}, {@link LogRecord}). Titles, timestamps and tags are
+ * kept in memory, indexed like in {@link com.severentertainment.snippetmanager.store.InMemoryStorageEngine}; content
+ * is not, only where its latest version lies in the log, and it is read from the memory-mapped segment when needed.
+ * On startup the segments are replayed in order. A record whose checksum does not match ends the newest segment,
+ * which is then cut there, as after a crash in the middle of a write; in any older segment it stops the startup.
+ * <p>
+ * Overwritten and deleted versions stay in their segment until compaction, which runs in the background, copies the
+ * records that are still current out of every full segment that is mostly garbage, and deletes the segment. Writes
+ * wait while a segment is compacted.
+ * <p>
+ * With sync on, a change is acknowledged only once it is forced to disk. Given a group commit window, concurrent
+ * changes are forced together by {@link GroupCommit}: a change waits at most the window for others to join its flush,
+ * and is visible to readers while it waits.
+ */
+@Component
+@ConditionalOnProperty(name = "snippetmanager.storage.engine", havingValue = "log")
+public class LogStructuredStorageEngine implements StorageEngine, MeterBinder, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(LogStructuredStorageEngine.class);
+    private static final long MAX_SEGMENT_BYTES = 1L << 30; // Segments are mapped and sliced with int offsets
+    private static final int SEQUENCE_RECORD_BYTES = LogRecord.sequence(0, 0).remaining(); // Starts every segment
+
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Long, SnippetEntry> snippets = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Long, TagEntry> tags = new ConcurrentSkipListMap<>();
+    private final Map<String, Long> tagIdsByName = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> snippetIdsByTag = new ConcurrentHashMap<>(); // Sorted sets of snippet IDs
+    private final Object writeLock = new Object();
+    private final Path directory;
+    private final long segmentBytes;
+    private final boolean sync;
+    private final double compactionThreshold;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ScheduledExecutorService compactor;
+    private final GroupCommit groupCommit; // Null if every write is forced on its own, or not at all
+
+    private Segment active; // Guarded by writeLock
+    private long snippetSequence; // Guarded by writeLock
+    private long tagSequence; // Guarded by writeLock
+    private long writes; // Guarded by writeLock; numbers the writes for the group commit
+    private Counter compactions;
+    private DistributionSummary batchSizes;
+
+    /**
+     * Opens the log and replays it.
+     *
+     * @param eventPublisher Publishes the changes.
+     * @param directory The directory of the segment files; created if missing.
+     * @param segmentBytes The most bytes a segment holds; a write that would take it past them starts a new one.
+     * @param sync Whether every write is forced to disk before it is acknowledged.
+     * @param groupCommitWindow How long a synced write waits for others to be forced with it; zero to force each alone.
+     * @param compactionInterval How often full segments are checked for garbage.
+     * @param compactionThreshold The share of a segment's bytes that must be garbage before it is compacted.
+     * @throws IOException If the log cannot be read or repaired.
+     */
+    @Autowired
+    public LogStructuredStorageEngine(ApplicationEventPublisher eventPublisher,
+                                      @Value("${snippetmanager.storage.log.dir:./data/log}") String directory,
+                                      @Value("${snippetmanager.storage.log.segment-bytes:67108864}") long segmentBytes,
+                                      @Value("${snippetmanager.storage.log.sync:true}") boolean sync,
+                                      @Value("${snippetmanager.storage.log.group-commit-window:2ms}") Duration groupCommitWindow,
+                                      @Value("${snippetmanager.storage.log.compaction-interval:1m}") Duration compactionInterval,
+                                      @Value("${snippetmanager.storage.log.compaction-threshold:0.5}") double compactionThreshold) throws IOException {
+        if (segmentBytes <= 0 || segmentBytes > MAX_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("Segment size must be between 1 byte and 1 GiB");
+        }
+
+        this.eventPublisher = eventPublisher;
+        this.directory = Path.of(directory);
+        this.segmentBytes = segmentBytes;
+        this.sync = sync;
+        this.compactionThreshold = compactionThreshold;
+
+        Files.createDirectories(this.directory);
+        synchronized (writeLock) {
+            recover();
+        }
+
+        this.groupCommit = sync && !groupCommitWindow.isZero()
+                ? new GroupCommit(groupCommitWindow, this::forceActive, this::recordBatch)
+                : null;
+        this.compactor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("log-compactor").daemon().factory());
+        compactor.scheduleWithFixedDelay(this::compactQuietly, compactionInterval.toMillis(), compactionInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public SnippetResponseDto createSnippet(String title, String content) {
+        long id;
+        long write;
+        Instant now = Instant.now();
+        synchronized (writeLock) {
+            id = ++snippetSequence;
+            write = write(LogRecord.snippetPut(id, now, now, Set.of(), title, bytes(content)));
+        }
+        awaitDurable(write);
+
+        eventPublisher.publishEvent(SnippetDataChangedEvent.snippets(SnippetDataChangedEvent.Type.SNIPPETS_CREATED, Set.of(id)));
+        return new SnippetResponseDto(id, title, content, now, now, new HashSet<>());
+    }
+
+    @Override
+    public List<SnippetResponseDto> getAllSnippets() {
+        return snippets.entrySet().stream().map(entry -> toResponseDto(entry.getKey(), entry.getValue())).toList();
+    }
+
+    @Override
+    public List<SnippetSummaryDto> getSnippetSummaries(Long tagId, String query) {
+        Stream<Map.Entry<Long, SnippetEntry>> matches = tagId == null
+                ? snippets.entrySet().stream()
+                : snippetIdsByTag.getOrDefault(tagId, Set.of()).stream()
+                        .filter(snippets::containsKey)
+                        .<Map.Entry<Long, SnippetEntry>>map(id -> new AbstractMap.SimpleImmutableEntry<>(id, snippets.get(id)))
+                        .filter(entry -> entry.getValue() != null); // Deleted in between
+
+        if (query != null && !query.isBlank()) {
+            String text = query.strip().toLowerCase(Locale.ROOT);
+            matches = matches.filter(entry -> entry.getValue().title() != null
+                    && entry.getValue().title().toLowerCase(Locale.ROOT).contains(text));
+        }
+
+        return matches.map(entry -> {
+            SnippetEntry snippet = entry.getValue();
+            return new SnippetSummaryDto(entry.getKey(), snippet.title(), snippet.creationDate(), snippet.lastModifiedDate(),
+                    tagDtos(snippet.tagIds()));
+        }).toList();
+    }
+
+    @Override
+    public Optional<SnippetResponseDto> getSnippetById(long id) {
+        return Optional.ofNullable(snippets.get(id)).map(snippet -> toResponseDto(id, snippet));
+    }
+
+    @Override
+    public Optional<SnippetResponseDto> updateSnippet(long id, String title, String content) {
+        Instant now = Instant.now();
+        SnippetEntry existing;
+        long write;
+        synchronized (writeLock) {
+            existing = snippets.get(id);
+            if (existing == null) {
+                return Optional.empty();
+            }
+
+            write = write(LogRecord.snippetPut(id, existing.creationDate(), now, existing.tagIds(), title, bytes(content)));
+        }
+        awaitDurable(write);
+
+        eventPublisher.publishEvent(SnippetDataChangedEvent.snippets(SnippetDataChangedEvent.Type.SNIPPETS_UPDATED, Set.of(id)));
+        return Optional.of(new SnippetResponseDto(id, title, content, existing.creationDate(), now, tagDtos(existing.tagIds())));
+    }
+
+    @Override
+    public boolean deleteSnippet(long id) {
+        long write;
+        synchronized (writeLock) {
+            if (!snippets.containsKey(id)) {
+                return false;
+            }
+
+            write = write(LogRecord.snippetDelete(id));
+        }
+        awaitDurable(write);
+
+        eventPublisher.publishEvent(SnippetDataChangedEvent.snippets(SnippetDataChangedEvent.Type.SNIPPETS_DELETED, Set.of(id)));
+        return true;
+    }
+
+    @Override
+    public Optional<SnippetResponseDto> addTagToSnippet(long snippetId, long tagId) {
+        return changeLink(snippetId, tagId, true);
+    }
+
+    @Override
+    public Optional<SnippetResponseDto> removeTagFromSnippet(long snippetId, long tagId) {
+        return changeLink(snippetId, tagId, false);
+    }
+
+    @Override
+    public Optional<Set<TagResponseDto>> getTagsForSnippet(long snippetId) {
+        return Optional.ofNullable(snippets.get(snippetId)).map(snippet -> tagDtos(snippet.tagIds()));
+    }
+
+    @Override
+    public TagResponseDto createOrGetTag(String name) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Tag name for create cannot be null or empty");
+        }
+
+        String normalizedName = TagService.normalizeName(name);
+        long id;
+        long write;
+        synchronized (writeLock) {
+            Long existingId = tagIdsByName.get(normalizedName);
+            if (existingId != null) {
+                return new TagResponseDto(existingId, normalizedName);
+            }
+
+            id = ++tagSequence;
+            write = write(LogRecord.tagPut(id, normalizedName));
+        }
+        awaitDurable(write);
+
+        eventPublisher.publishEvent(SnippetDataChangedEvent.tags(SnippetDataChangedEvent.Type.TAGS_CREATED, Set.of(id)));
+        return new TagResponseDto(id, normalizedName);
+    }
+
+    @Override
+    public List<TagResponseDto> getAllTags() {
+        return tags.entrySet().stream().map(tag -> new TagResponseDto(tag.getKey(), tag.getValue().name())).toList();
+    }
+
+    @Override
+    public Optional<TagResponseDto> getTagById(long id) {
+        return Optional.ofNullable(tags.get(id)).map(tag -> new TagResponseDto(id, tag.name()));
+    }
+
+    @Override
+    public Optional<TagResponseDto> updateTag(long id, String name) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Tag name for update cannot be null or empty");
+        }
+
+        String normalizedName = TagService.normalizeName(name);
+        Set<Long> snippetIds;
+        long write;
+        synchronized (writeLock) {
+            Long conflictingId = tagIdsByName.get(normalizedName);
+            if (!tags.containsKey(id) || (conflictingId != null && conflictingId != id)) {
+                return Optional.empty();
+            }
+
+            write = write(LogRecord.tagPut(id, normalizedName));
+
+            // The snippets embed the tag name
+            Instant now = Instant.now();
+            snippetIds = Set.copyOf(snippetIdsByTag.getOrDefault(id, Set.of()));
+            for (Long snippetId : snippetIds) {
+                write = write(LogRecord.snippetTags(snippetId, now, snippets.get(snippetId).tagIds()));
+            }
+        }
+        awaitDurable(write);
+
+        eventPublisher.publishEvent(SnippetDataChangedEvent.of(SnippetDataChangedEvent.Type.TAGS_UPDATED, snippetIds, Set.of(id)));
+        return Optional.of(new TagResponseDto(id, normalizedName));
+    }
+
+    @Override
+    public boolean deleteTag(long id) {
+        long write;
+        synchronized (writeLock) {
+            if (!tags.containsKey(id)) {
+                return false;
+            }
+
+            // Unlinked before the tag is deleted, so that a replay never sees a snippet with a deleted tag
+            Instant now = Instant.now();
+            for (Long snippetId : Set.copyOf(snippetIdsByTag.getOrDefault(id, Set.of()))) {
+                write(LogRecord.snippetTags(snippetId, now, without(snippets.get(snippetId).tagIds(), id)));
+            }
+            write = write(LogRecord.tagDelete(id));
+        }
+        awaitDurable(write);
+
+        eventPublisher.publishEvent(SnippetDataChangedEvent.tags(SnippetDataChangedEvent.Type.TAGS_DELETED, Set.of(id)));
+        return true;
+    }
+
+    /**
+     * Compacts every full segment in which at least the configured share of bytes is garbage. Runs periodically;
+     * public for the tests.
+     *
+     * @return The number of segments compacted.
+     * @throws IOException If a segment cannot be read or written.
+     */
+    public int compact() throws IOException {
+        int compacted = 0;
+        for (Segment segment : segments.values()) {
+            synchronized (writeLock) {
+                if (segment == active || !segments.containsKey(segment.id())) {
+                    continue;
+                }
+                if (1 - (double) segment.liveBytes().get() / segment.size() < compactionThreshold) {
+                    continue;
+                }
+
+                compact(segment);
+                compacted++;
+            }
+        }
+        return compacted;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("snippetmanager.log.segments", segments, Map::size)
+                .description("Segment files in the log")
+                .register(registry);
+        Gauge.builder("snippetmanager.log.bytes", segments, map -> map.values().stream().mapToLong(Segment::size).sum())
+                .description("Bytes in the log")
+                .tag("state", "total")
+                .register(registry);
+        Gauge.builder("snippetmanager.log.bytes", segments, map -> map.values().stream().mapToLong(segment -> segment.liveBytes().get()).sum())
+                .description("Bytes in the log")
+                .tag("state", "live")
+                .register(registry);
+        compactions = Counter.builder("snippetmanager.log.compactions")
+                .description("Segments compacted")
+                .register(registry);
+        batchSizes = DistributionSummary.builder("snippetmanager.log.group-commit.batch")
+                .description("Writes forced to disk together")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() throws IOException, InterruptedException {
+        compactor.shutdown();
+        compactor.awaitTermination(10, TimeUnit.SECONDS);
+        if (groupCommit != null) {
+            groupCommit.close();
+        }
+        synchronized (writeLock) {
+            for (Segment segment : segments.values()) {
+                segment.close();
+            }
+        }
+    }
+
+    private Optional<SnippetResponseDto> changeLink(long snippetId, long tagId, boolean link) {
+        SnippetEntry snippet;
+        boolean changed;
+        long write = 0;
+        synchronized (writeLock) {
+            snippet = snippets.get(snippetId);
+            if (snippet == null || !tags.containsKey(tagId)) {
+                return Optional.empty();
+            }
+
+            changed = snippet.tagIds().contains(tagId) != link;
+            if (changed) {
+                write = write(LogRecord.snippetTags(snippetId, Instant.now(), link ? with(snippet.tagIds(), tagId) : without(snippet.tagIds(), tagId)));
+                snippet = snippets.get(snippetId);
+            }
+        }
+
+        if (changed) {
+            awaitDurable(write);
+            SnippetDataChangedEvent.Type type = link ? SnippetDataChangedEvent.Type.TAGS_LINKED : SnippetDataChangedEvent.Type.TAGS_UNLINKED;
+            eventPublisher.publishEvent(SnippetDataChangedEvent.of(type, Set.of(snippetId), Set.of(tagId)));
+        }
+        return Optional.of(toResponseDto(snippetId, snippet));
+    }
+
+    // Called with the write lock held
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> path.getFileName().toString().matches("segment-\\d+\\.log"))
+                    .sorted((a, b) -> Long.compare(Segment.idOf(a), Segment.idOf(b)))
+                    .toList();
+        }
+
+        for (Path file : files) {
+            Segment segment = Segment.open(directory, Segment.idOf(file));
+            segments.put(segment.id(), segment);
+        }
+
+        for (Segment segment : segments.values()) {
+            ByteBuffer buffer = segment.readAll();
+            while (buffer.hasRemaining()) {
+                int position = buffer.position();
+                LogRecord record = LogRecord.read(buffer);
+                if (record == null) {
+                    if (segment.id() != segments.lastKey()) {
+                        throw new IllegalStateException("Corrupt record in " + segment + " at offset " + position);
+                    }
+
+                    log.warn("Discarding {} bytes of an incomplete write at the end of {}", segment.size() - position, segment);
+                    segment.truncate(position);
+                    break;
+                }
+
+                apply(record, new Location(segment, position, buffer.position() - position));
+            }
+        }
+
+        if (segments.isEmpty()) {
+            roll();
+        } else {
+            active = segments.lastEntry().getValue();
+            if (active.size() == 0) { // Cut short while it was being started
+                active.append(LogRecord.sequence(snippetSequence, tagSequence));
+                active.force();
+            }
+        }
+        log.info("Replayed {} segments with {} snippets and {} tags", segments.size(), snippets.size(), tags.size());
+    }
+
+    // Called with the write lock held; returns the number of the write to wait for with awaitDurable
+    private long write(ByteBuffer frame) {
+        return write(frame, sync && groupCommit == null);
+    }
+
+    // Called with the write lock held; the frame is decoded again so that writes are applied exactly as on replay
+    private long write(ByteBuffer frame, boolean force) {
+        LogRecord record = LogRecord.read(frame.duplicate());
+        try {
+            int size = frame.remaining();
+            if (SEQUENCE_RECORD_BYTES + size > segmentBytes) {
+                throw new IllegalArgumentException("A record of " + size + " bytes does not fit into a segment of "
+                        + segmentBytes + " bytes");
+            }
+            if (active.size() + size > segmentBytes) {
+                roll();
+            }
+
+            long position = active.append(frame);
+            if (force) {
+                active.force();
+            }
+            apply(record, new Location(active, position, size));
+            return ++writes;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write to " + active, e);
+        }
+    }
+
+    private void awaitDurable(long write) {
+        if (groupCommit != null) {
+            groupCommit.await(write);
+        }
+    }
+
+    // Called by the group commit; the write lock is only held to find what to force
+    private long forceActive() throws IOException {
+        Segment segment;
+        long covered;
+        synchronized (writeLock) {
+            segment = active;
+            covered = writes;
+        }
+
+        try {
+            segment.force();
+        } catch (ClosedChannelException e) {
+            // Rolled over and compacted meanwhile; rolling forced it
+        }
+        return covered;
+    }
+
+    private void recordBatch(long size) {
+        if (batchSizes != null) {
+            batchSizes.record(size);
+        }
+    }
+
+    // Called with the write lock held
+    private void roll() throws IOException {
+        if (active != null) {
+            active.force(); // Sealed segments are always durable
+        }
+
+        Segment segment = Segment.open(directory, segments.isEmpty() ? 1 : segments.lastKey() + 1);
+        segment.append(LogRecord.sequence(snippetSequence, tagSequence));
+        segment.force();
+        segments.put(segment.id(), segment);
+        active = segment;
+    }
+
+    // Called with the write lock held; updates the index for a record that has been written at the location
+    private void apply(LogRecord record, Location location) {
+        switch (record) {
+            case LogRecord.SnippetPut put -> {
+                track(location);
+                SnippetEntry old = snippets.put(put.id(), new SnippetEntry(put.title(), put.creationDate(), put.lastModifiedDate(),
+                        put.tagIds(), location, put.contentLength(), null));
+                if (old != null) {
+                    retire(old.put());
+                    retire(old.tags());
+                    unindex(put.id(), old.tagIds());
+                }
+                index(put.id(), put.tagIds());
+                snippetSequence = Math.max(snippetSequence, put.id());
+            }
+            case LogRecord.SnippetTags update -> {
+                SnippetEntry old = snippets.get(update.id());
+                if (old == null) {
+                    return; // Superseded by a put that compaction copied to a later segment
+                }
+
+                track(location);
+                snippets.put(update.id(), new SnippetEntry(old.title(), old.creationDate(), update.lastModifiedDate(),
+                        update.tagIds(), old.put(), old.contentLength(), location));
+                retire(old.tags());
+                unindex(update.id(), old.tagIds());
+                index(update.id(), update.tagIds());
+            }
+            case LogRecord.SnippetDelete delete -> {
+                SnippetEntry old = snippets.remove(delete.id());
+                if (old != null) {
+                    retire(old.put());
+                    retire(old.tags());
+                    unindex(delete.id(), old.tagIds());
+                }
+                snippetSequence = Math.max(snippetSequence, delete.id());
+            }
+            case LogRecord.TagPut put -> {
+                track(location);
+                TagEntry old = tags.put(put.id(), new TagEntry(put.name(), location));
+                if (old != null) {
+                    retire(old.put());
+                    tagIdsByName.remove(old.name());
+                }
+                tagIdsByName.put(put.name(), put.id());
+                snippetIdsByTag.computeIfAbsent(put.id(), id -> new ConcurrentSkipListSet<>());
+                tagSequence = Math.max(tagSequence, put.id());
+            }
+            case LogRecord.TagDelete delete -> {
+                TagEntry old = tags.remove(delete.id());
+                if (old != null) {
+                    retire(old.put());
+                    tagIdsByName.remove(old.name());
+                }
+                snippetIdsByTag.remove(delete.id());
+                tagSequence = Math.max(tagSequence, delete.id());
+            }
+            case LogRecord.Sequence sequence -> {
+                snippetSequence = Math.max(snippetSequence, sequence.snippetId());
+                tagSequence = Math.max(tagSequence, sequence.tagId());
+            }
+        }
+    }
+
+    // Called with the write lock held
+    private void compact(Segment segment) throws IOException {
+        boolean olderSegments = segments.firstKey() < segment.id(); // Which may still hold versions that deletes hide
+        ByteBuffer buffer = segment.readAll();
+        while (buffer.hasRemaining()) {
+            int position = buffer.position();
+            LogRecord record = LogRecord.read(buffer);
+            if (record == null) {
+                throw new IllegalStateException("Corrupt record in " + segment + " at offset " + position);
+            }
+
+            switch (record) {
+                case LogRecord.SnippetPut put -> {
+                    SnippetEntry snippet = snippets.get(put.id());
+                    if (snippet != null && snippet.put().isAt(segment, position)) {
+                        byte[] content = null;
+                        if (snippet.contentLength() >= 0) {
+                            content = new byte[snippet.contentLength()];
+                            segment.read(snippet.contentPosition(), snippet.contentLength()).get(content);
+                        }
+                        write(LogRecord.snippetPut(put.id(), snippet.creationDate(), snippet.lastModifiedDate(), snippet.tagIds(),
+                                snippet.title(), content), false);
+                    }
+                }
+                case LogRecord.SnippetTags update -> {
+                    SnippetEntry snippet = snippets.get(update.id());
+                    if (snippet != null && snippet.tags() != null && snippet.tags().isAt(segment, position)) {
+                        write(LogRecord.snippetTags(update.id(), snippet.lastModifiedDate(), snippet.tagIds()), false);
+                    }
+                }
+                case LogRecord.TagPut put -> {
+                    TagEntry tag = tags.get(put.id());
+                    if (tag != null && tag.put().isAt(segment, position)) {
+                        write(LogRecord.tagPut(put.id(), tag.name()), false);
+                    }
+                }
+                case LogRecord.SnippetDelete delete -> {
+                    if (olderSegments) {
+                        write(LogRecord.snippetDelete(delete.id()), false);
+                    }
+                }
+                case LogRecord.TagDelete delete -> {
+                    if (olderSegments) {
+                        write(LogRecord.tagDelete(delete.id()), false);
+                    }
+                }
+                case LogRecord.Sequence sequence -> {
+                    // Every later segment starts with a newer one
+                }
+            }
+        }
+
+        active.force(); // The copies must be durable before the originals are deleted
+        segments.remove(segment.id());
+        segment.delete();
+        if (compactions != null) {
+            compactions.increment();
+        }
+        log.debug("Compacted {}", segment);
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (Exception e) {
+            log.warn("Log compaction failed", e);
+        }
+    }
+
+    private static void track(Location location) {
+        location.segment().liveBytes().addAndGet(location.size());
+    }
+
+    private static void retire(Location location) {
+        if (location != null) {
+            location.segment().liveBytes().addAndGet(-location.size());
+        }
+    }
+
+    private void index(long snippetId, Set<Long> tagIds) {
+        for (Long tagId : tagIds) {
+            snippetIdsByTag.computeIfAbsent(tagId, id -> new ConcurrentSkipListSet<>()).add(snippetId);
+        }
+    }
+
+    private void unindex(long snippetId, Set<Long> tagIds) {
+        for (Long tagId : tagIds) {
+            Set<Long> snippetIds = snippetIdsByTag.get(tagId);
+            if (snippetIds != null) {
+                snippetIds.remove(snippetId);
+            }
+        }
+    }
+
+    private SnippetResponseDto toResponseDto(long id, SnippetEntry snippet) {
+        return new SnippetResponseDto(id, snippet.title(), readContent(snippet), snippet.creationDate(),
+                snippet.lastModifiedDate(), tagDtos(snippet.tagIds()));
+    }
+
+    private static String readContent(SnippetEntry snippet) {
+        if (snippet.contentLength() < 0) {
+            return null;
+        }
+
+        try {
+            return StandardCharsets.UTF_8.decode(snippet.put().segment().read(snippet.contentPosition(), snippet.contentLength())).toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read snippet content from " + snippet.put().segment(), e);
+        }
+    }
+
+    // A tag deleted after the snippet was read is left out
+    private Set<TagResponseDto> tagDtos(Set<Long> tagIds) {
+        Set<TagResponseDto> tagDtos = new HashSet<>();
+        for (Long tagId : tagIds) {
+            TagEntry tag = tags.get(tagId);
+            if (tag != null) {
+                tagDtos.add(new TagResponseDto(tagId, tag.name()));
+            }
+        }
+        return tagDtos;
+    }
+
+    private static byte[] bytes(String content) {
+        return content != null ? content.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static Set<Long> with(Set<Long> tagIds, long tagId) {
+        Set<Long> copy = new HashSet<>(tagIds);
+        copy.add(tagId);
+        return Set.copyOf(copy);
+    }
+
+    private static Set<Long> without(Set<Long> tagIds, long tagId) {
+        Set<Long> copy = new HashSet<>(tagIds);
+        copy.remove(tagId);
+        return Set.copyOf(copy);
+    }
+
+    private record Location(Segment segment, long position, int size) {
+
+        boolean isAt(Segment segment, long position) {
+            return this.segment == segment && this.position == position;
+        }
+    }
+
+    /**
+     * The latest version of a snippet: its fields except the content, where its last full record lies, and where
+     * the record with its current tags lies, if that came later.
+     */
+    private record SnippetEntry(String title, Instant creationDate, Instant lastModifiedDate, Set<Long> tagIds,
+                                Location put, int contentLength, Location tags) {
+
+        // The content is the last field of the record
+        long contentPosition() {
+            return put.position() + put.size() - contentLength;
+        }
+    }
+
+    private record TagEntry(String name, Location put) {
+    }
+
+}
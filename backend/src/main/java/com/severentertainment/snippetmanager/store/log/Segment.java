@@ -0,0 +1,140 @@
+package com.severentertainment.snippetmanager.store.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One file of the log. Records are appended through a {@link FileChannel} and read back through a read-only memory
+ * mapping, which is extended when a read reaches past it. A mapping stays readable after the segment is closed and
+ * deleted by compaction, so readers that found a record in it just before can still finish.
+ */
+final class Segment {
+
+    private final long id;
+    private final Path path;
+    private final FileChannel channel;
+    private final AtomicLong liveBytes = new AtomicLong(); // Bytes of records that are still the latest of their kind
+    private volatile long size;
+    private volatile MappedByteBuffer mapping;
+
+    private Segment(long id, Path path, FileChannel channel) throws IOException {
+        this.id = id;
+        this.path = path;
+        this.channel = channel;
+        this.size = channel.size();
+    }
+
+    static Segment open(Path directory, long id) throws IOException {
+        Path path = directory.resolve(String.format("segment-%010d.log", id));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(id, path, channel);
+    }
+
+    static long idOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring("segment-".length(), name.length() - ".log".length()));
+    }
+
+    long id() {
+        return id;
+    }
+
+    long size() {
+        return size;
+    }
+
+    AtomicLong liveBytes() {
+        return liveBytes;
+    }
+
+    /**
+     * Appends a frame at the end of the segment. Called by one writer at a time.
+     *
+     * @param frame The frame to write.
+     * @return The position of the frame in the segment.
+     * @throws IOException If the write fails.
+     */
+    long append(ByteBuffer frame) throws IOException {
+        long position = size;
+        while (frame.hasRemaining()) {
+            channel.write(frame, position + frame.position());
+        }
+        size = position + frame.limit();
+        return position;
+    }
+
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * Cuts the segment after the last complete record found by recovery.
+     *
+     * @param length The length to keep.
+     * @throws IOException If the file cannot be truncated.
+     */
+    void truncate(long length) throws IOException {
+        channel.truncate(length);
+        channel.force(true);
+        size = length;
+        mapping = null;
+    }
+
+    /**
+     * Returns a view of part of the segment.
+     *
+     * @param position The start of the view.
+     * @param length The length of the view.
+     * @return A read-only buffer over the requested bytes.
+     * @throws IOException If the segment cannot be mapped.
+     */
+    ByteBuffer read(long position, int length) throws IOException {
+        return mapping(position + length).slice(Math.toIntExact(position), length);
+    }
+
+    /**
+     * Returns a view of the whole segment as written so far.
+     *
+     * @return A read-only buffer over the segment.
+     * @throws IOException If the segment cannot be mapped.
+     */
+    ByteBuffer readAll() throws IOException {
+        long end = size;
+        return mapping(end).slice(0, Math.toIntExact(end));
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    private MappedByteBuffer mapping(long end) throws IOException {
+        MappedByteBuffer current = mapping;
+        if (current != null && current.capacity() >= end) {
+            return current;
+        }
+
+        synchronized (this) {
+            if (mapping == null || mapping.capacity() < end) {
+                mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            return mapping;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return path.getFileName().toString();
+    }
+
+}
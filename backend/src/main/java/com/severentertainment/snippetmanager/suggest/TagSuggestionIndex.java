@@ -0,0 +1,284 @@
+package com.severentertainment.snippetmanager.suggest;
+
+import com.severentertainment.snippetmanager.dto.TagSuggestionDto;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * An immutable index from name prefixes to the most used tags starting with them.
+ * <p>
+ * The names form a trie with one node per point where names branch (path-compressed, so there are fewer nodes than
+ * twice the number of tags). Every node holds the best suggestions for the names below it, ranked when the node is
+ * made, with a list ready for every limit. A lookup walks at most one node per branch of the prefix and returns a
+ * list of the node it stops at, so it takes no longer for short prefixes matching many tags and allocates nothing.
+ * <p>
+ * {@link #update(Collection, Collection)} makes a new index that shares every node off the paths to the changed
+ * names, so a change to a few tags costs a few paths rather than a rebuild.
+ */
+final class TagSuggestionIndex {
+
+    // Most used first; the name breaks ties, so the order does not depend on the order of loading
+    static final Comparator<TagSuggestionDto> RANKING = Comparator.comparingLong(TagSuggestionDto::getUsageCount).reversed()
+            .thenComparing(TagSuggestionDto::getName);
+
+    private static final Node[] NO_BRANCHES = new Node[0];
+
+    private final int maxSuggestions;
+    private final Node root; // Null without tags
+    private final int size;
+
+    // prefix: shared by all names below the node; tag: the tag named the prefix, if any; branchChars: the char
+    // following the prefix in each branch, ascending; top: the best suggestions below the node, top[k - 1] the first k
+    private record Node(String prefix, TagSuggestionDto tag, char[] branchChars, Node[] branches, Ranking[] top) {
+    }
+
+    private TagSuggestionIndex(int maxSuggestions, Node root, int size) {
+        this.maxSuggestions = maxSuggestions;
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Builds an index.
+     *
+     * @param tags The tags with their normalized (and therefore unique) names and usage counts.
+     * @param maxSuggestions The most suggestions a lookup can return.
+     * @return The index.
+     */
+    static TagSuggestionIndex build(Collection<TagSuggestionDto> tags, int maxSuggestions) {
+        TagSuggestionDto[] sorted = tags.toArray(TagSuggestionDto[]::new);
+        Arrays.sort(sorted, Comparator.comparing(TagSuggestionDto::getName));
+        return new TagSuggestionIndex(maxSuggestions,
+                sorted.length > 0 ? node(sorted, 0, sorted.length, maxSuggestions) : null, sorted.length);
+    }
+
+    /**
+     * Returns an index with tags removed and added, such as the old and new versions of changed tags.
+     *
+     * @param removed The tags to remove, as they are in this index.
+     * @param added The tags to add, whose names must not remain in the index once the removed tags are gone.
+     * @return The new index; this one is unchanged.
+     */
+    TagSuggestionIndex update(Collection<TagSuggestionDto> removed, Collection<TagSuggestionDto> added) {
+        Node updated = root;
+        int updatedSize = size;
+        for (TagSuggestionDto tag : removed) {
+            Node without = remove(updated, tag);
+            if (without != updated) {
+                updatedSize--;
+            }
+            updated = without;
+        }
+        for (TagSuggestionDto tag : added) {
+            updated = insert(updated, tag);
+            updatedSize++;
+        }
+        return new TagSuggestionIndex(maxSuggestions, updated, updatedSize);
+    }
+
+    /**
+     * Returns the most used tags whose names start with a prefix.
+     *
+     * @param prefix The normalized prefix; empty for the most used tags overall.
+     * @param limit The most suggestions to return, from 1 to the maximum the index was built for.
+     * @return The suggestions, most used first. Shared by all callers and not to be modified.
+     */
+    List<TagSuggestionDto> suggest(String prefix, int limit) {
+        Node node = root;
+        int matched = 0;
+        while (node != null) {
+            int prefixLength = node.prefix().length();
+            int compared = Math.min(prefix.length(), prefixLength);
+            if (!prefix.regionMatches(matched, node.prefix(), matched, compared - matched)) {
+                return List.of();
+            }
+            if (prefix.length() <= prefixLength) {
+                return node.top()[Math.min(limit, node.top().length) - 1];
+            }
+
+            int branch = Arrays.binarySearch(node.branchChars(), prefix.charAt(prefixLength));
+            if (branch < 0) {
+                return List.of();
+            }
+            matched = prefixLength + 1;
+            node = node.branches()[branch];
+        }
+        return List.of();
+    }
+
+    /**
+     * Returns the number of tags in the index.
+     *
+     * @return The number of tags.
+     */
+    int size() {
+        return size;
+    }
+
+    // Builds the node for the names in [from, to), which share at least the prefix of their parent
+    private static Node node(TagSuggestionDto[] sorted, int from, int to, int maxSuggestions) {
+        String first = sorted[from].getName();
+        int prefixLength = commonPrefixLength(first, sorted[to - 1].getName()); // Sorted, so shared by the whole range
+
+        TagSuggestionDto tag = null;
+        int start = from;
+        if (first.length() == prefixLength) { // A name equal to the prefix sorts first
+            tag = sorted[from];
+            start++;
+        }
+
+        List<Node> branches = new ArrayList<>();
+        while (start < to) {
+            char c = sorted[start].getName().charAt(prefixLength);
+            int end = start + 1;
+            while (end < to && sorted[end].getName().charAt(prefixLength) == c) {
+                end++;
+            }
+            branches.add(node(sorted, start, end, maxSuggestions));
+            start = end;
+        }
+        return node(first.substring(0, prefixLength), tag, branches.toArray(Node[]::new), maxSuggestions);
+    }
+
+    // Returns the node without the tag, the node itself if the tag is not below it, or null if nothing is left
+    private Node remove(Node node, TagSuggestionDto tag) {
+        String name = tag.getName();
+        String prefix = node == null ? null : node.prefix();
+        if (node == null || !name.startsWith(prefix)) {
+            return node;
+        }
+        if (name.length() == prefix.length()) {
+            return Objects.equals(node.tag(), tag) ? compact(prefix, null, node.branches()) : node;
+        }
+
+        int branch = Arrays.binarySearch(node.branchChars(), name.charAt(prefix.length()));
+        if (branch < 0) {
+            return node;
+        }
+        Node child = remove(node.branches()[branch], tag);
+        if (child == node.branches()[branch]) {
+            return node;
+        }
+
+        Node[] branches;
+        if (child == null) {
+            branches = new Node[node.branches().length - 1];
+            System.arraycopy(node.branches(), 0, branches, 0, branch);
+            System.arraycopy(node.branches(), branch + 1, branches, branch, branches.length - branch);
+        } else {
+            branches = node.branches().clone();
+            branches[branch] = child;
+        }
+        return compact(prefix, node.tag(), branches);
+    }
+
+    // Returns the node with the tag added
+    private Node insert(Node node, TagSuggestionDto tag) {
+        String name = tag.getName();
+        if (node == null) {
+            return node(name, tag, NO_BRANCHES, maxSuggestions);
+        }
+
+        String prefix = node.prefix();
+        int common = commonPrefixLength(name, prefix);
+        if (common < prefix.length()) { // The name leaves the path to the node, so a node where it does holds both
+            if (common == name.length()) {
+                return node(name, tag, new Node[] {node}, maxSuggestions);
+            }
+            Node leaf = node(name, tag, NO_BRANCHES, maxSuggestions);
+            Node[] branches = name.charAt(common) < prefix.charAt(common) ? new Node[] {leaf, node} : new Node[] {node, leaf};
+            return node(prefix.substring(0, common), null, branches, maxSuggestions);
+        }
+        if (name.length() == prefix.length()) {
+            return node(prefix, tag, node.branches(), maxSuggestions);
+        }
+
+        int branch = Arrays.binarySearch(node.branchChars(), name.charAt(prefix.length()));
+        Node[] branches;
+        if (branch >= 0) {
+            branches = node.branches().clone();
+            branches[branch] = insert(branches[branch], tag);
+        } else {
+            int position = -branch - 1;
+            branches = new Node[node.branches().length + 1];
+            System.arraycopy(node.branches(), 0, branches, 0, position);
+            branches[position] = node(name, tag, NO_BRANCHES, maxSuggestions);
+            System.arraycopy(node.branches(), position, branches, position + 1, node.branches().length - position);
+        }
+        return node(prefix, node.tag(), branches, maxSuggestions);
+    }
+
+    // Makes a node, or leaves it out where it would have no tag and fewer than two branches
+    private Node compact(String prefix, TagSuggestionDto tag, Node[] branches) {
+        if (tag == null && branches.length == 0) {
+            return null;
+        }
+        if (tag == null && branches.length == 1) {
+            return branches[0];
+        }
+        return node(prefix, tag, branches, maxSuggestions);
+    }
+
+    private static Node node(String prefix, TagSuggestionDto tag, Node[] branches, int maxSuggestions) {
+        List<TagSuggestionDto> candidates = new ArrayList<>();
+        if (tag != null) {
+            candidates.add(tag);
+        }
+        char[] branchChars = new char[branches.length];
+        for (int i = 0; i < branches.length; i++) {
+            branchChars[i] = branches[i].prefix().charAt(prefix.length());
+            Ranking[] branchTop = branches[i].top();
+            candidates.addAll(branchTop[branchTop.length - 1]);
+        }
+        candidates.sort(RANKING);
+
+        TagSuggestionDto[] ranked = candidates.subList(0, Math.min(maxSuggestions, candidates.size())).toArray(TagSuggestionDto[]::new);
+        Ranking[] top = new Ranking[ranked.length];
+        for (int i = 0; i < top.length; i++) {
+            top[i] = new Ranking(ranked, i + 1);
+        }
+        return new Node(prefix, tag, branchChars, branches, top);
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            if (a.charAt(i) != b.charAt(i)) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    // The first size suggestions of a node, sharing the array with the node's lists for other limits
+    private static final class Ranking extends AbstractList<TagSuggestionDto> implements RandomAccess {
+
+        private final TagSuggestionDto[] ranked;
+        private final int size;
+
+        Ranking(TagSuggestionDto[] ranked, int size) {
+            this.ranked = ranked;
+            this.size = size;
+        }
+
+        @Override
+        public TagSuggestionDto get(int index) {
+            Objects.checkIndex(index, size);
+            return ranked[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+    }
+
+}
@@ -0,0 +1,194 @@
+package com.severentertainment.snippetmanager.suggest;
+
+import com.severentertainment.snippetmanager.config.ReadConsistency;
+import com.severentertainment.snippetmanager.dto.TagSuggestionDto;
+import com.severentertainment.snippetmanager.service.SnippetDataChangedEvent;
+import com.severentertainment.snippetmanager.service.TagService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Suggests tags for a name prefix as users type, ranked by the number of snippets carrying them, from an in-memory
+ * {@link TagSuggestionIndex} instead of a {@code LIKE} query per keystroke.
+ * <p>
+ * The index is loaded from the database at startup and after a reset. After other committed changes, only the tags
+ * the change names (those created, renamed or deleted, and those linked to or unlinked from snippets) are read
+ * back and updated in the index, on a thread of its own so writers do not wait for it; changes naming no tags, such
+ * as edits to a snippet's content, are ignored. The tags of changes committed while an update is pending are read
+ * with that update, so a burst of writes costs one or two. Suggestions may therefore lag a write by the time an
+ * update takes.
+ */
+@Component
+@ConditionalOnProperty(name = "snippetmanager.storage.engine", havingValue = "jpa", matchIfMissing = true)
+public class TagSuggestions implements SmartInitializingSingleton, DisposableBean {
+
+    public static final int MAX_LIMIT = 20;
+
+    private static final Logger log = LoggerFactory.getLogger(TagSuggestions.class);
+
+    private static final String SELECT_TAGS = "select t.id, t.name, count(st.snippet_id) from tag t "
+            + "left join snippet_tag st on st.tag_id = t.id ";
+    private static final RowMapper<TagSuggestionDto> TAG_MAPPER =
+            (rs, rowNum) -> new TagSuggestionDto(rs.getLong(1), rs.getString(2), rs.getLong(3));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTransaction;
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("tag-suggestions-refresh").daemon().factory());
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+    private final AtomicBoolean reloadPending = new AtomicBoolean();
+    private final Set<Long> pendingTagIds = ConcurrentHashMap.newKeySet();
+    private final Object loadLock = new Object();
+    private final Map<Long, TagSuggestionDto> tagsById = new HashMap<>(); // As in the index; guarded by loadLock
+
+    private volatile TagSuggestionIndex index = TagSuggestionIndex.build(List.of(), MAX_LIMIT);
+
+    @Autowired
+    public TagSuggestions(DataSource dataSource, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+
+        // Usage counts are read from the primary, as replicas may not have the change that triggered the update yet
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Builds the initial index once schema migrations have run and before the application accepts requests.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        long start = System.nanoTime();
+        load();
+        log.info("Loaded {} tags for suggestions in {} ms", index.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Returns the most used tags whose normalized names start with the normalized prefix.
+     *
+     * @param prefix The prefix as typed by the user; blank for the most used tags overall.
+     * @param limit The most suggestions to return, from 1 to {@link #MAX_LIMIT}.
+     * @return The suggestions, most used first; shared between callers and not to be modified.
+     * @throws IllegalArgumentException If the limit is out of range.
+     */
+    public List<TagSuggestionDto> suggest(String prefix, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Suggestion limit must be between 1 and " + MAX_LIMIT);
+        }
+        return index.suggest(TagService.normalizeName(prefix), limit);
+    }
+
+    /**
+     * Schedules an update of the tags a committed change names, or a reload after a reset, unless one is already
+     * pending.
+     *
+     * @param event The change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDataChanged(SnippetDataChangedEvent event) {
+        if (event.isReset()) {
+            reloadPending.set(true);
+        } else if (event.tagIds().isEmpty()) {
+            return; // No usage count or name changed
+        } else {
+            pendingTagIds.addAll(event.tagIds());
+        }
+        if (refreshPending.compareAndSet(false, true)) {
+            refresher.execute(this::refresh);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        refresher.shutdownNow();
+    }
+
+    private void refresh() {
+        refreshPending.set(false); // Changes committed from here on schedule another refresh
+        boolean reload = reloadPending.getAndSet(false);
+        Set<Long> tagIds = new HashSet<>();
+        for (Iterator<Long> iterator = pendingTagIds.iterator(); iterator.hasNext(); ) {
+            tagIds.add(iterator.next());
+            iterator.remove();
+        }
+
+        try {
+            if (reload) {
+                load();
+            } else if (!tagIds.isEmpty()) {
+                update(tagIds);
+            }
+        } catch (RuntimeException e) {
+            reloadPending.set(true); // The tags of the failed update are not pending any more
+            log.error("Could not update tag suggestions; they will be reloaded with the next change", e);
+        }
+    }
+
+    // Serialized with update, so that an index is never replaced by one read earlier
+    private void load() {
+        synchronized (loadLock) {
+            List<TagSuggestionDto> tags = ReadConsistency.onPrimary(() -> readTransaction.execute(status -> jdbcTemplate.query(
+                    SELECT_TAGS + "group by t.id, t.name", TAG_MAPPER)));
+            tagsById.clear();
+            tags.forEach(tag -> tagsById.put(tag.getId(), tag));
+            index = TagSuggestionIndex.build(tags, MAX_LIMIT);
+        }
+    }
+
+    // Reads the tags back, and replaces or removes those that changed in the index
+    private void update(Set<Long> tagIds) {
+        synchronized (loadLock) {
+            Map<Long, TagSuggestionDto> current = new HashMap<>();
+            ReadConsistency.onPrimary(() -> readTransaction.execute(status -> jdbcTemplate.query(
+                    SELECT_TAGS + "where t.id in (:ids) group by t.id, t.name", Map.of("ids", tagIds), TAG_MAPPER)))
+                    .forEach(tag -> current.put(tag.getId(), tag));
+
+            List<TagSuggestionDto> removed = new ArrayList<>();
+            List<TagSuggestionDto> added = new ArrayList<>();
+            for (Long id : tagIds) {
+                TagSuggestionDto before = tagsById.get(id);
+                TagSuggestionDto after = current.get(id); // Null if the tag was deleted
+                if (Objects.equals(before, after)) {
+                    continue;
+                }
+                if (before != null) {
+                    removed.add(before);
+                    tagsById.remove(id);
+                }
+                if (after != null) {
+                    added.add(after);
+                    tagsById.put(id, after);
+                }
+            }
+            if (!removed.isEmpty() || !added.isEmpty()) {
+                index = index.update(removed, added);
+            }
+        }
+    }
+
+}
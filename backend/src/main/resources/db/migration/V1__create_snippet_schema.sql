@@ -0,0 +1,25 @@
+-- Baseline schema, matching the JPA mappings of Snippet and Tag
+
+create table tag (
+    id bigint generated by default as identity primary key,
+    name varchar(255) not null,
+    constraint uk_tag_name unique (name)
+);
+
+create table snippet (
+    id bigint generated by default as identity primary key,
+    title varchar(255),
+    content clob,
+    creation_date timestamp(6) with time zone,
+    last_modified_date timestamp(6) with time zone
+);
+
+create table snippet_tag (
+    snippet_id bigint not null,
+    tag_id bigint not null,
+    primary key (snippet_id, tag_id),
+    constraint fk_snippet_tag_snippet foreign key (snippet_id) references snippet (id),
+    constraint fk_snippet_tag_tag foreign key (tag_id) references tag (id)
+);
+
+create index idx_snippet_tag_tag_id on snippet_tag (tag_id);
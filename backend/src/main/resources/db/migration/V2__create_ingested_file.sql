@@ -0,0 +1,16 @@
+-- Markdown files imported by the ingestion pipeline, with content hashes for skipping unchanged files
+
+create table ingested_file (
+    id bigint generated by default as identity primary key,
+    source_path varchar(1024) not null,
+    content_hash varchar(64) not null,
+    ingested_at timestamp(6) with time zone,
+    constraint uk_ingested_file_source_path unique (source_path)
+);
+
+create table ingested_file_snippet (
+    ingested_file_id bigint not null,
+    snippet_id bigint not null,
+    primary key (ingested_file_id, snippet_id),
+    constraint fk_ingested_file_snippet_file foreign key (ingested_file_id) references ingested_file (id)
+);
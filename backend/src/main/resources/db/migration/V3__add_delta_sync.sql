@@ -0,0 +1,11 @@
+-- Delta sync (GET /api/v1/snippets/changes): snippets are found by modification time, deletions by their tombstones
+
+create index idx_snippet_last_modified_date on snippet (last_modified_date);
+
+create table snippet_tombstone (
+    id bigint generated by default as identity primary key,
+    snippet_id bigint,
+    deleted_at timestamp(6) with time zone not null
+);
+
+create index idx_snippet_tombstone_deleted_at on snippet_tombstone (deleted_at);
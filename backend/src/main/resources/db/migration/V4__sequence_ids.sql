@@ -0,0 +1,12 @@
+-- Snippet and tag IDs come from sequences, which Hibernate reads in blocks of 50 (the increment) so that inserts can
+-- be batched. The sequences continue after the existing IDs; inserts without an ID still get one from the default
+
+create sequence tag_seq start with 1 increment by 50;
+alter sequence tag_seq restart with (select coalesce(max(id), 0) + 1 from tag);
+alter table tag alter column id drop identity;
+alter table tag alter column id set default next value for tag_seq;
+
+create sequence snippet_seq start with 1 increment by 50;
+alter sequence snippet_seq restart with (select coalesce(max(id), 0) + 1 from snippet);
+alter table snippet alter column id drop identity;
+alter table snippet alter column id set default next value for snippet_seq;
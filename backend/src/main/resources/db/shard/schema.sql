@@ -0,0 +1,36 @@
+-- Schema of each shard in sharded mode (see ShardSet). Tags are copies of the main database's tags;
+-- snippets carry the bucket that places them on a shard, so that the rebalancer can move a bucket at a time.
+
+create table if not exists tag (
+    id bigint primary key,
+    name varchar(255) not null
+);
+
+create table if not exists snippet (
+    id bigint primary key,
+    bucket int not null,
+    title varchar(255),
+    content clob,
+    creation_date timestamp(6) with time zone,
+    last_modified_date timestamp(6) with time zone
+);
+
+create index if not exists idx_snippet_bucket on snippet (bucket);
+
+create table if not exists snippet_tag (
+    snippet_id bigint not null,
+    tag_id bigint not null,
+    primary key (snippet_id, tag_id),
+    constraint fk_snippet_tag_snippet foreign key (snippet_id) references snippet (id),
+    constraint fk_snippet_tag_tag foreign key (tag_id) references tag (id)
+);
+
+create index if not exists idx_snippet_tag_tag_id on snippet_tag (tag_id);
+
+-- Catalog, only used on the first shard: which shard owns each bucket, and the snippet IDs of all shards
+create table if not exists shard_bucket (
+    bucket int primary key,
+    shard int not null
+);
+
+create sequence if not exists snippet_id_seq;
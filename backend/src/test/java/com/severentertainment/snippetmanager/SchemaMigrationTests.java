@@ -0,0 +1,21 @@
+package com.severentertainment.snippetmanager;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Applies the Flyway migrations used by the {@code prod} profile to a fresh database
+ * and lets Hibernate validate them against the entity mappings.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:migrations;DB_CLOSE_DELAY=-1",
+		"spring.flyway.enabled=true",
+		"spring.jpa.hibernate.ddl-auto=validate"
+})
+class SchemaMigrationTests {
+
+	@Test
+	void migrationsMatchEntityMappings() {
+	}
+
+}
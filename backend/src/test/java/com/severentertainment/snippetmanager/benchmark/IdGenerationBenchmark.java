@@ -0,0 +1,86 @@
+package com.severentertainment.snippetmanager.benchmark;
+
+import com.severentertainment.snippetmanager.DesignDocSnippetManagerApplication;
+import com.severentertainment.snippetmanager.domain.Snippet;
+import com.severentertainment.snippetmanager.repository.SnippetRepository;
+import com.severentertainment.snippetmanager.service.SnippetService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures snippet inserts with the ID taken from the sequence for every insert (as with identity columns) and with
+ * IDs handed out from blocks (pooled-lo), for single creates through {@link SnippetService} and for a bulk import
+ * saving batches of snippets per transaction.
+ * <p>
+ * Not run by the test suite; run {@link #main(String[])} from the IDE or with
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=...}.
+ */
+public class IdGenerationBenchmark {
+
+    private static final int SINGLE_CREATES = 5_000;
+    private static final int IMPORTED = 50_000;
+    private static final int BATCH_SIZE = 500;
+
+    public static void main(String[] args) {
+        String content = "## Design notes\n\n" + "The service caches responses and batches writes. ".repeat(20);
+
+        for (String optimizer : new String[] {"none", "pooled-lo"}) {
+            try (ConfigurableApplicationContext context = start(optimizer)) {
+                SnippetService snippetService = context.getBean(SnippetService.class);
+                SnippetRepository snippetRepository = context.getBean(SnippetRepository.class);
+                TransactionTemplate transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+                Statistics statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+
+                statistics.clear();
+                long start = System.nanoTime();
+                for (int i = 0; i < SINGLE_CREATES; i++) {
+                    snippetService.createSnippet(snippet("Single " + i, content));
+                }
+                report(optimizer, "single creates", SINGLE_CREATES, System.nanoTime() - start, statistics);
+
+                statistics.clear();
+                start = System.nanoTime();
+                for (int from = 0; from < IMPORTED; from += BATCH_SIZE) {
+                    List<Snippet> batch = new ArrayList<>(BATCH_SIZE);
+                    for (int i = from; i < from + BATCH_SIZE; i++) {
+                        batch.add(snippet("Imported " + i, content));
+                    }
+                    transaction.executeWithoutResult(status -> snippetRepository.saveAll(batch));
+                }
+                report(optimizer, "bulk import", IMPORTED, System.nanoTime() - start, statistics);
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String optimizer) {
+        return new SpringApplicationBuilder(DesignDocSnippetManagerApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:id-generation-" + optimizer,
+                        "spring.jpa.properties.hibernate.id.optimizer.pooled.preferred=" + optimizer,
+                        "spring.devtools.restart.enabled=false")
+                .run();
+    }
+
+    private static Snippet snippet(String title, String content) {
+        Snippet snippet = new Snippet();
+        snippet.setTitle(title);
+        snippet.setContent(content);
+        return snippet;
+    }
+
+    private static void report(String optimizer, String workload, int inserts, long elapsedNanos, Statistics statistics) {
+        System.out.printf("optimizer=%-9s %-14s %6d inserts in %6d ms (%8.0f inserts/s, %6d statements prepared)%n",
+                optimizer, workload, inserts, elapsedNanos / 1_000_000, inserts / (elapsedNanos / 1e9),
+                statistics.getPrepareStatementCount());
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.severentertainment.snippetmanager.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.severentertainment.snippetmanager.domain.Snippet;
+import com.severentertainment.snippetmanager.service.CachedSnippetJson;
+import com.severentertainment.snippetmanager.service.SnippetJsonCache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Measures the bandwidth saved by precompressed snippet JSON and the CPU it costs.
+ * Compares three ways of serving a snippet: uncompressed, gzip on every request (what
+ * {@code server.compression} does), and gzip once per cached version (what {@link SnippetJsonCache} does).
+ * <p>
+ * Not run by the test suite; run {@link #main(String[])} from the IDE or with
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=...}.
+ */
+public class SnippetCompressionBenchmark {
+
+    private static final int REQUESTS_PER_VERSION = 100;
+    private static final int ITERATIONS = 200;
+
+    public static void main(String[] args) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        System.out.printf("%10s %10s %10s %8s %14s %14s%n",
+                "body", "json", "gzip", "ratio", "gzip/request", "gzip/version");
+
+        for (int bodySize : new int[] {1_024, 16_384, 262_144, 2_097_152}) {
+            Snippet snippet = markdownSnippet(bodySize);
+            SnippetJsonCache cache = new SnippetJsonCache(objectMapper, Long.MAX_VALUE, 0);
+
+            // Warm up both compression paths
+            for (int i = 0; i < 20; i++) {
+                CachedSnippetJson warm = cache.put(snippet, cache.generation());
+                gzipPerRequest(toArray(warm.json()));
+                warm.release();
+            }
+
+            long precompressNanos = 0;
+            CachedSnippetJson entry = null;
+            for (int i = 0; i < ITERATIONS; i++) {
+                long start = System.nanoTime();
+                if (entry != null) {
+                    entry.release();
+                }
+                entry = cache.put(snippet, cache.generation());
+                precompressNanos += System.nanoTime() - start;
+            }
+
+            byte[] json = toArray(entry.json());
+
+            long perRequestNanos = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                long start = System.nanoTime();
+                gzipPerRequest(json);
+                perRequestNanos += System.nanoTime() - start;
+            }
+
+            int jsonBytes = json.length;
+            int gzipBytes = entry.hasGzip() ? entry.gzip().remaining() : jsonBytes;
+
+            // Precompression is paid once per version and amortized over the requests that read it
+            System.out.printf("%10d %10d %10d %7.1f%% %11.1f us %11.1f us%n",
+                    bodySize, jsonBytes, gzipBytes,
+                    100.0 * gzipBytes / jsonBytes,
+                    perRequestNanos / 1_000.0 / ITERATIONS,
+                    precompressNanos / 1_000.0 / ITERATIONS / REQUESTS_PER_VERSION);
+        }
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static byte[] gzipPerRequest(byte[] json) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        }
+        return out.toByteArray();
+    }
+
+    private static Snippet markdownSnippet(int bodySize) {
+        String[] words = {"service", "request", "latency", "snippet", "design", "cache", "the", "of", "and", "to"};
+        Random random = new Random(42);
+        StringBuilder body = new StringBuilder(bodySize + 64);
+        while (body.length() < bodySize) {
+            if (random.nextInt(20) == 0) {
+                body.append("\n\n## Section ").append(body.length()).append("\n\n");
+            }
+            body.append(words[random.nextInt(words.length)]).append(' ');
+        }
+
+        Snippet snippet = new Snippet();
+        snippet.setId(1L);
+        snippet.setTitle("Benchmark snippet");
+        snippet.setContent(body.toString());
+        snippet.setCreationDate(Instant.now());
+        snippet.setLastModifiedDate(Instant.now());
+        snippet.setTags(new HashSet<>());
+        return snippet;
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.severentertainment.snippetmanager.benchmark;
+
+import com.severentertainment.snippetmanager.DesignDocSnippetManagerApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures a tag-heavy request mix (reading a snippet's tags, adding and removing tags, looking tags up
+ * by name) over 10k snippets, with and without the Hibernate second-level cache.
+ * <p>
+ * Not run by the test suite; run {@link #main(String[])} from the IDE or with
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=...}.
+ */
+public class TagCacheBenchmark {
+
+    private static final int SNIPPETS = 10_000;
+    private static final int TAGS = 200;
+    private static final int BATCH_SIZE = 1_000;
+    private static final int WARMUP_REQUESTS = 2_000;
+    private static final int REQUESTS = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        for (boolean cached : new boolean[] {false, true}) {
+            try (ConfigurableApplicationContext context = start(cached)) {
+                seed(context.getBean(JdbcTemplate.class));
+
+                String port = context.getEnvironment().getProperty("local.server.port");
+                HttpClient client = HttpClient.newHttpClient();
+
+                run(client, port, WARMUP_REQUESTS);
+                long start = System.nanoTime();
+                run(client, port, REQUESTS);
+                long elapsedNanos = System.nanoTime() - start;
+
+                System.out.printf("second-level cache=%-5s %d requests in %6d ms (%.1f us/request)%n",
+                        cached, REQUESTS, elapsedNanos / 1_000_000, elapsedNanos / 1_000.0 / REQUESTS);
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(boolean cached) {
+        return new SpringApplicationBuilder(DesignDocSnippetManagerApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:tag-cache-" + cached,
+                        "spring.jpa.properties.hibernate.cache.use_second_level_cache=" + cached,
+                        "spring.jpa.properties.hibernate.cache.use_query_cache=" + cached,
+                        "spring.devtools.restart.enabled=false")
+                .run();
+    }
+
+    // 80% tag reads, 10% tag lookups by name, 10% tag changes
+    private static void run(HttpClient client, String port, int requests) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < requests; i++) {
+            long snippetId = random.nextLong(1, SNIPPETS + 1);
+            long tagId = random.nextLong(1, TAGS + 1);
+            int operation = random.nextInt(10);
+
+            if (operation < 8) {
+                send(client, "GET", "http://localhost:" + port + "/api/v1/snippets/" + snippetId + "/tags", null);
+            } else if (operation == 8) {
+                send(client, "POST", "http://localhost:" + port + "/api/v1/tags", "{\"name\":\"Tag " + tagId + "\"}");
+            } else {
+                String url = "http://localhost:" + port + "/api/v1/snippets/" + snippetId + "/tags/" + tagId;
+                send(client, "POST", url, null);
+                send(client, "DELETE", url, null);
+            }
+        }
+    }
+
+    private static void send(HttpClient client, String method, String url, String json) throws Exception {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url));
+        if (json != null) {
+            builder.header("Content-Type", "application/json");
+        }
+        HttpRequest request = builder
+                .method(method, json != null ? HttpRequest.BodyPublishers.ofString(json) : HttpRequest.BodyPublishers.noBody())
+                .build();
+
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException(method + " " + url + " returned " + response.statusCode());
+        }
+    }
+
+    private static void seed(JdbcTemplate jdbcTemplate) {
+        long start = System.nanoTime();
+        String content = "## Design notes\n\n" + "The service caches responses and batches writes. ".repeat(40);
+
+        List<Object[]> tags = new ArrayList<>();
+        for (int i = 1; i <= TAGS; i++) {
+            tags.add(new Object[] {i, "tag " + i});
+        }
+        jdbcTemplate.batchUpdate("insert into tag (id, name) values (?, ?)", tags);
+
+        for (int from = 1; from <= SNIPPETS; from += BATCH_SIZE) {
+            List<Object[]> snippets = new ArrayList<>(BATCH_SIZE);
+            List<Object[]> links = new ArrayList<>(BATCH_SIZE * 3);
+            for (long id = from; id < from + BATCH_SIZE; id++) {
+                Timestamp modified = Timestamp.from(Instant.now());
+                snippets.add(new Object[] {id, "Snippet " + id, content, modified, modified});
+                links.add(new Object[] {id, id % TAGS + 1});
+                links.add(new Object[] {id, (id * 7) % TAGS + 1});
+                links.add(new Object[] {id, (id * 13) % TAGS + 1});
+            }
+            jdbcTemplate.batchUpdate(
+                    "insert into snippet (id, title, content, creation_date, last_modified_date) values (?, ?, ?, ?, ?)",
+                    snippets);
+            jdbcTemplate.batchUpdate("merge into snippet_tag (snippet_id, tag_id) values (?, ?)", links);
+        }
+        jdbcTemplate.execute("alter sequence tag_seq restart with " + (TAGS + 1));
+        jdbcTemplate.execute("alter sequence snippet_seq restart with " + (SNIPPETS + 1));
+
+        System.out.printf("Seeded %d snippets in %d ms%n", SNIPPETS, (System.nanoTime() - start) / 1_000_000);
+    }
+
+}
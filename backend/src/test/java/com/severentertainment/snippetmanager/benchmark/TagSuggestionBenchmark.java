@@ -0,0 +1,126 @@
+package com.severentertainment.snippetmanager.benchmark;
+
+import com.severentertainment.snippetmanager.DesignDocSnippetManagerApplication;
+import com.severentertainment.snippetmanager.service.SnippetDataChangedEvent;
+import com.severentertainment.snippetmanager.suggest.TagSuggestions;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures tag suggestions for as-you-type prefixes over 50k tags, from the in-memory index and, for comparison,
+ * with a {@code LIKE 'prefix%'} query ranked by usage per keystroke.
+ * <p>
+ * Not run by the test suite; run {@link #main(String[])} from the IDE or with
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=...}.
+ */
+public class TagSuggestionBenchmark {
+
+    private static final int TAGS = 50_000;
+    private static final int SNIPPETS = 10_000;
+    private static final int BATCH_SIZE = 1_000;
+    private static final int WARMUP_LOOKUPS = 200_000;
+    private static final int LOOKUPS = 1_000_000;
+    private static final int QUERIES = 2_000;
+    private static final String[] WORDS = {"java", "spring", "design", "database", "cache", "query", "index", "storage"};
+
+    public static void main(String[] args) throws Exception {
+        try (ConfigurableApplicationContext context = start()) {
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            seed(jdbcTemplate);
+            context.publishEvent(SnippetDataChangedEvent.reset());
+            Thread.sleep(2_000); // Lets the index rebuild after the seeding
+
+            TagSuggestions tagSuggestions = context.getBean(TagSuggestions.class);
+            List<String> prefixes = prefixes();
+
+            long found = 0;
+            for (int i = 0; i < WARMUP_LOOKUPS; i++) {
+                found += tagSuggestions.suggest(prefixes.get(i % prefixes.size()), 10).size();
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                found += tagSuggestions.suggest(prefixes.get(i % prefixes.size()), 10).size();
+            }
+            long elapsedNanos = System.nanoTime() - start;
+            System.out.printf("index:      %7d lookups in %6d ms (%8.2f us/lookup, %d suggestions)%n",
+                    LOOKUPS, elapsedNanos / 1_000_000, elapsedNanos / 1_000.0 / LOOKUPS, found);
+
+            found = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < QUERIES; i++) {
+                found += jdbcTemplate.queryForList("select t.name from tag t left join snippet_tag st on st.tag_id = t.id "
+                        + "where t.name like ? group by t.id, t.name order by count(st.snippet_id) desc, t.name limit 10",
+                        String.class, prefixes.get(i % prefixes.size()) + "%").size();
+            }
+            elapsedNanos = System.nanoTime() - start;
+            System.out.printf("like query: %7d lookups in %6d ms (%8.2f us/lookup, %d suggestions)%n",
+                    QUERIES, elapsedNanos / 1_000_000, elapsedNanos / 1_000.0 / QUERIES, found);
+        }
+    }
+
+    private static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(DesignDocSnippetManagerApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:tag-suggestions",
+                        "spring.devtools.restart.enabled=false")
+                .run();
+    }
+
+    // Every prefix of a tag name as it is typed, one keystroke at a time
+    private static List<String> prefixes() {
+        List<String> prefixes = new ArrayList<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 1_000; i++) {
+            String name = name(random.nextInt(1, TAGS + 1));
+            for (int length = 1; length <= name.length(); length++) {
+                prefixes.add(name.substring(0, length));
+            }
+        }
+        return prefixes;
+    }
+
+    private static String name(int i) {
+        return WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " " + i;
+    }
+
+    private static void seed(JdbcTemplate jdbcTemplate) {
+        long start = System.nanoTime();
+
+        List<Object[]> tags = new ArrayList<>();
+        for (int i = 1; i <= TAGS; i++) {
+            tags.add(new Object[] {i, name(i)});
+        }
+        jdbcTemplate.batchUpdate("insert into tag (id, name) values (?, ?)", tags);
+
+        // Usage skewed towards low tag IDs, as in real tag sets
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int from = 1; from <= SNIPPETS; from += BATCH_SIZE) {
+            List<Object[]> snippets = new ArrayList<>(BATCH_SIZE);
+            List<Object[]> links = new ArrayList<>(BATCH_SIZE * 3);
+            for (long id = from; id < from + BATCH_SIZE; id++) {
+                Timestamp modified = Timestamp.from(Instant.now());
+                snippets.add(new Object[] {id, "Snippet " + id, "Content", modified, modified});
+                for (int j = 0; j < 3; j++) {
+                    links.add(new Object[] {id, 1 + (int) (TAGS * Math.pow(random.nextDouble(), 4))});
+                }
+            }
+            jdbcTemplate.batchUpdate(
+                    "insert into snippet (id, title, content, creation_date, last_modified_date) values (?, ?, ?, ?, ?)",
+                    snippets);
+            jdbcTemplate.batchUpdate("merge into snippet_tag (snippet_id, tag_id) values (?, ?)", links);
+        }
+        jdbcTemplate.execute("alter sequence tag_seq restart with " + (TAGS + 1));
+        jdbcTemplate.execute("alter sequence snippet_seq restart with " + (SNIPPETS + 1));
+
+        System.out.printf("Seeded %d tags and %d snippets in %d ms%n", TAGS, SNIPPETS, (System.nanoTime() - start) / 1_000_000);
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.severentertainment.snippetmanager.benchmark;
+
+import com.severentertainment.snippetmanager.DesignDocSnippetManagerApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Hammers tag creation with the same names from many threads: in every round, all threads create the same new tags
+ * in the same order, so most requests for a name arrive while another request is creating it.
+ * Reports the throughput, the number of tags created and the number of failed requests, which should be zero.
+ * <p>
+ * Not run by the test suite; run {@link #main(String[])} from the IDE or with
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=...}.
+ */
+public class TagUpsertBenchmark {
+
+    private static final int THREADS = 32;
+    private static final int NAMES_PER_ROUND = 50;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int ROUNDS = 40;
+
+    public static void main(String[] args) throws Exception {
+        try (ConfigurableApplicationContext context = start()) {
+            String port = context.getEnvironment().getProperty("local.server.port");
+            HttpClient client = HttpClient.newHttpClient();
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            try {
+                run(client, executor, port, "warmup", WARMUP_ROUNDS);
+
+                long start = System.nanoTime();
+                int failures = run(client, executor, port, "round", ROUNDS);
+                long elapsedNanos = System.nanoTime() - start;
+
+                int requests = ROUNDS * NAMES_PER_ROUND * THREADS;
+                Integer tags = context.getBean(JdbcTemplate.class).queryForObject("select count(*) from tag", Integer.class);
+                System.out.printf("%d threads: %d requests in %6d ms (%8.0f requests/s), %d tags, %d failed requests%n",
+                        THREADS, requests, elapsedNanos / 1_000_000, requests / (elapsedNanos / 1e9), tags, failures);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(DesignDocSnippetManagerApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:tag-upsert",
+                        "spring.devtools.restart.enabled=false")
+                .run();
+    }
+
+    // Returns the number of requests that did not succeed
+    private static int run(HttpClient client, ExecutorService executor, String port, String prefix, int rounds) throws Exception {
+        int failures = 0;
+        for (int round = 0; round < rounds; round++) {
+            List<String> names = new ArrayList<>(NAMES_PER_ROUND);
+            for (int i = 0; i < NAMES_PER_ROUND; i++) {
+                names.add(prefix + " " + round + " tag " + i);
+            }
+
+            CountDownLatch ready = new CountDownLatch(1);
+            List<Future<Integer>> threads = new ArrayList<>(THREADS);
+            for (int thread = 0; thread < THREADS; thread++) {
+                threads.add(executor.submit(() -> {
+                    ready.await();
+                    int failed = 0;
+                    for (String name : names) {
+                        if (!create(client, port, name)) {
+                            failed++;
+                        }
+                    }
+                    return failed;
+                }));
+            }
+
+            ready.countDown();
+            for (Future<Integer> thread : threads) {
+                failures += thread.get();
+            }
+        }
+        return failures;
+    }
+
+    private static boolean create(HttpClient client, String port, String name) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/tags"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"" + name + "\"}"))
+                .build();
+
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        return response.statusCode() < 400;
+    }
+
+}
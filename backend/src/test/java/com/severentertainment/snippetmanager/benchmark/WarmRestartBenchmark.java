@@ -0,0 +1,111 @@
+package com.severentertainment.snippetmanager.benchmark;
+
+import com.severentertainment.snippetmanager.DesignDocSnippetManagerApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures time-to-first-request after restarting the {@code prod} profile on a file-backed corpus of
+ * 100k snippets, with and without startup warmup.
+ * <p>
+ * Not run by the test suite; run {@link #main(String[])} from the IDE or with
+ * {@code ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=...}.
+ */
+public class WarmRestartBenchmark {
+
+    private static final int SNIPPETS = 100_000;
+    private static final int TAGS = 200;
+    private static final int BATCH_SIZE = 1_000;
+
+    public static void main(String[] args) throws Exception {
+        Path dataDir = Files.createTempDirectory("snippet-benchmark");
+        System.out.println("Data directory: " + dataDir);
+
+        try (ConfigurableApplicationContext context = start(dataDir, false)) {
+            seed(context.getBean(JdbcTemplate.class));
+        }
+
+        for (boolean warmup : new boolean[] {false, true}) {
+            long start = System.nanoTime();
+            try (ConfigurableApplicationContext context = start(dataDir, warmup)) {
+                long startedNanos = System.nanoTime() - start;
+
+                String port = context.getEnvironment().getProperty("local.server.port");
+                HttpClient client = HttpClient.newHttpClient();
+
+                long firstRequestStart = System.nanoTime();
+                get(client, port, SNIPPETS); // Most recently modified snippet
+                long firstRequestNanos = System.nanoTime() - firstRequestStart;
+
+                long sampleStart = System.nanoTime();
+                for (long id = SNIPPETS; id > SNIPPETS - 1_000; id--) {
+                    get(client, port, id);
+                }
+                long sampleNanos = System.nanoTime() - sampleStart;
+
+                System.out.printf("warmup=%-5s started in %6d ms, first request %6.2f ms, next 1000 requests %6d ms%n",
+                        warmup, startedNanos / 1_000_000, firstRequestNanos / 1_000_000.0, sampleNanos / 1_000_000);
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(Path dataDir, boolean warmup) {
+        return new SpringApplicationBuilder(DesignDocSnippetManagerApplication.class)
+                .profiles("prod")
+                .properties(
+                        "server.port=0",
+                        "snippetmanager.data-dir=" + dataDir,
+                        "snippetmanager.warmup.enabled=" + warmup,
+                        "spring.devtools.restart.enabled=false")
+                .run();
+    }
+
+    private static void get(HttpClient client, String port, long id) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/snippets/" + id)).build();
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET snippet " + id + " returned " + response.statusCode());
+        }
+    }
+
+    private static void seed(JdbcTemplate jdbcTemplate) {
+        long start = System.nanoTime();
+        String content = "## Design notes\n\n" + "The service caches responses and batches writes. ".repeat(40);
+
+        List<Object[]> tags = new ArrayList<>();
+        for (int i = 1; i <= TAGS; i++) {
+            tags.add(new Object[] {"tag " + i});
+        }
+        jdbcTemplate.batchUpdate("insert into tag (name) values (?)", tags);
+
+        for (int from = 1; from <= SNIPPETS; from += BATCH_SIZE) {
+            List<Object[]> snippets = new ArrayList<>(BATCH_SIZE);
+            List<Object[]> links = new ArrayList<>(BATCH_SIZE * 2);
+            for (long id = from; id < from + BATCH_SIZE; id++) {
+                Timestamp modified = Timestamp.from(Instant.now().minusSeconds(SNIPPETS - id));
+                snippets.add(new Object[] {id, "Snippet " + id, content, modified, modified});
+                links.add(new Object[] {id, id % TAGS + 1});
+                links.add(new Object[] {id, (id * 7) % TAGS + 1});
+            }
+            jdbcTemplate.batchUpdate(
+                    "insert into snippet (id, title, content, creation_date, last_modified_date) values (?, ?, ?, ?, ?)",
+                    snippets);
+            jdbcTemplate.batchUpdate("merge into snippet_tag (snippet_id, tag_id) values (?, ?)", links);
+        }
+
+        System.out.printf("Seeded %d snippets in %d ms%n", SNIPPETS, (System.nanoTime() - start) / 1_000_000);
+    }
+
+}
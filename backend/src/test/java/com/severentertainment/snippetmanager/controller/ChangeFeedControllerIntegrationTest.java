@@ -0,0 +1,153 @@
+package com.severentertainment.snippetmanager.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.severentertainment.snippetmanager.domain.Snippet;
+import com.severentertainment.snippetmanager.domain.Tag;
+import com.severentertainment.snippetmanager.dto.SnippetResponseDto;
+import com.severentertainment.snippetmanager.dto.TagResponseDto;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Not @Transactional: changes are only streamed once their transaction has committed
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+@AutoConfigureMockMvc
+public class ChangeFeedControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    public void clearData() {
+        jdbcTemplate.update("delete from snippet_tag");
+        jdbcTemplate.update("delete from snippet");
+        jdbcTemplate.update("delete from tag");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    private MvcResult subscribe(String lastEventId) throws Exception {
+        return mockMvc.perform(lastEventId == null
+                    ? get("/api/v1/changes")
+                    : get("/api/v1/changes").header("Last-Event-ID", lastEventId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private Long createSnippet(String title) throws Exception {
+        Snippet request = new Snippet();
+        request.setTitle(title);
+        request.setContent("Content of " + title);
+
+        MvcResult result = mockMvc.perform(post("/api/v1/snippets")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readValue(result.getResponse().getContentAsString(), SnippetResponseDto.class).getId();
+    }
+
+    // Events are sent by the subscriber's own thread, so wait for them to arrive
+    private static String awaitEvent(MvcResult stream, String event) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            String content = stream.getResponse().getContentAsString();
+            if (content.contains(event)) {
+                return content;
+            }
+            Thread.sleep(10);
+        }
+        return fail("Event not received: " + event + "\n" + stream.getResponse().getContentAsString());
+    }
+
+    private static String eventIdOf(String content, String data) {
+        Matcher matcher = Pattern.compile("id:(\\S+)\nevent:[a-z.]+\ndata:" + Pattern.quote(data)).matcher(content);
+        assertTrue(matcher.find(), "No event with data " + data);
+        return matcher.group(1);
+    }
+
+    @Test
+    public void committedWrites_shouldBeStreamedInOrder() throws Exception {
+        MvcResult stream = subscribe(null);
+
+        Long snippetId = createSnippet("Streamed");
+        Tag tagRequest = new Tag();
+        tagRequest.setName("Streamed Tag");
+        MvcResult tagResult = mockMvc.perform(post("/api/v1/tags")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(tagRequest)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Long tagId = objectMapper.readValue(tagResult.getResponse().getContentAsString(), TagResponseDto.class).getId();
+        mockMvc.perform(post("/api/v1/snippets/{snippetId}/tags/{tagId}", snippetId, tagId))
+                .andExpect(status().isOk());
+
+        String content = awaitEvent(stream, "event:tags.linked");
+
+        // 1. Check the stream content type
+        assertTrue(stream.getResponse().getContentType().startsWith(MediaType.TEXT_EVENT_STREAM_VALUE));
+
+        // 2. Check that every write was sent, in commit order, with the affected IDs
+        int created = content.indexOf("event:snippets.created\ndata:{\"snippetIds\":[" + snippetId + "]");
+        int tagCreated = content.indexOf("event:tags.created\ndata:{\"snippetIds\":[],\"tagIds\":[" + tagId + "]}");
+        int linked = content.indexOf("event:tags.linked\ndata:{\"snippetIds\":[" + snippetId + "],\"tagIds\":[" + tagId + "]}");
+        assertTrue(created >= 0 && tagCreated > created && linked > tagCreated, content);
+    }
+
+    @Test
+    public void reconnectWithLastEventId_shouldReplayMissedChanges() throws Exception {
+        MvcResult stream = subscribe(null);
+        Long firstId = createSnippet("First");
+        String firstData = "{\"snippetIds\":[" + firstId + "],\"tagIds\":[]}";
+        String lastEventId = eventIdOf(awaitEvent(stream, firstData), firstData);
+
+        // Changes made while the client is "disconnected"
+        Long secondId = createSnippet("Second");
+        mockMvc.perform(delete("/api/v1/snippets/{id}", firstId))
+                .andExpect(status().isNoContent());
+
+        MvcResult resumed = subscribe(lastEventId);
+        String content = awaitEvent(resumed, "event:snippets.deleted");
+
+        // 1. Check that only the missed changes were replayed, in order
+        assertFalse(content.contains("id:" + lastEventId + "\n"));
+        int created = content.indexOf("event:snippets.created\ndata:{\"snippetIds\":[" + secondId + "]");
+        int deleted = content.indexOf("event:snippets.deleted\ndata:{\"snippetIds\":[" + firstId + "]");
+        assertTrue(created >= 0 && deleted > created, content);
+        assertFalse(content.contains("event:reset"));
+    }
+
+    @Test
+    public void reconnectWithUnknownLastEventId_shouldSendReset() throws Exception {
+        // An ID from an earlier run of the application
+        MvcResult stream = subscribe("1-42");
+
+        // 1. Check that the client is told to reload instead of being sent a partial history
+        String content = awaitEvent(stream, "event:reset");
+        assertFalse(content.contains("event:snippets."));
+    }
+
+}
@@ -0,0 +1,231 @@
+package com.severentertainment.snippetmanager.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.severentertainment.snippetmanager.domain.Snippet;
+import com.severentertainment.snippetmanager.dto.SnippetResponseDto;
+import com.severentertainment.snippetmanager.service.ContentTooLargeException;
+import com.severentertainment.snippetmanager.service.SnippetContentService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK, properties = "snippetmanager.upload.max-bytes=1024")
+@AutoConfigureMockMvc
+@Transactional
+public class SnippetContentControllerIntegrationTest {
+
+    // Multi-byte characters make byte offsets differ from character offsets
+    private static final String CONTENT = "# Überblick\n\nDocs with emoji 🚀 and more text.\n";
+    private static final byte[] CONTENT_BYTES = CONTENT.getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SnippetContentService snippetContentService;
+
+    @Autowired
+    private SnippetContentController snippetContentController;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Long createSnippet(String content) throws Exception {
+        Snippet createSnippetRequest = new Snippet();
+        createSnippetRequest.setTitle("Test Title");
+        createSnippetRequest.setContent(content);
+
+        MvcResult postResult = mockMvc.perform(post("/api/v1/snippets")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(createSnippetRequest)))
+                .andExpect(status().isCreated())
+                .andReturn();
+
+        return objectMapper.readValue(postResult.getResponse().getContentAsString(), SnippetResponseDto.class).getId();
+    }
+
+    @Test
+    public void getSnippetContent_shouldReturn200AndWholeContent_whenNoRangeRequested() throws Exception {
+        Long snippetId = createSnippet(CONTENT);
+
+        MvcResult result = mockMvc.perform(get("/api/v1/snippets/" + snippetId + "/content"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, CONTENT_BYTES.length))
+                .andExpect(content().contentTypeCompatibleWith("text/markdown"))
+                .andReturn();
+
+        assertArrayEquals(CONTENT_BYTES, result.getResponse().getContentAsByteArray());
+    }
+
+    @Test
+    public void getSnippetContent_shouldReturn206AndByteRange_whenSingleRangeRequested() throws Exception {
+        Long snippetId = createSnippet(CONTENT);
+
+        // 1. Check a bounded range that starts inside a multi-byte character
+        MvcResult result = mockMvc.perform(get("/api/v1/snippets/" + snippetId + "/content")
+                    .header(HttpHeaders.RANGE, "bytes=3-9"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 3-9/" + CONTENT_BYTES.length))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 7))
+                .andReturn();
+        assertArrayEquals(Arrays.copyOfRange(CONTENT_BYTES, 3, 10), result.getResponse().getContentAsByteArray());
+
+        // 2. Check a suffix range
+        result = mockMvc.perform(get("/api/v1/snippets/" + snippetId + "/content")
+                    .header(HttpHeaders.RANGE, "bytes=-5"))
+                .andExpect(status().isPartialContent())
+                .andReturn();
+        assertArrayEquals(Arrays.copyOfRange(CONTENT_BYTES, CONTENT_BYTES.length - 5, CONTENT_BYTES.length),
+                result.getResponse().getContentAsByteArray());
+    }
+
+    @Test
+    public void getSnippetContent_shouldReturnWholeContent_whenIfRangeDoesNotMatch() throws Exception {
+        Long snippetId = createSnippet(CONTENT);
+
+        MvcResult result = mockMvc.perform(get("/api/v1/snippets/" + snippetId + "/content")
+                    .header(HttpHeaders.RANGE, "bytes=0-3")
+                    .header(HttpHeaders.IF_RANGE, "\"stale\""))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertArrayEquals(CONTENT_BYTES, result.getResponse().getContentAsByteArray());
+    }
+
+    @Test
+    public void getSnippetContent_shouldReturn416_whenRangeStartsPastEnd() throws Exception {
+        Long snippetId = createSnippet(CONTENT);
+
+        mockMvc.perform(get("/api/v1/snippets/" + snippetId + "/content")
+                    .header(HttpHeaders.RANGE, "bytes=" + CONTENT_BYTES.length + "-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + CONTENT_BYTES.length));
+    }
+
+    @Test
+    public void getSnippetContent_shouldReturn404_whenSnippetDoesNotExist() throws Exception {
+        mockMvc.perform(get("/api/v1/snippets/999999/content"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void createSnippetFromContent_shouldReturn201AndStoreBody_whenMarkdownUploaded() throws Exception {
+        MvcResult postResult = mockMvc.perform(post("/api/v1/snippets")
+                    .param("title", "Uploaded")
+                    .contentType("text/markdown")
+                    .content(CONTENT_BYTES))
+                .andExpect(status().isCreated())
+                .andExpect(header().exists(HttpHeaders.LOCATION))
+                .andReturn();
+        String location = postResult.getResponse().getHeader(HttpHeaders.LOCATION);
+
+        // 1. Check the snippet through the JSON API
+        mockMvc.perform(get(location))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Uploaded"))
+                .andExpect(jsonPath("$.content").value(CONTENT))
+                .andExpect(jsonPath("$.creationDate").exists());
+
+        // 2. Check the raw content
+        MvcResult result = mockMvc.perform(get(location + "/content"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertArrayEquals(CONTENT_BYTES, result.getResponse().getContentAsByteArray());
+    }
+
+    @Test
+    public void replaceSnippetContent_shouldReturn204AndReplaceBody_whenSnippetExists() throws Exception {
+        Long snippetId = createSnippet("Old content");
+
+        // Read once so the JSON cache holds the old version
+        mockMvc.perform(get("/api/v1/snippets/" + snippetId))
+                .andExpect(jsonPath("$.content").value("Old content"));
+
+        mockMvc.perform(put("/api/v1/snippets/" + snippetId + "/content")
+                    .contentType("text/markdown")
+                    .content(CONTENT_BYTES))
+                .andExpect(status().isNoContent());
+        entityManager.clear(); // The upload bypasses the test transaction's persistence context
+
+        // 1. Check that the new content is served and the cached JSON was evicted
+        mockMvc.perform(get("/api/v1/snippets/" + snippetId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content").value(CONTENT));
+    }
+
+    @Test
+    public void replaceSnippetContent_shouldReturn404_whenSnippetDoesNotExist() throws Exception {
+        mockMvc.perform(put("/api/v1/snippets/999999/content")
+                    .contentType("text/markdown")
+                    .content(CONTENT_BYTES))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void createSnippetFromContent_shouldReturn413_whenBodyExceedsLimit() throws Exception {
+        mockMvc.perform(post("/api/v1/snippets")
+                    .param("title", "Too large")
+                    .contentType("text/markdown")
+                    .content(new byte[1025]))
+                .andExpect(status().isPayloadTooLarge());
+    }
+
+    @Test
+    public void uploads_shouldReturn415_whenCharsetIsUnknownOrMalformed() throws Exception {
+        Long snippetId = createSnippet("Old content");
+
+        // Called directly, as the request mapping and MockMvc reject such a Content-Type before the controller runs
+        for (String charset : List.of("x-unknown", "not a charset!")) {
+            // 1. Check that neither a create nor a replace fails with a server error
+            assertEquals(HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+                    snippetContentController.createSnippetFromContent("Unknown charset", markdownRequest(charset)).getStatusCode());
+            assertEquals(HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+                    snippetContentController.replaceSnippetContent(snippetId, markdownRequest(charset)).getStatusCode());
+        }
+
+        // 2. Check that the content was left unchanged
+        mockMvc.perform(get("/api/v1/snippets/" + snippetId))
+                .andExpect(jsonPath("$.content").value("Old content"));
+    }
+
+    private static MockHttpServletRequest markdownRequest(String charset) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setContentType("text/markdown");
+        request.setCharacterEncoding(charset);
+        request.setContent(CONTENT_BYTES);
+        return request;
+    }
+
+    @Test
+    public void createSnippet_shouldThrowContentTooLarge_whenStreamExceedsLimitWithoutDeclaredLength() {
+        // Chunked uploads have no Content-Length, so the limit is enforced while the driver reads the body
+        ByteArrayInputStream body = new ByteArrayInputStream("x".repeat(2048).getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(ContentTooLargeException.class,
+                () -> snippetContentService.createSnippet("Too large", body, StandardCharsets.UTF_8));
+    }
+
+}
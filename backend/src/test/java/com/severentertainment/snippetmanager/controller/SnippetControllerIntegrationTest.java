@@ -3,18 +3,23 @@ package com.severentertainment.snippetmanager.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.severentertainment.snippetmanager.domain.Snippet;
 import com.severentertainment.snippetmanager.domain.Tag;
+import com.severentertainment.snippetmanager.dto.SnippetRequestDto;
 import com.severentertainment.snippetmanager.dto.SnippetResponseDto;
 import com.severentertainment.snippetmanager.dto.TagResponseDto;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.ByteArrayInputStream;
 import java.time.Instant;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -34,11 +39,8 @@ public class SnippetControllerIntegrationTest {
 
     @Test
     public void createSnippet_shouldReturn201AndSnippetDto_whenValidSnippet() throws Exception {
-        // TODO: Controller accepts a Snippet but should accept a DTO
         // Simulate snippet to create
-        Snippet createSnippetRequest = new Snippet();
-        createSnippetRequest.setTitle("Test Title");
-        createSnippetRequest.setContent("Test Content");
+        SnippetRequestDto createSnippetRequest = new SnippetRequestDto("Test Title", "Test Content", null);
 
         mockMvc.perform(post("/api/v1/snippets") // POST
                     .contentType(MediaType.APPLICATION_JSON) // Content type is JSON
@@ -53,6 +55,46 @@ public class SnippetControllerIntegrationTest {
                 .andExpect(jsonPath("$.tags").isEmpty()); // // Expect tags array to be empty
     }
 
+    @Test
+    public void createSnippet_shouldReturn201AndSnippetDtoWithTags_whenTagNamesAreGiven() throws Exception {
+        // Simulate an existing tag, and a snippet naming it and a new tag
+        mockMvc.perform(post("/api/v1/tags")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"name\":\"existing\"}"))
+                .andExpect(status().isCreated());
+
+        SnippetRequestDto createSnippetRequest = new SnippetRequestDto("Tagged", "Content", List.of(" Existing ", "New Tag", "new tag"));
+
+        // 1. Create the snippet and check that the response carries both tags
+        MvcResult postResult = mockMvc.perform(post("/api/v1/snippets")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(createSnippetRequest)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.tags", hasSize(2)))
+                .andExpect(jsonPath("$.tags[*].name", containsInAnyOrder("existing", "new tag")))
+                .andReturn();
+        Long snippetId = objectMapper.readValue(postResult.getResponse().getContentAsString(), SnippetResponseDto.class).getId();
+
+        // 2. Check that the existing tag was reused and the new one created
+        mockMvc.perform(get("/api/v1/tags"))
+                .andExpect(jsonPath("$", hasSize(2)));
+
+        // 3. Replace the tags with an update, and check that an update without tags keeps them
+        SnippetRequestDto updateRequest = new SnippetRequestDto("Tagged", "Content", List.of("other"));
+        mockMvc.perform(put("/api/v1/snippets/" + snippetId)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(updateRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tags[*].name", contains("other")));
+
+        mockMvc.perform(put("/api/v1/snippets/" + snippetId)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(new SnippetRequestDto("Renamed", "Content", null))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Renamed"))
+                .andExpect(jsonPath("$.tags[*].name", contains("other")));
+    }
+
     @Test
     public void getSnippetById_shouldReturn200AndSnippetDto_whenSnippetExists() throws Exception {
         // Simulate created snippet
@@ -92,6 +134,48 @@ public class SnippetControllerIntegrationTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void getSnippetById_shouldReturnGzipEncodedSnippetDto_whenClientAcceptsGzipAndContentIsLarge() throws Exception {
+        // Simulate created snippet with a large, compressible body
+        Snippet createSnippetRequest = new Snippet();
+        createSnippetRequest.setTitle("Test Title");
+        createSnippetRequest.setContent("## Section\n\nLorem ipsum dolor sit amet. ".repeat(200));
+
+        MvcResult postResult = mockMvc.perform(post("/api/v1/snippets")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(createSnippetRequest)))
+                .andExpect(status().isCreated())
+                .andReturn();
+
+        Long snippetId = objectMapper.readValue(
+                postResult.getResponse().getContentAsString(),
+                SnippetResponseDto.class
+        ).getId();
+
+        // 1. Get snippet by ID accepting gzip
+        MvcResult getResult = mockMvc.perform(get("/api/v1/snippets/" + snippetId)
+                    .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andReturn();
+
+        // 2. Check that the decompressed body is the snippet DTO
+        byte[] compressedBody = getResult.getResponse().getContentAsByteArray();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressedBody))) {
+            SnippetResponseDto snippetDto = objectMapper.readValue(in.readAllBytes(), SnippetResponseDto.class);
+            assertEquals(snippetId, snippetDto.getId());
+            assertEquals(createSnippetRequest.getContent(), snippetDto.getContent());
+        }
+
+        // 3. Get snippet by ID without accepting gzip
+        mockMvc.perform(get("/api/v1/snippets/" + snippetId))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(jsonPath("$.content").value(createSnippetRequest.getContent()));
+    }
+
     @Test
     public void getAllSnippets_shouldReturn200AndEmptyList_whenNoSnippetsExist() throws Exception {
         mockMvc.perform(get("/api/v1/snippets")
@@ -136,6 +220,59 @@ public class SnippetControllerIntegrationTest {
                 )));
     }
 
+    @Test
+    public void getAllSnippets_shouldReturn200AndSnippetDtoListWithTags_whenSnippetsHaveTags() throws Exception {
+        // Simulate created snippet
+        Snippet createSnippetRequest = new Snippet();
+        createSnippetRequest.setTitle("Test Title");
+        createSnippetRequest.setContent("Test Content");
+
+        MvcResult snippetPostResult = mockMvc.perform(post("/api/v1/snippets")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(createSnippetRequest)))
+                .andExpect(status().isCreated())
+                .andReturn();
+
+        Long snippetId = objectMapper.readValue(
+                snippetPostResult.getResponse().getContentAsString(),
+                SnippetResponseDto.class
+        ).getId();
+
+        // Simulate created tag
+        Tag createTagRequest = new Tag();
+        createTagRequest.setName("Test Tag");
+
+        MvcResult tagPostResult = mockMvc.perform(post("/api/v1/tags")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(createTagRequest)))
+                .andExpect(status().isCreated())
+                .andReturn();
+
+        TagResponseDto tagDto = objectMapper.readValue(
+                tagPostResult.getResponse().getContentAsString(),
+                TagResponseDto.class
+        );
+
+        mockMvc.perform(post("/api/v1/snippets/{snippetId}/tags/{tagId}", snippetId, tagDto.getId()))
+                .andExpect(status().isOk());
+
+        // 1. Get snippets
+        //  - the streamed array should have the same shape as the snippet DTO
+        mockMvc.perform(get("/api/v1/snippets")
+                    .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(snippetId))
+                .andExpect(jsonPath("$[0].title").value("Test Title"))
+                .andExpect(jsonPath("$[0].content").value("Test Content"))
+                .andExpect(jsonPath("$[0].creationDate").exists())
+                .andExpect(jsonPath("$[0].lastModifiedDate").exists())
+                .andExpect(jsonPath("$[0].tags", hasSize(1)))
+                .andExpect(jsonPath("$[0].tags[0].id").value(tagDto.getId()))
+                .andExpect(jsonPath("$[0].tags[0].name").value(tagDto.getName()));
+    }
+
     @Test
     public void updateSnippet_shouldReturn200AndUpdatedSnippetDto_whenSnippetExists() throws Exception {
         // Simulate created snippet
@@ -183,6 +320,48 @@ public class SnippetControllerIntegrationTest {
                 "Last modified date should be greater than or equal to the initial last modified date");
     }
 
+    @Test
+    public void getSnippetById_shouldReturnUpdatedSnippetDto_whenSnippetWasUpdatedAfterBeingRead() throws Exception {
+        // Simulate created snippet
+        Snippet createSnippetRequest = new Snippet();
+        createSnippetRequest.setTitle("Test Title");
+        createSnippetRequest.setContent("Test Content");
+
+        MvcResult postResult = mockMvc.perform(post("/api/v1/snippets")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(createSnippetRequest)))
+                .andExpect(status().isCreated())
+                .andReturn();
+
+        Long snippetId = objectMapper.readValue(
+                postResult.getResponse().getContentAsString(),
+                SnippetResponseDto.class
+        ).getId();
+
+        // 1. Get snippet by ID so its JSON is cached
+        mockMvc.perform(get("/api/v1/snippets/" + snippetId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Test Title"));
+
+        // 2. Update snippet
+        Snippet updateSnippetRequest = new Snippet();
+        updateSnippetRequest.setTitle("Updated Title");
+        updateSnippetRequest.setContent("Updated Content");
+
+        mockMvc.perform(put("/api/v1/snippets/" + snippetId)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(updateSnippetRequest)))
+                .andExpect(status().isOk());
+
+        // 3. Get snippet by ID again
+        //  - should not be served from the stale cached JSON
+        mockMvc.perform(get("/api/v1/snippets/" + snippetId))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.title").value("Updated Title"))
+                .andExpect(jsonPath("$.content").value("Updated Content"));
+    }
+
     @Test
     public void updateSnippet_shouldReturn404_whenSnippetDoesNotExist() throws Exception {
         Long nonExistentId = 1L;
@@ -677,4 +856,40 @@ public class SnippetControllerIntegrationTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    public void getSnippetSummaries_shouldReturn200AndSummariesWithoutContent() throws Exception {
+        // Simulate created snippet and tag
+        Snippet createSnippetRequest = new Snippet();
+        createSnippetRequest.setTitle("Summary Title");
+        createSnippetRequest.setContent("Summary Content");
+
+        MvcResult snippetPostResult = mockMvc.perform(post("/api/v1/snippets")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(createSnippetRequest)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Long snippetId = objectMapper.readValue(snippetPostResult.getResponse().getContentAsString(), SnippetResponseDto.class).getId();
+
+        Tag createTagRequest = new Tag();
+        createTagRequest.setName("Summary Tag");
+
+        MvcResult tagPostResult = mockMvc.perform(post("/api/v1/tags")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(createTagRequest)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Long tagId = objectMapper.readValue(tagPostResult.getResponse().getContentAsString(), TagResponseDto.class).getId();
+
+        mockMvc.perform(post("/api/v1/snippets/{snippetId}/tags/{tagId}", snippetId, tagId))
+                .andExpect(status().isOk());
+
+        // 1. Get summaries
+        //  - should contain the snippet with its tag, but no content
+        mockMvc.perform(get("/api/v1/snippets/summaries"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.id == " + snippetId + ")].title").value(contains("Summary Title")))
+                .andExpect(jsonPath("$[?(@.id == " + snippetId + ")].tags[*].name").value(contains("summary tag")))
+                .andExpect(jsonPath("$[*].content").isEmpty());
+    }
+
 }
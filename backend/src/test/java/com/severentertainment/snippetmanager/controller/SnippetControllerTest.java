@@ -0,0 +1,33 @@
+package com.severentertainment.snippetmanager.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnippetControllerTest {
+
+    @Test
+    public void acceptsGzip_shouldHonorQValues() {
+        // 1. Check headers that accept gzip
+        assertTrue(SnippetController.acceptsGzip("gzip"));
+        assertTrue(SnippetController.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(SnippetController.acceptsGzip("*"));
+        assertTrue(SnippetController.acceptsGzip("gzip;q=0.1, *;q=0"));
+
+        // 2. Check headers that do not
+        assertFalse(SnippetController.acceptsGzip(null));
+        assertFalse(SnippetController.acceptsGzip(""));
+        assertFalse(SnippetController.acceptsGzip("deflate, br"));
+        assertFalse(SnippetController.acceptsGzip("gzip;q=0"));
+        assertFalse(SnippetController.acceptsGzip("gzip;q=invalid"));
+        assertFalse(SnippetController.acceptsGzip("*;q=0"));
+    }
+
+    @Test
+    public void acceptsGzip_shouldLetExplicitGzipOverrideWildcard() {
+        assertFalse(SnippetController.acceptsGzip("gzip;q=0, *"));
+        assertFalse(SnippetController.acceptsGzip("*, gzip;q=0"));
+        assertFalse(SnippetController.acceptsGzip("*;q=1.0, deflate, gzip; q=0.000"));
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.severentertainment.snippetmanager.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.severentertainment.snippetmanager.domain.Tag;
 import com.severentertainment.snippetmanager.dto.TagResponseDto;
@@ -13,6 +14,9 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.jupiter.api.Assertions.*;
@@ -85,6 +89,42 @@ public class TagControllerIntegrationTest {
                 .andExpect(jsonPath("$.name").value(normalizedExistingTagName));
     }
 
+    @Test
+    public void resolveTags_shouldReturn200AndIdsInInputOrder_creatingMissingTags() throws Exception {
+        // Simulate an existing tag
+        Tag existingTagRequest = new Tag();
+        existingTagRequest.setName("Existing");
+
+        MvcResult postResult = mockMvc.perform(post("/api/v1/tags")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(existingTagRequest)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Long existingTagId = objectMapper.readValue(postResult.getResponse().getContentAsString(), TagResponseDto.class).getId();
+
+        // 1. Resolve new, existing, duplicate and blank names
+        MvcResult resolveResult = mockMvc.perform(post("/api/v1/tags/resolve")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(List.of(" Zeta ", "EXISTING", "alpha", "zeta", " "))))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+
+        LinkedHashMap<String, Long> tagIds = objectMapper.readValue(resolveResult.getResponse().getContentAsString(),
+                new TypeReference<LinkedHashMap<String, Long>>() { });
+
+        // 2. Check that the names are normalized, deduplicated and in input order
+        assertEquals(List.of("zeta", "existing", "alpha"), List.copyOf(tagIds.keySet()));
+
+        // 3. Check that the existing tag is reused and the missing ones were created
+        assertEquals(existingTagId, tagIds.get("existing"));
+        mockMvc.perform(get("/api/v1/tags/" + tagIds.get("alpha")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("alpha"));
+        mockMvc.perform(get("/api/v1/tags"))
+                .andExpect(jsonPath("$", hasSize(3)));
+    }
+
     @Test
     public void getAllTags_shouldReturn200AndEmptyList_whenNoTagsExist() throws Exception {
         // 1. Get all tags
@@ -0,0 +1,141 @@
+package com.severentertainment.snippetmanager.ingest;
+
+import com.severentertainment.snippetmanager.domain.Snippet;
+import com.severentertainment.snippetmanager.domain.Tag;
+import com.severentertainment.snippetmanager.repository.SnippetRepository;
+import com.severentertainment.snippetmanager.repository.TagRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+public class IngestionServiceIntegrationTest {
+
+    @Autowired
+    private IngestionService ingestionService;
+
+    @Autowired
+    private SnippetRepository snippetRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @TempDir
+    Path docs;
+
+    // Other integration tests may commit data; the deletes are rolled back with the test transaction
+    @BeforeEach
+    public void clearData() {
+        jdbcTemplate.update("delete from ingested_file_snippet");
+        jdbcTemplate.update("delete from ingested_file");
+        jdbcTemplate.update("delete from snippet_tag");
+        jdbcTemplate.update("delete from snippet");
+        jdbcTemplate.update("delete from tag");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions(); // Cached tags would outlive the deletes
+    }
+
+    @Test
+    public void ingest_shouldCreateSnippetsPerSectionWithFrontMatterTags() throws Exception {
+        Files.writeString(docs.resolve("guide.md"), """
+                ---
+                tags: [Guides, " Onboarding "]
+                ---
+                # Install
+                Run the installer.
+
+                # Configure
+                Edit the config.
+                """);
+        Files.createDirectories(docs.resolve("nested"));
+        Files.writeString(docs.resolve("nested/notes.markdown"), "Just notes.\n");
+        Files.writeString(docs.resolve("ignored.txt"), "# Not markdown\nText.\n");
+
+        IngestionSummary summary = ingestionService.ingest(docs);
+
+        // 1. Check the summary
+        assertEquals(2, summary.files());
+        assertEquals(2, summary.ingested());
+        assertEquals(0, summary.skipped());
+        assertEquals(0, summary.failed());
+        assertEquals(3, summary.snippets());
+
+        // 2. Check the snippets and their normalized tags
+        List<Snippet> snippets = snippetRepository.findAll();
+        assertEquals(Set.of("Install", "Configure", "notes"),
+                snippets.stream().map(Snippet::getTitle).collect(Collectors.toSet()));
+
+        Snippet install = snippets.stream().filter(s -> s.getTitle().equals("Install")).findFirst().orElseThrow();
+        assertEquals("Run the installer.", install.getContent());
+        assertEquals(Set.of("guides", "onboarding"), install.getTags().stream().map(Tag::getName).collect(Collectors.toSet()));
+        assertEquals(2, tagRepository.count());
+    }
+
+    @Test
+    public void ingest_shouldSkipUnchangedFilesAndReplaceChangedFiles() throws Exception {
+        Path guide = docs.resolve("guide.md");
+        Files.writeString(guide, "# One\nFirst.\n# Two\nSecond.\n");
+        Files.writeString(docs.resolve("other.md"), "Other.\n");
+        ingestionService.ingest(docs);
+
+        // 1. Re-ingest unchanged files
+        IngestionSummary unchanged = ingestionService.ingest(docs);
+        assertEquals(2, unchanged.skipped());
+        assertEquals(0, unchanged.ingested());
+        assertEquals(3, snippetRepository.count());
+
+        // 2. Change one file and re-ingest
+        Files.writeString(guide, "# Only\nReplaced.\n");
+        IngestionSummary changed = ingestionService.ingest(docs);
+        assertEquals(1, changed.skipped());
+        assertEquals(1, changed.ingested());
+
+        // 3. Check that the changed file's old snippets were replaced
+        assertEquals(Set.of("Only", "other"),
+                snippetRepository.findAll().stream().map(Snippet::getTitle).collect(Collectors.toSet()));
+    }
+
+    @Test
+    public void ingest_shouldReadMarkdownFromZipArchive() throws Exception {
+        Path archive = docs.resolve("docs.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            zip.putNextEntry(new ZipEntry("handbook/intro.md"));
+            zip.write("# Welcome\nHello.\n".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+
+        IngestionSummary summary = ingestionService.ingest(archive);
+
+        assertEquals(1, summary.ingested());
+        assertEquals("Welcome", snippetRepository.findAll().get(0).getTitle());
+    }
+
+    @Test
+    public void ingestFromRoot_shouldRejectPathsOutsideIngestionRoot() {
+        assertThrows(IllegalArgumentException.class, () -> ingestionService.ingestFromRoot("../outside"));
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.severentertainment.snippetmanager.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MarkdownSplitterTest {
+
+    @Test
+    public void split_shouldSplitAtHeadingsUpToMaxLevel() {
+        String markdown = """
+                Intro text.
+
+                # First
+                First body.
+                ### Detail
+                Still first.
+
+                ## Second ##
+                Second body.
+                """;
+
+        MarkdownDocument document = MarkdownSplitter.split("file-name", markdown, 2);
+
+        // 1. Check the sections
+        assertEquals(3, document.sections().size());
+        assertEquals(new MarkdownDocument.Section("file-name", "Intro text."), document.sections().get(0));
+        assertEquals(new MarkdownDocument.Section("First", "First body.\n### Detail\nStill first."), document.sections().get(1));
+        assertEquals(new MarkdownDocument.Section("Second", "Second body."), document.sections().get(2));
+
+        // 2. Check that there are no tags without front matter
+        assertTrue(document.tags().isEmpty());
+    }
+
+    @Test
+    public void split_shouldReadTitleAndTagsFromFrontMatter() {
+        String markdown = """
+                ---
+                title: Design Notes
+                tags: [Architecture, "  Caching  "]
+                ---
+                Preamble.
+
+                ## Details
+                Body.
+                """;
+
+        MarkdownDocument document = MarkdownSplitter.split("file-name", markdown, 2);
+
+        // 1. Check that front matter was not treated as content
+        assertEquals(List.of("Architecture", "  Caching  "), document.tags());
+        assertEquals(2, document.sections().size());
+        assertEquals(new MarkdownDocument.Section("Design Notes", "Preamble."), document.sections().get(0));
+        assertEquals("Details", document.sections().get(1).title());
+    }
+
+    @Test
+    public void split_shouldAcceptCommaSeparatedTags() {
+        MarkdownDocument document = MarkdownSplitter.split("file-name", "---\ntags: a, b,,c\n---\nBody.\n", 2);
+
+        assertEquals(List.of("a", " b", "c"), document.tags());
+    }
+
+    @Test
+    public void split_shouldIgnoreHeadingsInsideFencedCodeBlocks() {
+        String markdown = """
+                # Script
+                ```bash
+                # not a heading
+                echo hi
+                ```
+                After.
+                """;
+
+        MarkdownDocument document = MarkdownSplitter.split("file-name", markdown, 2);
+
+        // 1. Check that the fenced comment stayed in the section
+        assertEquals(1, document.sections().size());
+        assertEquals("```bash\n# not a heading\necho hi\n```\nAfter.", document.sections().get(0).content());
+    }
+
+    @Test
+    public void split_shouldDropSectionsWithoutBody_andTreatMalformedFrontMatterAsAbsent() {
+        String markdown = "---\ntags: [unclosed\n---\n# Empty\n\n# Full\nText.\r\n";
+
+        MarkdownDocument document = MarkdownSplitter.split("file-name", markdown, 2);
+
+        // 1. Check that the malformed front matter was ignored and the empty section dropped
+        assertTrue(document.tags().isEmpty());
+        assertEquals(List.of(new MarkdownDocument.Section("Full", "Text.")), document.sections());
+    }
+
+}
@@ -0,0 +1,161 @@
+package com.severentertainment.snippetmanager.ingest;
+
+import com.severentertainment.snippetmanager.domain.Snippet;
+import com.severentertainment.snippetmanager.domain.Tag;
+import com.severentertainment.snippetmanager.repository.SnippetRepository;
+import com.severentertainment.snippetmanager.repository.TagRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+public class SnippetArchiveServiceIntegrationTest {
+
+    @Autowired
+    private SnippetArchiveService snippetArchiveService;
+
+    @Autowired
+    private SnippetRepository snippetRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    // Other integration tests may commit data; the deletes are rolled back with the test transaction
+    @BeforeEach
+    public void clearData() {
+        jdbcTemplate.update("delete from snippet_tag");
+        jdbcTemplate.update("delete from snippet");
+        jdbcTemplate.update("delete from tag");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions(); // Cached tags would outlive the deletes
+    }
+
+    private Tag createTag(String name) {
+        Tag tag = new Tag();
+        tag.setName(name);
+        return tagRepository.save(tag);
+    }
+
+    private Snippet createSnippet(String title, String content, Tag... tags) {
+        Snippet snippet = new Snippet();
+        snippet.setTitle(title);
+        snippet.setContent(content);
+        snippet.setTags(new HashSet<>(Set.of(tags)));
+        return snippetRepository.save(snippet);
+    }
+
+    @Test
+    public void exportArchive_shouldWriteManifestFollowedByOneMarkdownFilePerSnippet() throws Exception {
+        Tag tag = createTag("java");
+        createTag("unused");
+        Snippet snippet = createSnippet("Hello: World!", "# Heading\nBody\n", tag);
+        entityManager.flush();
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        snippetArchiveService.exportArchive(archive);
+
+        List<String> names = new ArrayList<>();
+        String markdown = null;
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                names.add(entry.getName());
+                String text = new String(zip.readAllBytes(), StandardCharsets.UTF_8);
+                if (entry.getName().endsWith(".md")) {
+                    markdown = text;
+                }
+            }
+        }
+
+        // 1. Check the entries
+        assertEquals(List.of("manifest.json", "snippets/" + snippet.getId() + "-hello-world.md"), names);
+
+        // 2. Check that the front matter carries the title and tags and the body is the unchanged content
+        FrontMatter frontMatter = FrontMatter.parse(markdown);
+        assertEquals("Hello: World!", frontMatter.value("title"));
+        assertEquals(List.of("java"), frontMatter.tags());
+        assertEquals("# Heading\nBody\n", frontMatter.body());
+    }
+
+    @Test
+    public void importArchive_shouldRecreateExportedSnippetsAndTags() throws Exception {
+        Tag java = createTag("java");
+        Tag spring = createTag("spring");
+        createTag("unused");
+        createSnippet("First", "---\nnot front matter\n---\n\n## Details\n  indented\n", java, spring);
+        createSnippet("Second", "Plain text", java);
+        createSnippet("Third", "", new Tag[0]);
+        entityManager.flush();
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        snippetArchiveService.exportArchive(archive);
+
+        // Start from an empty database, as in another environment
+        jdbcTemplate.update("delete from snippet_tag");
+        jdbcTemplate.update("delete from snippet");
+        jdbcTemplate.update("delete from tag");
+        entityManager.clear();
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+
+        ArchiveImportSummary summary = snippetArchiveService.importArchive(new ByteArrayInputStream(archive.toByteArray()));
+
+        // 1. Check the summary
+        assertEquals(3, summary.entries());
+        assertEquals(3, summary.snippets());
+        assertEquals(0, summary.skipped());
+        assertEquals(3, summary.tags());
+
+        // 2. Check that content and tags survived the round trip
+        entityManager.clear();
+        Map<String, Snippet> snippets = snippetRepository.findAll().stream()
+                .collect(Collectors.toMap(Snippet::getTitle, Function.identity()));
+        assertEquals(Set.of("First", "Second", "Third"), snippets.keySet());
+        assertEquals("---\nnot front matter\n---\n\n## Details\n  indented\n", snippets.get("First").getContent());
+        assertEquals(Set.of("java", "spring"),
+                snippets.get("First").getTags().stream().map(Tag::getName).collect(Collectors.toSet()));
+        assertEquals("Plain text", snippets.get("Second").getContent());
+        assertTrue(snippets.get("Third").getTags().isEmpty());
+
+        // 3. Check that tags without snippets were imported from the manifest
+        assertEquals(Set.of("java", "spring", "unused"),
+                tagRepository.findAll().stream().map(Tag::getName).collect(Collectors.toSet()));
+    }
+
+    @Test
+    public void importArchive_shouldRejectNonZipInput() {
+        byte[] notZip = "# Just markdown\n".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(ZipException.class, () -> snippetArchiveService.importArchive(new ByteArrayInputStream(notZip)));
+    }
+
+}
@@ -0,0 +1,209 @@
+package com.severentertainment.snippetmanager.readmodel;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.severentertainment.snippetmanager.domain.Snippet;
+import com.severentertainment.snippetmanager.domain.Tag;
+import com.severentertainment.snippetmanager.dto.SnippetResponseDto;
+import com.severentertainment.snippetmanager.dto.TagResponseDto;
+import com.severentertainment.snippetmanager.service.SnippetDataChangedEvent;
+import com.severentertainment.snippetmanager.service.SnippetService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Not @Transactional: the read model only applies changes once their transaction has committed
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK, properties = "snippetmanager.read-model.enabled=true")
+@AutoConfigureMockMvc
+public class SnippetReadModelIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SnippetReadModel readModel;
+
+    @Autowired
+    private SnippetService snippetService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    public void clearData() {
+        jdbcTemplate.update("delete from snippet_tag");
+        jdbcTemplate.update("delete from snippet");
+        jdbcTemplate.update("delete from tag");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        readModel.onDataChanged(SnippetDataChangedEvent.reset()); // The deletes bypassed the services
+    }
+
+    private Long createSnippet(String title) throws Exception {
+        Snippet request = new Snippet();
+        request.setTitle(title);
+        request.setContent("Content of " + title);
+
+        MvcResult result = mockMvc.perform(post("/api/v1/snippets")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readValue(result.getResponse().getContentAsString(), SnippetResponseDto.class).getId();
+    }
+
+    private Long createTag(String name) throws Exception {
+        Tag request = new Tag();
+        request.setName(name);
+
+        MvcResult result = mockMvc.perform(post("/api/v1/tags")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readValue(result.getResponse().getContentAsString(), TagResponseDto.class).getId();
+    }
+
+    @Test
+    public void writesThroughServices_shouldBeVisibleInNextRead() throws Exception {
+        long version = readModel.snapshot().version();
+
+        Long snippetId = createSnippet("Read Model");
+        Long tagId = createTag("Model Tag");
+        mockMvc.perform(post("/api/v1/snippets/{snippetId}/tags/{tagId}", snippetId, tagId))
+                .andExpect(status().isOk());
+
+        // 1. Check that every committed write produced a new version
+        assertEquals(version + 3, readModel.snapshot().version());
+
+        // 2. Check the summaries, tags, and tags of the snippet
+        mockMvc.perform(get("/api/v1/snippets/summaries"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].title").value("Read Model"))
+                .andExpect(jsonPath("$[0].tags[*].name").value(contains("model tag")));
+        mockMvc.perform(get("/api/v1/tags/{id}", tagId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("model tag"));
+        mockMvc.perform(get("/api/v1/snippets/{snippetId}/tags", snippetId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name").value(contains("model tag")));
+
+        // 3. Check that removing the tag and deleting the snippet are visible too
+        mockMvc.perform(delete("/api/v1/snippets/{snippetId}/tags/{tagId}", snippetId, tagId))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/snippets/{snippetId}/tags", snippetId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+
+        mockMvc.perform(delete("/api/v1/snippets/{id}", snippetId))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/v1/snippets/{snippetId}/tags", snippetId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void updateTag_shouldRefreshSummariesOfTaggedSnippets() throws Exception {
+        Long snippetId = createSnippet("Renamed Tag");
+        Long tagId = createTag("Before");
+        mockMvc.perform(post("/api/v1/snippets/{snippetId}/tags/{tagId}", snippetId, tagId))
+                .andExpect(status().isOk());
+
+        Tag rename = new Tag();
+        rename.setName("After");
+        mockMvc.perform(put("/api/v1/tags/{id}", tagId)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(rename)))
+                .andExpect(status().isOk());
+
+        // 1. Check that both the tag and the summary of the snippet carry the new name
+        mockMvc.perform(get("/api/v1/tags"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name").value(contains("after")));
+        mockMvc.perform(get("/api/v1/snippets/summaries"))
+                .andExpect(jsonPath("$[0].tags[*].name").value(contains("after")));
+    }
+
+    @Test
+    public void deleteTag_shouldRefreshSummariesOfTaggedSnippets() throws Exception {
+        Long snippetId = createSnippet("Deleted Tag");
+        Long keptTagId = createTag("Kept");
+        Long deletedTagId = createTag("Deleted");
+        mockMvc.perform(post("/api/v1/snippets/{snippetId}/tags/{tagId}", snippetId, keptTagId))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/v1/snippets/{snippetId}/tags/{tagId}", snippetId, deletedTagId))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(delete("/api/v1/tags/{id}", deletedTagId))
+                .andExpect(status().isNoContent());
+
+        // 1. Check that neither the summary nor the tags of the snippet carry the deleted tag
+        mockMvc.perform(get("/api/v1/snippets/summaries"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].tags[*].name").value(contains("kept")));
+        mockMvc.perform(get("/api/v1/snippets/{snippetId}/tags", snippetId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name").value(contains("kept")));
+        mockMvc.perform(get("/api/v1/tags/{id}", deletedTagId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void reads_shouldBeServedFromMemory_notFromDatabase() throws Exception {
+        // A row written behind the services' back is not seen until a change event arrives
+        jdbcTemplate.update("insert into tag (name) values ('hidden')");
+        Long tagId = jdbcTemplate.queryForObject("select id from tag where name = 'hidden'", Long.class);
+
+        // 1. Check that the tag is not served yet
+        mockMvc.perform(get("/api/v1/tags/{id}", tagId))
+                .andExpect(status().isNotFound());
+
+        // 2. Check that it is served once its change is published
+        readModel.onDataChanged(SnippetDataChangedEvent.tags(SnippetDataChangedEvent.Type.TAGS_CREATED, Set.of(tagId)));
+        mockMvc.perform(get("/api/v1/tags/{id}", tagId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("hidden"));
+    }
+
+    @Test
+    public void rolledBackWrite_shouldNotChangeReadModel() {
+        ReadModelSnapshot before = readModel.snapshot();
+
+        // 1. Create a snippet in a transaction that is rolled back
+        transactionTemplate.executeWithoutResult(status -> {
+            Snippet snippet = new Snippet();
+            snippet.setTitle("Rolled Back");
+            snippet.setContent("Never committed");
+            snippetService.createSnippet(snippet);
+            status.setRollbackOnly();
+        });
+
+        // 2. Check that the snapshot was not replaced
+        assertSame(before, readModel.snapshot());
+        assertTrue(readModel.snapshot().snippetList().isEmpty());
+    }
+
+}
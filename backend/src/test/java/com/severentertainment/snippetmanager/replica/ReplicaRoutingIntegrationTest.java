@@ -0,0 +1,145 @@
+package com.severentertainment.snippetmanager.replica;
+
+import com.severentertainment.snippetmanager.config.ReadConsistency;
+import com.severentertainment.snippetmanager.config.ReadYourWritesInterceptor;
+import com.severentertainment.snippetmanager.config.ReplicaDataSources;
+import com.severentertainment.snippetmanager.domain.Snippet;
+import com.severentertainment.snippetmanager.dto.SnippetSummaryDto;
+import com.severentertainment.snippetmanager.service.SnippetDataChangedEvent;
+import com.severentertainment.snippetmanager.service.SnippetService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Not @Transactional: changes reach the replica only once they have committed
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK, properties = {
+        "snippetmanager.replica.enabled=true",
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "snippetmanager.replica.urls=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureMockMvc
+public class ReplicaRoutingIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private SnippetService snippetService;
+
+    @Autowired
+    private ReplicaSynchronizer replicaSynchronizer;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    private ReplicaDataSources replicaDataSources;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private JdbcTemplate primaryJdbcTemplate;
+    private JdbcTemplate replicaJdbcTemplate;
+
+    @BeforeEach
+    public void clearData() throws InterruptedException {
+        primaryJdbcTemplate = new JdbcTemplate(primaryDataSource);
+        replicaJdbcTemplate = new JdbcTemplate(replicaDataSources.dataSources().get(0));
+
+        primaryJdbcTemplate.update("delete from snippet_tag");
+        primaryJdbcTemplate.update("delete from snippet");
+        primaryJdbcTemplate.update("delete from tag");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        eventPublisher.publishEvent(SnippetDataChangedEvent.reset()); // The deletes bypassed the services
+        awaitReplica();
+    }
+
+    private void awaitReplica() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (replicaSynchronizer.pendingChanges() > 0) {
+            assertTrue(System.currentTimeMillis() < deadline, "Replica did not catch up");
+            Thread.sleep(10);
+        }
+    }
+
+    private Long createSnippet(String title) {
+        Snippet snippet = new Snippet();
+        snippet.setTitle(title);
+        snippet.setContent("Content of " + title);
+        return snippetService.createSnippet(snippet).getId();
+    }
+
+    private static List<String> titles(List<SnippetSummaryDto> summaries) {
+        return summaries.stream().map(SnippetSummaryDto::getTitle).toList();
+    }
+
+    @Test
+    public void committedWrites_shouldReachReplica() throws Exception {
+        Long snippetId = createSnippet("Replicated");
+        awaitReplica();
+
+        // 1. Check that the row was copied to the replica
+        assertEquals("Replicated", replicaJdbcTemplate.queryForObject("select title from snippet where id = ?", String.class, snippetId));
+
+        // 2. Check that the lag was measured
+        Timer lag = meterRegistry.find("snippetmanager.replica.lag").timer();
+        assertNotNull(lag);
+        assertTrue(lag.count() > 0);
+
+        // 3. Check that deletes are copied too
+        snippetService.deleteSnippet(snippetId);
+        awaitReplica();
+        assertEquals(0, replicaJdbcTemplate.queryForObject("select count(*) from snippet", Integer.class));
+    }
+
+    @Test
+    public void readOnlyTransactions_shouldReadFromReplica_unlessPrimaryRequired() throws Exception {
+        createSnippet("Everywhere");
+        awaitReplica();
+
+        // A row the replica has not received yet, as if it were lagging
+        primaryJdbcTemplate.update("insert into snippet (title, content) values ('Primary Only', 'Not replicated')");
+
+        // 1. Check that reads go to the replica by default
+        assertEquals(List.of("Everywhere"), titles(snippetService.getSnippetSummaries()));
+
+        // 2. Check that reads that require the primary see the latest rows
+        assertEquals(List.of("Everywhere", "Primary Only"),
+                titles(ReadConsistency.onPrimary(() -> snippetService.getSnippetSummaries())));
+
+        // 3. Check the same for requests, with and without the read-your-writes header
+        mockMvc.perform(get("/api/v1/snippets/summaries"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].title", contains("Everywhere")));
+        mockMvc.perform(get("/api/v1/snippets/summaries").header(ReadYourWritesInterceptor.HEADER, "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].title", contains("Everywhere", "Primary Only")));
+    }
+
+}
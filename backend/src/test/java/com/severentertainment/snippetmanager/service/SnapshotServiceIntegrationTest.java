@@ -0,0 +1,148 @@
+package com.severentertainment.snippetmanager.service;
+
+import com.severentertainment.snippetmanager.domain.Snippet;
+import com.severentertainment.snippetmanager.domain.Tag;
+import com.severentertainment.snippetmanager.repository.SnippetRepository;
+import com.severentertainment.snippetmanager.repository.TagRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not @Transactional: restores commit their own transaction and move the ID sequences
+@SpringBootTest
+public class SnapshotServiceIntegrationTest {
+
+    @TempDir
+    static Path snapshotDir;
+
+    @DynamicPropertySource
+    static void snapshotProperties(DynamicPropertyRegistry registry) {
+        registry.add("snippetmanager.snapshot.dir", () -> snapshotDir.toString());
+    }
+
+    @Autowired
+    private SnapshotService snapshotService;
+
+    @Autowired
+    private SnippetRepository snippetRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void clearData() {
+        jdbcTemplate.update("delete from snippet_tag");
+        jdbcTemplate.update("delete from snippet");
+        jdbcTemplate.update("delete from tag");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions(); // Cached tags would outlive the deletes
+    }
+
+    private Snippet createTaggedSnippet(String title, String content, String tagName) {
+        return transactionTemplate.execute(status -> {
+            Tag tag = new Tag();
+            tag.setName(tagName);
+
+            Snippet snippet = new Snippet();
+            snippet.setTitle(title);
+            snippet.setContent(content);
+            snippet.setTags(new HashSet<>(Set.of(tagRepository.save(tag))));
+            return snippetRepository.save(snippet);
+        });
+    }
+
+    @Test
+    public void restoreSnapshot_shouldReplaceDataWithSnapshotContents() throws Exception {
+        Snippet original = createTaggedSnippet("Original Title", "Original content ✓ with non-ASCII", "original tag");
+
+        // 1. Create snapshot
+        SnapshotSummary created = snapshotService.createSnapshot("roundtrip.bin");
+        assertEquals(1, created.tags());
+        assertEquals(1, created.snippets());
+        assertEquals(1, created.links());
+        assertTrue(created.bytes() > 0);
+        assertTrue(snapshotService.listSnapshots().contains("roundtrip.bin"));
+
+        // 2. Change data after the snapshot
+        createTaggedSnippet("Later Title", "Later content", "later tag");
+        jdbcTemplate.update("update snippet set title = 'Changed Title' where id = ?", original.getId());
+
+        // 3. Restore snapshot
+        SnapshotSummary restored = snapshotService.restoreSnapshot("roundtrip.bin");
+        assertEquals(1, restored.snippets());
+
+        // 4. Check that the data matches the snapshot
+        transactionTemplate.executeWithoutResult(status -> {
+            assertEquals(1, snippetRepository.count());
+            assertEquals(1, tagRepository.count());
+
+            Snippet snippet = snippetRepository.findById(original.getId()).orElseThrow();
+            assertEquals("Original Title", snippet.getTitle());
+            assertEquals("Original content ✓ with non-ASCII", snippet.getContent());
+            assertEquals(original.getCreationDate().truncatedTo(ChronoUnit.MILLIS), snippet.getCreationDate().truncatedTo(ChronoUnit.MILLIS));
+            assertEquals(1, snippet.getTags().size());
+            assertEquals("original tag", snippet.getTags().iterator().next().getName());
+        });
+
+        // 5. Check that new rows do not collide with restored IDs
+        Snippet next = createTaggedSnippet("Next Title", "Next content", "next tag");
+        assertTrue(next.getId() > original.getId());
+    }
+
+    @Test
+    public void restoreSnapshot_shouldRejectSnapshotAndKeepData_whenChecksumDoesNotMatch() throws Exception {
+        createTaggedSnippet("Title", "Content", "tag");
+        snapshotService.createSnapshot("corrupt.bin");
+
+        // Flip a byte in the middle of the snapshot
+        try (FileChannel channel = FileChannel.open(snapshotDir.resolve("corrupt.bin"), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = channel.size() / 2;
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            channel.read(buffer, position);
+            buffer.put(0, (byte) (buffer.get(0) ^ 0xFF)).rewind();
+            channel.write(buffer, position);
+        }
+
+        createTaggedSnippet("Second Title", "Second content", "second tag");
+
+        // 1. Check that the restore fails verification
+        assertThrows(IOException.class, () -> snapshotService.restoreSnapshot("corrupt.bin"));
+
+        // 2. Check that no data was changed
+        assertEquals(2, snippetRepository.count());
+    }
+
+    @Test
+    public void createSnapshot_shouldRejectFileNamesOutsideSnapshotDirectory() {
+        assertThrows(IllegalArgumentException.class, () -> snapshotService.createSnapshot("../escape.bin"));
+        assertThrows(IllegalArgumentException.class, () -> snapshotService.restoreSnapshot("/etc/passwd"));
+    }
+
+}
@@ -0,0 +1,219 @@
+package com.severentertainment.snippetmanager.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.severentertainment.snippetmanager.domain.Snippet;
+import com.severentertainment.snippetmanager.domain.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnippetJsonCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Snippet snippet(Long id, String content) {
+        Snippet snippet = new Snippet();
+        snippet.setId(id);
+        snippet.setTitle("Snippet " + id);
+        snippet.setContent(content);
+        snippet.setCreationDate(Instant.parse("2025-01-01T00:00:00Z"));
+        snippet.setLastModifiedDate(Instant.parse("2025-01-02T00:00:00Z"));
+        snippet.setTags(new HashSet<>());
+        return snippet;
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void put_shouldCacheSnippetJson_whenNoEvictionHappenedSinceLoad() throws Exception {
+        SnippetJsonCache cache = new SnippetJsonCache(objectMapper, 1024 * 1024, Integer.MAX_VALUE);
+
+        Tag tag = new Tag();
+        tag.setId(7L);
+        tag.setName("test tag");
+
+        Snippet snippet = snippet(1L, "Test Content");
+        snippet.setTags(new HashSet<>(Set.of(tag)));
+
+        // Cache the snippet
+        CachedSnippetJson entry = cache.put(snippet, cache.generation());
+        byte[] json = bytes(entry.json());
+
+        // 1. Check that the cached entry is returned
+        Optional<CachedSnippetJson> cached = cache.get(1L);
+        assertTrue(cached.isPresent(), "The snippet should be cached");
+        assertSame(entry, cached.get(), "The cached entry should be the serialized entry");
+        assertFalse(entry.hasGzip(), "JSON below the compression threshold should not be compressed");
+        assertEquals(SlabAllocator.chunkBytes(json.length), cache.totalBytes(), "The cache size should equal the entry's chunk size");
+
+        // 2. Check that the bytes have the shape of the snippet DTO
+        JsonNode node = objectMapper.readTree(json);
+        assertEquals(1L, node.get("id").asLong());
+        assertEquals("Snippet 1", node.get("title").asText());
+        assertEquals("Test Content", node.get("content").asText());
+        assertEquals("2025-01-01T00:00:00Z", node.get("creationDate").asText());
+        assertEquals("2025-01-02T00:00:00Z", node.get("lastModifiedDate").asText());
+        assertEquals(1, node.get("tags").size());
+        assertEquals(7L, node.get("tags").get(0).get("id").asLong());
+        assertEquals("test tag", node.get("tags").get(0).get("name").asText());
+    }
+
+    @Test
+    public void put_shouldNotCacheSnippetJson_whenEvictionHappenedSinceLoad() {
+        SnippetJsonCache cache = new SnippetJsonCache(objectMapper, 1024 * 1024, Integer.MAX_VALUE);
+
+        // Simulate a write evicting the snippet while it is being loaded
+        long generation = cache.generation();
+        cache.evict(1L);
+
+        cache.put(snippet(1L, "Stale Content"), generation);
+
+        // 1. Check that the stale load was not cached
+        assertTrue(cache.get(1L).isEmpty(), "A load racing an eviction should not be cached");
+        assertEquals(0, cache.totalBytes());
+    }
+
+    @Test
+    public void evict_shouldRemoveCachedSnippetJson() {
+        SnippetJsonCache cache = new SnippetJsonCache(objectMapper, 1024 * 1024, Integer.MAX_VALUE);
+        cache.put(snippet(1L, "Content 1"), cache.generation());
+        cache.put(snippet(2L, "Content 2"), cache.generation());
+        cache.put(snippet(3L, "Content 3"), cache.generation());
+
+        cache.evict(1L);
+        cache.evictAll(List.of(2L));
+
+        // 1. Check that only the remaining snippet is cached
+        assertTrue(cache.get(1L).isEmpty());
+        assertTrue(cache.get(2L).isEmpty());
+        assertTrue(cache.get(3L).isPresent());
+        assertEquals(cache.get(3L).get().allocatedSize(), cache.totalBytes());
+    }
+
+    @Test
+    public void put_shouldEvictLeastRecentlyUsed_whenBudgetIsExceeded() {
+        String content = "x".repeat(400);
+        int entrySize = (int) new SnippetJsonCache(objectMapper, Long.MAX_VALUE, Integer.MAX_VALUE).put(snippet(1L, content), 0).allocatedSize();
+
+        // Budget for two entries
+        SnippetJsonCache cache = new SnippetJsonCache(objectMapper, entrySize * 2L, Integer.MAX_VALUE);
+        cache.put(snippet(1L, content), cache.generation());
+        cache.put(snippet(2L, content), cache.generation());
+
+        cache.get(1L); // Touch the first snippet so the second is least recently used
+        cache.put(snippet(3L, content), cache.generation());
+
+        // 1. Check that the least recently used snippet was evicted
+        assertTrue(cache.get(1L).isPresent());
+        assertTrue(cache.get(2L).isEmpty());
+        assertTrue(cache.get(3L).isPresent());
+        assertTrue(cache.totalBytes() <= entrySize * 2L, "The cache should stay within its byte budget");
+    }
+
+    @Test
+    public void put_shouldNotCacheSnippetJson_whenLargerThanBudget() {
+        SnippetJsonCache cache = new SnippetJsonCache(objectMapper, 64, Integer.MAX_VALUE);
+
+        CachedSnippetJson entry = cache.put(snippet(1L, "x".repeat(1000)), cache.generation());
+
+        // 1. Check that the entry is returned but not cached
+        assertNotNull(entry);
+        assertTrue(cache.get(1L).isEmpty());
+        assertEquals(0, cache.totalBytes());
+    }
+
+    @Test
+    public void put_shouldPrecompressSnippetJson_whenAtOrAboveCompressionThreshold() throws Exception {
+        SnippetJsonCache cache = new SnippetJsonCache(objectMapper, 1024 * 1024, 256);
+
+        CachedSnippetJson entry = cache.put(snippet(1L, "# Heading\n\nSome markdown. ".repeat(100)), cache.generation());
+
+        // 1. Check that a smaller gzip variant was built
+        assertTrue(entry.hasGzip(), "JSON above the compression threshold should be compressed");
+        assertTrue(entry.gzip().remaining() < entry.json().remaining(), "The gzip variant should be smaller than the JSON");
+        assertEquals(entry.json().capacity() + entry.gzip().capacity(), cache.totalBytes(), "Both variants should count towards the budget");
+
+        // 2. Check that the gzip variant decompresses to the JSON
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes(entry.gzip())))) {
+            assertArrayEquals(bytes(entry.json()), in.readAllBytes());
+        }
+    }
+
+    @Test
+    public void evict_shouldReuseOffHeapMemory_onlyOnceEvictedEntryIsReleased() throws Exception {
+        SnippetJsonCache cache = new SnippetJsonCache(objectMapper, 16L * 1024 * 1024, Integer.MAX_VALUE);
+        String content = "x".repeat(600_000); // One chunk per slab
+
+        // A reader holds the first entry while it is evicted and replaced
+        cache.put(snippet(1L, content), cache.generation()).release();
+        CachedSnippetJson reading = cache.get(1L).orElseThrow();
+        cache.evict(1L);
+        cache.put(snippet(2L, "y".repeat(600_000)), cache.generation()).release();
+
+        // 1. Check that the evicted entry kept its memory and still reads as before
+        long reserved = cache.reservedBytes();
+        assertEquals(2L * 1024 * 1024, reserved, "The replacement should not take the memory still being read");
+        assertEquals(content, objectMapper.readTree(bytes(reading.json())).get("content").asText());
+
+        reading.release();
+        cache.evict(2L);
+        cache.put(snippet(3L, content), cache.generation()).release();
+        cache.put(snippet(4L, content), cache.generation()).release();
+
+        // 2. Check that the released memory was reused
+        assertEquals(reserved, cache.reservedBytes());
+        assertThrows(IllegalStateException.class, reading::release);
+    }
+
+    @Test
+    public void put_shouldChargeChunkSize_notLength() {
+        String content = "x".repeat(300); // JSON of a little over 400 bytes, in a chunk of 512
+        int length = new SnippetJsonCache(objectMapper, Long.MAX_VALUE, Integer.MAX_VALUE).put(snippet(1L, content), 0).json().remaining();
+        assertEquals(512, SlabAllocator.chunkBytes(length));
+
+        // Budget for two entries by length, but one by chunk size
+        SnippetJsonCache cache = new SnippetJsonCache(objectMapper, length * 2L, Integer.MAX_VALUE);
+        cache.put(snippet(1L, content), cache.generation()).release();
+        cache.put(snippet(2L, content), cache.generation()).release();
+
+        // 1. Check that the first entry was evicted to keep the chunks within the budget
+        assertTrue(cache.get(1L).isEmpty());
+        assertEquals(512, cache.totalBytes());
+    }
+
+    @Test
+    public void evict_shouldDropEmptySlabs_butKeepOneForReuse() {
+        SnippetJsonCache cache = new SnippetJsonCache(objectMapper, 16L * 1024 * 1024, Integer.MAX_VALUE);
+        String content = "x".repeat(200_000); // Four chunks per slab
+
+        for (long id = 1; id <= 12; id++) {
+            cache.put(snippet(id, content), cache.generation()).release();
+        }
+        assertEquals(3L * SlabAllocator.SLAB_BYTES, cache.reservedBytes());
+
+        // 1. Check that evicting every entry drops all slabs but one
+        for (long id = 1; id <= 12; id++) {
+            cache.evict(id);
+        }
+        assertEquals(SlabAllocator.SLAB_BYTES, cache.reservedBytes());
+
+        // 2. Check that the kept slab is reused
+        cache.put(snippet(13L, content), cache.generation()).release();
+        assertEquals(SlabAllocator.SLAB_BYTES, cache.reservedBytes());
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.severentertainment.snippetmanager.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.severentertainment.snippetmanager.domain.Snippet;
+import com.severentertainment.snippetmanager.domain.Tag;
+import com.severentertainment.snippetmanager.dto.SnippetResponseDto;
+import com.severentertainment.snippetmanager.dto.TagResponseDto;
+import com.severentertainment.snippetmanager.repository.SnippetRepository;
+import com.severentertainment.snippetmanager.repository.TagRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.StringWriter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the SQL issued by {@link SnippetService} now that {@link Snippet#getContent()} is lazy:
+ * paths that only need the title or the tags must never select the content column.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.severentertainment.snippetmanager.service.SqlStatementCapture")
+@Transactional
+public class SnippetServiceSqlIntegrationTest {
+
+    @Autowired
+    private SnippetService snippetService;
+
+    @Autowired
+    private SnippetRepository snippetRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Snippet snippet;
+    private Tag linkedTag;
+    private Tag otherTag;
+
+    @BeforeEach
+    public void createData() {
+        linkedTag = new Tag();
+        linkedTag.setName("sql test linked");
+        linkedTag = tagRepository.save(linkedTag);
+
+        otherTag = new Tag();
+        otherTag.setName("sql test other");
+        otherTag = tagRepository.save(otherTag);
+
+        snippet = new Snippet();
+        snippet.setTitle("SQL Test");
+        snippet.setContent("Large content ".repeat(1000));
+        snippet.setTags(new HashSet<>(Set.of(linkedTag)));
+        snippet = snippetRepository.save(snippet);
+
+        // Start every test from an empty persistence context, like a new request
+        entityManager.flush();
+        entityManager.clear();
+        SqlStatementCapture.clear();
+    }
+
+    private static List<String> statementsReadingContent() {
+        return SqlStatementCapture.statements().stream()
+                .filter(sql -> sql.contains("content"))
+                .toList();
+    }
+
+    @Test
+    public void getTagsForSnippet_shouldNotSelectContent() {
+        Optional<Set<TagResponseDto>> tags = snippetService.getTagsForSnippet(snippet.getId());
+
+        // 1. Check the result
+        assertTrue(tags.isPresent());
+        assertEquals(1, tags.get().size());
+
+        // 2. Check that the snippet was loaded without its content
+        assertFalse(SqlStatementCapture.statements().isEmpty());
+        assertEquals(List.of(), statementsReadingContent());
+    }
+
+    @Test
+    public void addTagToSnippet_shouldOnlyReadContentForTheResponse() {
+        Optional<SnippetResponseDto> result = snippetService.addTagToSnippet(snippet.getId(), otherTag.getId());
+        entityManager.flush();
+
+        // 1. Check the result
+        assertTrue(result.isPresent());
+        assertEquals(2, result.get().getTags().size());
+
+        // 2. Check that the content was read once, on its own, to build the response, and never written
+        List<String> contentStatements = statementsReadingContent();
+        assertEquals(1, contentStatements.size(), "Statements reading content: " + contentStatements);
+        assertTrue(contentStatements.get(0).startsWith("select"));
+    }
+
+    @Test
+    public void removeTagFromSnippet_shouldOnlyReadContentForTheResponse() {
+        Optional<SnippetResponseDto> result = snippetService.removeTagFromSnippet(snippet.getId(), linkedTag.getId());
+        entityManager.flush();
+
+        // 1. Check the result
+        assertTrue(result.isPresent());
+        assertTrue(result.get().getTags().isEmpty());
+
+        // 2. Check that the content was read once, on its own, to build the response, and never written
+        List<String> contentStatements = statementsReadingContent();
+        assertEquals(1, contentStatements.size(), "Statements reading content: " + contentStatements);
+        assertTrue(contentStatements.get(0).startsWith("select"));
+    }
+
+    @Test
+    public void updateSnippet_shouldNotReadContentBeforeReplacingIt() {
+        Snippet snippetDetails = new Snippet();
+        snippetDetails.setTitle("New Title");
+        snippetDetails.setContent("New content");
+
+        snippetService.updateSnippet(snippet.getId(), snippetDetails);
+        entityManager.flush();
+
+        // 1. Check that the only statement touching content is the update writing it
+        List<String> contentStatements = statementsReadingContent();
+        assertEquals(1, contentStatements.size(), "Statements reading content: " + contentStatements);
+        assertTrue(contentStatements.get(0).startsWith("update snippet "));
+    }
+
+    @Test
+    public void writeAllSnippets_shouldSelectContentWithTheSnippetsInOneQuery() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            Snippet extra = new Snippet();
+            extra.setTitle("Extra " + i);
+            extra.setContent("Extra content " + i);
+            snippetRepository.save(extra);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        SqlStatementCapture.clear();
+
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(json)) {
+            snippetService.writeAllSnippets(generator);
+        }
+
+        // 1. Check the output
+        assertTrue(json.toString().contains("Extra content 2"));
+
+        // 2. Check that content was not loaded snippet by snippet
+        assertEquals(1, statementsReadingContent().size(), "Statements reading content: " + statementsReadingContent());
+    }
+
+}
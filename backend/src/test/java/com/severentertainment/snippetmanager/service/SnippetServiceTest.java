@@ -12,6 +12,9 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.Instant;
 import java.util.*;
@@ -28,6 +31,18 @@ public class SnippetServiceTest {
     @Mock
     private TagRepository tagRepositoryMock;
 
+    @Mock
+    private SnippetJsonCache snippetJsonCacheMock;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisherMock;
+
+    @Mock
+    private TagService tagServiceMock;
+
+    @Mock
+    private PlatformTransactionManager transactionManagerMock;
+
     @InjectMocks
     private SnippetService snippetService;
 
@@ -193,8 +208,8 @@ public class SnippetServiceTest {
                 new HashSet<>()
         );
 
-        // Configure the mock repository to return the saved snippet when save is called
-        when(snippetRepositoryMock.save(any(Snippet.class))).thenReturn(savedSnippetFromRepo);
+        // Configure the mock repository to return the saved snippet when saveAndFlush is called
+        when(snippetRepositoryMock.saveAndFlush(any(Snippet.class))).thenReturn(savedSnippetFromRepo);
 
         // Call the method under test
         SnippetResponseDto actualCreatedSnippetDto = snippetService.createSnippet(snippetToCreate);
@@ -212,7 +227,7 @@ public class SnippetServiceTest {
 
         // 3. Verify that save was called once with the correct snippet
         ArgumentCaptor<Snippet> snippetArgumentCaptor = ArgumentCaptor.forClass(Snippet.class);
-        verify(snippetRepositoryMock, times(1)).save(snippetArgumentCaptor.capture());
+        verify(snippetRepositoryMock, times(1)).saveAndFlush(snippetArgumentCaptor.capture());
 
         Snippet snippetPassedToRepository = snippetArgumentCaptor.getValue();
         assertEquals(snippetToCreate.getTitle(), snippetPassedToRepository.getTitle(), "The title of the snippet passed to the repository should match the title of the snippet to create");
@@ -222,6 +237,75 @@ public class SnippetServiceTest {
         assertNull(snippetPassedToRepository.getLastModifiedDate(), "The last modified date of the snippet passed to the repository should be null");
     }
 
+    @Test
+    public void createSnippet_shouldAttachResolvedTags_whenTagNamesAreGiven() {
+        Snippet snippetToCreate = new Snippet();
+        snippetToCreate.setTitle("Tagged Snippet");
+        snippetToCreate.setContent("Content of tagged snippet");
+
+        // Simulate the tags resolved by name, one existing and one created
+        Tag existingTag = new Tag(1L, "java", new HashSet<>());
+        Tag createdTag = new Tag(2L, "design docs", new HashSet<>());
+        Map<String, Tag> resolvedTags = new LinkedHashMap<>();
+        resolvedTags.put("java", existingTag);
+        resolvedTags.put("design docs", createdTag);
+
+        List<String> tagNames = List.of("Java", " Design Docs ");
+        when(tagServiceMock.resolveTags(tagNames)).thenReturn(resolvedTags);
+        when(snippetRepositoryMock.saveAndFlush(any(Snippet.class))).thenAnswer(invocation -> {
+            Snippet saved = invocation.getArgument(0);
+            saved.setId(1L);
+            return saved;
+        });
+
+        // Call the method under test
+        SnippetResponseDto actualCreatedSnippetDto = snippetService.createSnippet(snippetToCreate, tagNames);
+
+        // 1. Check that the returned snippet carries the resolved tags
+        assertEquals(Set.of(new TagResponseDto(1L, "java"), new TagResponseDto(2L, "design docs")), actualCreatedSnippetDto.getTags());
+
+        // 2. Verify that the tags were resolved once, as a batch, and saved with the snippet
+        verify(tagServiceMock, times(1)).resolveTags(tagNames);
+        verify(snippetRepositoryMock, times(1)).saveAndFlush(snippetToCreate);
+        assertEquals(Set.of(existingTag, createdTag), snippetToCreate.getTags());
+    }
+
+    @Test
+    public void createSnippet_shouldRetryOnce_whenConcurrentTagCreateConflicts() {
+        Snippet snippetToCreate = new Snippet();
+        snippetToCreate.setTitle("Contended Snippet");
+        snippetToCreate.setContent("Content of contended snippet");
+
+        Tag tag = new Tag(1L, "contended", new HashSet<>());
+        List<String> tagNames = List.of("Contended");
+        when(tagServiceMock.resolveTags(tagNames)).thenReturn(Map.of("contended", tag));
+
+        // Simulate a concurrent request inserting the tag first, then a successful retry
+        when(snippetRepositoryMock.saveAndFlush(any(Snippet.class)))
+                .thenAnswer(invocation -> {
+                    Snippet attempted = invocation.getArgument(0);
+                    attempted.setId(1L);
+                    throw new DataIntegrityViolationException("Unique index or primary key violation");
+                })
+                .thenAnswer(invocation -> {
+                    Snippet saved = invocation.getArgument(0);
+                    assertNull(saved.getId(), "The retry should not reuse the ID of the rolled back attempt");
+                    saved.setId(2L);
+                    return saved;
+                });
+
+        // Call the method under test
+        SnippetResponseDto actualCreatedSnippetDto = snippetService.createSnippet(snippetToCreate, tagNames);
+
+        // 1. Check that the second attempt was returned
+        assertEquals(2L, actualCreatedSnippetDto.getId());
+        assertEquals(Set.of(new TagResponseDto(1L, "contended")), actualCreatedSnippetDto.getTags());
+
+        // 2. Verify that the tags were resolved again in the retry
+        verify(tagServiceMock, times(2)).resolveTags(tagNames);
+        verify(snippetRepositoryMock, times(2)).saveAndFlush(snippetToCreate);
+    }
+
     @Test
     public void updateSnippet_shouldUpdateAndReturnSnippet_whenIdExists() {
         Long snippetId = 1L;
@@ -265,7 +349,7 @@ public class SnippetServiceTest {
         when(snippetRepositoryMock.findById(snippetId)).thenReturn(Optional.of(existingSnippet));
 
         // When save is called, return the saved updated snippet
-        when(snippetRepositoryMock.save(any(Snippet.class))).thenReturn(savedSnippetAfterUpdate);
+        when(snippetRepositoryMock.saveAndFlush(any(Snippet.class))).thenReturn(savedSnippetAfterUpdate);
 
         // Call the method under test
         Optional<SnippetResponseDto> actualUpdatedSnippetOptional = snippetService.updateSnippet(snippetId, snippetUpdateDetails);
@@ -286,13 +370,16 @@ public class SnippetServiceTest {
         verify(snippetRepositoryMock, times(1)).findById(snippetId);
 
         ArgumentCaptor<Snippet> snippetArgumentCaptor = ArgumentCaptor.forClass(Snippet.class);
-        verify(snippetRepositoryMock, times(1)).save(snippetArgumentCaptor.capture());
+        verify(snippetRepositoryMock, times(1)).saveAndFlush(snippetArgumentCaptor.capture());
 
         Snippet snippetPassedToSave = snippetArgumentCaptor.getValue();
         assertEquals(snippetUpdateDetails.getTitle(), snippetPassedToSave.getTitle(), "The title of the snippet passed to the repository should match the title of the snippet to update");
         assertEquals(snippetUpdateDetails.getContent(), snippetPassedToSave.getContent(), "The content of the snippet passed to the repository should match the content of the snippet to update");
 
         assertSame(existingSnippet, snippetPassedToSave, "The snippet passed to the repository should be the same as the existing snippet");
+
+        // 4. Verify that the cached JSON of the snippet was evicted
+        verify(snippetJsonCacheMock, times(1)).evict(snippetId);
     }
 
     @Test
@@ -317,7 +404,7 @@ public class SnippetServiceTest {
         verify(snippetRepositoryMock, times(1)).findById(nonExistentId);
 
         // 3. Verify that save was NOT called
-        verify(snippetRepositoryMock, never()).save(any(Snippet.class));
+        verify(snippetRepositoryMock, never()).saveAndFlush(any(Snippet.class));
     }
 
     @Test
@@ -340,6 +427,12 @@ public class SnippetServiceTest {
 
         // 3. Verify that deleteById was called once
         verify(snippetRepositoryMock, times(1)).deleteById(snippetId);
+
+        // 4. Verify that the cached JSON of the snippet was evicted
+        verify(snippetJsonCacheMock, times(1)).evict(snippetId);
+
+        // 5. Verify that the deletion was published
+        verify(eventPublisherMock, times(1)).publishEvent(SnippetDataChangedEvent.snippets(SnippetDataChangedEvent.Type.SNIPPETS_DELETED, Set.of(snippetId)));
     }
 
     @Test
@@ -359,6 +452,12 @@ public class SnippetServiceTest {
 
         // 3. Verify that deleteById was NOT called
         verify(snippetRepositoryMock, never()).deleteById(anyLong());
+
+        // 4. Verify that nothing was evicted from the JSON cache
+        verify(snippetJsonCacheMock, never()).evict(anyLong());
+
+        // 5. Verify that no change was published
+        verify(eventPublisherMock, never()).publishEvent(any(SnippetDataChangedEvent.class));
     }
 
     @Test
@@ -420,6 +519,40 @@ public class SnippetServiceTest {
         assertEquals(1, savedSnippet.getTags().size(), "The saved snippet should have 1 tag");
     }
 
+    @Test
+    public void addTagToSnippet_shouldReturnDtoWithoutCallingSave_whenTagAlreadyAssociated() {
+        Long snippetId = 1L;
+        Long tagId = 2L;
+
+        Tag associatedTag = new Tag();
+        associatedTag.setId(tagId);
+        associatedTag.setName("associated-tag");
+
+        // Simulate existing snippet that already carries the tag
+        Snippet snippetEntity = new Snippet();
+        snippetEntity.setId(snippetId);
+        snippetEntity.setTitle("Snippet with tag");
+        snippetEntity.setTags(new HashSet<>(Set.of(associatedTag)));
+
+        // Configure mock repository behavior:
+        //  - findById should return the existing snippet entity
+        when(snippetRepositoryMock.findById(snippetId)).thenReturn(Optional.of(snippetEntity));
+        //  - findById should return the tag to add
+        when(tagRepositoryMock.findById(tagId)).thenReturn(Optional.of(associatedTag));
+
+        // Call the method under test
+        Optional<SnippetResponseDto> resultOptional = snippetService.addTagToSnippet(snippetId, tagId);
+
+        // 1. Check that the returned DTO still carries the tag
+        assertTrue(resultOptional.isPresent(), "The result optional should not be empty");
+        assertEquals(Set.of(new TagResponseDto(tagId, "associated-tag")), resultOptional.get().getTags());
+
+        // 2. Verify that nothing was saved, evicted or published
+        verify(snippetRepositoryMock, never()).save(any(Snippet.class));
+        verify(snippetJsonCacheMock, never()).evict(anyLong());
+        verifyNoInteractions(eventPublisherMock);
+    }
+
     @Test
     public void removeTagFromSnippet_shouldRemoveTagAndReturnUpdatedSnippetDto_whenAssociated() {
         Long snippetId = 1L;
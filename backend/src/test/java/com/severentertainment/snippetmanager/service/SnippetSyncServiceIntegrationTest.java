@@ -0,0 +1,173 @@
+package com.severentertainment.snippetmanager.service;
+
+import com.severentertainment.snippetmanager.domain.Snippet;
+import com.severentertainment.snippetmanager.domain.Tag;
+import com.severentertainment.snippetmanager.dto.SnippetDeltaDto;
+import com.severentertainment.snippetmanager.dto.SnippetResponseDto;
+import com.severentertainment.snippetmanager.dto.TagResponseDto;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not @Transactional: tombstones are written as the deleting transaction commits
+@SpringBootTest(properties = "snippetmanager.sync.overlap=0s")
+public class SnippetSyncServiceIntegrationTest {
+
+    @Autowired
+    private SnippetSyncService snippetSyncService;
+
+    @Autowired
+    private SnippetService snippetService;
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    public void clearData() {
+        jdbcTemplate.update("delete from snippet_tombstone");
+        jdbcTemplate.update("delete from snippet_tag");
+        jdbcTemplate.update("delete from snippet");
+        jdbcTemplate.update("delete from tag");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    private Long createSnippet(String title) {
+        Snippet snippet = new Snippet();
+        snippet.setTitle(title);
+        snippet.setContent("Content of " + title);
+        return snippetService.createSnippet(snippet).getId();
+    }
+
+    private Long createTag(String name) {
+        Tag tag = new Tag();
+        tag.setName(name);
+        return tagService.createOrGetTag(tag).getId();
+    }
+
+    // Sync tokens have millisecond precision; keeps writes on either side of a token apart
+    private String syncToken() throws InterruptedException {
+        Thread.sleep(5);
+        String token = snippetSyncService.getChangesSince(null).getSyncToken();
+        Thread.sleep(5);
+        return token;
+    }
+
+    @Test
+    public void getChangesSince_shouldReset_whenNoToken() {
+        createSnippet("Existing");
+
+        SnippetDeltaDto delta = snippetSyncService.getChangesSince(null);
+
+        // 1. Check that a first sync only hands out a token
+        assertTrue(delta.isReset());
+        assertNotNull(delta.getSyncToken());
+        assertTrue(delta.getSnippets().isEmpty());
+    }
+
+    @Test
+    public void getChangesSince_shouldReturnOnlyChangedAndDeletedSnippets() throws Exception {
+        Long untouchedId = createSnippet("Untouched");
+        Long updatedId = createSnippet("Updated");
+        Long taggedId = createSnippet("Tagged");
+        Long deletedId = createSnippet("Deleted");
+        Long tagId = createTag("Sync");
+
+        String token = syncToken();
+
+        Snippet update = new Snippet();
+        update.setTitle("Updated Again");
+        update.setContent("New content");
+        snippetService.updateSnippet(updatedId, update);
+        snippetService.addTagToSnippet(taggedId, tagId);
+        snippetService.deleteSnippet(deletedId);
+        Long createdId = createSnippet("Created");
+
+        SnippetDeltaDto delta = snippetSyncService.getChangesSince(token);
+
+        // 1. Check that only the updated, newly tagged and created snippets were sent, with their content and tags
+        assertFalse(delta.isReset());
+        assertEquals(List.of(updatedId, taggedId, createdId), delta.getSnippets().stream().map(SnippetResponseDto::getId).toList());
+        assertFalse(delta.getSnippets().stream().anyMatch(snippet -> snippet.getId().equals(untouchedId)));
+        assertEquals("New content", delta.getSnippets().get(0).getContent());
+        assertEquals(1, delta.getSnippets().get(1).getTags().size());
+
+        // 2. Check the tombstone of the deleted snippet
+        assertEquals(List.of(deletedId), delta.getDeletedIds());
+
+        // 3. Check that the next token moved past these changes
+        assertNotEquals(token, delta.getSyncToken());
+    }
+
+    @Test
+    public void getChangesSince_shouldReturnSnippetsOfRenamedTag() throws Exception {
+        Long snippetId = createSnippet("Renamed Tag");
+        Long tagId = createTag("Before");
+        snippetService.addTagToSnippet(snippetId, tagId);
+
+        String token = syncToken();
+
+        Tag rename = new Tag();
+        rename.setName("After");
+        tagService.updateTag(tagId, rename);
+
+        SnippetDeltaDto delta = snippetSyncService.getChangesSince(token);
+
+        // 1. Check that the snippet was sent again with the new tag name
+        assertEquals(1, delta.getSnippets().size());
+        assertEquals(List.of("after"), delta.getSnippets().get(0).getTags().stream().map(TagResponseDto::getName).toList());
+    }
+
+    @Test
+    public void getChangesSince_shouldNotRecordTombstones_whenDeleteRolledBack() throws Exception {
+        Long snippetId = createSnippet("Kept");
+        String token = syncToken();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            snippetService.deleteSnippet(snippetId);
+            status.setRollbackOnly();
+        });
+
+        // 1. Check that nothing was reported as deleted
+        assertTrue(snippetSyncService.getChangesSince(token).getDeletedIds().isEmpty());
+    }
+
+    @Test
+    public void getChangesSince_shouldReset_whenRestoredSinceToken() throws Exception {
+        String token = syncToken();
+
+        // Published by SnapshotService once a restore has replaced all data
+        eventPublisher.publishEvent(SnippetDataChangedEvent.reset());
+
+        // 1. Check that the client is told to load everything again
+        assertTrue(snippetSyncService.getChangesSince(token).isReset());
+    }
+
+    @Test
+    public void getChangesSince_shouldThrow_whenTokenMalformed() {
+        // 1. Check that a token that is not one of ours is rejected
+        assertThrows(IllegalArgumentException.class, () -> snippetSyncService.getChangesSince("yesterday"));
+    }
+
+}
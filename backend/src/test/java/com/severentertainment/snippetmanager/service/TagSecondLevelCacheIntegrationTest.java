@@ -0,0 +1,299 @@
+package com.severentertainment.snippetmanager.service;
+
+import com.severentertainment.snippetmanager.config.SecondLevelCacheConfig;
+import com.severentertainment.snippetmanager.domain.Snippet;
+import com.severentertainment.snippetmanager.domain.Tag;
+import com.severentertainment.snippetmanager.dto.SnippetResponseDto;
+import com.severentertainment.snippetmanager.dto.TagResponseDto;
+import com.severentertainment.snippetmanager.repository.SnippetRepository;
+import com.severentertainment.snippetmanager.repository.TagRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that tags, snippet tag sets and tag lookups by name are served from the second-level cache
+ * across transactions, and that writes through the services never leave stale entries behind.
+ */
+// Not @Transactional: entries only reach the second-level cache when a transaction commits
+@SpringBootTest
+public class TagSecondLevelCacheIntegrationTest {
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private SnippetService snippetService;
+
+    @Autowired
+    private SnippetRepository snippetRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void clearData() {
+        deleteCommittedData();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    // The data is committed, so it is deleted again to keep it and its cache entries from other tests
+    @AfterEach
+    public void deleteCommittedData() {
+        jdbcTemplate.update("delete from snippet_tag");
+        jdbcTemplate.update("delete from snippet");
+        jdbcTemplate.update("delete from tag");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    private Tag createTag(String name) {
+        return transactionTemplate.execute(status -> {
+            Tag tag = new Tag();
+            tag.setName(name);
+            return tagRepository.save(tag);
+        });
+    }
+
+    private Snippet createSnippet(String title, Tag... tags) {
+        return transactionTemplate.execute(status -> {
+            Snippet snippet = new Snippet();
+            snippet.setTitle(title);
+            snippet.setContent("Content of " + title);
+            // Loaded in this transaction, as the cascading persist would reject the detached tags
+            snippet.setTags(new HashSet<>(tagRepository.findAllById(Arrays.stream(tags).map(Tag::getId).toList())));
+            return snippetRepository.save(snippet);
+        });
+    }
+
+    private CacheRegionStatistics region(String name) {
+        return statistics.getCacheRegionStatistics(name);
+    }
+
+    private static Set<String> names(Set<TagResponseDto> tags) {
+        return tags.stream().map(TagResponseDto::getName).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void getTagById_shouldBeServedFromCache_afterFirstLoad() {
+        Tag tag = createTag("cached");
+        statistics.clear();
+
+        // 1. Load the tag in two separate transactions
+        assertEquals("cached", tagService.getTagById(tag.getId()).orElseThrow().getName());
+        assertEquals("cached", tagService.getTagById(tag.getId()).orElseThrow().getName());
+
+        // 2. Check that neither load went to the database
+        assertEquals(2, region(SecondLevelCacheConfig.TAG_REGION).getHitCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    public void updateTag_shouldReplaceCachedTagAndNameLookup() {
+        Tag tag = createTag("old name");
+        tagService.createOrGetTag(tagNamed("old name")); // Caches the lookup by name
+
+        // 1. Rename the tag
+        Optional<TagResponseDto> updated = tagService.updateTag(tag.getId(), tagNamed("New Name"));
+        assertTrue(updated.isPresent());
+
+        // 2. Check that the cached tag has the new name
+        assertEquals("new name", tagService.getTagById(tag.getId()).orElseThrow().getName());
+
+        // 3. Check that the old name no longer resolves to the renamed tag
+        TagResponseDto recreated = tagService.createOrGetTag(tagNamed("old name"));
+        assertNotEquals(tag.getId(), recreated.getId());
+        assertEquals(2, tagRepository.count());
+    }
+
+    @Test
+    public void createOrGetTag_shouldServeRepeatedLookupsFromQueryCache() {
+        // Inserted through JDBC so the tag table carries no recent invalidation that could outdate the first result
+        jdbcTemplate.update("insert into tag (name) values ('lookup')");
+        Long tagId = jdbcTemplate.queryForObject("select id from tag where name = 'lookup'", Long.class);
+        statistics.clear();
+
+        // 1. Resolve the same name three times
+        for (int i = 0; i < 3; i++) {
+            assertEquals(tagId, tagService.createOrGetTag(tagNamed(" Lookup ")).getId());
+        }
+
+        // 2. Check that only the first lookup ran the query
+        CacheRegionStatistics lookups = region(SecondLevelCacheConfig.TAG_BY_NAME_REGION);
+        assertEquals(1, lookups.getMissCount());
+        assertEquals(2, lookups.getHitCount());
+    }
+
+    @Test
+    public void createOrGetTag_shouldNotServeCachedMiss_afterTagIsCreated() {
+        // 1. Cache a lookup that finds nothing
+        assertTrue(tagRepository.findByNameIgnoreCase("later").isEmpty());
+
+        // 2. Create the tag through the upsert, which bypasses the entity
+        TagResponseDto created = tagService.createOrGetTag(tagNamed(" Later "));
+
+        // 3. Check that the lookup by name finds the new tag
+        assertEquals(created.getId(), tagRepository.findByNameIgnoreCase("later").orElseThrow().getId());
+    }
+
+    @Test
+    public void createOrGetTag_shouldCreateOneTag_whenSameNameIsCreatedConcurrently() throws Exception {
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<TagResponseDto>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return tagService.createOrGetTag(tagNamed("Contended Tag"));
+                }));
+            }
+            start.countDown();
+
+            // 1. Check that every request succeeded with the same tag
+            Set<Long> tagIds = new HashSet<>();
+            for (Future<TagResponseDto> result : results) {
+                tagIds.add(result.get(10, TimeUnit.SECONDS).getId());
+            }
+            assertEquals(1, tagIds.size());
+
+            // 2. Check that a single tag was inserted
+            assertEquals(1, tagRepository.count());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void createSnippet_shouldShareOneNewTag_whenSnippetsWithItAreCreatedConcurrently() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<SnippetResponseDto>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                String title = "Concurrent " + i;
+                results.add(executor.submit(() -> {
+                    Snippet snippet = new Snippet();
+                    snippet.setTitle(title);
+                    snippet.setContent("Content of " + title);
+                    start.await();
+                    return snippetService.createSnippet(snippet, List.of("Shared New Tag"));
+                }));
+            }
+            start.countDown();
+
+            // 1. Check that every snippet was created with the same tag
+            Set<Long> tagIds = new HashSet<>();
+            for (Future<SnippetResponseDto> result : results) {
+                result.get(10, TimeUnit.SECONDS).getTags().forEach(tag -> tagIds.add(tag.getId()));
+            }
+            assertEquals(1, tagIds.size());
+
+            // 2. Check that a single tag was inserted
+            assertEquals(1, tagRepository.count());
+            assertEquals(threads, snippetRepository.count());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void getTagsForSnippet_shouldUseCachedTagSet_untilTagsChange() {
+        Tag java = createTag("java");
+        Tag spring = createTag("spring");
+        Snippet snippet = createSnippet("Cached Tags", java);
+
+        // 1. Warm the cache and check that the next read is a hit
+        assertEquals(Set.of("java"), names(snippetService.getTagsForSnippet(snippet.getId()).orElseThrow()));
+        statistics.clear();
+        assertEquals(Set.of("java"), names(snippetService.getTagsForSnippet(snippet.getId()).orElseThrow()));
+        assertEquals(1, region(SecondLevelCacheConfig.SNIPPET_TAGS_REGION).getHitCount());
+        assertEquals(0, statistics.getCollectionLoadCount());
+
+        // 2. Check that adding a tag is visible in the next transaction
+        snippetService.addTagToSnippet(snippet.getId(), spring.getId());
+        assertEquals(Set.of("java", "spring"), names(snippetService.getTagsForSnippet(snippet.getId()).orElseThrow()));
+
+        // 3. Check that removing a tag is visible in the next transaction
+        snippetService.removeTagFromSnippet(snippet.getId(), java.getId());
+        assertEquals(Set.of("spring"), names(snippetService.getTagsForSnippet(snippet.getId()).orElseThrow()));
+    }
+
+    @Test
+    public void deleteSnippet_shouldNotLeaveCachedTagSetBehind() {
+        Tag tag = createTag("orphan");
+        Snippet snippet = createSnippet("Deleted", tag);
+        snippetService.getTagsForSnippet(snippet.getId()); // Caches the tag set
+
+        // 1. Delete the snippet, then the tag it referenced
+        assertTrue(snippetService.deleteSnippet(snippet.getId()));
+        assertTrue(tagService.deleteTag(tag.getId()));
+
+        // 2. Check that neither is served from the cache any more
+        assertTrue(snippetService.getTagsForSnippet(snippet.getId()).isEmpty());
+        assertTrue(tagService.getTagById(tag.getId()).isEmpty());
+    }
+
+    @Test
+    public void deleteTag_shouldEvictLinkedTagSets_butKeepOtherCachedTags() {
+        Tag kept = createTag("kept");
+        Tag deleted = createTag("deleted");
+        Snippet snippet = createSnippet("Linked", kept, deleted);
+        tagService.getTagById(kept.getId()); // Caches the kept tag
+        snippetService.getTagsForSnippet(snippet.getId()); // Caches the tag set
+
+        // 1. Delete one of the snippet's tags
+        assertTrue(tagService.deleteTag(deleted.getId()));
+
+        // 2. Check that the tag set no longer includes it
+        assertEquals(Set.of("kept"), names(snippetService.getTagsForSnippet(snippet.getId()).orElseThrow()));
+
+        // 3. Check that the other tag is still served from the cache
+        statistics.clear();
+        assertEquals("kept", tagService.getTagById(kept.getId()).orElseThrow().getName());
+        assertEquals(1, region(SecondLevelCacheConfig.TAG_REGION).getHitCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    private static Tag tagNamed(String name) {
+        Tag tag = new Tag();
+        tag.setName(name);
+        return tag;
+    }
+
+}
@@ -3,17 +3,21 @@ package com.severentertainment.snippetmanager.service;
 import com.severentertainment.snippetmanager.domain.Tag;
 import com.severentertainment.snippetmanager.dto.TagResponseDto;
 import com.severentertainment.snippetmanager.repository.TagRepository;
+import jakarta.persistence.EntityManagerFactory;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -24,6 +28,18 @@ public class TagServiceTest {
     @Mock
     private TagRepository tagRepositoryMock;
 
+    @Mock
+    private SnippetJsonCache snippetJsonCacheMock;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisherMock;
+
+    @Mock
+    private PlatformTransactionManager transactionManagerMock;
+
+    @Mock
+    private EntityManagerFactory entityManagerFactoryMock;
+
     @InjectMocks
     private TagService tagService;
 
@@ -48,10 +64,10 @@ public class TagServiceTest {
         );
 
         // Configure the mock repository behavior:
-        //  - findByNameIgnoreCase should return an empty optional (tag doesn't exist)
-        when(tagRepositoryMock.findByNameIgnoreCase(normalizedName)).thenReturn(Optional.empty());
-        //  - save should return the saved tag from the repository when any Tag is passed
-        when(tagRepositoryMock.save(any(Tag.class))).thenReturn(savedTagFromRepo);
+        //  - findByNameIgnoreCase should return an empty optional (tag doesn't exist), then the inserted tag
+        when(tagRepositoryMock.findByNameIgnoreCase(normalizedName)).thenReturn(Optional.empty(), Optional.of(savedTagFromRepo));
+        //  - insertIfAbsent should report the tag as inserted
+        when(tagRepositoryMock.insertIfAbsent(normalizedName)).thenReturn(1);
 
         // Call the method under test
         TagResponseDto actualTagDto = tagService.createOrGetTag(tagInput);
@@ -61,15 +77,37 @@ public class TagServiceTest {
         assertEquals(expectedTagDto.getId(), actualTagDto.getId(), "ID of the returned tag should match the ID of the saved tag");
         assertEquals(expectedTagDto.getName(), actualTagDto.getName(), "Name of the returned tag should match the normalized name of the input tag");
 
-        // 2. Verify that findByNameIgnoreCase was called once with the normalized name
-        verify(tagRepositoryMock, times(1)).findByNameIgnoreCase(normalizedName);
+        // 2. Verify that the tag was upserted once with the normalized name, and never saved through the entity
+        verify(tagRepositoryMock, times(1)).insertIfAbsent(normalizedName);
+        verify(tagRepositoryMock, never()).save(any(Tag.class));
 
-        // 3. Verify that save was called once with the correct tag
-        ArgumentCaptor<Tag> tagArgumentCaptor = ArgumentCaptor.forClass(Tag.class);
-        verify(tagRepositoryMock, times(1)).save(tagArgumentCaptor.capture());
+        // 3. Verify that the creation was published
+        verify(eventPublisherMock, times(1)).publishEvent(SnippetDataChangedEvent.tags(SnippetDataChangedEvent.Type.TAGS_CREATED, Set.of(1L)));
+    }
+
+    @Test
+    public void createOrGetTag_shouldReturnConcurrentlyCreatedTag_whenUpsertInsertsNothing() {
+        // Input Tag object whose name was created by another request after the first lookup
+        Tag tagInput = new Tag();
+        tagInput.setName("Raced Tag");
+
+        Tag concurrentTag = new Tag();
+        concurrentTag.setId(7L);
+        concurrentTag.setName("raced tag");
+
+        // Configure the mock repository: missing at first, present once the upsert found it
+        when(tagRepositoryMock.findByNameIgnoreCase("raced tag")).thenReturn(Optional.empty(), Optional.of(concurrentTag));
+        when(tagRepositoryMock.insertIfAbsent("raced tag")).thenReturn(0);
 
-        assertEquals(normalizedName, tagArgumentCaptor.getValue().getName(), "The tag passed to save should have the normalized name");
-        assertNull(tagArgumentCaptor.getValue().getId(), "The tag passed to save should not have an ID");
+        // Call the method under test
+        TagResponseDto actualTagDto = tagService.createOrGetTag(tagInput);
+
+        // 1. Check that the concurrently created tag is returned
+        assertEquals(7L, actualTagDto.getId());
+        assertEquals("raced tag", actualTagDto.getName());
+
+        // 2. Verify that no creation was published for a tag this call did not insert
+        verify(eventPublisherMock, never()).publishEvent(any(Object.class));
     }
 
     @Test
@@ -319,6 +357,8 @@ public class TagServiceTest {
         when(tagRepositoryMock.findByNameIgnoreCase(newNormalizedName)).thenReturn(Optional.empty());
         //  - save should return the expected tag from the repository when the updated Tag is passed
         when(tagRepositoryMock.save(any(Tag.class))).thenReturn(expectedSavedTag);
+        //  - findSnippetIdsByTagId should return the snippets carrying the renamed tag
+        when(tagRepositoryMock.findSnippetIdsByTagId(tagIdToUpdate)).thenReturn(List.of(10L, 11L));
 
         // Call the method under test
         Optional<TagResponseDto> actualUpdatedTagDtoOptional = tagService.updateTag(tagIdToUpdate, tagUpdateDetails);
@@ -340,6 +380,12 @@ public class TagServiceTest {
         verify(tagRepositoryMock, times(1)).save(tagArgumentCaptor.capture());
 
         assertEquals(newNormalizedName, tagArgumentCaptor.getValue().getName(), "The saved tag should have the expected name");
+
+        // 5. Verify that the cached JSON of the tagged snippets was evicted
+        verify(snippetJsonCacheMock, times(1)).evictAll(List.of(10L, 11L));
+
+        // 6. Verify that the change to the tag and its snippets was published
+        verify(eventPublisherMock, times(1)).publishEvent(SnippetDataChangedEvent.of(SnippetDataChangedEvent.Type.TAGS_UPDATED, Set.of(10L, 11L), Set.of(tagIdToUpdate)));
     }
 
     @Test
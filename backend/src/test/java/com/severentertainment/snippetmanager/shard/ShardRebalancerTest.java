@@ -0,0 +1,110 @@
+package com.severentertainment.snippetmanager.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardRebalancerTest {
+
+    private final String prefix = "rebalance-" + UUID.randomUUID();
+    private final List<ShardSet> shardSets = new ArrayList<>();
+
+    @AfterEach
+    public void closeShards() {
+        shardSets.forEach(ShardSet::destroy);
+    }
+
+    private ShardSet openShards(int count) {
+        List<HikariDataSource> dataSources = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("shard-" + i);
+            dataSource.setJdbcUrl("jdbc:h2:mem:" + prefix + "-" + i + ";DB_CLOSE_DELAY=-1");
+            dataSources.add(dataSource);
+        }
+
+        ShardSet shardSet = new ShardSet(dataSources);
+        shardSets.add(shardSet);
+        return shardSet;
+    }
+
+    private static long insertSnippet(ShardSet shardSet, String title) {
+        long id = shardSet.nextId();
+        Instant now = Instant.now();
+        shardSet.onShardOf(id, shard -> {
+            shard.jdbcTemplate().update(
+                    "insert into snippet (id, bucket, title, content, creation_date, last_modified_date) values (?, ?, ?, ?, ?, ?)",
+                    id, ShardSet.bucketOf(id), title, "Content of " + title, now, now);
+            return shard.jdbcTemplate().update("insert into snippet_tag (snippet_id, tag_id) values (?, 1)", id);
+        });
+        return id;
+    }
+
+    private static long count(ShardSet shardSet, String sql) {
+        return shardSet.scatter(shard -> shard.jdbcTemplate().queryForObject(sql, Long.class))
+                .stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Test
+    public void rebalance_shouldMoveShareOfBucketsToNewShard_withoutLosingSnippets() {
+        ShardSet twoShards = openShards(2);
+        for (ShardSet.Shard shard : twoShards.shards()) {
+            shard.jdbcTemplate().update("insert into tag (id, name) values (1, 'moved')");
+        }
+        for (int i = 0; i < 300; i++) {
+            insertSnippet(twoShards, "Snippet " + i);
+        }
+
+        // A third shard is appended to the configuration
+        ShardSet threeShards = openShards(3);
+        threeShards.shards().get(2).jdbcTemplate().update("insert into tag (id, name) values (1, 'moved')");
+
+        // 1. Check that the new shard starts out empty
+        assertArrayEquals(new int[] {512, 512, 0}, threeShards.bucketCounts());
+
+        RebalanceSummary summary = new ShardRebalancer(threeShards).rebalance();
+
+        // 2. Check that each shard now owns a third of the buckets
+        assertArrayEquals(new int[] {342, 341, 341}, threeShards.bucketCounts());
+        assertEquals(341, summary.bucketsMoved());
+
+        // 3. Check that every snippet, and its link, is stored exactly once, on the owner of its bucket
+        assertEquals(300, count(threeShards, "select count(*) from snippet"));
+        assertEquals(300, count(threeShards, "select count(*) from snippet_tag"));
+        assertTrue(threeShards.shards().get(2).jdbcTemplate().queryForObject("select count(*) from snippet", Long.class) > 0);
+        for (ShardSet.Shard shard : threeShards.shards()) {
+            List<Integer> buckets = shard.jdbcTemplate().queryForList("select distinct bucket from snippet", Integer.class);
+            for (int bucket : buckets) {
+                assertEquals(shard.index(), threeShards.ownerOf(bucket).index());
+            }
+        }
+
+        // 4. Check that a rebalanced set stays as it is
+        assertEquals(0, new ShardRebalancer(threeShards).rebalance().bucketsMoved());
+    }
+
+    @Test
+    public void rebalance_shouldRemoveRowsLeftByInterruptedMove() {
+        ShardSet shardSet = openShards(2);
+        shardSet.shards().forEach(shard -> shard.jdbcTemplate().update("insert into tag (id, name) values (1, 'moved')"));
+        long id = insertSnippet(shardSet, "Copied twice");
+
+        // A move that copied the bucket but stopped before assigning it
+        ShardSet.Shard other = shardSet.shards().get(1 - shardSet.ownerOf(ShardSet.bucketOf(id)).index());
+        other.jdbcTemplate().update("insert into snippet (id, bucket, title) values (?, ?, 'Copied twice')", id, ShardSet.bucketOf(id));
+
+        RebalanceSummary summary = new ShardRebalancer(shardSet).rebalance();
+
+        // 1. Check that only the copy on the owning shard is left
+        assertEquals(1, summary.orphansRemoved());
+        assertEquals(1, count(shardSet, "select count(*) from snippet"));
+    }
+
+}
@@ -0,0 +1,145 @@
+package com.severentertainment.snippetmanager.shard;
+
+import com.severentertainment.snippetmanager.dto.SnippetResponseDto;
+import com.severentertainment.snippetmanager.dto.SnippetSummaryDto;
+import com.severentertainment.snippetmanager.service.SnippetDataChangedEvent;
+import com.severentertainment.snippetmanager.store.StorageEngine;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Not @Transactional: shard writes commit on the shards themselves, and tag copies follow committed tag changes
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK, properties = {
+        "snippetmanager.storage.engine=sharded",
+        "snippetmanager.sharding.urls=jdbc:h2:mem:sharded-1;DB_CLOSE_DELAY=-1,jdbc:h2:mem:sharded-2;DB_CLOSE_DELAY=-1"
+})
+@AutoConfigureMockMvc
+public class ShardedSnippetIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private StorageEngine storageEngine;
+
+    @Autowired
+    private ShardSet shardSet;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    public void clearData() {
+        for (ShardSet.Shard shard : shardSet.shards()) {
+            shard.jdbcTemplate().update("delete from snippet_tag");
+            shard.jdbcTemplate().update("delete from snippet");
+        }
+        jdbcTemplate.update("delete from snippet_tag");
+        jdbcTemplate.update("delete from snippet");
+        jdbcTemplate.update("delete from tag");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        eventPublisher.publishEvent(SnippetDataChangedEvent.reset()); // Removes the tag copies on the shards
+    }
+
+    private long countOn(ShardSet.Shard shard, String table) {
+        return shard.jdbcTemplate().queryForObject("select count(*) from " + table, Long.class);
+    }
+
+    @Test
+    public void snippets_shouldBeSpreadOverShards_andListedFromAll() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ids.add(storageEngine.createSnippet("Snippet " + i, "Content of Snippet " + i).getId());
+        }
+
+        // 1. Check that every shard received some snippets, and none are in the main database
+        for (ShardSet.Shard shard : shardSet.shards()) {
+            assertTrue(countOn(shard, "snippet") > 0, shard.name() + " holds no snippets");
+        }
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from snippet", Long.class));
+
+        // 2. Check that the list merges all shards in ID order
+        List<SnippetSummaryDto> summaries = storageEngine.getSnippetSummaries(null, null);
+        assertEquals(ids, summaries.stream().map(SnippetSummaryDto::getId).toList());
+        List<SnippetResponseDto> snippets = storageEngine.getAllSnippets();
+        assertEquals(20, snippets.size());
+        assertEquals("Content of Snippet 0", snippets.get(0).getContent());
+
+        // 3. Check that single snippets are found on their shard, and deleted from it
+        assertEquals("Snippet 7", storageEngine.getSnippetById(ids.get(7)).orElseThrow().getTitle());
+        assertTrue(storageEngine.deleteSnippet(ids.get(7)));
+        assertTrue(storageEngine.getSnippetById(ids.get(7)).isEmpty());
+    }
+
+    @Test
+    public void tags_shouldBeCopiedToEveryShard_andFilterAcrossShards() {
+        Long tagId = storageEngine.createOrGetTag("Sharded").getId();
+
+        // 1. Check that the new tag was copied to every shard
+        for (ShardSet.Shard shard : shardSet.shards()) {
+            assertEquals(1, countOn(shard, "tag"));
+        }
+
+        List<Long> tagged = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Long snippetId = storageEngine.createSnippet((i % 2 == 0 ? "Even " : "Odd ") + i, "Content").getId();
+            if (i % 2 == 0) {
+                SnippetResponseDto linked = storageEngine.addTagToSnippet(snippetId, tagId).orElseThrow();
+                assertEquals("sharded", linked.getTags().iterator().next().getName());
+                tagged.add(snippetId);
+            }
+        }
+
+        // 2. Check the tag filter and the title search across shards
+        assertEquals(tagged, storageEngine.getSnippetSummaries(tagId, null).stream().map(SnippetSummaryDto::getId).toList());
+        List<SnippetSummaryDto> odd = storageEngine.getSnippetSummaries(null, "odd");
+        assertEquals(5, odd.size());
+        assertTrue(odd.stream().allMatch(summary -> summary.getTitle().startsWith("Odd")));
+
+        // 3. Check that a renamed tag is renamed on the shards, and a deleted one unlinked
+        storageEngine.updateTag(tagId, "Renamed").orElseThrow();
+        assertEquals("renamed", storageEngine.getTagsForSnippet(tagged.get(0)).orElseThrow().iterator().next().getName());
+
+        assertTrue(storageEngine.deleteTag(tagId));
+        for (ShardSet.Shard shard : shardSet.shards()) {
+            assertEquals(0, countOn(shard, "tag"));
+            assertEquals(0, countOn(shard, "snippet_tag"));
+        }
+    }
+
+    @Test
+    public void httpApi_shouldNotBeServed() throws Exception {
+        Long snippetId = storageEngine.createSnippet("Sharded", "Content").getId();
+
+        // 1. Check that no endpoint reads the main database in place of the shards
+        mockMvc.perform(get("/api/v1/snippets/" + snippetId))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/v1/tags"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/v1/ingestions"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/v1/changes"))
+                .andExpect(status().isNotFound());
+    }
+
+}
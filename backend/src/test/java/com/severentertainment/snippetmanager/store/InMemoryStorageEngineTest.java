@@ -0,0 +1,7 @@
+package com.severentertainment.snippetmanager.store;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = "snippetmanager.storage.engine=memory")
+public class InMemoryStorageEngineTest extends StorageEngineContractTest {
+}
@@ -0,0 +1,8 @@
+package com.severentertainment.snippetmanager.store;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+// Not @Transactional: the contract is checked against committed data, as for the other engines
+@SpringBootTest(properties = "snippetmanager.storage.engine=jpa")
+public class JpaStorageEngineTest extends StorageEngineContractTest {
+}
@@ -0,0 +1,10 @@
+package com.severentertainment.snippetmanager.store;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = {
+        "snippetmanager.storage.engine=log",
+        "snippetmanager.storage.log.dir=target/log-engine-test"
+})
+public class LogStructuredStorageEngineTest extends StorageEngineContractTest {
+}
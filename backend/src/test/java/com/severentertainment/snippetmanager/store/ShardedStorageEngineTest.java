@@ -0,0 +1,10 @@
+package com.severentertainment.snippetmanager.store;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = {
+        "snippetmanager.storage.engine=sharded",
+        "snippetmanager.sharding.urls=jdbc:h2:mem:engine-shard-1;DB_CLOSE_DELAY=-1,jdbc:h2:mem:engine-shard-2;DB_CLOSE_DELAY=-1"
+})
+public class ShardedStorageEngineTest extends StorageEngineContractTest {
+}
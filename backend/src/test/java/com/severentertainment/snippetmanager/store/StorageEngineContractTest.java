@@ -0,0 +1,147 @@
+package com.severentertainment.snippetmanager.store;
+
+import com.severentertainment.snippetmanager.dto.SnippetResponseDto;
+import com.severentertainment.snippetmanager.dto.SnippetSummaryDto;
+import com.severentertainment.snippetmanager.dto.TagResponseDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The behavior every {@link StorageEngine} must have. Each engine has a subclass that starts the application with
+ * that engine configured.
+ */
+public abstract class StorageEngineContractTest {
+
+    @Autowired
+    protected StorageEngine storageEngine;
+
+    @BeforeEach
+    public void clearData() {
+        storageEngine.getAllSnippets().forEach(snippet -> storageEngine.deleteSnippet(snippet.getId()));
+        storageEngine.getAllTags().forEach(tag -> storageEngine.deleteTag(tag.getId()));
+    }
+
+    private static List<String> titles(List<SnippetSummaryDto> summaries) {
+        return summaries.stream().map(SnippetSummaryDto::getTitle).toList();
+    }
+
+    private static Set<String> tagNames(Set<TagResponseDto> tags) {
+        return tags.stream().map(TagResponseDto::getName).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void snippets_shouldBeCreatedReadUpdatedAndDeleted() {
+        SnippetResponseDto created = storageEngine.createSnippet("First", "Content");
+        storageEngine.createSnippet("Second", "More content");
+
+        // 1. Check the created snippet
+        assertNotNull(created.getId());
+        assertNotNull(created.getCreationDate());
+        assertEquals("Content", storageEngine.getSnippetById(created.getId()).orElseThrow().getContent());
+
+        // 2. Check that lists are ordered by ID
+        assertEquals(List.of("First", "Second"), storageEngine.getAllSnippets().stream().map(SnippetResponseDto::getTitle).toList());
+        assertEquals(List.of("First", "Second"), titles(storageEngine.getSnippetSummaries(null, null)));
+
+        // 3. Check the update
+        SnippetResponseDto updated = storageEngine.updateSnippet(created.getId(), "First Edited", "New content").orElseThrow();
+        assertEquals("First Edited", updated.getTitle());
+        assertEquals("New content", storageEngine.getSnippetById(created.getId()).orElseThrow().getContent());
+
+        // 4. Check the delete, and that missing snippets are reported as such
+        assertTrue(storageEngine.deleteSnippet(created.getId()));
+        assertFalse(storageEngine.deleteSnippet(created.getId()));
+        assertTrue(storageEngine.getSnippetById(created.getId()).isEmpty());
+        assertTrue(storageEngine.updateSnippet(created.getId(), "Gone", "Gone").isEmpty());
+    }
+
+    @Test
+    public void tags_shouldBeNormalizedAndLinked() {
+        TagResponseDto tag = storageEngine.createOrGetTag("  Design   Docs ");
+        Long snippetId = storageEngine.createSnippet("Tagged", "Content").getId();
+        storageEngine.createSnippet("Untagged", "Content");
+
+        // 1. Check that names are normalized and creating a tag again returns it
+        assertEquals("design docs", tag.getName());
+        assertEquals(tag.getId(), storageEngine.createOrGetTag("DESIGN DOCS").getId());
+        assertThrows(IllegalArgumentException.class, () -> storageEngine.createOrGetTag(" "));
+
+        // 2. Check linking, also twice, and the tag filter
+        storageEngine.addTagToSnippet(snippetId, tag.getId());
+        SnippetResponseDto linked = storageEngine.addTagToSnippet(snippetId, tag.getId()).orElseThrow();
+        assertEquals(Set.of(tag), linked.getTags());
+        assertEquals(List.of("Tagged"), titles(storageEngine.getSnippetSummaries(tag.getId(), null)));
+        assertTrue(storageEngine.addTagToSnippet(snippetId, tag.getId() + 1000).isEmpty());
+
+        // 3. Check that a rename shows on the snippet, and a rename to a taken name is refused
+        storageEngine.updateTag(tag.getId(), "Docs");
+        assertEquals("docs", storageEngine.getTagsForSnippet(snippetId).orElseThrow().iterator().next().getName());
+        Long otherTagId = storageEngine.createOrGetTag("Other").getId();
+        assertTrue(storageEngine.updateTag(otherTagId, "docs").isEmpty());
+
+        // 4. Check unlinking, and that deleting a tag removes its links
+        assertTrue(storageEngine.removeTagFromSnippet(snippetId, tag.getId()).orElseThrow().getTags().isEmpty());
+        storageEngine.addTagToSnippet(snippetId, otherTagId);
+        assertTrue(storageEngine.deleteTag(otherTagId));
+        assertTrue(storageEngine.getTagsForSnippet(snippetId).orElseThrow().isEmpty());
+        assertEquals(List.of("docs"), storageEngine.getAllTags().stream().map(TagResponseDto::getName).toList());
+    }
+
+    @Test
+    public void snippets_shouldBeCreatedAndUpdatedWithTagNames() {
+        Long existingTagId = storageEngine.createOrGetTag("Existing").getId();
+
+        // 1. Check that a snippet is created with new and existing tags
+        SnippetResponseDto created = storageEngine.createSnippet("Tagged", "Content", List.of(" Existing ", "New Tag"));
+        assertEquals(Set.of("existing", "new tag"), tagNames(created.getTags()));
+        assertEquals(existingTagId, storageEngine.resolveTagIds(List.of("existing")).get("existing"));
+
+        // 2. Check that an update without tag names keeps the tags
+        storageEngine.updateSnippet(created.getId(), "Tagged", "Edited", null).orElseThrow();
+        assertEquals(Set.of("existing", "new tag"), tagNames(storageEngine.getTagsForSnippet(created.getId()).orElseThrow()));
+
+        // 3. Check that an update with tag names replaces them
+        SnippetResponseDto updated = storageEngine.updateSnippet(created.getId(), "Retagged", "Edited", List.of("new tag", "Other")).orElseThrow();
+        assertEquals(Set.of("new tag", "other"), tagNames(updated.getTags()));
+        assertEquals(Set.of("new tag", "other"), tagNames(storageEngine.getTagsForSnippet(created.getId()).orElseThrow()));
+        assertTrue(storageEngine.updateSnippet(created.getId() + 1000, "Gone", "Gone", List.of("other")).isEmpty());
+    }
+
+    @Test
+    public void resolveTagIds_shouldCreateMissingTagsInInputOrder() {
+        Long existingTagId = storageEngine.createOrGetTag("Existing").getId();
+
+        // 1. Resolve new, existing, duplicate and blank names
+        Map<String, Long> tagIds = storageEngine.resolveTagIds(Arrays.asList(" Zeta ", "EXISTING", "alpha", "zeta", " ", null));
+
+        // 2. Check that the names are normalized, deduplicated and in input order
+        assertEquals(List.of("zeta", "existing", "alpha"), List.copyOf(tagIds.keySet()));
+
+        // 3. Check that the existing tag is reused and the missing ones were created
+        assertEquals(existingTagId, tagIds.get("existing"));
+        assertEquals("alpha", storageEngine.getTagById(tagIds.get("alpha")).orElseThrow().getName());
+        assertEquals(3, storageEngine.getAllTags().size());
+    }
+
+    @Test
+    public void getSnippetSummaries_shouldFilterByTitle() {
+        storageEngine.createSnippet("Storage Engines", "Content");
+        storageEngine.createSnippet("Query Planning", "Content");
+        storageEngine.createSnippet("Engine Room_1", "Content");
+
+        // 1. Check that the search ignores case and treats wildcards literally
+        assertEquals(List.of("Storage Engines", "Engine Room_1"), titles(storageEngine.getSnippetSummaries(null, "ENGINE")));
+        assertEquals(List.of("Engine Room_1"), titles(storageEngine.getSnippetSummaries(null, "m_1")));
+        assertEquals(List.of(), titles(storageEngine.getSnippetSummaries(null, "%")));
+    }
+
+}
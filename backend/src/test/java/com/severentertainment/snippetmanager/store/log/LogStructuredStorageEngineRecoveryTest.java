@@ -0,0 +1,160 @@
+package com.severentertainment.snippetmanager.store.log;
+
+import com.severentertainment.snippetmanager.dto.SnippetResponseDto;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogStructuredStorageEngineRecoveryTest {
+
+    @TempDir
+    private Path directory;
+
+    private LogStructuredStorageEngine open(long segmentBytes) throws IOException {
+        return open(segmentBytes, Duration.ZERO);
+    }
+
+    private LogStructuredStorageEngine open(long segmentBytes, Duration groupCommitWindow) throws IOException {
+        return new LogStructuredStorageEngine(event -> { }, directory.toString(), segmentBytes, true, groupCommitWindow,
+                Duration.ofHours(1), 0.5);
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    @Test
+    public void reopen_shouldReplayTheLog_andDropAnIncompleteLastWrite() throws Exception {
+        LogStructuredStorageEngine engine = open(1 << 20);
+        long tagId = engine.createOrGetTag("Kept").getId();
+        long snippetId = engine.createSnippet("Kept", "Kept content").getId();
+        engine.addTagToSnippet(snippetId, tagId);
+        long deletedId = engine.createSnippet("Deleted", "Gone").getId();
+        engine.deleteSnippet(deletedId);
+        engine.destroy();
+
+        // Half a record, as if the process died while writing it
+        Path segment = segmentFiles().getLast();
+        Files.write(segment, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+        long sizeWithTornWrite = Files.size(segment);
+
+        engine = open(1 << 20);
+
+        // 1. Check that the state was restored and the torn write cut off
+        SnippetResponseDto kept = engine.getSnippetById(snippetId).orElseThrow();
+        assertEquals("Kept content", kept.getContent());
+        assertEquals("kept", kept.getTags().iterator().next().getName());
+        assertTrue(engine.getSnippetById(deletedId).isEmpty());
+        assertEquals(sizeWithTornWrite - 7, Files.size(segment));
+
+        // 2. Check that IDs are not handed out again
+        assertTrue(engine.createSnippet("New", "New").getId() > deletedId);
+        engine.destroy();
+    }
+
+    @Test
+    public void compact_shouldRemoveSegmentsOfOverwrittenVersions_andKeepTheLatest() throws Exception {
+        LogStructuredStorageEngine engine = open(256); // A few records per segment
+        long snippetId = engine.createSnippet("Edited", "Version 0").getId();
+        for (int i = 1; i <= 20; i++) {
+            engine.updateSnippet(snippetId, "Edited", "Version " + i + " " + "x".repeat(100));
+        }
+        long deletedId = engine.createSnippet("Deleted", "Gone").getId();
+        engine.deleteSnippet(deletedId);
+        int segmentsBefore = segmentFiles().size();
+
+        // 1. Check that compaction removed segments and kept the latest version readable
+        assertTrue(engine.compact() > 0);
+        assertTrue(segmentFiles().size() < segmentsBefore);
+        assertTrue(engine.getSnippetById(snippetId).orElseThrow().getContent().startsWith("Version 20 "));
+        engine.destroy();
+
+        // 2. Check that the compacted log replays to the same state
+        engine = open(256);
+        assertTrue(engine.getSnippetById(snippetId).orElseThrow().getContent().startsWith("Version 20 "));
+        assertTrue(engine.getSnippetById(deletedId).isEmpty());
+        assertTrue(engine.createSnippet("New", "New").getId() > deletedId);
+        engine.destroy();
+    }
+
+    @Test
+    public void write_shouldStartANewSegmentBeforeOneWouldOverflow_andRejectRecordsLargerThanASegment() throws Exception {
+        LogStructuredStorageEngine engine = open(512);
+        List<Long> snippetIds = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            snippetIds.add(engine.createSnippet("Snippet " + i, "x".repeat(150)).getId());
+        }
+
+        // 1. Check that no segment grew past the segment size
+        assertTrue(segmentFiles().size() > 1);
+        for (Path segment : segmentFiles()) {
+            assertTrue(Files.size(segment) <= 512, segment + " has " + Files.size(segment) + " bytes");
+        }
+
+        // 2. Check that a record that cannot fit into any segment is rejected and nothing is written
+        int segmentsBefore = segmentFiles().size();
+        assertThrows(IllegalArgumentException.class, () -> engine.createSnippet("Too large", "x".repeat(512)));
+        assertEquals(segmentsBefore, segmentFiles().size());
+        engine.destroy();
+
+        // 3. Check that the log replays
+        LogStructuredStorageEngine reopened = open(512);
+        for (Long snippetId : snippetIds) {
+            assertEquals("x".repeat(150), reopened.getSnippetById(snippetId).orElseThrow().getContent());
+        }
+        reopened.destroy();
+    }
+
+    @Test
+    public void groupCommit_shouldForceConcurrentWritesTogether() throws Exception {
+        LogStructuredStorageEngine engine = open(1 << 20, Duration.ofMillis(20));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        engine.bindTo(registry);
+
+        int writers = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> ids = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(writers)) {
+            for (int i = 0; i < writers; i++) {
+                int n = i;
+                ids.add(executor.submit(() -> {
+                    start.await();
+                    return engine.createSnippet("Snippet " + n, "Content " + n).getId();
+                }));
+            }
+            start.countDown();
+        }
+
+        // 1. Check that every write was acknowledged, with fewer flushes than writes
+        DistributionSummary batches = registry.get("snippetmanager.log.group-commit.batch").summary();
+        assertEquals(writers, (long) batches.totalAmount());
+        assertTrue(batches.count() < writers, batches.count() + " flushes for " + writers + " writes");
+        engine.destroy();
+
+        // 2. Check that the acknowledged writes are in the log
+        LogStructuredStorageEngine reopened = open(1 << 20);
+        for (Future<Long> id : ids) {
+            assertTrue(reopened.getSnippetById(id.get()).isPresent());
+        }
+        reopened.destroy();
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.severentertainment.snippetmanager.suggest;
+
+import com.severentertainment.snippetmanager.dto.TagSuggestionDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TagSuggestionIndexTest {
+
+    private static final List<TagSuggestionDto> TAGS = List.of(
+            new TagSuggestionDto(1L, "java", 5),
+            new TagSuggestionDto(2L, "javascript", 9),
+            new TagSuggestionDto(3L, "jvm", 5),
+            new TagSuggestionDto(4L, "design docs", 2),
+            new TagSuggestionDto(5L, "design", 7),
+            new TagSuggestionDto(6L, "databases", 0));
+
+    private static List<String> names(List<TagSuggestionDto> suggestions) {
+        return suggestions.stream().map(TagSuggestionDto::getName).toList();
+    }
+
+    @Test
+    public void suggest_shouldRankMatchesByUsageThenName() {
+        TagSuggestionIndex index = TagSuggestionIndex.build(TAGS, 10);
+
+        // 1. Check prefixes ending inside a shared prefix, at a branch and at a full name
+        assertEquals(List.of("javascript", "java", "jvm"), names(index.suggest("j", 10)));
+        assertEquals(List.of("javascript", "java"), names(index.suggest("jav", 10)));
+        assertEquals(List.of("javascript", "java"), names(index.suggest("java", 10)));
+        assertEquals(List.of("javascript"), names(index.suggest("javas", 10)));
+        assertEquals(List.of("design", "design docs"), names(index.suggest("des", 10)));
+        assertEquals(List.of("design docs"), names(index.suggest("design ", 10)));
+
+        // 2. Check that an empty prefix suggests the most used tags overall, up to the limit
+        assertEquals(List.of("javascript", "design", "java"), names(index.suggest("", 3)));
+
+        // 3. Check prefixes matching nothing, diverging inside a shared prefix or beyond a full name
+        assertEquals(List.of(), index.suggest("k", 10));
+        assertEquals(List.of(), index.suggest("jx", 10));
+        assertEquals(List.of(), index.suggest("desk", 10));
+        assertEquals(List.of(), index.suggest("javascripts", 10));
+    }
+
+    @Test
+    public void suggest_shouldReturnNothing_whenIndexIsEmpty() {
+        TagSuggestionIndex index = TagSuggestionIndex.build(List.of(), 10);
+
+        assertEquals(0, index.size());
+        assertEquals(List.of(), index.suggest("", 10));
+        assertEquals(List.of(), index.suggest("java", 10));
+    }
+
+    @Test
+    public void suggest_shouldMatchLinearScan_forRandomTags() {
+        Random random = new Random(42);
+        List<TagSuggestionDto> tags = new ArrayList<>();
+        for (long id = 1; id <= 2_000; id++) {
+            StringBuilder name = new StringBuilder();
+            int length = 1 + random.nextInt(6);
+            for (int i = 0; i < length; i++) {
+                name.append((char) ('a' + random.nextInt(4))); // Few letters, so that names share long prefixes
+            }
+            if (tags.stream().noneMatch(tag -> tag.getName().contentEquals(name))) {
+                tags.add(new TagSuggestionDto(id, name.toString(), random.nextInt(20)));
+            }
+        }
+        TagSuggestionIndex index = TagSuggestionIndex.build(tags, 8);
+
+        // 1. Check every prefix of up to four letters against filtering and sorting all tags
+        List<String> prefixes = new ArrayList<>(List.of(""));
+        for (int length = 1; length <= 4; length++) {
+            for (String prefix : List.copyOf(prefixes)) {
+                if (prefix.length() == length - 1) {
+                    for (char c = 'a'; c <= 'e'; c++) {
+                        prefixes.add(prefix + c);
+                    }
+                }
+            }
+        }
+        for (String prefix : prefixes) {
+            assertEquals(linearScan(tags, prefix, 5), index.suggest(prefix, 5), "Suggestions for '" + prefix + "'");
+        }
+    }
+
+    @Test
+    public void suggest_shouldReturnTheSameList_forTheSameLimit() {
+        TagSuggestionIndex index = TagSuggestionIndex.build(TAGS, 10);
+
+        // 1. Check that lookups share the node's lists rather than making views
+        assertSame(index.suggest("j", 2), index.suggest("j", 2));
+        assertEquals(List.of("javascript", "java"), names(index.suggest("j", 2)));
+        assertThrows(UnsupportedOperationException.class, () -> index.suggest("j", 2).remove(0));
+    }
+
+    @Test
+    public void update_shouldMatchLinearScan_forRandomChanges() {
+        Random random = new Random(7);
+        Map<Long, TagSuggestionDto> tags = new HashMap<>();
+        TagSuggestionIndex index = TagSuggestionIndex.build(List.of(), 8);
+
+        for (int round = 0; round < 300; round++) {
+            // 1. Add, rename, recount and delete a few random tags, as the changes of one update
+            List<TagSuggestionDto> removed = new ArrayList<>();
+            List<TagSuggestionDto> added = new ArrayList<>();
+            Set<Long> changedIds = new HashSet<>();
+            for (int change = 1 + random.nextInt(4); change > 0; change--) {
+                long id = 1 + random.nextInt(60);
+                if (!changedIds.add(id)) {
+                    continue;
+                }
+                TagSuggestionDto before = tags.remove(id);
+                if (before != null) {
+                    removed.add(before);
+                }
+                if (before == null || random.nextInt(4) > 0) { // Otherwise deleted
+                    String name = before != null && random.nextBoolean() ? before.getName() : randomName(random);
+                    if (tags.values().stream().noneMatch(tag -> tag.getName().equals(name))) {
+                        TagSuggestionDto after = new TagSuggestionDto(id, name, random.nextInt(20));
+                        tags.put(id, after);
+                        added.add(after);
+                    }
+                }
+            }
+            index = index.update(removed, added);
+
+            // 2. Check the size and every prefix of up to two letters against filtering and sorting all tags
+            assertEquals(tags.size(), index.size());
+            for (String prefix : List.of("", "a", "b", "c", "aa", "ab", "ba", "cd", "da")) {
+                assertEquals(linearScan(tags.values(), prefix, 5), index.suggest(prefix, 5), "Suggestions for '" + prefix + "'");
+            }
+        }
+    }
+
+    private static String randomName(Random random) {
+        StringBuilder name = new StringBuilder();
+        int length = 1 + random.nextInt(4);
+        for (int i = 0; i < length; i++) {
+            name.append((char) ('a' + random.nextInt(4)));
+        }
+        return name.toString();
+    }
+
+    private static List<TagSuggestionDto> linearScan(Collection<TagSuggestionDto> tags, String prefix, int limit) {
+        return tags.stream()
+                .filter(tag -> tag.getName().startsWith(prefix))
+                .sorted(Comparator.comparingLong(TagSuggestionDto::getUsageCount).reversed()
+                        .thenComparing(TagSuggestionDto::getName))
+                .limit(limit)
+                .toList();
+    }
+
+}
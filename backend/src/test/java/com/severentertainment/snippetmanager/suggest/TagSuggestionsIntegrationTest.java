@@ -0,0 +1,164 @@
+package com.severentertainment.snippetmanager.suggest;
+
+import com.severentertainment.snippetmanager.domain.Snippet;
+import com.severentertainment.snippetmanager.domain.Tag;
+import com.severentertainment.snippetmanager.dto.TagResponseDto;
+import com.severentertainment.snippetmanager.dto.TagSuggestionDto;
+import com.severentertainment.snippetmanager.service.SnippetDataChangedEvent;
+import com.severentertainment.snippetmanager.service.SnippetService;
+import com.severentertainment.snippetmanager.service.TagService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Checks that tag suggestions follow committed tag and snippet changes. Not @Transactional, as the index is only
+ * updated after a commit.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+@AutoConfigureMockMvc
+public class TagSuggestionsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TagSuggestions tagSuggestions;
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private SnippetService snippetService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    public void clearData() throws InterruptedException {
+        deleteCommittedData();
+        awaitSuggestions("", List::isEmpty);
+    }
+
+    // The data is committed, so it is deleted again to keep it and its cache entries from other tests
+    @AfterEach
+    public void deleteCommittedData() {
+        jdbcTemplate.update("delete from snippet_tag");
+        jdbcTemplate.update("delete from snippet");
+        jdbcTemplate.update("delete from tag");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        eventPublisher.publishEvent(SnippetDataChangedEvent.reset());
+    }
+
+    // The index is updated in the background shortly after a change
+    private List<String> awaitSuggestions(String prefix, Predicate<List<String>> condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        List<String> names;
+        do {
+            names = tagSuggestions.suggest(prefix, TagSuggestions.MAX_LIMIT).stream().map(TagSuggestionDto::getName).toList();
+            if (condition.test(names)) {
+                return names;
+            }
+            Thread.sleep(10);
+        } while (System.nanoTime() < deadline);
+        return names;
+    }
+
+    private static Tag tagNamed(String name) {
+        Tag tag = new Tag();
+        tag.setName(name);
+        return tag;
+    }
+
+    private static Snippet snippetTitled(String title) {
+        Snippet snippet = new Snippet();
+        snippet.setTitle(title);
+        snippet.setContent("Content of " + title);
+        return snippet;
+    }
+
+    @Test
+    public void suggest_shouldFollowTagCreateUpdateAndDelete() throws Exception {
+        TagResponseDto java = tagService.createOrGetTag(tagNamed("Java"));
+        tagService.createOrGetTag(tagNamed("JavaScript"));
+
+        // 1. Check that created tags are suggested
+        assertEquals(List.of("java", "javascript"), awaitSuggestions("ja", names -> names.size() == 2));
+
+        // 2. Check that a renamed tag is suggested under its new name only
+        tagService.updateTag(java.getId(), tagNamed("Jakarta"));
+        assertEquals(List.of("jakarta", "javascript"), awaitSuggestions("ja", names -> names.contains("jakarta")));
+        assertEquals(List.of("javascript"), awaitSuggestions("jav", names -> names.size() == 1));
+
+        // 3. Check that a deleted tag is no longer suggested
+        tagService.deleteTag(java.getId());
+        assertEquals(List.of("javascript"), awaitSuggestions("ja", names -> names.size() == 1));
+    }
+
+    @Test
+    public void suggestTags_shouldRankByUsage() throws Exception {
+        snippetService.createSnippet(snippetTitled("First"), List.of("spring", "sql"));
+        snippetService.createSnippet(snippetTitled("Second"), List.of("sql"));
+        tagService.createOrGetTag(tagNamed("scala"));
+        awaitSuggestions("s", names -> names.size() == 3);
+
+        // 1. Check the endpoint, with the prefix normalized like tag names
+        mockMvc.perform(get("/api/v1/tags/suggest").param("prefix", " S"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name", contains("sql", "spring", "scala")))
+                .andExpect(jsonPath("$[*].usageCount", contains(2, 1, 0)));
+
+        // 2. Check the limit, and that a limit out of range is rejected
+        mockMvc.perform(get("/api/v1/tags/suggest").param("prefix", "s").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name", contains("sql")));
+        mockMvc.perform(get("/api/v1/tags/suggest").param("prefix", "s").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/tags/suggest").param("limit", String.valueOf(TagSuggestions.MAX_LIMIT + 1)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void suggest_shouldFollowUsageOfSnippetChanges() throws Exception {
+        Long first = snippetService.createSnippet(snippetTitled("First"), List.of("spring", "sql")).getId();
+        Long second = snippetService.createSnippet(snippetTitled("Second"), List.of("spring")).getId();
+        assertEquals(List.of("spring", "sql"), awaitSuggestions("s", names -> names.size() == 2));
+
+        // 1. Check that retagging a snippet moves its usage from the unlinked tag to the linked one
+        snippetService.updateSnippet(first, snippetTitled("First"), List.of("sql", "scala"));
+        assertEquals(List.of("scala", "spring", "sql"), awaitSuggestions("s", List.of("scala", "spring", "sql")::equals));
+        assertEquals(List.of(1L, 1L, 1L), usageCounts("s"));
+
+        // 2. Check that deleting a snippet drops the usage of its tags
+        snippetService.deleteSnippet(second);
+        assertEquals(List.of("scala", "sql", "spring"), awaitSuggestions("s", List.of("scala", "sql", "spring")::equals));
+        assertEquals(List.of(1L, 1L, 0L), usageCounts("s"));
+    }
+
+    private List<Long> usageCounts(String prefix) {
+        return tagSuggestions.suggest(prefix, TagSuggestions.MAX_LIMIT).stream().map(TagSuggestionDto::getUsageCount).toList();
+    }
+
+}
@@ -3,7 +3,7 @@ import React, { useState, useEffect } from 'react';
 import { Routes, Route, Outlet, Link } from 'react-router-dom';
 import SnippetList from "./components/SnippetList";
 import CreateSnippetForm from './components/CreateSnippetForm';
-import { getAllSnippets } from './services/snippetApiService.js';
+import { getAllSnippets, getSnippetById, subscribeToChanges } from './services/snippetApiService.js';
 import SnippetDetailsPage from './components/SnippetDetailsPage.jsx';
 
 function App() {
@@ -25,14 +25,56 @@ function App() {
         }
     };
 
+    /**
+     * Fetches the given snippets and replaces (or adds) them in the list; snippets that no longer exist are dropped.
+     */
+    const refreshSnippets = async (ids) => {
+        const results = await Promise.allSettled(ids.map((id) => getSnippetById(id)));
+        setSnippets((current) => {
+            const byId = new Map(current.map((snippet) => [snippet.id, snippet]));
+            results.forEach((result, i) => {
+                if (result.status === 'fulfilled') {
+                    byId.set(ids[i], result.value);
+                } else {
+                    byId.delete(ids[i]);
+                }
+            });
+            return [...byId.values()];
+        });
+    };
+
+    /**
+     * Applies one change from the change feed to the list, instead of fetching the whole list again.
+     */
+    const applyChange = (eventName, { snippetIds, tagIds }) => {
+        switch (eventName) {
+            case 'snippets.deleted':
+                setSnippets((current) => current.filter((snippet) => !snippetIds.includes(snippet.id)));
+                break;
+            case 'tags.deleted':
+                setSnippets((current) => current.map((snippet) => ({
+                    ...snippet,
+                    tags: snippet.tags.filter((tag) => !tagIds.includes(tag.id)),
+                })));
+                break;
+            case 'tags.created':
+                break; // Not shown until linked to a snippet
+            case 'reset':
+                fetchAllSnippets();
+                break;
+            default:
+                // Created or updated snippets, (un)linked tags, and renamed tags with the snippets that carry them
+                if (snippetIds.length > 0) {
+                    refreshSnippets(snippetIds);
+                }
+        }
+    };
+
     useEffect(() => {
         fetchAllSnippets();
+        return subscribeToChanges(applyChange);
     }, []);
 
-    const handleSnippetCreated = () => {
-        fetchAllSnippets();
-    }
-
     return (
         <div className="min-h-screen bg-slate-100 flex flex-col items-center p-6">
         
@@ -63,11 +105,11 @@ function App() {
 
                     {/* Create Snippet Form */}
                     <Route path="/snippets/new" element={
-                        <CreateSnippetForm onSnippetCreated={handleSnippetCreated} />
+                        <CreateSnippetForm />
                     } />
 
                     {/* Snippet Details Page */}
-                    <Route path="/snippets/:snippetId" element={<SnippetDetailsPage onSnippetUpdated={fetchAllSnippets} />} />
+                    <Route path="/snippets/:snippetId" element={<SnippetDetailsPage />} />
 
                 </Routes>
             </main>
@@ -1,6 +1,6 @@
 // frontend/src/components/CreateSnippetForm.jsx
-import React, { useState } from 'react';
-import { createSnippet } from '../services/snippetApiService.js';
+import React, { useEffect, useState } from 'react';
+import { createSnippet, suggestTags } from '../services/snippetApiService.js';
 
 /**
  * @module CreateSnippetForm
@@ -13,12 +13,34 @@ function CreateSnippetForm({ onSnippetCreated }) {
     // State for form inputs
     const [title, setTitle] = useState('');
     const [content, setContent] = useState('');
+    const [tags, setTags] = useState(''); // Comma-separated tag names
+    const [tagSuggestions, setTagSuggestions] = useState([]);
 
     // State for 
     const [isSubmitting, setIsSubmitting] = useState(false);
     const [feedbackMessage, setFeedbackMessage] = useState('');
     const [isError, setIsError] = useState(false);
 
+    // Suggest completions for the tag name being typed, i.e. the text after the last comma
+    const separator = tags.lastIndexOf(',');
+    const typedTags = separator >= 0 ? `${tags.slice(0, separator + 1)} ` : '';
+    const tagPrefix = tags.slice(separator + 1).trim();
+
+    useEffect(() => {
+        if (!tagPrefix) {
+            setTagSuggestions([]);
+            return;
+        }
+
+        let cancelled = false; // Ignores responses for prefixes typed over meanwhile
+        suggestTags(tagPrefix)
+            .then((suggestions) => !cancelled && setTagSuggestions(suggestions))
+            .catch(() => !cancelled && setTagSuggestions([]));
+        return () => {
+            cancelled = true;
+        };
+    }, [tagPrefix]);
+
     /**
      * Handles the form submission event and calls the API service.
      * 
@@ -41,8 +63,9 @@ function CreateSnippetForm({ onSnippetCreated }) {
         setIsError(false);
 
         try {
-            // Call the API service to create a new snippet
-            const newSnippetData = { title, content };
+            // Call the API service to create a new snippet, together with its tags
+            const tagNames = tags.split(',').map((name) => name.trim()).filter((name) => name);
+            const newSnippetData = { title, content, tags: tagNames };
             const createdSnippet = await createSnippet(newSnippetData);
 
             setFeedbackMessage(`Snippet "${createdSnippet.title}" created successfully with ID: ${createdSnippet.id}!`);
@@ -51,6 +74,7 @@ function CreateSnippetForm({ onSnippetCreated }) {
             // Clear form fields
             setTitle('');
             setContent('');
+            setTags('');
 
             if (onSnippetCreated) {
                 onSnippetCreated();
@@ -101,6 +125,31 @@ function CreateSnippetForm({ onSnippetCreated }) {
                     />
                 </div>
 
+                {/* Display Tags */}
+                <div className="mb-6">
+                    <label htmlFor="tags" className="block text-sm font-medium text-gray-700 mb-1">
+                        Tags
+                    </label>
+                    <input
+                        type="text"
+                        id="tags"
+                        value={tags}
+                        onChange={(e) => setTags(e.target.value)} // Update 'tags' state
+                        list="tag-suggestions"
+                        autoComplete="off"
+                        placeholder="e.g. java, design docs"
+                        className="mt-1 block w-full px-3 py-2 border border-gray-300 rounded-md shadow-sm focus:outline-none focus:ring-sky-500 focus:border-sky-500 sm:text-sm"
+                        disabled={isSubmitting} // Disable input when submitting
+                    />
+                    <datalist id="tag-suggestions">
+                        {tagSuggestions.map((suggestion) => (
+                            <option key={suggestion.id} value={typedTags + suggestion.name}>
+                                {`${suggestion.name} (${suggestion.usageCount})`}
+                            </option>
+                        ))}
+                    </datalist>
+                </div>
+
                 {/* Display Create Button */}
                 <div className="flex items-center justify-end">
                     <button
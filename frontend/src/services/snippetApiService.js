@@ -50,6 +50,31 @@ export const getSnippetById = async (id) => {
     }
 }
 
+/**
+ * Fetches tag suggestions for the start of a tag name, most used tags first
+ * 
+ * @async
+ * @param {string} prefix - The start of the tag name as typed.
+ * @param {number} [limit=10] - The most suggestions to return, up to 20.
+ * @returns {Promise<Array<Object>>} A promise that resolves to an array of tag suggestions with id, name and usageCount.
+ * @throws {Error} If the fetch fails or the response is not ok.
+ */
+export const suggestTags = async (prefix, limit = 10) => {
+    try {
+        const params = new URLSearchParams({ prefix, limit: String(limit) });
+        const response = await fetch(`${API_BASE_URL}/tags/suggest?${params}`);
+        if (!response.ok) {
+            const errorData = await response.json().catch(() => ({ message: response.statusText }));
+            throw new Error(`Failed to fetch tag suggestions: ${response.status} ${errorData.message || ''}`);
+        }
+
+        return await response.json();
+    } catch (error) {
+        console.error("Error in suggestTags:", error);
+        throw error;
+    }
+}
+
 /**
  * Creates a new snippet through the backend API
  * 
@@ -57,7 +82,8 @@ export const getSnippetById = async (id) => {
  * @param {object} snippetData - An object containing the snippet's details.
  * @param {string} [snippetData.title] - The title of the snippet.
  * @param {string} [snippetData.content] - The content of the snippet.
- * @returns {Promise<Object>} A promise that resolves to the created Snippet DTO.
+ * @param {string[]} [snippetData.tags] - Names of the tags to attach; missing tags are created in the same request.
+ * @returns {Promise<Object>} A promise that resolves to the created Snippet DTO, including its tags.
  * @throws {Error} If the fetch fails or the response is not ok.
  */
 export const createSnippet = async (snippetData) => {
@@ -90,6 +116,7 @@ export const createSnippet = async (snippetData) => {
  * @param {object} snippetData - An object containing the updated snippet's details.
  * @param {string} [snippetData.title] - The title of the snippet.
  * @param {string} [snippetData.content] - The content of the snippet.
+ * @param {string[]} [snippetData.tags] - Names of the tags the snippet should have; if omitted, its tags are kept.
  * @returns {Promise<Object>} A promise that resolves to the updated Snippet DTO.
  * @throws {Error} If the fetch fails or the response is not ok.
  */
@@ -139,3 +166,30 @@ export const deleteSnippet = async (id) => {
         throw error;
     }
 }
+
+/**
+ * Subscribes to the server-sent event stream of committed changes to snippets and tags.
+ * The browser reconnects on its own and resumes after the last event it received.
+ *
+ * @param {function(string, Object): void} onChange - Called with the event name (e.g. 'snippets.created')
+ *     and its data, which holds the affected snippetIds and tagIds. A 'reset' event means changes were missed.
+ * @returns {function(): void} A function that closes the subscription.
+ */
+export const subscribeToChanges = (onChange) => {
+    const eventSource = new EventSource(`${API_BASE_URL}/changes`);
+    const eventNames = [
+        'snippets.created', 'snippets.updated', 'snippets.deleted',
+        'tags.created', 'tags.updated', 'tags.deleted', 'tags.linked', 'tags.unlinked',
+        'reset',
+    ];
+
+    eventNames.forEach((eventName) => {
+        eventSource.addEventListener(eventName, (event) => onChange(eventName, JSON.parse(event.data)));
+    });
+
+    eventSource.onerror = () => {
+        console.warn("Change feed disconnected, reconnecting...");
+    };
+
+    return () => eventSource.close();
+}